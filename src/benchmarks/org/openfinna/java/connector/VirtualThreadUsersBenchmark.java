@@ -0,0 +1,205 @@
+package org.openfinna.java.connector;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openfinna.java.connector.classes.UserAuthentication;
+import org.openfinna.java.connector.classes.models.User;
+import org.openfinna.java.connector.classes.models.UserType;
+import org.openfinna.java.connector.classes.models.loans.Loan;
+import org.openfinna.java.connector.http.WebClient;
+import org.openfinna.java.connector.interfaces.LoansInterface;
+import org.openfinna.java.connector.interfaces.LoginInterface;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Many concurrent users against a local mock portal, each user on its own thread: log in, then fetch the loans page
+ * a few times. Compares {@link FinnaBlockingClient} with bridging the callback API with a CountDownLatch per call.
+ * <p>
+ * Runs on virtual threads when the JDK has them (21+), otherwise on platform threads.
+ * Usage: VirtualThreadUsersBenchmark [users] [requestsPerUser] [blocking|latch]
+ */
+public class VirtualThreadUsersBenchmark {
+
+    private static final String LOGIN_FORM = "<html><body><form><input name=\"csrf\" value=\"token\"><input type=\"submit\" name=\"processLogin\" value=\"Login\"></form></body></html>";
+    private static final String LOANS_PAGE = "<html><body><table class=\"myresearch-table\"><tr class=\"myresearch-row\" id=\"recordtest.1\"><td><a class=\"record-title\">Title</a></td></tr></table></body></html>";
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int requestsPerUser = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String mode = args.length > 2 ? args[2] : "blocking";
+
+        ExecutorService userExecutor = newUserExecutor();
+        HttpServer server = startServer(userExecutor);
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        try {
+            // Warm up the transport and the parsers before measuring
+            run(baseUrl, userExecutor, Math.min(users, 200), 2, mode);
+            long started = System.nanoTime();
+            int errors = run(baseUrl, userExecutor, users, requestsPerUser, mode);
+            long elapsed = System.nanoTime() - started;
+            int requests = users * (requestsPerUser + 3);
+            System.out.printf("%s: %d users on %s threads, %d requests in %d ms, %.0f requests/s, %d errors%n",
+                    mode, users, isVirtual(userExecutor) ? "virtual" : "platform", requests,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), requests / (elapsed / 1e9), errors);
+        } finally {
+            server.stop(0);
+            userExecutor.shutdownNow();
+        }
+    }
+
+    private static int run(String baseUrl, ExecutorService executor, int users, int requestsPerUser, String mode) throws Exception {
+        AtomicInteger errors = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            int user = i;
+            futures.add(executor.submit(() -> {
+                FinnaClient finnaClient = new FinnaClient(new WebClient.Builder().baseUrl(baseUrl).build());
+                UserAuthentication authentication = new UserAuthentication(new UserType("test", ""), "user" + user, "pass");
+                try {
+                    if (mode.equals("latch"))
+                        latchUser(finnaClient, authentication, requestsPerUser);
+                    else
+                        blockingUser(new FinnaBlockingClient(finnaClient), authentication, requestsPerUser);
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return errors.get();
+    }
+
+    private static void blockingUser(FinnaBlockingClient client, UserAuthentication authentication, int requests) throws IOException {
+        client.login(authentication, false);
+        for (int i = 0; i < requests; i++) {
+            if (client.getLoans().size() != 1)
+                throw new IllegalStateException("Unexpected loans");
+        }
+    }
+
+    /**
+     * The pattern callers of the callback API use today, one latch and callback object per call
+     */
+    private static void latchUser(FinnaClient client, UserAuthentication authentication, int requests) throws Exception {
+        AtomicReference<Exception> error = new AtomicReference<>();
+        CountDownLatch loginLatch = new CountDownLatch(1);
+        client.login(authentication, false, new LoginInterface() {
+            @Override
+            public void onError(Exception e) {
+                error.set(e);
+                loginLatch.countDown();
+            }
+
+            @Override
+            public void onLogin(UserAuthentication userAuthentication, User user) {
+                loginLatch.countDown();
+            }
+        });
+        loginLatch.await();
+        if (error.get() != null)
+            throw error.get();
+        for (int i = 0; i < requests; i++) {
+            CountDownLatch latch = new CountDownLatch(1);
+            client.getLoans(new LoansInterface() {
+                @Override
+                public void onGetLoans(List<Loan> loans) {
+                    latch.countDown();
+                }
+
+                @Override
+                public void onLoanRenew(Loan loan, String status) {
+
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    error.set(e);
+                    latch.countDown();
+                }
+            });
+            latch.await();
+            if (error.get() != null)
+                throw error.get();
+        }
+    }
+
+    private static HttpServer startServer(ExecutorService executor) throws IOException {
+        Set<String> sessions = ConcurrentHashMap.newKeySet();
+        AtomicInteger sessionCounter = new AtomicInteger();
+        // The JDK server closes keep-alive connections above its default idle limit, the client pool keeps them all
+        System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(Integer.MAX_VALUE));
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getRawQuery();
+            String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+            String session = null;
+            if (cookie != null) {
+                for (String part : cookie.split(";")) {
+                    String[] pair = part.trim().split("=", 2);
+                    if (pair.length == 2 && pair[0].equals("PHPSESSID"))
+                        session = pair[1];
+                }
+            }
+            boolean loggedIn = session != null && sessions.contains(session);
+            exchange.getRequestBody().close();
+            if (path.equals("/MyResearch/UserLogin")) {
+                respond(exchange, 200, LOGIN_FORM);
+            } else if (path.equals("/MyResearch/Home")) {
+                String newSession = "s" + sessionCounter.incrementAndGet();
+                sessions.add(newSession);
+                exchange.getResponseHeaders().add("Set-Cookie", "PHPSESSID=" + newSession + "; Path=/");
+                respond(exchange, 205, null);
+            } else if (path.equals("/AJAX/JSON") && query != null && query.contains("getUserTransactions")) {
+                respond(exchange, loggedIn ? 200 : 401, "{}");
+            } else if (path.equals("/MyResearch/CheckedOut")) {
+                respond(exchange, 200, loggedIn ? LOANS_PAGE : LOGIN_FORM);
+            } else {
+                respond(exchange, 404, "");
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(code, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() through reflection, so the benchmark also compiles for Java 8
+     */
+    private static ExecutorService newUserExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static boolean isVirtual(ExecutorService executor) {
+        return !(executor instanceof ThreadPoolExecutor);
+    }
+}
@@ -0,0 +1,58 @@
+package org.openfinna.java.connector.http;
+
+import okhttp3.CacheControl;
+import okhttp3.Request;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building one session page request. legacyRequest is the code WebClient used before URL
+ * memoization: two URI parses for the URL, two more per header, a new CacheControl and a string URL
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBuildingBenchmark {
+
+    private static final String BASE_URL = "https://finna.fi";
+    private static final String PATH = "AJAX/JSON?method=getUserTransactions";
+
+    private WebClient webClient;
+
+    @Setup
+    public void setUp() {
+        webClient = new WebClient();
+    }
+
+    @Benchmark
+    public Request legacyRequest() throws URISyntaxException {
+        Request.Builder request = new Request.Builder()
+                .url(getProtocol(BASE_URL) + "://" + getDomainName(BASE_URL) + "/" + PATH)
+                .cacheControl(new CacheControl.Builder().noCache().build())
+                .get();
+        request.addHeader("Referer", getProtocol(BASE_URL) + "://" + getDomainName(BASE_URL) + "/");
+        request.addHeader("Origin", getProtocol(BASE_URL) + "://" + getDomainName(BASE_URL) + "/");
+        request.addHeader("User-Agent", "Mozilla/5.0");
+        return request.build();
+    }
+
+    @Benchmark
+    public Request memoizedRequest() {
+        return webClient.newRequest(webClient.generateHttpUrl(PATH), null, CacheControl.FORCE_NETWORK);
+    }
+
+    private static String getDomainName(String url) throws URISyntaxException {
+        String domain = new URI(url).getHost();
+        return domain.startsWith("www.") ? domain.substring(4) : domain;
+    }
+
+    private static String getProtocol(String url) throws URISyntaxException {
+        return new URI(url).getScheme();
+    }
+}
@@ -0,0 +1,47 @@
+package org.openfinna.java.connector.metrics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording one request. Run with -prof gc: neither recorder should allocate once the endpoint is known
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsRecorderBenchmark {
+
+    private static final String ENDPOINT = "GET finna.fi/MyResearch/CheckedOut";
+
+    private MetricsRecorder disabled;
+    private MetricsRecorder hdr;
+    private long value;
+
+    @Setup
+    public void setUp() {
+        disabled = MetricsRecorder.NONE;
+        hdr = new HdrMetricsRecorder();
+    }
+
+    @Benchmark
+    public void disabled() {
+        record(disabled);
+    }
+
+    @Benchmark
+    public void hdr() {
+        record(hdr);
+    }
+
+    // Same guard as the client's hot paths
+    private void record(MetricsRecorder metricsRecorder) {
+        if (metricsRecorder.isEnabled()) {
+            long latency = (value++ & 0xFFFFF) * 1000;
+            metricsRecorder.recordRequest(ENDPOINT, latency / 10, latency, 4096, MetricsRecorder.Outcome.SUCCESS);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.openfinna.java.connector.parser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openfinna.java.connector.classes.ResourceInfo;
+import org.openfinna.java.connector.classes.SearchResult;
+import org.openfinna.java.connector.classes.models.libraries.Library;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a 100 record search response with raw data and a 25 library consortium response from the fixtures in
+ * src/test/resources/fixtures. The tree benchmarks do what FinnaClient did before the streaming parser: read the body
+ * to a String, validate it by building a JSONObject, build another one and parse that. Run with -prof gc and divide
+ * gc.alloc.rate.norm by 100 (records) or 25 (libraries) for allocation per item
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonParsingBenchmark {
+
+    private byte[] search;
+    private byte[] libraries;
+
+    @Setup
+    public void setUp() throws IOException {
+        search = Files.readAllBytes(new File("src/test/resources/fixtures", "search_100_rawdata.json").toPath());
+        libraries = Files.readAllBytes(new File("src/test/resources/fixtures", "libraries_consortium.json").toPath());
+    }
+
+    @Benchmark
+    public List<ResourceInfo> treeRecords() {
+        String body = new String(search, StandardCharsets.UTF_8);
+        if (!isJSONValid(body))
+            throw new IllegalStateException();
+        JSONObject object = new JSONObject(body);
+        return FinnaJSONParser.parseResourceInfos(object.optJSONArray("records"));
+    }
+
+    @Benchmark
+    public SearchResult streamRecords() throws IOException {
+        return FinnaJSONStreamParser.parseRecords(new InputStreamReader(new ByteArrayInputStream(search), StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public List<Library> treeLibraries() throws ParseException {
+        String body = new String(libraries, StandardCharsets.UTF_8);
+        if (!isJSONValid(body))
+            throw new IllegalStateException();
+        JSONObject object = new JSONObject(body);
+        return FinnaJSONParser.parseLibraries(object.optJSONObject("data").optJSONArray("list"));
+    }
+
+    @Benchmark
+    public List<Library> streamLibraries() throws IOException, ParseException {
+        return FinnaJSONStreamParser.parseLibraries(new InputStreamReader(new ByteArrayInputStream(libraries), StandardCharsets.UTF_8));
+    }
+
+    private static boolean isJSONValid(String test) {
+        try {
+            new JSONObject(test);
+        } catch (JSONException ignored) {
+            try {
+                new JSONArray(test);
+            } catch (JSONException ignored2) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,130 @@
+package org.openfinna.java.connector.parser;
+
+import org.openfinna.java.connector.classes.models.holds.Hold;
+import org.openfinna.java.connector.classes.models.loans.Loan;
+import org.openfinna.java.connector.classes.models.loans.RenewResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing synthetic MyResearch/CheckedOut and MyResearch/Holds pages with 500 rows. The rows are shaped like the ones
+ * Finna renders: checkboxes, a cover, core metadata and status text nested a few levels deep, plus page chrome
+ * around the table. The stream benchmarks read the page from bytes like from a response body
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MyResearchParsingBenchmark {
+
+    private static final int ROWS = 500;
+
+    private String loansPage;
+    private String holdsPage;
+    private byte[] loansBytes;
+    private byte[] holdsBytes;
+    private List<Loan> loans;
+
+    @Setup
+    public void setUp() {
+        loansPage = loansPage(ROWS);
+        holdsPage = holdsPage(ROWS);
+        loansBytes = loansPage.getBytes(StandardCharsets.UTF_8);
+        holdsBytes = holdsPage.getBytes(StandardCharsets.UTF_8);
+        loans = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            loans.add(new Loan("finna.loan" + i, "renew" + i));
+        }
+    }
+
+    @Benchmark
+    public List<Loan> loans() {
+        return KirkesHTMLParser.parseLoans(loansPage, "https://finna.fi");
+    }
+
+    @Benchmark
+    public Map<Loan, RenewResult> renewResults() {
+        return KirkesHTMLParser.parseRenewResults(loansPage, loans, "https://finna.fi");
+    }
+
+    @Benchmark
+    public List<Hold> holds() throws ParseException {
+        return KirkesHTMLParser.parseHolds(holdsPage, "https://finna.fi");
+    }
+
+    @Benchmark
+    public List<Loan> streamLoans() throws IOException {
+        return KirkesHTMLParser.parseLoans(new InputStreamReader(new ByteArrayInputStream(loansBytes), StandardCharsets.UTF_8), "https://finna.fi");
+    }
+
+    @Benchmark
+    public List<Hold> streamHolds() throws IOException, ParseException {
+        return KirkesHTMLParser.parseHolds(new InputStreamReader(new ByteArrayInputStream(holdsBytes), StandardCharsets.UTF_8), "https://finna.fi");
+    }
+
+    static String loansPage(int rows) {
+        StringBuilder html = pageStart();
+        html.append("<form name=\"renewals\" method=\"post\"><table class=\"myresearch-table\">");
+        for (int i = 0; i < rows; i++) {
+            html.append("<tr id=\"recordfinna.loan").append(i).append("\" class=\"myresearch-row\">")
+                    .append("<td class=\"text-left\"><label><input type=\"checkbox\" name=\"renewSelectedIDS[]\" value=\"renew").append(i).append("\" class=\"checkbox-select-item\"></label>")
+                    .append("<input type=\"hidden\" name=\"renewAllIDS[]\" value=\"renew").append(i).append("\"><input type=\"hidden\" name=\"selectAllIDS[]\" value=\"renew").append(i).append("\"></td>")
+                    .append("<td><div class=\"media\"><div class=\"media-left\"><a href=\"/Record/finna.record").append(i).append("\">")
+                    .append("<img src=\"/Cover/Show?id=finna.record").append(i).append("&amp;size=small\" class=\"recordcover\" alt=\"\"></a></div>")
+                    .append("<div class=\"media-body\"><a href=\"/Record/finna.record").append(i).append("\" class=\"title record-title\">Title of record ").append(i).append("</a>")
+                    .append("<div class=\"record-core-metadata\"><span class=\"author\"><a href=\"/Author/Home?author=Author\">Author ").append(i).append("</a></span>")
+                    .append("<span class=\"label label-info\">Book</span><span class=\"year\">2019</span></div>")
+                    .append(i % 10 == 0 ? "<div class=\"alert alert-success\">Renewed</div>" : "")
+                    .append("<div class=\"text-left\"><strong>Renewed ").append(i % 5).append("/5</strong><br><strong>Due ")
+                    .append(1 + i % 28).append('.').append(1 + i % 12).append(".2027</strong></div></div></div></td></tr>");
+        }
+        html.append("</table></form>");
+        return pageEnd(html);
+    }
+
+    static String holdsPage(int rows) {
+        StringBuilder html = pageStart();
+        html.append("<form name=\"cancelForm\" method=\"post\"><table class=\"myresearch-table\">");
+        for (int i = 0; i < rows; i++) {
+            html.append("<tr class=\"myresearch-row\"><td class=\"text-left\">")
+                    .append("<input type=\"checkbox\" name=\"cancelSelectedIDS[]\" value=\"hold").append(i).append("\" class=\"checkbox-select-item\">")
+                    .append("<input type=\"hidden\" name=\"cancelAllIDS[]\" value=\"hold").append(i).append("\"></td>")
+                    .append("<td><div class=\"media\"><div class=\"media-left\"><img src=\"/Cover/Show?id=finna.record").append(i).append("&amp;size=small\" class=\"recordcover\" alt=\"\"></div>")
+                    .append("<div class=\"media-body\"><a href=\"/Record/finna.record").append(i).append("\" class=\"title record-title\">Title of record ").append(i).append("</a>")
+                    .append("<div class=\"record-core-metadata\"><a href=\"/Author/Home?author=Author\">Author ").append(i).append("</a><span class=\"label label-info\">Book</span></div>")
+                    .append("<div class=\"pickup-location-container\">Pickup location: <span class=\"pickupLocationSelected\">Library ").append(i % 7).append("</span></div>")
+                    .append("<div class=\"holds-status-information\"><p>Queue position: ").append(i % 9).append("</p>")
+                    .append("<span>Created: ").append(1 + i % 28).append(".2.2026</span> <span>Expires: ").append(1 + i % 28).append(".2.2027</span></div>")
+                    .append("</div></div></td></tr>");
+        }
+        html.append("</table></form>");
+        return pageEnd(html);
+    }
+
+    private static StringBuilder pageStart() {
+        StringBuilder html = new StringBuilder("<!DOCTYPE html><html lang=\"fi\"><head><meta charset=\"utf-8\"><title>Finna</title>");
+        for (int i = 0; i < 20; i++) {
+            html.append("<link rel=\"stylesheet\" href=\"/themes/finna/css/").append(i).append(".css\">");
+        }
+        html.append("</head><body><header><nav class=\"navbar\"><ul>");
+        for (int i = 0; i < 30; i++) {
+            html.append("<li class=\"menu-item\"><a href=\"/Content/").append(i).append("\">Menu ").append(i).append("</a></li>");
+        }
+        return html.append("</ul></nav></header><main class=\"main\"><div class=\"container\"><div class=\"flash-message alert alert-info\">Info</div>");
+    }
+
+    private static String pageEnd(StringBuilder html) {
+        return html.append("</div></main><footer><p>Footer</p></footer></body></html>").toString();
+    }
+}
@@ -0,0 +1,88 @@
+package org.openfinna.java.connector.parser;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openfinna.java.connector.classes.models.libraries.Image;
+import org.openfinna.java.connector.classes.models.libraries.Link;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding the subjects of 100 records and the links and pictures of 25 libraries from the fixtures, the way the tree
+ * parser did it before ParserContext (a new Gson and TypeToken for every call) and with the shared context
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserContextBenchmark {
+
+    private final List<String> subjects = new ArrayList<>();
+    private final List<String> links = new ArrayList<>();
+    private final List<String> pictures = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        JSONObject search = new JSONObject(new String(Files.readAllBytes(new File("src/test/resources/fixtures", "search_100_rawdata.json").toPath()), StandardCharsets.UTF_8));
+        JSONArray records = search.getJSONArray("records");
+        for (int i = 0; i < records.length(); i++) {
+            JSONArray array = records.getJSONObject(i).optJSONArray("subjects");
+            if (array != null)
+                subjects.add(array.toString());
+        }
+        JSONObject libraries = new JSONObject(new String(Files.readAllBytes(new File("src/test/resources/fixtures", "libraries_consortium.json").toPath()), StandardCharsets.UTF_8));
+        JSONArray list = libraries.getJSONObject("data").getJSONArray("list");
+        for (int i = 0; i < list.length(); i++) {
+            JSONObject library = list.getJSONObject(i);
+            if (library.has("links"))
+                links.add(library.getJSONArray("links").toString());
+            if (library.has("pictures"))
+                pictures.add(library.getJSONArray("pictures").toString());
+        }
+    }
+
+    @Benchmark
+    public void gsonPerCall(Blackhole blackhole) {
+        for (String json : subjects) {
+            List<List<String>> value = new Gson().fromJson(json, TypeToken.getParameterized(List.class, TypeToken.getParameterized(List.class, String.class).getType()).getType());
+            blackhole.consume(value);
+        }
+        for (String json : links) {
+            List<Link> value = new Gson().fromJson(json, TypeToken.getParameterized(List.class, Link.class).getType());
+            blackhole.consume(value);
+        }
+        for (String json : pictures) {
+            List<Image> value = new Gson().fromJson(json, TypeToken.getParameterized(List.class, Image.class).getType());
+            blackhole.consume(value);
+        }
+    }
+
+    @Benchmark
+    public void sharedContext(Blackhole blackhole) {
+        Gson gson = ParserContext.getDefault().getGson();
+        for (String json : subjects) {
+            List<List<String>> value = gson.fromJson(json, ParserContext.STRING_LISTS);
+            blackhole.consume(value);
+        }
+        for (String json : links) {
+            List<Link> value = gson.fromJson(json, ParserContext.LINKS);
+            blackhole.consume(value);
+        }
+        for (String json : pictures) {
+            List<Image> value = gson.fromJson(json, ParserContext.IMAGES);
+            blackhole.consume(value);
+        }
+    }
+}
@@ -1,9 +1,30 @@
 package org.openfinna.java;
 
+import org.openfinna.java.connector.FinnaAsyncClient;
+import org.openfinna.java.connector.FinnaBlockingClient;
 import org.openfinna.java.connector.FinnaClient;
+import org.openfinna.java.connector.http.WebClient;
 
 public class OpenFinna {
     public static FinnaClient newClient() {
         return new FinnaClient();
     }
+
+    /**
+     * New client for a Finna based portal other than finna.fi
+     *
+     * @param baseUrl Base URL of the portal, for example https://keski.finna.fi
+     * @return FinnaClient
+     */
+    public static FinnaClient newClient(String baseUrl) {
+        return new FinnaClient(new WebClient.Builder().baseUrl(baseUrl).build());
+    }
+
+    public static FinnaAsyncClient newAsyncClient() {
+        return new FinnaAsyncClient();
+    }
+
+    public static FinnaBlockingClient newBlockingClient() {
+        return new FinnaBlockingClient();
+    }
 }
@@ -0,0 +1,715 @@
+package org.openfinna.java.connector;
+
+import org.openfinna.java.connector.classes.ResourceInfo;
+import org.openfinna.java.connector.classes.ResourceInfoBatch;
+import org.openfinna.java.connector.classes.SearchResult;
+import org.openfinna.java.connector.classes.UserAuthentication;
+import org.openfinna.java.connector.classes.models.AccountSnapshot;
+import org.openfinna.java.connector.classes.models.Resource;
+import org.openfinna.java.connector.classes.models.User;
+import org.openfinna.java.connector.classes.models.UserType;
+import org.openfinna.java.connector.classes.models.building.Building;
+import org.openfinna.java.connector.classes.models.fines.Fines;
+import org.openfinna.java.connector.classes.models.holds.Hold;
+import org.openfinna.java.connector.classes.models.holds.HoldCancelResult;
+import org.openfinna.java.connector.classes.models.holds.HoldingDetails;
+import org.openfinna.java.connector.classes.models.holds.PickupLocation;
+import org.openfinna.java.connector.classes.models.holds.PickupLocations;
+import org.openfinna.java.connector.classes.models.libraries.Library;
+import org.openfinna.java.connector.classes.models.loans.Loan;
+import org.openfinna.java.connector.classes.models.loans.RenewResult;
+import org.openfinna.java.connector.classes.models.resource.RecordField;
+import org.openfinna.java.connector.exceptions.DeadlineExceededException;
+import org.openfinna.java.connector.http.CallScope;
+import org.openfinna.java.connector.metrics.MetricsRecorder;
+import org.openfinna.java.connector.interfaces.*;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CompletableFuture based API on top of {@link FinnaClient}. Requests are made with OkHttp's asynchronous calls,
+ * so no thread is blocked while waiting for Finna.
+ * <p>
+ * Cancelling a returned future cancels the HTTP calls of that operation, including the ones it would make later
+ * (for example the hold page request of {@link #getPickupLocations(Resource, String)}). A session re-login shared
+ * with other operations is not cancelled.
+ * <p>
+ * Futures are completed on the completion executor, never on the OkHttp dispatcher threads.
+ * <p>
+ * {@link #withTimeout(long, TimeUnit)} gives the operations a deadline covering all of their requests.
+ */
+public class FinnaAsyncClient {
+
+    private final FinnaClient finnaClient;
+    private final Executor completionExecutor;
+    // 0 for no deadline
+    private final long timeoutNanos;
+
+    public FinnaAsyncClient() {
+        this(new FinnaClient());
+    }
+
+    /**
+     * @param finnaClient client to run the operations with, the session is shared with it
+     */
+    public FinnaAsyncClient(FinnaClient finnaClient) {
+        this(finnaClient, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param finnaClient        client to run the operations with, the session is shared with it
+     * @param completionExecutor executor completing the futures, and so running the non-async dependent stages
+     */
+    public FinnaAsyncClient(FinnaClient finnaClient, Executor completionExecutor) {
+        this(finnaClient, completionExecutor, 0);
+    }
+
+    private FinnaAsyncClient(FinnaClient finnaClient, Executor completionExecutor, long timeoutNanos) {
+        this.finnaClient = finnaClient;
+        this.completionExecutor = completionExecutor;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /**
+     * Client whose operations each have a deadline. The time is shared by all requests of an operation, for example
+     * the precheck, hold page, pickup location and default location requests of
+     * {@link #getPickupLocations(Resource, String)}: each request gets what is left as its timeout. When the deadline
+     * passes, the calls are cancelled and the future fails with {@link DeadlineExceededException}
+     *
+     * @param timeout time an operation may take
+     * @param unit    unit of timeout
+     * @return client sharing the session and executor with this one
+     */
+    public FinnaAsyncClient withTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0)
+            throw new IllegalArgumentException("timeout must be positive");
+        return new FinnaAsyncClient(finnaClient, completionExecutor, unit.toNanos(timeout));
+    }
+
+    public FinnaClient getFinnaClient() {
+        return finnaClient;
+    }
+
+    /**
+     * Sign in with user authentication
+     *
+     * @param userAuthentication User Authentication (includes username, password and type)
+     * @param fetchUserDetails   Whether to fetch user details or not
+     * @return user details, null if not fetched
+     */
+    public CompletableFuture<User> login(UserAuthentication userAuthentication, boolean fetchUserDetails) {
+        return execute("login", completion -> finnaClient.login(userAuthentication, fetchUserDetails, loginInterface(completion)));
+    }
+
+    public CompletableFuture<User> changeUserAuthentication(UserAuthentication userAuthentication, boolean fetchUserDetails) {
+        return execute("changeUserAuthentication", completion -> finnaClient.changeUserAuthentication(userAuthentication, fetchUserDetails, loginInterface(completion)));
+    }
+
+    public CompletableFuture<List<Loan>> getLoans() {
+        return execute("getLoans", completion -> finnaClient.getLoans(new LoansInterface() {
+            @Override
+            public void onGetLoans(List<Loan> loans) {
+                completion.complete(loans);
+            }
+
+            @Override
+            public void onLoanRenew(Loan loan, String status) {
+
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    /**
+     * Renew a loan
+     *
+     * @param loan Loan
+     * @return status message of the renewal
+     */
+    public CompletableFuture<String> renewLoan(Loan loan) {
+        return execute("renewLoan", completion -> finnaClient.renewLoan(loan, new LoansInterface() {
+            @Override
+            public void onGetLoans(List<Loan> loans) {
+
+            }
+
+            @Override
+            public void onLoanRenew(Loan loan, String status) {
+                completion.complete(status);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    /**
+     * Renew many loans with a single request
+     *
+     * @param loans Loans to renew
+     * @return renew results keyed by the given loans in their order
+     */
+    public CompletableFuture<Map<Loan, RenewResult>> renewLoans(Collection<Loan> loans) {
+        return execute("renewLoans", completion -> finnaClient.renewLoans(loans, new LoansRenewInterface() {
+            @Override
+            public void onLoansRenew(Map<Loan, RenewResult> results) {
+                completion.complete(results);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    public CompletableFuture<List<Hold>> getHolds() {
+        return execute("getHolds", completion -> finnaClient.getHolds(new HoldsCompletion<List<Hold>>(completion) {
+            @Override
+            public void onGetHolds(List<Hold> holds) {
+                completion.complete(holds);
+            }
+        }));
+    }
+
+    public CompletableFuture<Void> makeHold(Resource resource, PickupLocation pickupLocation, HoldingDetails.HoldingType holdingType, String comment, String partText, Date requiredBy) {
+        return makeHold(resource.getId(), pickupLocation, holdingType, comment, partText, requiredBy);
+    }
+
+    public CompletableFuture<Void> makeHold(String id, PickupLocation pickupLocation, HoldingDetails.HoldingType holdingType, String comment, String partText, Date requiredBy) {
+        return execute("makeHold", completion -> finnaClient.makeHold(id, pickupLocation, holdingType, comment, partText, requiredBy, new HoldsCompletion<Void>(completion) {
+            @Override
+            public void onMakeHold() {
+                completion.complete(null);
+            }
+        }));
+    }
+
+    public CompletableFuture<Void> cancelHold(Hold hold) {
+        return execute("cancelHold", completion -> finnaClient.cancelHold(hold, new HoldsCompletion<Void>(completion) {
+            @Override
+            public void onCancelHold() {
+                completion.complete(null);
+            }
+        }));
+    }
+
+    /**
+     * Cancel many holds with a single request
+     *
+     * @param holds Holds to cancel
+     * @return cancel results keyed by the given holds in their order
+     */
+    public CompletableFuture<Map<Hold, HoldCancelResult>> cancelHolds(Collection<Hold> holds) {
+        return execute("cancelHolds", completion -> finnaClient.cancelHolds(holds, new HoldsCancelInterface() {
+            @Override
+            public void onCancelHolds(Map<Hold, HoldCancelResult> results) {
+                completion.complete(results);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    /**
+     * Change hold's pickup location
+     *
+     * @param hold           Hold
+     * @param pickupLocation Pickup Location
+     * @return the same hold object (notice! new location is not included)
+     */
+    public CompletableFuture<Hold> changeHoldPickupLocation(Hold hold, PickupLocation pickupLocation) {
+        return execute("changeHoldPickupLocation", completion -> finnaClient.changeHoldPickupLocation(hold, pickupLocation, new HoldsCompletion<Hold>(completion) {
+            @Override
+            public void onChangePickupLocation(Hold hold) {
+                completion.complete(hold);
+            }
+        }));
+    }
+
+    public CompletableFuture<PickupLocation> changeDefaultPickupLocation(PickupLocation pickupLocation) {
+        return execute("changeDefaultPickupLocation", completion -> finnaClient.changeDefaultPickupLocation(pickupLocation, new PickupLocationChangeInterface() {
+            @Override
+            public void onPickupLocationChange(PickupLocation pickupLocation) {
+                completion.complete(pickupLocation);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    /**
+     * Get all pickup locations available for a resource
+     *
+     * @param resource Resource
+     * @param type     type
+     * @return locations, holding details and the default location of the account
+     */
+    public CompletableFuture<PickupLocations> getPickupLocations(Resource resource, String type) {
+        return execute("getPickupLocations", completion -> finnaClient.getPickupLocations(resource, new PickupLocationsInterface() {
+            @Override
+            public void onFetchPickupLocations(List<PickupLocation> locations, HoldingDetails holdingDetails, PickupLocation defaultLocation) {
+                completion.complete(new PickupLocations(locations, holdingDetails, defaultLocation));
+            }
+
+            @Override
+            public void onFetchDefaultPickupLocation(PickupLocation defaultLocation, List<PickupLocation> allLocations) {
+
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }, type));
+    }
+
+    /**
+     * Get default pickup location assigned to card/account
+     *
+     * @return all locations of the account and the default one, without holding details
+     */
+    public CompletableFuture<PickupLocations> getDefaultPickupLocation() {
+        return execute("getDefaultPickupLocation", completion -> finnaClient.getDefaultPickupLocation(new PickupLocationsInterface() {
+            @Override
+            public void onFetchPickupLocations(List<PickupLocation> locations, HoldingDetails holdingDetails, PickupLocation defaultLocation) {
+
+            }
+
+            @Override
+            public void onFetchDefaultPickupLocation(PickupLocation defaultLocation, List<PickupLocation> allLocations) {
+                completion.complete(new PickupLocations(allLocations, null, defaultLocation));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    public CompletableFuture<Fines> getFines() {
+        return execute("getFines", completion -> finnaClient.getFines(new FinesInterface() {
+            @Override
+            public void onFines(Fines fines) {
+                completion.complete(fines);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    public CompletableFuture<User> getAccountDetails() {
+        return execute("getAccountDetails", completion -> finnaClient.getAccountDetails(new AccountDetailsInterface() {
+            @Override
+            public void onGetAccountDetails(User user) {
+                completion.complete(user);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    /**
+     * Get loans, holds, fines and account details at once, see {@link FinnaClient#getAccountSnapshot(AccountSnapshotInterface)}
+     *
+     * @return snapshot, completed also when some of the parts failed
+     */
+    public CompletableFuture<AccountSnapshot> getAccountSnapshot() {
+        return execute("getAccountSnapshot", completion -> finnaClient.getAccountSnapshot(new AccountSnapshotInterface() {
+            @Override
+            public void onAccountSnapshot(AccountSnapshot snapshot) {
+                completion.complete(snapshot);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    public CompletableFuture<String> getSelectedCardId() {
+        return execute("getSelectedCardId", completion -> finnaClient.getSelectedCardId(new CardInterface() {
+            @Override
+            public void onFetchCurrentCardId(String cardId) {
+                completion.complete(cardId);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    public CompletableFuture<Building> getDefaultBuilding() {
+        return execute("getDefaultBuilding", completion -> finnaClient.getDefaultBuilding(new BuildingCompletion(completion)));
+    }
+
+    public CompletableFuture<Building> getDefaultBuilding(String cardId) {
+        return execute("getDefaultBuilding", completion -> finnaClient.getDefaultBuilding(cardId, new BuildingCompletion(completion)));
+    }
+
+    public CompletableFuture<List<Building>> getBuildings() {
+        return execute("getBuildings", completion -> finnaClient.getBuildings(new BuildingsCompletion(completion)));
+    }
+
+    /**
+     * Get Buildings via AJAX
+     * NOTE: This request is slow, totally about 1-2 seconds
+     *
+     * @return buildings
+     */
+    public CompletableFuture<List<Building>> getBuildingsViaAjax() {
+        return execute("getBuildingsViaAjax", completion -> finnaClient.getBuildingsViaAjax(new BuildingsCompletion(completion)));
+    }
+
+    public CompletableFuture<List<Library>> getLibraries() {
+        return execute("getLibraries", completion -> finnaClient.getLibraries(new LibrariesInterface() {
+            @Override
+            public void onGetLibraries(List<Library> libraries) {
+                completion.complete(libraries);
+            }
+
+            @Override
+            public void onGetLibrary(Library library) {
+
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    /**
+     * Get library extra data, see {@link FinnaClient#getLibrary(Library, LibrariesInterface)}
+     *
+     * @param library library
+     * @return the same library object with the extra data injected
+     */
+    public CompletableFuture<Library> getLibrary(Library library) {
+        return execute("getLibrary", completion -> finnaClient.getLibrary(library, new LibrariesInterface() {
+            @Override
+            public void onGetLibraries(List<Library> libraries) {
+
+            }
+
+            @Override
+            public void onGetLibrary(Library library) {
+                completion.complete(library);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    public CompletableFuture<String> getResourceDescription(String id) {
+        return execute("getResourceDescription", completion -> finnaClient.getResourceDescription(id, new DescriptionInterface() {
+            @Override
+            public void onGetDescription(String description) {
+                completion.complete(description);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    public CompletableFuture<ResourceInfo> resourceInfo(String id) {
+        return resourceInfo(id, false);
+    }
+
+    public CompletableFuture<ResourceInfo> resourceInfo(Resource resource, boolean rawData) {
+        return resourceInfo(resource.getId(), rawData);
+    }
+
+    public CompletableFuture<ResourceInfo> resourceInfo(String id, boolean rawData) {
+        return resourceInfo(id, RecordField.defaults(rawData));
+    }
+
+    /**
+     * Get resource info with only the given fields
+     *
+     * @param id     ID of resource
+     * @param fields Fields to request, id is always included
+     * @return resource info
+     */
+    public CompletableFuture<ResourceInfo> resourceInfo(String id, Set<RecordField> fields) {
+        return execute("resourceInfo", completion -> finnaClient.resourceInfo(id, fields, new ResourceInfoInterface() {
+            @Override
+            public void onResourceInfo(ResourceInfo resourceInfo) {
+                completion.complete(resourceInfo);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    /**
+     * Get resource infos of many records, see {@link FinnaClient#resourceInfos(Collection, boolean, int, ResourceInfosInterface)}
+     *
+     * @param ids IDs of resources
+     * @return found records and missing ids
+     */
+    public CompletableFuture<ResourceInfoBatch> resourceInfos(Collection<String> ids) {
+        return resourceInfos(ids, false, FinnaClient.DEFAULT_BATCH_CONCURRENCY);
+    }
+
+    public CompletableFuture<ResourceInfoBatch> resourceInfos(Collection<String> ids, boolean rawData, int maxConcurrency) {
+        return resourceInfos(ids, RecordField.defaults(rawData), maxConcurrency);
+    }
+
+    public CompletableFuture<ResourceInfoBatch> resourceInfos(Collection<String> ids, Set<RecordField> fields, int maxConcurrency) {
+        return execute("resourceInfos", completion -> finnaClient.resourceInfos(ids, fields, maxConcurrency, new ResourceInfosInterface() {
+            @Override
+            public void onResourceInfos(ResourceInfoBatch batch) {
+                completion.complete(batch);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    public CompletableFuture<SearchResult> search(String query) {
+        return search(query, 1, 10, false);
+    }
+
+    /**
+     * Make a search
+     *
+     * @param query   Query for search
+     * @param page    Page, starting from 1
+     * @param limit   Results per page
+     * @param rawData Whether to include raw data or not
+     * @return page of results
+     */
+    public CompletableFuture<SearchResult> search(String query, int page, int limit, boolean rawData) {
+        return search(query, page, limit, RecordField.defaults(rawData));
+    }
+
+    /**
+     * Make a search returning only the given fields of the records
+     *
+     * @param query  Query for search
+     * @param page   Page, starting from 1
+     * @param limit  Results per page
+     * @param fields Fields to request, id is always included
+     * @return page of results
+     */
+    public CompletableFuture<SearchResult> search(String query, int page, int limit, Set<RecordField> fields) {
+        return execute("search", completion -> finnaClient.search(query, page, limit, fields, new SearchInterface() {
+            @Override
+            public void onSearchResults(int totalCount, List<ResourceInfo> resourceInfoList) {
+                completion.complete(new SearchResult(totalCount, resourceInfoList));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+        }));
+    }
+
+    /**
+     * Get user types for sign in, in other words, get all available libraries
+     *
+     * @return user types
+     */
+    public CompletableFuture<List<UserType>> getUserTypes() {
+        return execute("getUserTypes", completion -> finnaClient.getUserTypes(new UserTypeInterface() {
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+
+            @Override
+            public void onUserTypes(List<UserType> userTypeList) {
+                completion.complete(userTypeList);
+            }
+        }));
+    }
+
+    /**
+     * Start the operation in its own call scope. Cancelling the future cancels the scope, and runtime exceptions
+     * thrown anywhere in the operation's callbacks fail the future instead of being lost in a dispatcher thread
+     *
+     * @param name name of the operation in metrics
+     */
+    private <T> CompletableFuture<T> execute(String name, Operation<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        MetricsRecorder metricsRecorder = finnaClient.getWebClient().getMetricsRecorder();
+        if (metricsRecorder.isEnabled()) {
+            long startedAt = System.nanoTime();
+            future.whenComplete((result, e) -> metricsRecorder.recordOperation(name, System.nanoTime() - startedAt, MetricsRecorder.Outcome.of(e)));
+        }
+        Completion<T> completion = new Completion<>(future, completionExecutor);
+        CallScope scope = timeoutNanos > 0 ? new CallScope(completion::fail, timeoutNanos, TimeUnit.NANOSECONDS) : new CallScope(completion::fail);
+        // Also fails an operation waiting for something other than its own calls, such as a shared re-login
+        if (timeoutNanos > 0)
+            scope.addExpiryListener(() -> completion.fail(new DeadlineExceededException()));
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled())
+                scope.cancel();
+            scope.close();
+        });
+        CallScope.run(scope, () -> operation.start(completion));
+        return future;
+    }
+
+    private LoginInterface loginInterface(Completion<User> completion) {
+        return new LoginInterface() {
+            @Override
+            public void onError(Exception e) {
+                completion.fail(e);
+            }
+
+            @Override
+            public void onLogin(UserAuthentication userAuthentication, User user) {
+                completion.complete(user);
+            }
+        };
+    }
+
+    private interface Operation<T> {
+        void start(Completion<T> completion);
+    }
+
+    private static final class Completion<T> {
+        private final CompletableFuture<T> future;
+        private final Executor executor;
+
+        private Completion(CompletableFuture<T> future, Executor executor) {
+            this.future = future;
+            this.executor = executor;
+        }
+
+        void complete(T result) {
+            if (!future.isDone())
+                executor.execute(() -> future.complete(result));
+        }
+
+        void fail(Throwable e) {
+            if (!future.isDone())
+                executor.execute(() -> future.completeExceptionally(e));
+        }
+    }
+
+    private abstract static class HoldsCompletion<T> implements HoldsInterface {
+        final Completion<T> completion;
+
+        HoldsCompletion(Completion<T> completion) {
+            this.completion = completion;
+        }
+
+        @Override
+        public void onGetHolds(List<Hold> holds) {
+
+        }
+
+        @Override
+        public void onChangePickupLocation(Hold hold) {
+
+        }
+
+        @Override
+        public void onMakeHold() {
+
+        }
+
+        @Override
+        public void onCancelHold() {
+
+        }
+
+        @Override
+        public void onError(Exception e) {
+            completion.fail(e);
+        }
+    }
+
+    private static final class BuildingCompletion implements LibraryChainInterface {
+        private final Completion<Building> completion;
+
+        BuildingCompletion(Completion<Building> completion) {
+            this.completion = completion;
+        }
+
+        @Override
+        public void onFetchDefaultLibraryBuilding(Building building) {
+            completion.complete(building);
+        }
+
+        @Override
+        public void onFetchLibraryBuildings(List<Building> buildingList) {
+
+        }
+
+        @Override
+        public void onError(Exception e) {
+            completion.fail(e);
+        }
+    }
+
+    private static final class BuildingsCompletion implements LibraryChainInterface {
+        private final Completion<List<Building>> completion;
+
+        BuildingsCompletion(Completion<List<Building>> completion) {
+            this.completion = completion;
+        }
+
+        @Override
+        public void onFetchDefaultLibraryBuilding(Building building) {
+
+        }
+
+        @Override
+        public void onFetchLibraryBuildings(List<Building> buildingList) {
+            completion.complete(buildingList);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            completion.fail(e);
+        }
+    }
+}
@@ -0,0 +1,736 @@
+package org.openfinna.java.connector;
+
+import okhttp3.FormBody;
+import okhttp3.HttpUrl;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.json.JSONObject;
+import org.jsoup.Jsoup;
+import org.openfinna.java.connector.cache.ResourceInfoCache;
+import org.openfinna.java.connector.classes.ResourceInfo;
+import org.openfinna.java.connector.classes.ResourceInfoBatch;
+import org.openfinna.java.connector.classes.SearchResult;
+import org.openfinna.java.connector.classes.UserAuthentication;
+import org.openfinna.java.connector.classes.models.Resource;
+import org.openfinna.java.connector.classes.models.User;
+import org.openfinna.java.connector.classes.models.UserType;
+import org.openfinna.java.connector.classes.models.building.Building;
+import org.openfinna.java.connector.classes.models.fines.Fines;
+import org.openfinna.java.connector.classes.models.holds.Hold;
+import org.openfinna.java.connector.classes.models.holds.HoldCancelResult;
+import org.openfinna.java.connector.classes.models.holds.HoldingDetails;
+import org.openfinna.java.connector.classes.models.holds.PickupLocation;
+import org.openfinna.java.connector.classes.models.holds.PickupLocations;
+import org.openfinna.java.connector.classes.models.libraries.Library;
+import org.openfinna.java.connector.classes.models.loans.Loan;
+import org.openfinna.java.connector.classes.models.loans.RenewResult;
+import org.openfinna.java.connector.classes.models.resource.RecordField;
+import org.openfinna.java.connector.exceptions.FinnaNotFoundException;
+import org.openfinna.java.connector.exceptions.InvalidCredentialsException;
+import org.openfinna.java.connector.exceptions.KirkesClientException;
+import org.openfinna.java.connector.exceptions.SessionValidationException;
+import org.openfinna.java.connector.http.WebClient;
+import org.openfinna.java.connector.metrics.MetricsRecorder;
+import org.openfinna.java.connector.parser.FinnaJSONStreamParser;
+import org.openfinna.java.connector.parser.KirkesHTMLParser;
+import org.openfinna.java.connector.parser.ParserContext;
+import org.openfinna.java.connector.utils.DateUtils;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Blocking API on top of {@link FinnaClient}, meant to be called from virtual threads (or any thread that may block).
+ * Requests are run with {@link okhttp3.Call#execute()} on the calling thread. No monitor is held during I/O, so a
+ * virtual thread waiting for Finna does not pin its carrier thread.
+ * <p>
+ * The session, cached building and authentication are shared with the FinnaClient, so both APIs can be used
+ * with the same login. An expired session is revalidated by the FinnaClient, blocking callers wait for the same
+ * revalidation as the callbacks. Network errors are thrown as {@link IOException}, Finna errors as
+ * {@link KirkesClientException}
+ * <p>
+ * Every method is recorded as an operation of the {@link MetricsRecorder} of the WebClient, under the name the
+ * {@link FinnaAsyncClient} uses, an operation calling another one records both
+ */
+public class FinnaBlockingClient {
+
+    private final FinnaClient finnaClient;
+    private final WebClient webClient;
+
+    public FinnaBlockingClient() {
+        this(new FinnaClient());
+    }
+
+    /**
+     * @param finnaClient client to share the session with
+     */
+    public FinnaBlockingClient(FinnaClient finnaClient) {
+        this.finnaClient = finnaClient;
+        this.webClient = finnaClient.getWebClient();
+    }
+
+    public FinnaClient getFinnaClient() {
+        return finnaClient;
+    }
+
+    /**
+     * Sign in with user authentication
+     *
+     * @param userAuthentication User Authentication (includes username, password and type)
+     * @param fetchUserDetails   Whether to fetch user details or not
+     * @return user details, null if not fetched
+     * @throws IOException on network error
+     */
+    public User login(UserAuthentication userAuthentication, boolean fetchUserDetails) throws IOException {
+        return timed("login", () -> {
+            finnaClient.beginLogin(userAuthentication);
+            loginRequest(userAuthentication);
+            User user = fetchUserDetails ? getAccountDetails() : null;
+            finnaClient.loggedIn(user);
+            return user;
+        });
+    }
+
+    /**
+     * Get all loans as list
+     *
+     * @return loans
+     * @throws IOException on network error
+     */
+    public List<Loan> getLoans() throws IOException {
+        return timed("getLoans", () -> {
+            String html = sessionPage("MyResearch/CheckedOut", null, true);
+            return parse("KirkesHTMLParser.parseLoans", () -> KirkesHTMLParser.parseLoans(html, webClient.getBaseOrigin()));
+        });
+    }
+
+    /**
+     * Renew a loan
+     *
+     * @param loan Loan
+     * @return status message of the renewal
+     * @throws IOException on network error
+     */
+    public String renewLoan(Loan loan) throws IOException {
+        return timed("renewLoan", () -> {
+            if (loan.getRenewId() == null)
+                throw new KirkesClientException("Loan can not be renewed");
+            return KirkesHTMLParser.checkRenewResult(sessionPage("MyResearch/CheckedOut", FinnaClient.renewForm(Collections.singletonList(loan)), true), loan);
+        });
+    }
+
+    /**
+     * Renew many loans with a single request
+     *
+     * @param loans Loans to renew, the ones without a renew id are not sent and are not renewed
+     * @return renew results keyed by the given loans in their order
+     * @throws IOException on network error
+     */
+    public Map<Loan, RenewResult> renewLoans(Collection<Loan> loans) throws IOException {
+        return timed("renewLoans", () -> {
+            if (!FinnaClient.anyRenewable(loans))
+                return FinnaClient.notRenewed(loans);
+            return KirkesHTMLParser.parseRenewResults(sessionPage("MyResearch/CheckedOut", FinnaClient.renewForm(loans), true), loans, webClient.getBaseOrigin());
+        });
+    }
+
+    /**
+     * Get all current holds as list
+     *
+     * @return holds
+     * @throws IOException    on network error
+     * @throws ParseException if a date of a hold could not be parsed
+     */
+    public List<Hold> getHolds() throws IOException, ParseException {
+        return timed("getHolds", () -> {
+            String html = sessionPage("MyResearch/Holds", null, true);
+            return parse("KirkesHTMLParser.parseHolds", () -> KirkesHTMLParser.parseHolds(html, webClient.getBaseOrigin()));
+        });
+    }
+
+    public void cancelHold(Hold hold) throws IOException {
+        timed("cancelHold", () -> {
+            if (!KirkesHTMLParser.canCancel(hold))
+                throw new KirkesClientException("Hold can not be cancelled");
+            if (!KirkesHTMLParser.getHomeLibraryResult(sessionPage("MyResearch/Holds", FinnaClient.cancelForm(Collections.singletonList(hold)), false)))
+                throw new KirkesClientException("Unable to cancel a hold");
+            return null;
+        });
+    }
+
+    /**
+     * Cancel many holds with a single request
+     *
+     * @param holds Holds to cancel, the ones without an action id or not cancellable are not sent and are not cancelled
+     * @return cancel results keyed by the given holds in their order
+     * @throws IOException on network error
+     */
+    public Map<Hold, HoldCancelResult> cancelHolds(Collection<Hold> holds) throws IOException {
+        return timed("cancelHolds", () -> {
+            if (!FinnaClient.anyCancellable(holds))
+                return FinnaClient.notCancelled(holds);
+            return KirkesHTMLParser.parseCancelResults(sessionPage("MyResearch/Holds", FinnaClient.cancelForm(holds), false), holds);
+        });
+    }
+
+    /**
+     * Make a hold of book
+     *
+     * @param id             ID of resource
+     * @param pickupLocation Pickup location
+     * @param holdingType    HoldingDetails holdingType, may be null
+     * @param comment        Comment, may be null
+     * @param partText       Part or issue, may be null
+     * @param requiredBy     Last interest date, may be null
+     * @throws IOException on network error
+     */
+    public void makeHold(String id, PickupLocation pickupLocation, HoldingDetails.HoldingType holdingType, String comment, String partText, Date requiredBy) throws IOException {
+        timed("makeHold", () -> {
+            String hashToken = hashKey(id);
+            FormBody.Builder postData = new FormBody.Builder()
+                    .add("gatheredDetails[pickUpLocation]", pickupLocation.getId())
+                    .add("layout", "lightbox")
+                    .add("gatheredDetails[acceptTerms]", "")
+                    .add("placeHold", "");
+            if (holdingType != null)
+                postData.add("gatheredDetails[requestGroupId]", holdingType.getId());
+            if (comment != null)
+                postData.add("gatheredDetails[comment]", comment);
+            if (partText != null)
+                postData.add("gatheredDetails[part_issue]", partText);
+            if (requiredBy != null)
+                postData.add("gatheredDetails[requiredBy]", DateUtils.formatDate(requiredBy));
+            HttpUrl url = webClient.generateHttpUrl("Record/" + id + "/Hold?id=" + id + "&level=title&hashKey=" + hashToken + "&layout=lightbox");
+            try (Response response = sessionResponse(url, postData.build(), false)) {
+                // A hold that was placed redirects back to the record, sessionResponse already failed on a login redirect
+                if (response.code() != 302)
+                    throw new KirkesClientException("Unable to make a hold, " + response.code());
+            }
+            return null;
+        });
+    }
+
+    public void makeHold(Resource resource, PickupLocation pickupLocation, HoldingDetails.HoldingType holdingType, String comment, String partText, Date requiredBy) throws IOException {
+        makeHold(resource.getId(), pickupLocation, holdingType, comment, partText, requiredBy);
+    }
+
+    /**
+     * Get all pickup locations available for a resource
+     *
+     * @param resource Resource
+     * @param type     Request group id, "0" if null
+     * @return locations, holding details of the resource and the default location of the account
+     * @throws IOException on network error
+     */
+    public PickupLocations getPickupLocations(Resource resource, String type) throws IOException {
+        String requestGroupId = type != null ? type : "0";
+        return timed("getPickupLocations", () -> {
+            JSONObject object = json(sessionPage(String.format("AJAX/JSON?method=%s&id=%s&requestGroupId=%s", "getRequestGroupPickupLocations", resource.getId(), requestGroupId), null, true));
+            List<PickupLocation> pickupLocations = ParserContext.getDefault().getGson().fromJson(object.optJSONObject("data").optJSONArray("locations").toString(), ParserContext.PICKUP_LOCATIONS);
+            String hashToken = hashKey(resource.getId());
+            HoldingDetails holdingDetails = KirkesHTMLParser.extractHoldingDetails(sessionPage(String.format("Record/%s/Hold?id=%s&level=title&hashKey=%s&layout=lightbox#tabnav", resource.getId(), resource.getId(), hashToken), null, true));
+            return new PickupLocations(pickupLocations, holdingDetails, getDefaultPickupLocation().getDefaultLocation());
+        });
+    }
+
+    /**
+     * Change hold's pickup location
+     *
+     * @param hold           Hold
+     * @param pickupLocation Pickup Location
+     * @throws IOException on network error
+     */
+    public void changeHoldPickupLocation(Hold hold, PickupLocation pickupLocation) throws IOException {
+        timed("changeHoldPickupLocation", () -> {
+            String body = sessionPage(String.format("AJAX/JSON?method=%s&requestId=%s&pickupLocationId=%s", "changePickupLocation", hold.getActionId(), pickupLocation.getId()), null, true);
+            JSONObject object = json(body).optJSONObject("data");
+            if (object == null)
+                throw new KirkesClientException("Malformed JSON: " + body);
+            if (!object.optBoolean("success", false))
+                throw new KirkesClientException("Finna error: " + object.optString("sysMessage", "Unknown"));
+            return null;
+        });
+    }
+
+    public void changeDefaultPickupLocation(PickupLocation pickupLocation) throws IOException {
+        timed("changeDefaultPickupLocation", () -> {
+            FormBody postData = new FormBody.Builder()
+                    .add("home_library", pickupLocation.getId())
+                    .build();
+            if (!KirkesHTMLParser.getHomeLibraryResult(sessionPage("MyResearch/Profile", postData, false)))
+                throw new KirkesClientException("Default pickup location changing failed");
+            return null;
+        });
+    }
+
+    public Fines getFines() throws IOException {
+        return timed("getFines", () -> KirkesHTMLParser.extractFines(sessionPage("MyResearch/Fines", null, true)));
+    }
+
+    /**
+     * Get account details. Default building of the card is fetched and cached like in
+     * {@link FinnaClient#getAccountDetails(org.openfinna.java.connector.interfaces.AccountDetailsInterface)}
+     *
+     * @return user details
+     * @throws IOException on network error
+     */
+    public User getAccountDetails() throws IOException {
+        return timed("getAccountDetails", () -> {
+            String html = sessionPage("MyResearch/Profile", null, true);
+            String cardId = KirkesHTMLParser.getCurrentCardId(html);
+            Building building = cardId != null ? getDefaultBuilding(cardId) : null;
+            return parse("KirkesHTMLParser.parseUserDetails", () -> building != null ? KirkesHTMLParser.parseUserDetails(html, building) : KirkesHTMLParser.parseUserDetails(html));
+        });
+    }
+
+    public String getSelectedCardId() throws IOException {
+        return timed("getSelectedCardId", () -> KirkesHTMLParser.getCurrentCardId(sessionPage("MyResearch/Profile", null, true)));
+    }
+
+    /**
+     * Get default pickup location assigned to card/account
+     *
+     * @return all locations of the account and the default one, without holding details
+     * @throws IOException on network error
+     */
+    public PickupLocations getDefaultPickupLocation() throws IOException {
+        return timed("getDefaultPickupLocation", () -> {
+            String html = sessionPage("MyResearch/Profile", null, true);
+            return new PickupLocations(KirkesHTMLParser.getHomeLibraries(html), null, KirkesHTMLParser.getHomeLibrary(html));
+        });
+    }
+
+    public Building getDefaultBuilding() throws IOException {
+        return timed("getDefaultBuilding", () -> {
+            Building cachedBuilding = finnaClient.getCachedBuilding();
+            if (cachedBuilding != null)
+                return cachedBuilding;
+            return defaultBuilding(getSelectedCardId());
+        });
+    }
+
+    public Building getDefaultBuilding(String cardId) throws IOException {
+        return timed("getDefaultBuilding", () -> defaultBuilding(cardId));
+    }
+
+    private Building defaultBuilding(String cardId) throws IOException {
+        Building cachedBuilding = finnaClient.getCachedBuilding();
+        if (cachedBuilding != null)
+            return cachedBuilding;
+        UserType chainDetails = KirkesHTMLParser.getActiveChain(sessionPage("LibraryCards/editCard/" + cardId, null, true));
+        if (chainDetails == null)
+            throw new KirkesClientException("Chain not found in card");
+        return finnaClient.defaultBuildingFound(chainDetails, getBuildings());
+    }
+
+    /**
+     * Get Buildings, from HTML
+     *
+     * @return buildings
+     * @throws IOException on network error
+     */
+    public List<Building> getBuildings() throws IOException {
+        return timed("getBuildings", () -> {
+            String html = sessionPage("Content/organisations", null, true);
+            return parse("KirkesHTMLParser.getBuildings", () -> KirkesHTMLParser.getBuildings(html));
+        });
+    }
+
+    /**
+     * Get Buildings via AJAX
+     * NOTE: This request is slow, totally about 1-2 seconds
+     *
+     * @return buildings
+     * @throws IOException on network error
+     */
+    public List<Building> getBuildingsViaAjax() throws IOException {
+        return timed("getBuildingsViaAjax", () -> {
+            String body = sessionPage("AJAX/JSON?method=getSideFacets&enabledFacets[]=building", null, true);
+            return parse("FinnaClient.getBuildingsViaAjax", () -> {
+                JSONObject object = json(body);
+                return ParserContext.getDefault().getGson().<List<Building>>fromJson(object.optJSONObject("data").optJSONObject("facets").optJSONObject("building").optJSONArray("list").toString(), ParserContext.BUILDINGS);
+            });
+        });
+    }
+
+    /**
+     * Get libraries of the default building
+     *
+     * @return libraries
+     * @throws IOException    on network error
+     * @throws ParseException if a schedule of a library could not be parsed
+     */
+    public List<Library> getLibraries() throws IOException, ParseException {
+        return timed("getLibraries", () -> {
+            Building building = getDefaultBuilding();
+            try (Response response = webClient.executeGetRequest(false, true, webClient.generateHttpUrl("AJAX/JSON?method=getOrganisationInfo&parent[id]=" + building.getRawId() + "&params[action]=consortium"))) {
+                if (response.code() != 200)
+                    throw new KirkesClientException("Response code " + response.code());
+                return parse("FinnaJSONStreamParser.parseLibraries", () -> FinnaJSONStreamParser.parseLibraries(response.body().charStream()));
+            }
+        });
+    }
+
+    /**
+     * Get library extra data (note! this only gets some data, not all of them! Only images, slogan, links, services and schedule notices, which aren't available from the library list)
+     *
+     * @param library library, the extra data is set to it
+     * @return the same library
+     * @throws IOException    on network error
+     * @throws ParseException if a schedule of the library could not be parsed
+     */
+    public Library getLibrary(Library library) throws IOException, ParseException {
+        return timed("getLibrary", () -> {
+            Building building = getDefaultBuilding();
+            Library detailLibrary;
+            try (Response response = webClient.executeGetRequest(false, true, webClient.generateHttpUrl("AJAX/JSON?method=getOrganisationInfo&parent[id]=" + building.getRawId() + "&params[action]=details&params[fullDetails]=1&params[allServices]&params[id]=" + library.getId()))) {
+                if (response.code() != 200)
+                    throw new KirkesClientException("Response code " + response.code());
+                detailLibrary = parse("FinnaJSONStreamParser.parseLibrary", () -> FinnaJSONStreamParser.parseLibrary(response.body().charStream()));
+            }
+            library.setImages(detailLibrary.getImages());
+            library.setSlogan(detailLibrary.getSlogan());
+            library.setLinks(detailLibrary.getLinks());
+            library.setServices(detailLibrary.getServices());
+            library.setScheduleNotices(detailLibrary.getScheduleNotices());
+            return library;
+        });
+    }
+
+    /**
+     * Make a search limited to the default building, first 10 results
+     *
+     * @param query Query of search
+     * @return total count and the results of the page
+     * @throws IOException on network error
+     */
+    public SearchResult search(String query) throws IOException {
+        return search(query, 1, 10, RecordField.defaults(false));
+    }
+
+    public SearchResult search(String query, int page, int limit, boolean rawData) throws IOException {
+        return search(query, page, limit, RecordField.defaults(rawData));
+    }
+
+    /**
+     * Make a search returning only the given fields of the records
+     *
+     * @param query  Query to search
+     * @param page   Page number
+     * @param limit  Max. number of items on a page
+     * @param fields Fields to request, id is always included
+     * @return total count and the results of the page
+     * @throws IOException on network error
+     */
+    public SearchResult search(String query, int page, int limit, Set<RecordField> fields) throws IOException {
+        return timed("search", () -> {
+            Building building = getDefaultBuilding();
+            SearchResult result = records(webClient.executeGetRequest(false, true, finnaClient.searchUrl(query, building, fields, page, limit)));
+            if (result.getTotalCount() > 0 && !result.getResourceInfos().isEmpty())
+                return result;
+            return new SearchResult(0, new ArrayList<>());
+        });
+    }
+
+    public ResourceInfo resourceInfo(String id) throws IOException {
+        return resourceInfo(id, false);
+    }
+
+    /**
+     * Get resource info
+     *
+     * @param id      ID of resource
+     * @param rawData Whether to include raw data object or not
+     * @return resource info
+     * @throws IOException             on network error
+     * @throws FinnaNotFoundException if there is no resource with the id
+     */
+    public ResourceInfo resourceInfo(String id, boolean rawData) throws IOException {
+        return resourceInfo(id, RecordField.defaults(rawData));
+    }
+
+    /**
+     * Get resource info with only the given fields
+     *
+     * @param id     ID of resource
+     * @param fields Fields to request, id is always included
+     * @return resource info
+     * @throws IOException             on network error
+     * @throws FinnaNotFoundException if there is no resource with the id
+     */
+    public ResourceInfo resourceInfo(String id, Set<RecordField> fields) throws IOException {
+        return timed("resourceInfo", () -> {
+            ResourceInfoCache cache = finnaClient.getResourceInfoCache();
+            if (cache == null)
+                return fetchResourceInfo(id, fields);
+            return await(cache.get(id, fields, () -> {
+                CompletableFuture<ResourceInfo> future = new CompletableFuture<>();
+                try {
+                    future.complete(fetchResourceInfo(id, fields));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+                return future;
+            }));
+        });
+    }
+
+    private ResourceInfo fetchResourceInfo(String id, Set<RecordField> fields) throws IOException {
+        SearchResult result = records(webClient.executeGetRequest(false, true, finnaClient.recordUrl("id", Collections.singletonList(id), fields)));
+        if (!result.getResourceInfos().isEmpty())
+            return result.getResourceInfos().get(0);
+        throw new FinnaNotFoundException("Resource not found with id " + id);
+    }
+
+    /**
+     * Get resource infos of many records, {@link FinnaClient#RECORD_BATCH_SIZE} ids per request. Requests are run one
+     * after another on the calling thread, run several calls from different threads for more concurrency
+     *
+     * @param ids     IDs of resources
+     * @param rawData Whether to include raw data object or not
+     * @return found records and missing ids
+     * @throws IOException on network error
+     */
+    public ResourceInfoBatch resourceInfos(Collection<String> ids, boolean rawData) throws IOException {
+        return resourceInfos(ids, RecordField.defaults(rawData));
+    }
+
+    /**
+     * Get resource infos of many records with only the given fields
+     *
+     * @param ids    IDs of resources
+     * @param fields Fields to request, id is always included
+     * @return found records and missing ids
+     * @throws IOException on network error
+     */
+    public ResourceInfoBatch resourceInfos(Collection<String> ids, Set<RecordField> fields) throws IOException {
+        return timed("resourceInfos", () -> cachedResourceInfos(ids, fields));
+    }
+
+    private ResourceInfoBatch cachedResourceInfos(Collection<String> ids, Set<RecordField> fields) throws IOException {
+        ResourceInfoCache cache = finnaClient.getResourceInfoCache();
+        if (cache == null)
+            return fetchResourceInfos(ids, fields);
+        // Ids that are neither cached nor being loaded are fetched here, the others wait for the cache
+        Map<String, CompletableFuture<ResourceInfo>> results = new LinkedHashMap<>();
+        Map<String, CompletableFuture<ResourceInfo>> loads = new LinkedHashMap<>();
+        for (String id : new LinkedHashSet<>(ids)) {
+            results.put(id, cache.get(id, fields, () -> loads.computeIfAbsent(id, key -> new CompletableFuture<>())));
+        }
+        if (!loads.isEmpty()) {
+            try {
+                ResourceInfoBatch batch = fetchResourceInfos(loads.keySet(), fields);
+                for (Map.Entry<String, CompletableFuture<ResourceInfo>> load : loads.entrySet()) {
+                    ResourceInfo resourceInfo = batch.getResourceInfos().get(load.getKey());
+                    if (resourceInfo != null)
+                        load.getValue().complete(resourceInfo);
+                    else
+                        load.getValue().completeExceptionally(new FinnaNotFoundException("Resource not found with id " + load.getKey()));
+                }
+            } catch (Exception e) {
+                for (CompletableFuture<ResourceInfo> load : loads.values()) {
+                    load.completeExceptionally(e);
+                }
+            }
+        }
+        Map<String, ResourceInfo> resourceInfos = new LinkedHashMap<>();
+        Set<String> missingIds = new LinkedHashSet<>();
+        for (Map.Entry<String, CompletableFuture<ResourceInfo>> result : results.entrySet()) {
+            try {
+                resourceInfos.put(result.getKey(), await(result.getValue()));
+            } catch (FinnaNotFoundException e) {
+                missingIds.add(result.getKey());
+            }
+        }
+        return new ResourceInfoBatch(resourceInfos, missingIds);
+    }
+
+    private ResourceInfoBatch fetchResourceInfos(Collection<String> ids, Set<RecordField> fields) throws IOException {
+        List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<String, ResourceInfo> found = new HashMap<>();
+        for (int i = 0; i < uniqueIds.size(); i += FinnaClient.RECORD_BATCH_SIZE) {
+            List<String> chunk = uniqueIds.subList(i, Math.min(i + FinnaClient.RECORD_BATCH_SIZE, uniqueIds.size()));
+            for (ResourceInfo resourceInfo : records(webClient.executeGetRequest(false, true, finnaClient.recordUrl("id[]", chunk, fields))).getResourceInfos()) {
+                found.put(resourceInfo.getId(), resourceInfo);
+            }
+        }
+        Map<String, ResourceInfo> resourceInfos = new LinkedHashMap<>();
+        Set<String> missingIds = new LinkedHashSet<>();
+        for (String id : uniqueIds) {
+            ResourceInfo resourceInfo = found.get(id);
+            if (resourceInfo != null)
+                resourceInfos.put(id, resourceInfo);
+            else
+                missingIds.add(id);
+        }
+        return new ResourceInfoBatch(resourceInfos, missingIds);
+    }
+
+    public String getResourceDescription(String id) throws IOException {
+        return timed("getResourceDescription", () -> {
+            JSONObject object = json(webClient.executeGetRequest(false, true, webClient.generateHttpUrl("AJAX/JSON?method=getDescription&id=" + id)));
+            if (object.opt("data") instanceof Boolean)
+                throw new KirkesClientException("Error occurred");
+            return Jsoup.parse(object.optJSONObject("data").optString("html", "")).wholeText();
+        });
+    }
+
+    /**
+     * Get user types for sign in, in other words, get all available libraries
+     *
+     * @return user types
+     * @throws IOException on network error
+     */
+    public List<UserType> getUserTypes() throws IOException {
+        return timed("getUserTypes", () -> {
+            try (Response response = webClient.executeGetRequest(true, true, webClient.generateHttpUrl("MyResearch/UserLogin?layout=lightbox"))) {
+                if (response.code() != 200)
+                    throw new KirkesClientException("Unsuccessful request: " + response.code());
+                return KirkesHTMLParser.parseUserTypes(response.body().string());
+            }
+        });
+    }
+
+    /**
+     * Request a page of the logged in user. If the session turns out to be expired, logs in again and repeats
+     * the request once, like the callback API does
+     *
+     * @param path        Path of the page
+     * @param requestBody Form to post, null for GET
+     * @param redirect    Are redirects followed or not
+     * @return HTML of the page
+     */
+    private String sessionPage(String path, RequestBody requestBody, boolean redirect) throws IOException {
+        try (Response pageResponse = sessionResponse(webClient.generateHttpUrl(path), requestBody, redirect)) {
+            if (pageResponse.code() != 200)
+                throw new KirkesClientException("Response code " + pageResponse.code());
+            return pageResponse.body().string();
+        }
+    }
+
+    /**
+     * Like {@link #sessionPage(String, RequestBody, boolean)}, but the response of any status is returned
+     *
+     * @return response of a valid session, to be closed by the caller
+     */
+    private Response sessionResponse(HttpUrl url, RequestBody requestBody, boolean redirect) throws IOException {
+        finnaClient.awaitSession();
+        Response response = sessionRequest(url, requestBody, redirect);
+        if (finnaClient.isSessionExpired(response)) {
+            response.close();
+            finnaClient.invalidateSession();
+            finnaClient.awaitSession();
+            response = sessionRequest(url, requestBody, redirect);
+            if (finnaClient.isSessionExpired(response)) {
+                response.close();
+                throw new SessionValidationException();
+            }
+        }
+        if (response.isSuccessful())
+            finnaClient.markSessionValidated();
+        return response;
+    }
+
+    private String hashKey(String id) throws IOException {
+        String hashKey = KirkesHTMLParser.extractHashKey(sessionPage("Record/" + id + "/AjaxTab", new FormBody.Builder().add("tab", "holdings").build(), true));
+        if (hashKey == null)
+            throw new KirkesClientException("Unable to find hashToken");
+        return hashKey;
+    }
+
+    private Response sessionRequest(HttpUrl url, RequestBody requestBody, boolean redirect) throws IOException {
+        if (requestBody != null)
+            return webClient.executePostRequest(true, redirect, url, requestBody);
+        return webClient.executeGetRequest(true, redirect, url);
+    }
+
+    private void loginRequest(UserAuthentication userAuthentication) throws IOException {
+        webClient.getClientCookieJar().clear();
+        String csrfToken;
+        try (Response response = webClient.executeGetRequest(true, true, webClient.generateHttpUrl("MyResearch/UserLogin?layout=lightbox"))) {
+            if (response.code() != 200)
+                throw new KirkesClientException("Unable to find CSRF token");
+            csrfToken = KirkesHTMLParser.parseCSRF(response.body().string());
+        }
+        if (csrfToken == null)
+            throw new KirkesClientException("Unable to find CSRF token");
+        try (Response response = webClient.executePostRequest(true, true, finnaClient.loginUrl(), FinnaClient.loginForm(userAuthentication, csrfToken))) {
+            if (response.code() != 205)
+                throw new InvalidCredentialsException();
+        }
+        finnaClient.markSessionValidated();
+    }
+
+    private static ResourceInfo await(CompletableFuture<ResourceInfo> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Exception cause = FinnaClient.cause(e);
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private SearchResult records(Response response) throws IOException {
+        try (Response jsonResponse = response) {
+            if (jsonResponse.code() != 200)
+                throw new KirkesClientException("Response code " + jsonResponse.code());
+            return parse("FinnaJSONStreamParser.parseRecords", () -> FinnaJSONStreamParser.parseRecords(jsonResponse.body().charStream()));
+        }
+    }
+
+    /**
+     * Run an operation, its time and outcome are recorded only when the metrics recorder is enabled
+     */
+    private <T, E extends Exception> T timed(String operation, Operation<T, E> call) throws IOException, E {
+        MetricsRecorder metricsRecorder = webClient.getMetricsRecorder();
+        if (!metricsRecorder.isEnabled())
+            return call.run();
+        long startedAt = System.nanoTime();
+        Throwable failure = null;
+        try {
+            return call.run();
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            metricsRecorder.recordOperation(operation, System.nanoTime() - startedAt, MetricsRecorder.Outcome.of(failure));
+        }
+    }
+
+    private <T, E extends Exception> T parse(String parser, Operation<T, E> call) throws IOException, E {
+        MetricsRecorder metricsRecorder = webClient.getMetricsRecorder();
+        if (!metricsRecorder.isEnabled())
+            return call.run();
+        long startedAt = System.nanoTime();
+        T result = call.run();
+        metricsRecorder.recordParse(parser, System.nanoTime() - startedAt);
+        return result;
+    }
+
+    private interface Operation<T, E extends Exception> {
+        T run() throws IOException, E;
+    }
+
+    private static JSONObject json(Response response) throws IOException {
+        try (Response jsonResponse = response) {
+            if (jsonResponse.code() != 200)
+                throw new KirkesClientException("Response code " + jsonResponse.code());
+            return json(jsonResponse.body().string());
+        }
+    }
+
+    private static JSONObject json(String body) {
+        try {
+            return new JSONObject(body);
+        } catch (org.json.JSONException e) {
+            throw new KirkesClientException("Unable to parse JSON: " + body);
+        }
+    }
+}
@@ -1,50 +1,90 @@
 package org.openfinna.java.connector;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import okhttp3.*;
+import okio.BufferedSource;
+import okio.ByteString;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.jsoup.Jsoup;
+import org.openfinna.java.connector.cache.ResourceInfoCache;
+import org.openfinna.java.connector.classes.ResourceInfo;
+import org.openfinna.java.connector.classes.ResourceInfoBatch;
+import org.openfinna.java.connector.classes.SearchResult;
 import org.openfinna.java.connector.classes.UserAuthentication;
+import org.openfinna.java.connector.classes.models.AccountSnapshot;
 import org.openfinna.java.connector.classes.models.Resource;
 import org.openfinna.java.connector.classes.models.User;
 import org.openfinna.java.connector.classes.models.UserType;
 import org.openfinna.java.connector.classes.models.building.Building;
 import org.openfinna.java.connector.classes.models.holds.Hold;
+import org.openfinna.java.connector.classes.models.holds.HoldCancelResult;
 import org.openfinna.java.connector.classes.models.holds.HoldingDetails;
 import org.openfinna.java.connector.classes.models.holds.PickupLocation;
 import org.openfinna.java.connector.classes.models.libraries.Library;
 import org.openfinna.java.connector.classes.models.loans.Loan;
+import org.openfinna.java.connector.classes.models.loans.RenewResult;
+import org.openfinna.java.connector.classes.models.resource.RecordField;
 import org.openfinna.java.connector.exceptions.FinnaNotFoundException;
 import org.openfinna.java.connector.exceptions.InvalidCredentialsException;
 import org.openfinna.java.connector.exceptions.KirkesClientException;
+import org.openfinna.java.connector.exceptions.SessionExpiredException;
 import org.openfinna.java.connector.exceptions.SessionValidationException;
+import org.openfinna.java.connector.http.CallScope;
+import org.openfinna.java.connector.metrics.MetricsRecorder;
+import org.openfinna.java.connector.http.RevalidatingCache;
 import org.openfinna.java.connector.http.WebClient;
 import org.openfinna.java.connector.interfaces.*;
 import org.openfinna.java.connector.interfaces.auth.AuthenticationChangeListener;
-import org.openfinna.java.connector.parser.FinnaJSONParser;
+import org.openfinna.java.connector.parser.FinnaJSONStreamParser;
 import org.openfinna.java.connector.parser.KirkesHTMLParser;
+import org.openfinna.java.connector.parser.ParserContext;
 import org.openfinna.java.connector.utils.BuildingUtils;
+import org.openfinna.java.connector.utils.DateUtils;
 
 import java.io.IOException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Objects;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class FinnaClient {
 
     private final WebClient webClient;
     private UserAuthentication userAuthentication;
+    // Most records the REST API returns for one request
+    public static final int RECORD_BATCH_SIZE = 100;
+    public static final int DEFAULT_BATCH_CONCURRENCY = 4;
+    // Largest page the search API allows
+    public static final int SEARCH_PAGE_SIZE = 100;
+    /**
+     * @deprecated requests are built from {@link RecordField}, this list is not used anymore
+     */
+    @Deprecated
     public static final String[] recordKeys = new String[]{"id", "title", "subTitle", "shortTitle", "cleanIsbn", "edition", "manufacturer", "year", "physicalDescription", "placesOfPublication", "subjects", "generalNotes", "languages", "originalLanguages", "publishers", "awards", "classifications", "authors", "formats"};
     // Cached values
     private Building cachedBuilding = null;
     private AuthenticationChangeListener changeListener;
+    // Validated session window, preCheck skips validateSession while it is open
+    private static final ByteString LOGIN_FORM_MARKER = ByteString.encodeUtf8("name=\"processLogin\"");
+    private volatile long sessionValidationTTL = TimeUnit.SECONDS.toNanos(60);
+    private volatile long sessionValidatedAt = 0;
+    private volatile boolean streamingHtml = false;
+    private volatile ResourceInfoCache resourceInfoCache;
+    private final RevalidatingCache organisationCache = new RevalidatingCache();
+    // Weak, an operation that ends on an intermediate hop is never removed explicitly
+    private final Set<PreCheckInterface> reLoginAttempts = Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+    // Operations waiting for the session revalidation in flight, null when none is running
+    private final Object sessionLock = new Object();
+    private List<PreCheckInterface> sessionWaiters = null;
 
     public FinnaClient() {
         webClient = new WebClient();
@@ -59,7 +99,7 @@ public class FinnaClient {
         webClient = new WebClient();
         this.userAuthentication = userAuthentication;
         if (this.userAuthentication.getSession() != null)
-            webClient.getClientCookieJar().addCookie(Cookie.parse(HttpUrl.get(webClient.generateURL("")), "PHPSESSID=" + this.userAuthentication.getSession()));
+            webClient.getClientCookieJar().addCookie(Cookie.parse(webClient.generateHttpUrl(""), "PHPSESSID=" + this.userAuthentication.getSession()));
         this.changeListener = changeListener;
     }
 
@@ -72,7 +112,53 @@ public class FinnaClient {
         this.webClient = webClient;
     }
 
+    /**
+     * Set how long a session is trusted after a successful authenticated request. Within this window operations
+     * are sent without a separate session validation round trip. 0 validates before every operation
+     *
+     * @param duration duration
+     * @param unit     unit of duration
+     */
+    public void setSessionValidationTTL(long duration, TimeUnit unit) {
+        this.sessionValidationTTL = unit.toNanos(duration);
+    }
+
+    /**
+     * Parse loans and holds while the page is being read instead of building a document of the whole page. Uses less
+     * memory on large pages, the results are the same
+     *
+     * @param streamingHtml whether to stream the pages
+     */
+    public void setStreamingHtml(boolean streamingHtml) {
+        this.streamingHtml = streamingHtml;
+    }
+
+    /**
+     * Cache record lookups of {@link #resourceInfo(String, ResourceInfoInterface)} and
+     * {@link #resourceInfos(Collection, ResourceInfosInterface)}, also used by {@link FinnaBlockingClient}
+     *
+     * @param resourceInfoCache cache, null to always ask the API
+     */
+    public void setResourceInfoCache(ResourceInfoCache resourceInfoCache) {
+        this.resourceInfoCache = resourceInfoCache;
+    }
+
+    public ResourceInfoCache getResourceInfoCache() {
+        return resourceInfoCache;
+    }
+
+    /**
+     * Cache of library and building data, which changes rarely. Use it to change the max age or to start the
+     * background refresh
+     *
+     * @return organisation data cache
+     */
+    public RevalidatingCache getOrganisationCache() {
+        return organisationCache;
+    }
+
     public void changeUserAuthentication(UserAuthentication userAuthentication, boolean fetchUserDetails, LoginInterface loginInterface) {
+        invalidateSession();
         webClient.getClientCookieJar().clear();
         cachedBuilding = null;
         login(userAuthentication, fetchUserDetails, loginInterface);
@@ -86,58 +172,42 @@ public class FinnaClient {
      * @param loginInterface     callback
      */
     public void login(UserAuthentication userAuthentication, boolean fetchUserDetails, LoginInterface loginInterface) {
-        if (userAuthentication == null)
-            throw new KirkesClientException("UserAuthentication not provided!");
-        this.userAuthentication = userAuthentication;
-        cachedBuilding = null;
+        beginLogin(userAuthentication);
         fetchLoginCSRF(new LoginCSRFInterface() {
             @Override
             public void onFetchCSRFToken(String csrfToken) {
-                FormBody postData = new FormBody.Builder()
-                        .add("username", userAuthentication.getUsername())
-                        .add("password", userAuthentication.getPassword())
-                        .add("target", userAuthentication.getUserType().getId())
-                        .add("auth_method", "MultiILS")
-                        .add("layout", "lightbox")
-                        .add("csrf", csrfToken)
-                        .add("processLogin", "Kirjaudu")
-                        .add("secondary_username", "").build();
-                webClient.postRequest(true, true, webClient.generateURL("MyResearch/Home?layout=lightbox&lbreferer=https%3A%2F%2F" + webClient.getDomainName() + "%2FMyResearch%2FUserLogin"),
-                        postData, new WebClient.WebClientListener() {
-                            @Override
-                            public void onFailed(@NotNull Call call, @NotNull IOException e) {
-                                loginInterface.onError(e);
-                            }
+                webClient.postRequest(true, true, loginUrl(), loginForm(userAuthentication, csrfToken), new WebClient.WebClientListener() {
+                    @Override
+                    public void onFailed(@NotNull Call call, @NotNull IOException e) {
+                        loginInterface.onError(e);
+                    }
 
-                            @Override
-                            public void onResponse(@NotNull Response response) {
-                                if (response.code() == 205) {
-                                    if (fetchUserDetails) {
-                                        getAccountDetails(new AccountDetailsInterface() {
-                                            @Override
-                                            public void onGetAccountDetails(User user) {
-                                                FinnaClient.this.userAuthentication.setSession(webClient.getClientCookieJar().getSession());
-                                                if (changeListener != null)
-                                                    changeListener.onAuthenticationChange(FinnaClient.this.userAuthentication, user, null);
-                                                loginInterface.onLogin(FinnaClient.this.userAuthentication, user);
-                                            }
-
-                                            @Override
-                                            public void onError(Exception e) {
-                                                loginInterface.onError(e);
-                                            }
-                                        });
-                                    } else {
-                                        FinnaClient.this.userAuthentication.setSession(webClient.getClientCookieJar().getSession());
-                                        if (changeListener != null)
-                                            changeListener.onAuthenticationChange(FinnaClient.this.userAuthentication, null, null);
-                                        loginInterface.onLogin(FinnaClient.this.userAuthentication, null);
+                    @Override
+                    public void onResponse(@NotNull Response response) {
+                        if (response.code() == 205) {
+                            markSessionValidated();
+                            if (fetchUserDetails) {
+                                getAccountDetails(new AccountDetailsInterface() {
+                                    @Override
+                                    public void onGetAccountDetails(User user) {
+                                        loggedIn(user);
+                                        loginInterface.onLogin(FinnaClient.this.userAuthentication, user);
                                     }
-                                } else {
-                                    loginInterface.onError(new InvalidCredentialsException());
-                                }
+
+                                    @Override
+                                    public void onError(Exception e) {
+                                        loginInterface.onError(e);
+                                    }
+                                });
+                            } else {
+                                loggedIn(null);
+                                loginInterface.onLogin(FinnaClient.this.userAuthentication, null);
                             }
-                        });
+                        } else {
+                            loginInterface.onError(new InvalidCredentialsException());
+                        }
+                    }
+                });
             }
 
             @Override
@@ -161,7 +231,8 @@ public class FinnaClient {
         preCheck(new PreCheckInterface() {
             @Override
             public void onPreCheck() {
-                webClient.getRequest(true, true, webClient.generateURL("MyResearch/CheckedOut"), new WebClient.WebClientListener() {
+                boolean streaming = streamingHtml;
+                webClient.getRequest(true, true, webClient.generateHttpUrl("MyResearch/CheckedOut"), sessionListener(this, streaming, new WebClient.WebClientListener() {
                     @Override
                     public void onFailed(@NotNull Call call, @NotNull IOException e) {
                         loansInterface.onError(e);
@@ -171,7 +242,18 @@ public class FinnaClient {
                     public void onResponse(@NotNull Response response) {
                         if (response.code() == 200) {
                             try {
-                                loansInterface.onGetLoans(KirkesHTMLParser.parseLoans(response.body().string()));
+                                long parseStartedAt;
+                                List<Loan> loans;
+                                if (streaming) {
+                                    parseStartedAt = parseStarted();
+                                    loans = KirkesHTMLParser.parseLoans(response.body().charStream(), webClient.getBaseOrigin());
+                                } else {
+                                    String html = response.body().string();
+                                    parseStartedAt = parseStarted();
+                                    loans = KirkesHTMLParser.parseLoans(html, webClient.getBaseOrigin());
+                                }
+                                parsed("KirkesHTMLParser.parseLoans", parseStartedAt);
+                                loansInterface.onGetLoans(loans);
                             } catch (IOException e) {
                                 loansInterface.onError(e);
                             }
@@ -179,7 +261,7 @@ public class FinnaClient {
                             loansInterface.onError(new KirkesClientException("Response code " + response.code()));
                         }
                     }
-                });
+                }));
             }
 
             @Override
@@ -196,15 +278,14 @@ public class FinnaClient {
      * @param loansInterface callback
      */
     public void renewLoan(Loan loan, LoansInterface loansInterface) {
+        if (loan.getRenewId() == null) {
+            loansInterface.onError(new KirkesClientException("Loan can not be renewed"));
+            return;
+        }
         preCheck(new PreCheckInterface() {
             @Override
             public void onPreCheck() {
-                FormBody postData = new FormBody.Builder()
-                        .add("selectAllIDS[]", loan.getRenewId())
-                        .add("renewAllIDS[]", loan.getRenewId())
-                        .add("renewSelectedIDS[]", loan.getRenewId())
-                        .add("renewSelected", "this should not be empty, at least it's working :D").build();
-                webClient.postRequest(true, true, webClient.generateURL("MyResearch/CheckedOut"), postData, new WebClient.WebClientListener() {
+                webClient.postRequest(true, true, webClient.generateHttpUrl("MyResearch/CheckedOut"), renewForm(Collections.singletonList(loan)), sessionListener(this, new WebClient.WebClientListener() {
                     @Override
                     public void onFailed(@NotNull Call call, @NotNull IOException e) {
                         loansInterface.onError(e);
@@ -222,7 +303,7 @@ public class FinnaClient {
                             loansInterface.onError(new KirkesClientException("Response code " + response.code()));
                         }
                     }
-                });
+                }));
             }
 
             @Override
@@ -232,6 +313,76 @@ public class FinnaClient {
         });
     }
 
+    /**
+     * Renew many loans with a single request
+     *
+     * @param loans               Loans to renew, the ones without a renew id are not sent and are not renewed
+     * @param loansRenewInterface callback, results are keyed by the given loans in their order
+     */
+    public void renewLoans(Collection<Loan> loans, LoansRenewInterface loansRenewInterface) {
+        if (!anyRenewable(loans)) {
+            loansRenewInterface.onLoansRenew(notRenewed(loans));
+            return;
+        }
+        preCheck(new PreCheckInterface() {
+            @Override
+            public void onPreCheck() {
+                webClient.postRequest(true, true, webClient.generateHttpUrl("MyResearch/CheckedOut"), renewForm(loans), sessionListener(this, new WebClient.WebClientListener() {
+                    @Override
+                    public void onFailed(@NotNull Call call, @NotNull IOException e) {
+                        loansRenewInterface.onError(e);
+                    }
+
+                    @Override
+                    public void onResponse(@NotNull Response response) {
+                        if (response.code() == 200) {
+                            try {
+                                loansRenewInterface.onLoansRenew(KirkesHTMLParser.parseRenewResults(response.body().string(), loans, webClient.getBaseOrigin()));
+                            } catch (IOException | KirkesClientException e) {
+                                loansRenewInterface.onError(e);
+                            }
+                        } else {
+                            loansRenewInterface.onError(new KirkesClientException("Response code " + response.code()));
+                        }
+                    }
+                }));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                loansRenewInterface.onError(e);
+            }
+        });
+    }
+
+    static FormBody renewForm(Collection<Loan> loans) {
+        FormBody.Builder builder = new FormBody.Builder();
+        for (Loan loan : loans) {
+            if (loan.getRenewId() == null)
+                continue;
+            builder.add("selectAllIDS[]", loan.getRenewId())
+                    .add("renewAllIDS[]", loan.getRenewId())
+                    .add("renewSelectedIDS[]", loan.getRenewId());
+        }
+        return builder.add("renewSelected", "this should not be empty, at least it's working :D").build();
+    }
+
+    static boolean anyRenewable(Collection<Loan> loans) {
+        for (Loan loan : loans) {
+            if (loan.getRenewId() != null)
+                return true;
+        }
+        return false;
+    }
+
+    static Map<Loan, RenewResult> notRenewed(Collection<Loan> loans) {
+        Map<Loan, RenewResult> results = new LinkedHashMap<>();
+        for (Loan loan : loans) {
+            results.put(loan, KirkesHTMLParser.notRenewable(loan));
+        }
+        return results;
+    }
+
     /**
      * Make a hold of book
      *
@@ -260,7 +411,8 @@ public class FinnaClient {
         preCheck(new PreCheckInterface() {
             @Override
             public void onPreCheck() {
-                fetchHashKey(id, new HashKeyInterface() {
+                PreCheckInterface operation = this;
+                fetchHashKey(operation, id, new HashKeyInterface() {
                     @Override
                     public void onFetchHashToken(String hashToken) {
                         FormBody.Builder postData = new FormBody.Builder()
@@ -278,10 +430,9 @@ public class FinnaClient {
                             postData.add("gatheredDetails[part_issue]", partText);
                         }
                         if (requiredBy != null) {
-                            SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy");
-                            postData.add("gatheredDetails[requiredBy]", dateFormat.format(requiredBy));
+                            postData.add("gatheredDetails[requiredBy]", DateUtils.formatDate(requiredBy));
                         }
-                        webClient.postRequest(true, false, webClient.generateURL("Record/" + id + "/Hold?id=" + id + "&level=title&hashKey=" + hashToken + "&layout=lightbox"), postData.build(), new WebClient.WebClientListener() {
+                        webClient.postRequest(true, false, webClient.generateHttpUrl("Record/" + id + "/Hold?id=" + id + "&level=title&hashKey=" + hashToken + "&layout=lightbox"), postData.build(), sessionListener(operation, new WebClient.WebClientListener() {
                             @Override
                             public void onFailed(@NotNull Call call, @NotNull IOException e) {
                                 holdsInterface.onError(e);
@@ -289,13 +440,16 @@ public class FinnaClient {
 
                             @Override
                             public void onResponse(@NotNull Response response) {
-                                if (response.code() == 302) {
+                                response.close();
+                                // A hold that was placed redirects back to the record, never to the login page
+                                HttpUrl location = response.code() == 302 ? response.request().url().resolve(response.header("Location", "")) : null;
+                                if (location != null && !isLoginUrl(location)) {
                                     holdsInterface.onMakeHold();
                                 } else {
                                     holdsInterface.onError(new KirkesClientException("Unable to make a hold, " + response.code()));
                                 }
                             }
-                        });
+                        }));
                     }
 
                     @Override
@@ -319,7 +473,7 @@ public class FinnaClient {
                 FormBody postData = new FormBody.Builder()
                         .add("home_library", pickupLocation.getId())
                         .build();
-                webClient.postRequest(true, false, webClient.generateURL("MyResearch/Profile"), postData, new WebClient.WebClientListener() {
+                webClient.postRequest(true, false, webClient.generateHttpUrl("MyResearch/Profile"), postData, sessionListener(this, new WebClient.WebClientListener() {
                     @Override
                     public void onFailed(@NotNull Call call, @NotNull IOException e) {
                         pickupLocationChangeInterface.onError(e);
@@ -340,7 +494,7 @@ public class FinnaClient {
                             pickupLocationChangeInterface.onError(e);
                         }
                     }
-                });
+                }));
             }
 
             @Override
@@ -351,15 +505,14 @@ public class FinnaClient {
     }
 
     public void cancelHold(Hold hold, HoldsInterface holdsInterface) {
+        if (!KirkesHTMLParser.canCancel(hold)) {
+            holdsInterface.onError(new KirkesClientException("Hold can not be cancelled"));
+            return;
+        }
         preCheck(new PreCheckInterface() {
             @Override
             public void onPreCheck() {
-                FormBody postData = new FormBody.Builder()
-                        .add("cancelSelected", "1")
-                        .add("confirm", "")
-                        .add("cancelSelectedIDS[]", hold.getActionId())
-                        .build();
-                webClient.postRequest(true, false, webClient.generateURL("MyResearch/Holds"), postData, new WebClient.WebClientListener() {
+                webClient.postRequest(true, false, webClient.generateHttpUrl("MyResearch/Holds"), cancelForm(Collections.singletonList(hold)), sessionListener(this, new WebClient.WebClientListener() {
                     @Override
                     public void onFailed(@NotNull Call call, @NotNull IOException e) {
                         holdsInterface.onError(e);
@@ -377,7 +530,7 @@ public class FinnaClient {
                             holdsInterface.onError(e);
                         }
                     }
-                });
+                }));
             }
 
             @Override
@@ -387,6 +540,76 @@ public class FinnaClient {
         });
     }
 
+    /**
+     * Cancel many holds with a single request. The returned holds page is parsed once to see which holds are gone
+     *
+     * @param holds                Holds to cancel, the ones without an action id or not cancellable are not sent and are
+     *                             not cancelled
+     * @param holdsCancelInterface callback, results are keyed by the given holds in their order
+     */
+    public void cancelHolds(Collection<Hold> holds, HoldsCancelInterface holdsCancelInterface) {
+        if (!anyCancellable(holds)) {
+            holdsCancelInterface.onCancelHolds(notCancelled(holds));
+            return;
+        }
+        preCheck(new PreCheckInterface() {
+            @Override
+            public void onPreCheck() {
+                webClient.postRequest(true, false, webClient.generateHttpUrl("MyResearch/Holds"), cancelForm(holds), sessionListener(this, new WebClient.WebClientListener() {
+                    @Override
+                    public void onFailed(@NotNull Call call, @NotNull IOException e) {
+                        holdsCancelInterface.onError(e);
+                    }
+
+                    @Override
+                    public void onResponse(@NotNull Response response) {
+                        if (response.code() == 200) {
+                            try {
+                                holdsCancelInterface.onCancelHolds(KirkesHTMLParser.parseCancelResults(response.body().string(), holds));
+                            } catch (IOException | KirkesClientException e) {
+                                holdsCancelInterface.onError(e);
+                            }
+                        } else {
+                            holdsCancelInterface.onError(new KirkesClientException("Response code " + response.code()));
+                        }
+                    }
+                }));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                holdsCancelInterface.onError(e);
+            }
+        });
+    }
+
+    static FormBody cancelForm(Collection<Hold> holds) {
+        FormBody.Builder builder = new FormBody.Builder()
+                .add("cancelSelected", "1")
+                .add("confirm", "");
+        for (Hold hold : holds) {
+            if (KirkesHTMLParser.canCancel(hold))
+                builder.add("cancelSelectedIDS[]", hold.getActionId());
+        }
+        return builder.build();
+    }
+
+    static boolean anyCancellable(Collection<Hold> holds) {
+        for (Hold hold : holds) {
+            if (KirkesHTMLParser.canCancel(hold))
+                return true;
+        }
+        return false;
+    }
+
+    static Map<Hold, HoldCancelResult> notCancelled(Collection<Hold> holds) {
+        Map<Hold, HoldCancelResult> results = new LinkedHashMap<>();
+        for (Hold hold : holds) {
+            results.put(hold, KirkesHTMLParser.notCancellable(hold));
+        }
+        return results;
+    }
+
     /**
      * Get all current holds as list
      *
@@ -396,7 +619,8 @@ public class FinnaClient {
         preCheck(new PreCheckInterface() {
             @Override
             public void onPreCheck() {
-                webClient.getRequest(true, true, webClient.generateURL("MyResearch/Holds"), new WebClient.WebClientListener() {
+                boolean streaming = streamingHtml;
+                webClient.getRequest(true, true, webClient.generateHttpUrl("MyResearch/Holds"), sessionListener(this, streaming, new WebClient.WebClientListener() {
                     @Override
                     public void onFailed(@NotNull Call call, @NotNull IOException e) {
                         holdsInterface.onError(e);
@@ -406,7 +630,21 @@ public class FinnaClient {
                     public void onResponse(@NotNull Response response) {
                         if (response.code() == 200) {
                             try {
-                                holdsInterface.onGetHolds(KirkesHTMLParser.parseHolds(response.body().string()));
+                                long parseStartedAt;
+                                List<Hold> holds;
+                                if (streaming) {
+                                    parseStartedAt = parseStarted();
+                                    holds = KirkesHTMLParser.parseHolds(response.body().charStream(), webClient.getBaseOrigin());
+                                } else {
+                                    String html = response.body().string();
+                                    parseStartedAt = parseStarted();
+                                    holds = KirkesHTMLParser.parseHolds(html, webClient.getBaseOrigin());
+                                }
+                                parsed("KirkesHTMLParser.parseHolds", parseStartedAt);
+                                holdsInterface.onGetHolds(holds);
+                            } catch (SessionExpiredException e) {
+                                // Streamed page was the login form, the session listener logs in again
+                                throw e;
                             } catch (Exception e) {
                                 holdsInterface.onError(e);
                             }
@@ -414,7 +652,7 @@ public class FinnaClient {
                             holdsInterface.onError(new KirkesClientException("Response code " + response.code()));
                         }
                     }
-                });
+                }));
             }
 
             @Override
@@ -435,7 +673,7 @@ public class FinnaClient {
         preCheck(new PreCheckInterface() {
             @Override
             public void onPreCheck() {
-                webClient.getRequest(true, true, webClient.generateURL(String.format("AJAX/JSON?method=%s&requestId=%s&pickupLocationId=%s", "changePickupLocation", hold.getActionId(), pickupLocation.getId())), new WebClient.WebClientListener() {
+                webClient.getRequest(true, true, webClient.generateHttpUrl(String.format("AJAX/JSON?method=%s&requestId=%s&pickupLocationId=%s", "changePickupLocation", hold.getActionId(), pickupLocation.getId())), sessionListener(this, new WebClient.WebClientListener() {
                     @Override
                     public void onFailed(@NotNull Call call, @NotNull IOException e) {
                         holdsInterface.onError(e);
@@ -464,7 +702,7 @@ public class FinnaClient {
                             holdsInterface.onError(new KirkesClientException("Response code " + response.code()));
                         }
                     }
-                });
+                }));
             }
 
             @Override
@@ -488,7 +726,8 @@ public class FinnaClient {
         preCheck(new PreCheckInterface() {
             @Override
             public void onPreCheck() {
-                webClient.getRequest(true, true, webClient.generateURL(String.format("AJAX/JSON?method=%s&id=%s&requestGroupId=%s", "getRequestGroupPickupLocations", resource.getId(), finalType)), new WebClient.WebClientListener() {
+                PreCheckInterface operation = this;
+                webClient.getRequest(true, true, webClient.generateHttpUrl(String.format("AJAX/JSON?method=%s&id=%s&requestGroupId=%s", "getRequestGroupPickupLocations", resource.getId(), finalType)), hopSessionListener(operation, new WebClient.WebClientListener() {
                     @Override
                     public void onFailed(@NotNull Call call, @NotNull IOException e) {
                         pickupLocationsInterface.onError(e);
@@ -501,12 +740,12 @@ public class FinnaClient {
                                 String body = Objects.requireNonNull(response.body()).string();
                                 if (isJSONValid(body)) {
                                     JSONObject object = new JSONObject(body);
-                                    List<PickupLocation> pickupLocations = new Gson().fromJson(object.optJSONObject("data").optJSONArray("locations").toString(), TypeToken.getParameterized(List.class, PickupLocation.class).getType());
+                                    List<PickupLocation> pickupLocations = ParserContext.getDefault().getGson().fromJson(object.optJSONObject("data").optJSONArray("locations").toString(), ParserContext.PICKUP_LOCATIONS);
                                     // Fetching additional details
-                                    fetchHashKey(resource.getId(), new HashKeyInterface() {
+                                    fetchHashKey(operation, resource.getId(), new HashKeyInterface() {
                                         @Override
                                         public void onFetchHashToken(String hashToken) {
-                                            webClient.getRequest(true, true, webClient.generateURL(String.format("Record/%s/Hold?id=%s&level=title&hashKey=%s&layout=lightbox#tabnav", resource.getId(), resource.getId(), hashToken)), new WebClient.WebClientListener() {
+                                            webClient.getRequest(true, true, webClient.generateHttpUrl(String.format("Record/%s/Hold?id=%s&level=title&hashKey=%s&layout=lightbox#tabnav", resource.getId(), resource.getId(), hashToken)), sessionListener(operation, new WebClient.WebClientListener() {
                                                 @Override
                                                 public void onFailed(@NotNull Call call, @NotNull IOException e) {
                                                     pickupLocationsInterface.onError(e);
@@ -536,7 +775,7 @@ public class FinnaClient {
                                                         pickupLocationsInterface.onError(e);
                                                     }
                                                 }
-                                            });
+                                            }));
                                         }
 
                                         @Override
@@ -553,7 +792,7 @@ public class FinnaClient {
                             pickupLocationsInterface.onError(new KirkesClientException("Response code " + response.code()));
                         }
                     }
-                });
+                }));
             }
 
             @Override
@@ -564,89 +803,84 @@ public class FinnaClient {
     }
 
     /**
-     * Get Buildings, from HTML
+     * Get Buildings, from HTML. Cached in {@link #getOrganisationCache()}
      *
      * @param libraryChainInterface LibraryChainInterface
      */
     public void getBuildings(LibraryChainInterface libraryChainInterface) {
-        preCheck(new PreCheckInterface() {
-            @Override
-            public void onPreCheck() {
-                webClient.getRequest(true, true, webClient.generateURL("Content/organisations"), new WebClient.WebClientListener() {
-                    @Override
-                    public void onFailed(@NotNull Call call, @NotNull IOException e) {
-                        libraryChainInterface.onError(e);
-                    }
+        HttpUrl url = webClient.generateHttpUrl("Content/organisations");
+        organisationCache.get(url.toString(), sessionFetcher(url), timed("KirkesHTMLParser.getBuildings", body -> KirkesHTMLParser.getBuildings(body.string())), buildingsListener(libraryChainInterface));
+    }
 
-                    @Override
-                    public void onResponse(@NotNull Response response) {
-                        if (response.code() == 200) {
-                            try {
-                                String html = response.body().string();
-                                libraryChainInterface.onFetchLibraryBuildings(KirkesHTMLParser.getBuildings(html));
-                            } catch (Exception e) {
-                                libraryChainInterface.onError(e);
-                            }
-                        } else {
-                            libraryChainInterface.onError(new KirkesClientException("Response code " + response.code()));
-                        }
-                    }
-                });
+    /**
+     * Get Buildings via AJAX
+     * NOTE: This request is slow, totally about 1-2 seconds. Cached in {@link #getOrganisationCache()}, start its
+     * background refresh to keep the request off the calling path
+     *
+     * @param libraryChainInterface LibraryChainInterface
+     */
+    public void getBuildingsViaAjax(LibraryChainInterface libraryChainInterface) {
+        HttpUrl url = webClient.generateHttpUrl("AJAX/JSON?method=getSideFacets&enabledFacets[]=building");
+        organisationCache.get(url.toString(), sessionFetcher(url), timed("FinnaClient.getBuildingsViaAjax", body -> {
+            String json = body.string();
+            if (!isJSONValid(json))
+                throw new KirkesClientException("Unable to parse JSON: " + json);
+            JSONObject object = new JSONObject(json);
+            return ParserContext.getDefault().getGson().<List<Building>>fromJson(object.optJSONObject("data").optJSONObject("facets").optJSONObject("building").optJSONArray("list").toString(), ParserContext.BUILDINGS);
+        }), buildingsListener(libraryChainInterface));
+    }
+
+    private static RevalidatingCache.Listener<List<Building>> buildingsListener(LibraryChainInterface libraryChainInterface) {
+        return new RevalidatingCache.Listener<List<Building>>() {
+            @Override
+            public void onResult(List<Building> buildings) {
+                libraryChainInterface.onFetchLibraryBuildings(buildings);
             }
 
             @Override
             public void onError(Exception e) {
                 libraryChainInterface.onError(e);
             }
-        });
+        };
     }
 
     /**
-     * Get Buildings via AJAX
-     * NOTE: This request is slow, totally about 1-2 seconds
-     *
-     * @param libraryChainInterface LibraryChainInterface
+     * Fetcher of an organisation cache entry that needs the session
      */
-    public void getBuildingsViaAjax(LibraryChainInterface libraryChainInterface) {
-        preCheck(new PreCheckInterface() {
+    private RevalidatingCache.Fetcher sessionFetcher(HttpUrl url) {
+        return (conditions, listener) -> preCheck(new PreCheckInterface() {
             @Override
             public void onPreCheck() {
-                webClient.getRequest(true, true, webClient.generateURL("AJAX/JSON?method=getSideFacets&enabledFacets[]=building"), new WebClient.WebClientListener() {
-                    @Override
-                    public void onFailed(@NotNull Call call, @NotNull IOException e) {
-                        libraryChainInterface.onError(e);
-                    }
-
-                    @Override
-                    public void onResponse(@NotNull Response response) {
-                        if (response.code() == 200) {
-                            try {
-                                String body = Objects.requireNonNull(response.body()).string();
-                                if (isJSONValid(body)) {
-                                    JSONObject object = new JSONObject(body);
-                                    List<Building> buildings = new Gson().fromJson(object.optJSONObject("data").optJSONObject("facets").optJSONObject("building").optJSONArray("list").toString(), TypeToken.getParameterized(List.class, Building.class).getType());
-                                    libraryChainInterface.onFetchLibraryBuildings(buildings);
-                                } else
-                                    throw new KirkesClientException("Unable to parse JSON: " + body);
-                            } catch (IOException e) {
-                                libraryChainInterface.onError(e);
-                            }
-                        } else {
-                            libraryChainInterface.onError(new KirkesClientException("Response code " + response.code()));
-                        }
-                    }
-                });
+                webClient.getRequestWithCache(true, true, url, conditions, sessionListener(this, responseListener(listener)));
             }
 
             @Override
             public void onError(Exception e) {
-                libraryChainInterface.onError(e);
+                listener.onError(e);
             }
         });
     }
 
+    private RevalidatingCache.Fetcher fetcher(HttpUrl url) {
+        return (conditions, listener) -> webClient.getRequestWithCache(false, true, url, conditions, responseListener(listener));
+    }
+
+    private static WebClient.WebClientListener responseListener(RevalidatingCache.Listener<Response> listener) {
+        return new WebClient.WebClientListener() {
+            @Override
+            public void onFailed(@NotNull Call call, @NotNull IOException e) {
+                listener.onError(e);
+            }
+
+            @Override
+            public void onResponse(@NotNull Response response) {
+                listener.onResult(response);
+            }
+        };
+    }
+
     /**
-     * Get libraries
+     * Get libraries. Cached in {@link #getOrganisationCache()}, the same Library objects are returned until they change
      *
      * @param librariesInterface LibraryChainInterface
      */
@@ -675,32 +909,16 @@ public class FinnaClient {
     }
 
     private void getLibrariesFunc(LibrariesInterface librariesInterface) {
-        webClient.getRequest(false, true, webClient.generateURL("AJAX/JSON?method=getOrganisationInfo&parent[id]=" + cachedBuilding.getRawId() + "&params[action]=consortium"), new WebClient.WebClientListener() {
+        HttpUrl url = webClient.generateHttpUrl("AJAX/JSON?method=getOrganisationInfo&parent[id]=" + cachedBuilding.getRawId() + "&params[action]=consortium");
+        organisationCache.get(url.toString(), fetcher(url), timed("FinnaJSONStreamParser.parseLibraries", body -> FinnaJSONStreamParser.parseLibraries(body.charStream())), new RevalidatingCache.Listener<List<Library>>() {
             @Override
-            public void onFailed(@NotNull Call call, @NotNull IOException e) {
-                librariesInterface.onError(e);
+            public void onResult(List<Library> libraries) {
+                librariesInterface.onGetLibraries(libraries);
             }
 
             @Override
-            public void onResponse(@NotNull Response response) {
-                if (response.code() == 200) {
-                    try {
-                        String body = Objects.requireNonNull(response.body()).string();
-                        if (isJSONValid(body)) {
-                            JSONObject object = new JSONObject(body);
-                            if (object.opt("data") instanceof Boolean) {
-                                throw new KirkesClientException("Invalid building!");
-                            }
-                            List<Library> libraries = FinnaJSONParser.parseLibraries(object.optJSONObject("data").optJSONArray("list"));
-                            librariesInterface.onGetLibraries(libraries);
-                        } else
-                            throw new KirkesClientException("Unable to parse JSON: " + body);
-                    } catch (IOException | ParseException e) {
-                        librariesInterface.onError(e);
-                    }
-                } else {
-                    librariesInterface.onError(new KirkesClientException("Response code " + response.code()));
-                }
+            public void onError(Exception e) {
+                librariesInterface.onError(e);
             }
         });
     }
@@ -712,7 +930,7 @@ public class FinnaClient {
      * @param descriptionInterface callback
      */
     public void getResourceDescription(String id, DescriptionInterface descriptionInterface) {
-        webClient.getRequest(false, true, webClient.generateURL("AJAX/JSON?method=getDescription&id=" + id), new WebClient.WebClientListener() {
+        webClient.getRequest(false, true, webClient.generateHttpUrl("AJAX/JSON?method=getDescription&id=" + id), new WebClient.WebClientListener() {
             @Override
             public void onFailed(@NotNull Call call, @NotNull IOException e) {
                 descriptionInterface.onError(e);
@@ -743,35 +961,22 @@ public class FinnaClient {
     }
 
     private void getLibraryFunc(LibrariesInterface librariesInterface, Library library) {
-        webClient.getRequest(false, true, webClient.generateURL("AJAX/JSON?method=getOrganisationInfo&parent[id]=" + cachedBuilding.getRawId() + "&params[action]=details&params[fullDetails]=1&params[allServices]&params[id]=" + library.getId()), new WebClient.WebClientListener() {
+        HttpUrl url = webClient.generateHttpUrl("AJAX/JSON?method=getOrganisationInfo&parent[id]=" + cachedBuilding.getRawId() + "&params[action]=details&params[fullDetails]=1&params[allServices]&params[id]=" + library.getId());
+        organisationCache.get(url.toString(), fetcher(url), timed("FinnaJSONStreamParser.parseLibrary", body -> FinnaJSONStreamParser.parseLibrary(body.charStream())), new RevalidatingCache.Listener<Library>() {
             @Override
-            public void onFailed(@NotNull Call call, @NotNull IOException e) {
-                librariesInterface.onError(e);
+            public void onResult(Library detailLibrary) {
+                // Injecting new additional data
+                library.setImages(detailLibrary.getImages());
+                library.setSlogan(detailLibrary.getSlogan());
+                library.setLinks(detailLibrary.getLinks());
+                library.setServices(detailLibrary.getServices());
+                library.setScheduleNotices(detailLibrary.getScheduleNotices());
+                librariesInterface.onGetLibrary(library);
             }
 
             @Override
-            public void onResponse(@NotNull Response response) {
-                if (response.code() == 200) {
-                    try {
-                        String body = Objects.requireNonNull(response.body()).string();
-                        if (isJSONValid(body)) {
-                            JSONObject object = new JSONObject(body);
-                            Library detailLibrary = FinnaJSONParser.parseLibrary(object.optJSONObject("data"));
-                            // Injecting new additional data
-                            library.setImages(detailLibrary.getImages());
-                            library.setSlogan(detailLibrary.getSlogan());
-                            library.setLinks(detailLibrary.getLinks());
-                            library.setServices(detailLibrary.getServices());
-                            library.setScheduleNotices(detailLibrary.getScheduleNotices());
-                            librariesInterface.onGetLibrary(library);
-                        } else
-                            throw new KirkesClientException("Unable to parse JSON: " + body);
-                    } catch (IOException | ParseException e) {
-                        librariesInterface.onError(e);
-                    }
-                } else {
-                    librariesInterface.onError(new KirkesClientException("Response code " + response.code()));
-                }
+            public void onError(Exception e) {
+                librariesInterface.onError(e);
             }
         });
     }
@@ -806,22 +1011,11 @@ public class FinnaClient {
         }
     }
 
-    private void searchFunc(String query, Building building, boolean rawData, int page, int limit, SearchInterface searchInterface) {
+    private void searchFunc(String query, Building building, Set<RecordField> fields, int page, int limit, SearchInterface searchInterface) {
         preCheck(new PreCheckInterface() {
             @Override
             public void onPreCheck() {
-                HttpUrl.Builder httpUrlBuilder = new HttpUrl.Builder();
-                httpUrlBuilder.host("example.com").scheme("https");
-                httpUrlBuilder.addQueryParameter("lookfor", query);
-                httpUrlBuilder.addQueryParameter("limit", String.valueOf(limit));
-                httpUrlBuilder.addQueryParameter("page", String.valueOf(page));
-                httpUrlBuilder.addQueryParameter("filter", "~building:\"" + building.getId() + "\"");
-                for (String param : recordKeys) {
-                    httpUrlBuilder.addQueryParameter("field[]", param);
-                }
-                if (rawData)
-                    httpUrlBuilder.addQueryParameter("field[]", "rawData");
-                webClient.getRequest(false, true, webClient.generateApiURL("api/v1/search?" + httpUrlBuilder.build().encodedQuery()), new WebClient.WebClientListener() {
+                webClient.getRequest(false, true, searchUrl(query, building, fields, page, limit), new WebClient.WebClientListener() {
                     @Override
                     public void onFailed(@NotNull Call call, @NotNull IOException e) {
                         searchInterface.onError(e);
@@ -831,15 +1025,13 @@ public class FinnaClient {
                     public void onResponse(@NotNull Response response) {
                         if (response.code() == 200) {
                             try {
-                                String body = Objects.requireNonNull(response.body()).string();
-                                if (isJSONValid(body)) {
-                                    JSONObject object = new JSONObject(body);
-                                    if (object.optInt("resultCount") > 0 && object.has("records")) {
-                                        searchInterface.onSearchResults(object.optInt("resultCount"), FinnaJSONParser.parseResourceInfos(object.optJSONArray("records")));
-                                    } else
-                                        searchInterface.onSearchResults(0, new ArrayList<>());
+                                long parseStartedAt = parseStarted();
+                                SearchResult result = FinnaJSONStreamParser.parseRecords(Objects.requireNonNull(response.body()).charStream());
+                                parsed("FinnaJSONStreamParser.parseRecords", parseStartedAt);
+                                if (result.getTotalCount() > 0 && !result.getResourceInfos().isEmpty()) {
+                                    searchInterface.onSearchResults(result.getTotalCount(), result.getResourceInfos());
                                 } else
-                                    throw new KirkesClientException("Unable to parse JSON: " + body);
+                                    searchInterface.onSearchResults(0, new ArrayList<>());
                             } catch (IOException e) {
                                 searchInterface.onError(e);
                             }
@@ -863,7 +1055,7 @@ public class FinnaClient {
      * @param resourceInfoInterface callback
      */
     public void resourceInfo(String id, ResourceInfoInterface resourceInfoInterface) {
-        resourceInfoFunc(id, false, resourceInfoInterface);
+        resourceInfoFunc(id, RecordField.defaults(false), resourceInfoInterface);
     }
 
     /**
@@ -873,7 +1065,7 @@ public class FinnaClient {
      * @param resourceInfoInterface callback
      */
     public void resourceInfo(Resource resource, ResourceInfoInterface resourceInfoInterface) {
-        resourceInfoFunc(resource.getId(), false, resourceInfoInterface);
+        resourceInfoFunc(resource.getId(), RecordField.defaults(false), resourceInfoInterface);
     }
 
     /**
@@ -884,30 +1076,61 @@ public class FinnaClient {
      * @param resourceInfoInterface callback
      */
     public void resourceInfo(String id, boolean rawData, ResourceInfoInterface resourceInfoInterface) {
-        resourceInfoFunc(id, rawData, resourceInfoInterface);
+        resourceInfoFunc(id, RecordField.defaults(rawData), resourceInfoInterface);
     }
 
     /**
-     * Get resource info
+     * Get resource info with only the given fields
      *
-     * @param resource              Resource to get ID from
-     * @param rawData               Whether to include raw data object
+     * @param id                    ID of resource
+     * @param fields                Fields to request, id is always included
      * @param resourceInfoInterface callback
      */
-    public void resourceInfo(Resource resource, boolean rawData, ResourceInfoInterface resourceInfoInterface) {
-        resourceInfoFunc(resource.getId(), rawData, resourceInfoInterface);
+    public void resourceInfo(String id, Set<RecordField> fields, ResourceInfoInterface resourceInfoInterface) {
+        resourceInfoFunc(id, fields, resourceInfoInterface);
     }
 
-    private void resourceInfoFunc(String id, boolean rawData, ResourceInfoInterface resourceInfoInterface) {
-        HttpUrl.Builder httpUrlBuilder = new HttpUrl.Builder();
-        httpUrlBuilder.host("example.com").scheme("https");
-        httpUrlBuilder.addQueryParameter("id", id);
-        for (String param : recordKeys) {
-            httpUrlBuilder.addQueryParameter("field[]", param);
-        }
-        if (rawData)
-            httpUrlBuilder.addQueryParameter("field[]", "rawData");
-        webClient.getRequest(false, true, webClient.generateApiURL("api/v1/record?" + httpUrlBuilder.build().encodedQuery()), new WebClient.WebClientListener() {
+    /**
+     * Get resource info
+     *
+     * @param resource              Resource to get ID from
+     * @param rawData               Whether to include raw data object
+     * @param resourceInfoInterface callback
+     */
+    public void resourceInfo(Resource resource, boolean rawData, ResourceInfoInterface resourceInfoInterface) {
+        resourceInfoFunc(resource.getId(), RecordField.defaults(rawData), resourceInfoInterface);
+    }
+
+    private void resourceInfoFunc(String id, Set<RecordField> fields, ResourceInfoInterface resourceInfoInterface) {
+        ResourceInfoCache cache = resourceInfoCache;
+        if (cache == null) {
+            fetchResourceInfo(id, fields, resourceInfoInterface);
+            return;
+        }
+        cache.get(id, fields, () -> {
+            CompletableFuture<ResourceInfo> future = new CompletableFuture<>();
+            fetchResourceInfo(id, fields, new ResourceInfoInterface() {
+                @Override
+                public void onResourceInfo(ResourceInfo resourceInfo) {
+                    future.complete(resourceInfo);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            return future;
+        }).whenComplete((resourceInfo, error) -> {
+            if (error == null)
+                resourceInfoInterface.onResourceInfo(resourceInfo);
+            else
+                resourceInfoInterface.onError(cause(error));
+        });
+    }
+
+    private void fetchResourceInfo(String id, Set<RecordField> fields, ResourceInfoInterface resourceInfoInterface) {
+        webClient.getRequest(false, true, recordUrl("id", Collections.singletonList(id), fields), new WebClient.WebClientListener() {
             @Override
             public void onFailed(@NotNull Call call, @NotNull IOException e) {
                 resourceInfoInterface.onError(e);
@@ -917,15 +1140,13 @@ public class FinnaClient {
             public void onResponse(@NotNull Response response) {
                 if (response.code() == 200) {
                     try {
-                        String body = Objects.requireNonNull(response.body()).string();
-                        if (isJSONValid(body)) {
-                            JSONObject object = new JSONObject(body);
-                            if (object.optInt("resultCount") > 0) {
-                                resourceInfoInterface.onResourceInfo(FinnaJSONParser.parseResourceInfo(object.optJSONArray("records").getJSONObject(0)));
-                            } else
-                                throw new FinnaNotFoundException("Resource not found with id " + id);
+                        long parseStartedAt = parseStarted();
+                        SearchResult result = FinnaJSONStreamParser.parseRecords(Objects.requireNonNull(response.body()).charStream());
+                        parsed("FinnaJSONStreamParser.parseRecords", parseStartedAt);
+                        if (!result.getResourceInfos().isEmpty()) {
+                            resourceInfoInterface.onResourceInfo(result.getResourceInfos().get(0));
                         } else
-                            throw new KirkesClientException("Unable to parse JSON: " + body);
+                            resourceInfoInterface.onError(new FinnaNotFoundException("Resource not found with id " + id));
                     } catch (IOException e) {
                         resourceInfoInterface.onError(e);
                     }
@@ -936,6 +1157,237 @@ public class FinnaClient {
         });
     }
 
+    /**
+     * Record API url with the ids before the requested fields
+     */
+    HttpUrl recordUrl(String idParameter, Collection<String> ids, Set<RecordField> fields) {
+        HttpUrl.Builder httpUrlBuilder = webClient.generateApiHttpUrl("api/v1/record").newBuilder();
+        for (String id : ids) {
+            httpUrlBuilder.addQueryParameter(idParameter, id);
+        }
+        addFields(httpUrlBuilder, fields);
+        return httpUrlBuilder.build();
+    }
+
+    /**
+     * Search API url limited to the building
+     */
+    HttpUrl searchUrl(String query, Building building, Set<RecordField> fields, int page, int limit) {
+        HttpUrl.Builder httpUrlBuilder = webClient.generateApiHttpUrl("api/v1/search").newBuilder();
+        httpUrlBuilder.addQueryParameter("lookfor", query);
+        httpUrlBuilder.addQueryParameter("limit", String.valueOf(limit));
+        httpUrlBuilder.addQueryParameter("page", String.valueOf(page));
+        httpUrlBuilder.addQueryParameter("filter", "~building:\"" + building.getId() + "\"");
+        addFields(httpUrlBuilder, fields);
+        return httpUrlBuilder.build();
+    }
+
+    /**
+     * Error a future failed with, without the CompletionException around it
+     */
+    static Exception cause(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof Exception ? (Exception) cause : new CompletionException(cause);
+    }
+
+    /**
+     * @return start time of a parse to pass to {@link #parsed(String, long)}, 0 when metrics are disabled
+     */
+    private long parseStarted() {
+        return webClient.getMetricsRecorder().isEnabled() ? System.nanoTime() : 0;
+    }
+
+    private void parsed(String parser, long startedAt) {
+        MetricsRecorder metricsRecorder = webClient.getMetricsRecorder();
+        if (metricsRecorder.isEnabled())
+            metricsRecorder.recordParse(parser, System.nanoTime() - startedAt);
+    }
+
+    private <T> RevalidatingCache.BodyParser<T> timed(String name, RevalidatingCache.BodyParser<T> parser) {
+        if (!webClient.getMetricsRecorder().isEnabled())
+            return parser;
+        return body -> {
+            long startedAt = System.nanoTime();
+            T result = parser.parse(body);
+            parsed(name, startedAt);
+            return result;
+        };
+    }
+
+    private static void addFields(HttpUrl.Builder httpUrlBuilder, Set<RecordField> fields) {
+        // Results are matched by id, so it is always requested
+        if (!fields.contains(RecordField.ID))
+            httpUrlBuilder.addQueryParameter("field[]", RecordField.ID.getKey());
+        for (RecordField field : fields) {
+            httpUrlBuilder.addQueryParameter("field[]", field.getKey());
+        }
+    }
+
+    /**
+     * Get resource infos of many records. Ids are sent {@link #RECORD_BATCH_SIZE} at a time as id[] parameters, with
+     * {@link #DEFAULT_BATCH_CONCURRENCY} requests running at the same time
+     *
+     * @param ids                    IDs of resources
+     * @param resourceInfosInterface callback
+     */
+    public void resourceInfos(Collection<String> ids, ResourceInfosInterface resourceInfosInterface) {
+        resourceInfos(ids, false, DEFAULT_BATCH_CONCURRENCY, resourceInfosInterface);
+    }
+
+    /**
+     * Get resource infos of many records. Ids Finna has no record for are reported in
+     * {@link ResourceInfoBatch#getMissingIds()} instead of failing the whole batch
+     *
+     * @param ids                    IDs of resources
+     * @param rawData                Whether to include raw data object or not
+     * @param maxConcurrency         How many requests are run at the same time at most
+     * @param resourceInfosInterface callback
+     */
+    public void resourceInfos(Collection<String> ids, boolean rawData, int maxConcurrency, ResourceInfosInterface resourceInfosInterface) {
+        resourceInfos(ids, RecordField.defaults(rawData), maxConcurrency, resourceInfosInterface);
+    }
+
+    /**
+     * Get resource infos of many records with only the given fields
+     *
+     * @param ids                    IDs of resources
+     * @param fields                 Fields to request, id is always included
+     * @param maxConcurrency         How many requests are run at the same time at most
+     * @param resourceInfosInterface callback
+     */
+    public void resourceInfos(Collection<String> ids, Set<RecordField> fields, int maxConcurrency, ResourceInfosInterface resourceInfosInterface) {
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        ResourceInfoCache cache = resourceInfoCache;
+        if (cache == null) {
+            fetchResourceInfos(ids, fields, maxConcurrency, resourceInfosInterface);
+            return;
+        }
+        // Ids that are neither cached nor being loaded are fetched in batches, the others wait for the cache
+        Map<String, CompletableFuture<ResourceInfo>> results = new LinkedHashMap<>();
+        Map<String, CompletableFuture<ResourceInfo>> loads = new LinkedHashMap<>();
+        for (String id : new LinkedHashSet<>(ids)) {
+            results.put(id, cache.get(id, fields, () -> loads.computeIfAbsent(id, key -> new CompletableFuture<>())));
+        }
+        if (!loads.isEmpty()) {
+            fetchResourceInfos(loads.keySet(), fields, maxConcurrency, new ResourceInfosInterface() {
+                @Override
+                public void onResourceInfos(ResourceInfoBatch batch) {
+                    for (Map.Entry<String, CompletableFuture<ResourceInfo>> load : loads.entrySet()) {
+                        ResourceInfo resourceInfo = batch.getResourceInfos().get(load.getKey());
+                        if (resourceInfo != null)
+                            load.getValue().complete(resourceInfo);
+                        else
+                            load.getValue().completeExceptionally(new FinnaNotFoundException("Resource not found with id " + load.getKey()));
+                    }
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    for (CompletableFuture<ResourceInfo> load : loads.values()) {
+                        load.completeExceptionally(e);
+                    }
+                }
+            });
+        }
+        CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0])).whenComplete((ignored, allError) -> {
+            Map<String, ResourceInfo> resourceInfos = new LinkedHashMap<>();
+            Set<String> missingIds = new LinkedHashSet<>();
+            for (Map.Entry<String, CompletableFuture<ResourceInfo>> result : results.entrySet()) {
+                try {
+                    resourceInfos.put(result.getKey(), result.getValue().join());
+                } catch (CompletionException e) {
+                    Exception error = cause(e);
+                    if (!(error instanceof FinnaNotFoundException)) {
+                        resourceInfosInterface.onError(error);
+                        return;
+                    }
+                    missingIds.add(result.getKey());
+                }
+            }
+            resourceInfosInterface.onResourceInfos(new ResourceInfoBatch(resourceInfos, missingIds));
+        });
+    }
+
+    private void fetchResourceInfos(Collection<String> ids, Set<RecordField> fields, int maxConcurrency, ResourceInfosInterface resourceInfosInterface) {
+        List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < uniqueIds.size(); i += RECORD_BATCH_SIZE) {
+            chunks.add(uniqueIds.subList(i, Math.min(i + RECORD_BATCH_SIZE, uniqueIds.size())));
+        }
+        if (chunks.isEmpty()) {
+            resourceInfosInterface.onResourceInfos(new ResourceInfoBatch(new LinkedHashMap<>(), new LinkedHashSet<>()));
+            return;
+        }
+        Map<String, ResourceInfo> found = new ConcurrentHashMap<>();
+        AtomicInteger nextChunk = new AtomicInteger();
+        AtomicInteger remainingChunks = new AtomicInteger(chunks.size());
+        AtomicBoolean failed = new AtomicBoolean();
+        ResourceInfosInterface chunkDone = new ResourceInfosInterface() {
+            @Override
+            public void onResourceInfos(ResourceInfoBatch batch) {
+                if (failed.get())
+                    return;
+                if (remainingChunks.decrementAndGet() == 0) {
+                    Map<String, ResourceInfo> resourceInfos = new LinkedHashMap<>();
+                    Set<String> missingIds = new LinkedHashSet<>();
+                    for (String id : uniqueIds) {
+                        ResourceInfo resourceInfo = found.get(id);
+                        if (resourceInfo != null)
+                            resourceInfos.put(id, resourceInfo);
+                        else
+                            missingIds.add(id);
+                    }
+                    resourceInfosInterface.onResourceInfos(new ResourceInfoBatch(resourceInfos, missingIds));
+                    return;
+                }
+                int chunk = nextChunk.getAndIncrement();
+                if (chunk < chunks.size())
+                    resourceInfoChunk(chunks.get(chunk), fields, found, this);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (failed.compareAndSet(false, true))
+                    resourceInfosInterface.onError(e);
+            }
+        };
+        // Each chunk starts the next one when it is done, so at most maxConcurrency requests are in flight
+        for (int i = 0; i < Math.min(maxConcurrency, chunks.size()); i++) {
+            resourceInfoChunk(chunks.get(nextChunk.getAndIncrement()), fields, found, chunkDone);
+        }
+    }
+
+    private void resourceInfoChunk(List<String> ids, Set<RecordField> fields, Map<String, ResourceInfo> found, ResourceInfosInterface chunkDone) {
+        webClient.getRequest(false, true, recordUrl("id[]", ids, fields), new WebClient.WebClientListener() {
+            @Override
+            public void onFailed(@NotNull Call call, @NotNull IOException e) {
+                chunkDone.onError(e);
+            }
+
+            @Override
+            public void onResponse(@NotNull Response response) {
+                if (response.code() == 200) {
+                    try {
+                        long parseStartedAt = parseStarted();
+                        SearchResult result = FinnaJSONStreamParser.parseRecords(Objects.requireNonNull(response.body()).charStream());
+                        parsed("FinnaJSONStreamParser.parseRecords", parseStartedAt);
+                        for (ResourceInfo resourceInfo : result.getResourceInfos()) {
+                            found.put(resourceInfo.getId(), resourceInfo);
+                        }
+                    } catch (Exception e) {
+                        chunkDone.onError(e);
+                        return;
+                    }
+                    chunkDone.onResourceInfos(null);
+                } else {
+                    response.close();
+                    chunkDone.onError(new KirkesClientException("Response code " + response.code()));
+                }
+            }
+        });
+    }
+
     /**
      * Make a search
      *
@@ -944,7 +1396,7 @@ public class FinnaClient {
      */
     public void search(String query, SearchInterface searchInterface) {
         if (cachedBuilding != null) {
-            searchFunc(query, cachedBuilding, false, 1, 10, searchInterface);
+            searchFunc(query, cachedBuilding, RecordField.defaults(false), 1, 10, searchInterface);
         } else {
             getDefaultBuilding(new LibraryChainInterface() {
                 @Override
@@ -974,7 +1426,7 @@ public class FinnaClient {
      */
     public void search(String query, boolean rawData, SearchInterface searchInterface) {
         if (cachedBuilding != null) {
-            searchFunc(query, cachedBuilding, rawData, 1, 10, searchInterface);
+            searchFunc(query, cachedBuilding, RecordField.defaults(rawData), 1, 10, searchInterface);
         } else {
             getDefaultBuilding(new LibraryChainInterface() {
                 @Override
@@ -1004,7 +1456,7 @@ public class FinnaClient {
      */
     public void search(String query, int page, SearchInterface searchInterface) {
         if (cachedBuilding != null) {
-            searchFunc(query, cachedBuilding, false, page, 10, searchInterface);
+            searchFunc(query, cachedBuilding, RecordField.defaults(false), page, 10, searchInterface);
         } else {
             getDefaultBuilding(new LibraryChainInterface() {
                 @Override
@@ -1035,7 +1487,7 @@ public class FinnaClient {
      */
     public void search(String query, int page, boolean rawData, SearchInterface searchInterface) {
         if (cachedBuilding != null) {
-            searchFunc(query, cachedBuilding, rawData, page, 10, searchInterface);
+            searchFunc(query, cachedBuilding, RecordField.defaults(rawData), page, 10, searchInterface);
         } else {
             getDefaultBuilding(new LibraryChainInterface() {
                 @Override
@@ -1066,7 +1518,7 @@ public class FinnaClient {
      */
     public void search(String query, int page, int limit, SearchInterface searchInterface) {
         if (cachedBuilding != null) {
-            searchFunc(query, cachedBuilding, false, page, limit, searchInterface);
+            searchFunc(query, cachedBuilding, RecordField.defaults(false), page, limit, searchInterface);
         } else {
             getDefaultBuilding(new LibraryChainInterface() {
                 @Override
@@ -1097,13 +1549,26 @@ public class FinnaClient {
      * @param searchInterface callback
      */
     public void search(String query, int page, int limit, boolean rawData, SearchInterface searchInterface) {
+        search(query, page, limit, RecordField.defaults(rawData), searchInterface);
+    }
+
+    /**
+     * Make a search returning only the given fields of the records
+     *
+     * @param query           Query to search
+     * @param page            Page number
+     * @param limit           Max. number of items on a page
+     * @param fields          Fields to request, id is always included
+     * @param searchInterface callback
+     */
+    public void search(String query, int page, int limit, Set<RecordField> fields, SearchInterface searchInterface) {
         if (cachedBuilding != null) {
-            searchFunc(query, cachedBuilding, rawData, page, limit, searchInterface);
+            searchFunc(query, cachedBuilding, fields, page, limit, searchInterface);
         } else {
             getDefaultBuilding(new LibraryChainInterface() {
                 @Override
                 public void onFetchDefaultLibraryBuilding(Building building) {
-                    search(query, page, limit, rawData, searchInterface);
+                    search(query, page, limit, fields, searchInterface);
                 }
 
                 @Override
@@ -1119,6 +1584,57 @@ public class FinnaClient {
         }
     }
 
+    /**
+     * Iterate over all results of a search, {@link #SEARCH_PAGE_SIZE} per page with up to
+     * {@link #DEFAULT_BATCH_CONCURRENCY} pages prefetched. See {@link SearchIterator}
+     *
+     * @param query Query to search
+     * @return iterator, close it when stopping early
+     */
+    public SearchIterator searchIterator(String query) {
+        return searchIterator(query, SEARCH_PAGE_SIZE, false, DEFAULT_BATCH_CONCURRENCY);
+    }
+
+    /**
+     * Iterate over all results of a search
+     *
+     * @param query       Query to search
+     * @param limit       Max. number of items on a page
+     * @param rawData     Whether to include raw data or not
+     * @param maxInFlight Max. number of pages fetched at the same time
+     * @return iterator, close it when stopping early
+     */
+    public SearchIterator searchIterator(String query, int limit, boolean rawData, int maxInFlight) {
+        return searchIterator(query, limit, RecordField.defaults(rawData), maxInFlight);
+    }
+
+    /**
+     * Iterate over all results of a search, with only the given fields of the records
+     *
+     * @param query       Query to search
+     * @param limit       Max. number of items on a page
+     * @param fields      Fields to request, id is always included
+     * @param maxInFlight Max. number of pages fetched at the same time
+     * @return iterator, close it when stopping early
+     */
+    public SearchIterator searchIterator(String query, int limit, Set<RecordField> fields, int maxInFlight) {
+        return new SearchIterator(this, query, limit, fields, maxInFlight);
+    }
+
+    /**
+     * All results of a search as a sequential stream, see {@link #searchIterator(String, int, Set, int)}.
+     * Closing the stream cancels the prefetched pages
+     */
+    public Stream<ResourceInfo> searchStream(String query, int limit, boolean rawData, int maxInFlight) {
+        return searchStream(query, limit, RecordField.defaults(rawData), maxInFlight);
+    }
+
+    public Stream<ResourceInfo> searchStream(String query, int limit, Set<RecordField> fields, int maxInFlight) {
+        SearchIterator iterator = searchIterator(query, limit, fields, maxInFlight);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
     /**
      * Get default pickup location assigned to card/account
      *
@@ -1128,7 +1644,7 @@ public class FinnaClient {
         preCheck(new PreCheckInterface() {
             @Override
             public void onPreCheck() {
-                webClient.getRequest(true, true, webClient.generateURL("MyResearch/Profile"), new WebClient.WebClientListener() {
+                webClient.getRequest(true, true, webClient.generateHttpUrl("MyResearch/Profile"), sessionListener(this, new WebClient.WebClientListener() {
                     @Override
                     public void onFailed(@NotNull Call call, @NotNull IOException e) {
                         holdsInterface.onError(e);
@@ -1147,7 +1663,7 @@ public class FinnaClient {
                             holdsInterface.onError(new KirkesClientException("Response code " + response.code()));
                         }
                     }
-                });
+                }));
             }
 
             @Override
@@ -1166,7 +1682,7 @@ public class FinnaClient {
         preCheck(new PreCheckInterface() {
             @Override
             public void onPreCheck() {
-                webClient.getRequest(true, true, webClient.generateURL("MyResearch/Fines"), new WebClient.WebClientListener() {
+                webClient.getRequest(true, true, webClient.generateHttpUrl("MyResearch/Fines"), sessionListener(this, new WebClient.WebClientListener() {
                     @Override
                     public void onFailed(@NotNull Call call, @NotNull IOException e) {
                         finesInterface.onError(e);
@@ -1184,7 +1700,7 @@ public class FinnaClient {
                             finesInterface.onError(new KirkesClientException("Response code " + response.code()));
                         }
                     }
-                });
+                }));
             }
 
             @Override
@@ -1208,7 +1724,7 @@ public class FinnaClient {
         preCheck(new PreCheckInterface() {
             @Override
             public void onPreCheck() {
-                webClient.getRequest(true, true, webClient.generateURL("LibraryCards/editCard/" + cardId), new WebClient.WebClientListener() {
+                webClient.getRequest(true, true, webClient.generateHttpUrl("LibraryCards/editCard/" + cardId), sessionListener(this, new WebClient.WebClientListener() {
                     @Override
                     public void onFailed(@NotNull Call call, @NotNull IOException e) {
                         libraryChainInterface.onError(e);
@@ -1228,18 +1744,7 @@ public class FinnaClient {
 
                                         @Override
                                         public void onFetchLibraryBuildings(List<Building> buildingList) {
-                                            Building building = null;
-                                            String optimizedName = BuildingUtils.optimizeName(chainDetails.getName(), chainDetails.getId());
-                                            for (Building iBuilding : buildingList) {
-                                                String buildingName = BuildingUtils.optimizeName(iBuilding.getName(), "");
-                                                if (optimizedName.equals(buildingName)) {
-                                                    building = iBuilding;
-                                                    break;
-                                                }
-                                            }
-                                            cachedBuilding = building;
-                                            if (changeListener != null)
-                                                changeListener.onAuthenticationChange(userAuthentication, null, building);
+                                            Building building = defaultBuildingFound(chainDetails, buildingList);
                                             libraryChainInterface.onFetchDefaultLibraryBuilding(building);
                                         }
 
@@ -1257,7 +1762,7 @@ public class FinnaClient {
                             libraryChainInterface.onError(new KirkesClientException("Response code " + response.code()));
                         }
                     }
-                });
+                }));
             }
 
             @Override
@@ -1311,7 +1816,7 @@ public class FinnaClient {
         preCheck(new PreCheckInterface() {
             @Override
             public void onPreCheck() {
-                webClient.getRequest(true, true, webClient.generateURL("MyResearch/Profile"), new WebClient.WebClientListener() {
+                webClient.getRequest(true, true, webClient.generateHttpUrl("MyResearch/Profile"), sessionListener(this, new WebClient.WebClientListener() {
                     @Override
                     public void onFailed(@NotNull Call call, @NotNull IOException e) {
                         cardInterface.onError(e);
@@ -1329,7 +1834,7 @@ public class FinnaClient {
                             cardInterface.onError(new KirkesClientException("Response code " + response.code()));
                         }
                     }
-                });
+                }));
             }
 
             @Override
@@ -1348,7 +1853,7 @@ public class FinnaClient {
         preCheck(new PreCheckInterface() {
             @Override
             public void onPreCheck() {
-                webClient.getRequest(true, true, webClient.generateURL("MyResearch/Profile"), new WebClient.WebClientListener() {
+                webClient.getRequest(true, true, webClient.generateHttpUrl("MyResearch/Profile"), sessionListener(this, new WebClient.WebClientListener() {
                     @Override
                     public void onFailed(@NotNull Call call, @NotNull IOException e) {
                         detailsInterface.onError(e);
@@ -1388,7 +1893,7 @@ public class FinnaClient {
                             detailsInterface.onError(new KirkesClientException("Response code " + response.code()));
                         }
                     }
-                });
+                }));
             }
 
             @Override
@@ -1398,13 +1903,149 @@ public class FinnaClient {
         });
     }
 
+    /**
+     * Get loans, holds, fines and account details at once. The session is validated once and the pages are requested
+     * concurrently. If a part fails, the others are still returned and the error is in {@link AccountSnapshot#getErrors()}.
+     * The default building of the account details is fetched and cached like in {@link #getAccountDetails(AccountDetailsInterface)}
+     *
+     * @param snapshotInterface callback
+     */
+    public void getAccountSnapshot(AccountSnapshotInterface snapshotInterface) {
+        preCheck(new PreCheckInterface() {
+            @Override
+            public void onPreCheck() {
+                AccountSnapshot snapshot = new AccountSnapshot();
+                AtomicInteger remaining = new AtomicInteger(AccountSnapshot.Part.values().length);
+                Runnable partDone = () -> {
+                    if (remaining.decrementAndGet() == 0)
+                        snapshotInterface.onAccountSnapshot(snapshot);
+                };
+                snapshotPart(snapshot, AccountSnapshot.Part.LOANS, "MyResearch/CheckedOut", "KirkesHTMLParser.parseLoans", html -> snapshot.setLoans(KirkesHTMLParser.parseLoans(html, webClient.getBaseOrigin())), partDone);
+                snapshotPart(snapshot, AccountSnapshot.Part.HOLDS, "MyResearch/Holds", "KirkesHTMLParser.parseHolds", html -> snapshot.setHolds(KirkesHTMLParser.parseHolds(html, webClient.getBaseOrigin())), partDone);
+                snapshotPart(snapshot, AccountSnapshot.Part.FINES, "MyResearch/Fines", "KirkesHTMLParser.extractFines", html -> snapshot.setFines(KirkesHTMLParser.extractFines(html)), partDone);
+                snapshotPart(snapshot, AccountSnapshot.Part.ACCOUNT_DETAILS, "MyResearch/Profile", (html, callback) -> {
+                    String cardId = KirkesHTMLParser.getCurrentCardId(html);
+                    if (cardId == null) {
+                        snapshot.setUser(parseUserDetails(html, null));
+                        callback.onParsed();
+                        return;
+                    }
+                    getDefaultBuilding(cardId, new LibraryChainInterface() {
+                        @Override
+                        public void onFetchDefaultLibraryBuilding(Building building) {
+                            snapshot.setUser(parseUserDetails(html, building));
+                            callback.onParsed();
+                        }
+
+                        @Override
+                        public void onFetchLibraryBuildings(List<Building> buildingList) {
+
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            callback.onError(e);
+                        }
+                    });
+                }, partDone);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                snapshotInterface.onError(e);
+            }
+        });
+    }
+
+    /**
+     * Fetch and parse one page of the snapshot. Responses are parsed on the thread delivering them, so the pages are
+     * parsed in parallel. An expired session re-runs only this part
+     */
+    private void snapshotPart(AccountSnapshot snapshot, AccountSnapshot.Part part, String path, String parserName, PageParser parser, Runnable partDone) {
+        snapshotPart(snapshot, part, path, (html, callback) -> {
+            long parseStartedAt = parseStarted();
+            parser.parse(html);
+            parsed(parserName, parseStartedAt);
+            callback.onParsed();
+        }, partDone);
+    }
+
+    /**
+     * Snapshot part whose parser may need more requests before it is done
+     */
+    private void snapshotPart(AccountSnapshot snapshot, AccountSnapshot.Part part, String path, AsyncPageParser parser, Runnable partDone) {
+        new PreCheckInterface() {
+            @Override
+            public void onPreCheck() {
+                PreCheckInterface operation = this;
+                webClient.getRequest(true, true, webClient.generateHttpUrl(path), sessionListener(operation, new WebClient.WebClientListener() {
+                    @Override
+                    public void onFailed(@NotNull Call call, @NotNull IOException e) {
+                        onError(e);
+                    }
+
+                    @Override
+                    public void onResponse(@NotNull Response response) {
+                        if (response.code() != 200) {
+                            response.close();
+                            onError(new KirkesClientException("Response code " + response.code()));
+                            return;
+                        }
+                        try {
+                            parser.parse(response.body().string(), new PartCallback() {
+                                @Override
+                                public void onParsed() {
+                                    partDone.run();
+                                }
+
+                                @Override
+                                public void onError(Exception e) {
+                                    operation.onError(e);
+                                }
+                            });
+                        } catch (Exception e) {
+                            onError(e);
+                        }
+                    }
+                }));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                snapshot.addError(part, e);
+                partDone.run();
+            }
+        }.onPreCheck();
+    }
+
+    private interface PageParser {
+        void parse(String html) throws Exception;
+    }
+
+    private interface AsyncPageParser {
+        void parse(String html, PartCallback callback) throws Exception;
+    }
+
+    private interface PartCallback {
+        void onParsed();
+
+        void onError(Exception e);
+    }
+
+    private User parseUserDetails(String html, Building building) {
+        long parseStartedAt = parseStarted();
+        User user = KirkesHTMLParser.parseUserDetails(html, building);
+        parsed("KirkesHTMLParser.parseUserDetails", parseStartedAt);
+        return user;
+    }
+
     /**
      * Get user types for sign in, in other words, get all available libraries
      *
      * @param userTypeInterface callback
      */
     public void getUserTypes(UserTypeInterface userTypeInterface) {
-        webClient.getRequest(true, true, webClient.generateURL("MyResearch/UserLogin?layout=lightbox"), new WebClient.WebClientListener() {
+        webClient.getRequest(true, true, webClient.generateHttpUrl("MyResearch/UserLogin?layout=lightbox"), new WebClient.WebClientListener() {
             @Override
             public void onFailed(@NotNull Call call, @NotNull IOException e) {
                 userTypeInterface.onError(e);
@@ -1427,6 +2068,103 @@ public class FinnaClient {
     }
 
     private void preCheck(PreCheckInterface preCheckInterface) {
+        if (isSessionWindowOpen()) {
+            preCheckInterface.onPreCheck();
+            return;
+        }
+        // Single flight: only the first caller revalidates (and logs in), the others wait for its result
+        synchronized (sessionLock) {
+            if (sessionWaiters != null) {
+                sessionWaiters.add(inCurrentScope(preCheckInterface));
+                return;
+            }
+            sessionWaiters = new ArrayList<>();
+            sessionWaiters.add(inCurrentScope(preCheckInterface));
+        }
+        // Shared by all waiters, so it is not cancelled together with the operation that happened to start it
+        CallScope.run(null, () -> revalidateSession(new PreCheckInterface() {
+            @Override
+            public void onPreCheck() {
+                for (PreCheckInterface waiter : drainSessionWaiters()) {
+                    waiter.onPreCheck();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                for (PreCheckInterface waiter : drainSessionWaiters()) {
+                    waiter.onError(e);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Blocking {@link #preCheck(PreCheckInterface)} for FinnaBlockingClient. Joins the revalidation (and login) in
+     * flight if there is one, so the blocking and callback APIs log in again only once
+     *
+     * @throws IOException on network error, or if interrupted while waiting
+     */
+    void awaitSession() throws IOException {
+        if (isSessionWindowOpen())
+            return;
+        CompletableFuture<Void> validated = new CompletableFuture<>();
+        preCheck(new PreCheckInterface() {
+            @Override
+            public void onPreCheck() {
+                validated.complete(null);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                validated.completeExceptionally(e);
+            }
+        });
+        try {
+            validated.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the session");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Bind the precheck to the call scope of the calling operation, so it continues in that scope when it is
+     * released from another thread
+     */
+    private static PreCheckInterface inCurrentScope(PreCheckInterface preCheckInterface) {
+        CallScope scope = CallScope.current();
+        if (scope == null)
+            return preCheckInterface;
+        return new PreCheckInterface() {
+            @Override
+            public void onPreCheck() {
+                CallScope.run(scope, preCheckInterface::onPreCheck);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                CallScope.run(scope, () -> preCheckInterface.onError(e));
+            }
+        };
+    }
+
+    private List<PreCheckInterface> drainSessionWaiters() {
+        synchronized (sessionLock) {
+            List<PreCheckInterface> waiters = sessionWaiters;
+            sessionWaiters = null;
+            return waiters;
+        }
+    }
+
+    private void revalidateSession(PreCheckInterface preCheckInterface) {
         validateSession(new SessionValidationInterface() {
             @Override
             public void onSessionValidated() {
@@ -1435,7 +2173,7 @@ public class FinnaClient {
 
             @Override
             public void onError(Exception e) {
-                login(FinnaClient.this.userAuthentication, false, new LoginInterface() {
+                reLogin(new LoginInterface() {
                     @Override
                     public void onError(Exception e) {
                         preCheckInterface.onError(e);
@@ -1460,8 +2198,16 @@ public class FinnaClient {
         });
     }
 
+    private void reLogin(LoginInterface loginInterface) {
+        if (userAuthentication == null) {
+            loginInterface.onError(new SessionValidationException());
+            return;
+        }
+        login(userAuthentication, false, loginInterface);
+    }
+
     private void validateSession(SessionValidationInterface validationInterface) {
-        webClient.getRequest(true, true, webClient.generateURL("AJAX/JSON?method=getUserTransactions"), new WebClient.WebClientListener() {
+        webClient.getRequest(true, true, webClient.generateHttpUrl("AJAX/JSON?method=getUserTransactions"), new WebClient.WebClientListener() {
             @Override
             public void onFailed(@NotNull Call call, @NotNull IOException e) {
                 validationInterface.onError(e);
@@ -1469,10 +2215,12 @@ public class FinnaClient {
 
             @Override
             public void onResponse(@NotNull Response response) {
-                if (response.isSuccessful())
+                response.close();
+                if (response.isSuccessful()) {
+                    markSessionValidated();
                     validationInterface.onSessionValidated();
-                else {
-                    login(FinnaClient.this.userAuthentication, false, new LoginInterface() {
+                } else {
+                    reLogin(new LoginInterface() {
                         @Override
                         public void onError(Exception e) {
                             validationInterface.onError(new SessionValidationException());
@@ -1490,9 +2238,222 @@ public class FinnaClient {
         });
     }
 
+    boolean isSessionWindowOpen() {
+        long validatedAt = sessionValidatedAt;
+        return validatedAt != 0 && System.nanoTime() - validatedAt < sessionValidationTTL;
+    }
+
+    void markSessionValidated() {
+        long now = System.nanoTime();
+        sessionValidatedAt = (now != 0) ? now : 1;
+    }
+
+    void invalidateSession() {
+        sessionValidatedAt = 0;
+    }
+
+    /**
+     * Wrap the listener of an authenticated request made in a precheck. A successful response keeps the validated
+     * session window open. If the session turns out to be expired (401, redirect to login or a login form in the page)
+     * the window is closed and the operation is run again once through the normal re-login path
+     *
+     * @param operation operation to run again after re-login
+     * @param listener  listener of the request
+     * @return wrapped listener
+     */
+    private WebClient.WebClientListener sessionListener(PreCheckInterface operation, WebClient.WebClientListener listener) {
+        return sessionListener(operation, listener, true, false);
+    }
+
+    /**
+     * Like {@link #sessionListener(PreCheckInterface, WebClient.WebClientListener)} for a page that may be streamed to
+     * a parser. A streamed body is not read ahead to look for the login form; the parser throws
+     * {@link SessionExpiredException} when it finds the form, which the listener lets through
+     *
+     * @param streamed whether the listener streams the body
+     */
+    private WebClient.WebClientListener sessionListener(PreCheckInterface operation, boolean streamed, WebClient.WebClientListener listener) {
+        return sessionListener(operation, listener, true, streamed);
+    }
+
+    /**
+     * Like {@link #sessionListener(PreCheckInterface, WebClient.WebClientListener)} for a request followed by more
+     * requests of the same operation. Its success does not reset the re-login attempt, so a later step that still finds
+     * the session expired fails instead of logging in again and again
+     */
+    private WebClient.WebClientListener hopSessionListener(PreCheckInterface operation, WebClient.WebClientListener listener) {
+        return sessionListener(operation, listener, false, false);
+    }
+
+    private WebClient.WebClientListener sessionListener(PreCheckInterface operation, WebClient.WebClientListener listener, boolean lastHop, boolean streamed) {
+        return new WebClient.WebClientListener() {
+            @Override
+            public void onFailed(@NotNull Call call, @NotNull IOException e) {
+                reLoginAttempts.remove(operation);
+                listener.onFailed(call, e);
+            }
+
+            @Override
+            public void onResponse(@NotNull Response response) {
+                boolean expired;
+                try {
+                    expired = isSessionExpired(response, !streamed);
+                } catch (IOException e) {
+                    response.close();
+                    reLoginAttempts.remove(operation);
+                    operation.onError(e);
+                    return;
+                }
+                if (expired) {
+                    response.close();
+                    sessionExpired(operation);
+                    return;
+                }
+                if (!streamed) {
+                    if (lastHop)
+                        reLoginAttempts.remove(operation);
+                    if (response.isSuccessful())
+                        markSessionValidated();
+                    listener.onResponse(response);
+                    return;
+                }
+                try {
+                    listener.onResponse(response);
+                } catch (SessionExpiredException e) {
+                    response.close();
+                    sessionExpired(operation);
+                    return;
+                }
+                reLoginAttempts.remove(operation);
+                if (response.isSuccessful())
+                    markSessionValidated();
+            }
+        };
+    }
+
+    /**
+     * Close the session window and run the operation again once through the normal re-login path
+     */
+    private void sessionExpired(PreCheckInterface operation) {
+        invalidateSession();
+        if (!reLoginAttempts.add(operation)) {
+            // Already logged in again for this operation and the session is still not accepted
+            reLoginAttempts.remove(operation);
+            operation.onError(new SessionValidationException());
+            return;
+        }
+        preCheck(new PreCheckInterface() {
+            @Override
+            public void onPreCheck() {
+                operation.onPreCheck();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                reLoginAttempts.remove(operation);
+                operation.onError(e);
+            }
+        });
+    }
+
+    boolean isSessionExpired(Response response) throws IOException {
+        return isSessionExpired(response, true);
+    }
+
+    /**
+     * @param checkBody whether to look for the login form in the body, which buffers the whole body
+     */
+    private boolean isSessionExpired(Response response, boolean checkBody) throws IOException {
+        if (response.code() == 401)
+            return true;
+        // Redirects were followed to the login page, or a redirect to it was not followed
+        if (isLoginUrl(response.request().url()))
+            return true;
+        if (response.isRedirect()) {
+            HttpUrl location = response.request().url().resolve(response.header("Location", ""));
+            return location != null && isLoginUrl(location);
+        }
+        ResponseBody body = response.body();
+        if (!checkBody || !response.isSuccessful() || body == null)
+            return false;
+        // Body is buffered here and read from the buffer by the actual listener
+        BufferedSource source = body.source();
+        source.request(Long.MAX_VALUE);
+        return source.getBuffer().indexOf(LOGIN_FORM_MARKER) != -1;
+    }
+
+    private static boolean isLoginUrl(HttpUrl url) {
+        return url.encodedPath().contains("/MyResearch/UserLogin");
+    }
+
+    /*
+     * Shared with FinnaBlockingClient, which runs the same steps with blocking calls
+     */
+
+    WebClient getWebClient() {
+        return webClient;
+    }
+
+    UserAuthentication getUserAuthentication() {
+        return userAuthentication;
+    }
+
+    Building getCachedBuilding() {
+        return cachedBuilding;
+    }
+
+    void beginLogin(UserAuthentication userAuthentication) {
+        if (userAuthentication == null)
+            throw new KirkesClientException("UserAuthentication not provided!");
+        this.userAuthentication = userAuthentication;
+        cachedBuilding = null;
+        invalidateSession();
+    }
+
+    void loggedIn(User user) {
+        userAuthentication.setSession(webClient.getClientCookieJar().getSession());
+        if (changeListener != null)
+            changeListener.onAuthenticationChange(userAuthentication, user, null);
+    }
+
+    HttpUrl loginUrl() {
+        return webClient.generateHttpUrl("MyResearch/Home?layout=lightbox&lbreferer=https%3A%2F%2F" + webClient.getDomainName() + "%2FMyResearch%2FUserLogin");
+    }
+
+    static FormBody loginForm(UserAuthentication userAuthentication, String csrfToken) {
+        return new FormBody.Builder()
+                .add("username", userAuthentication.getUsername())
+                .add("password", userAuthentication.getPassword())
+                .add("target", userAuthentication.getUserType().getId())
+                .add("auth_method", "MultiILS")
+                .add("layout", "lightbox")
+                .add("csrf", csrfToken)
+                .add("processLogin", "Kirjaudu")
+                .add("secondary_username", "").build();
+    }
+
+    /**
+     * Find the building of the card's library chain and cache it
+     */
+    Building defaultBuildingFound(UserType chainDetails, List<Building> buildingList) {
+        Building building = null;
+        String optimizedName = BuildingUtils.optimizeName(chainDetails.getName(), chainDetails.getId());
+        for (Building iBuilding : buildingList) {
+            String buildingName = BuildingUtils.optimizeName(iBuilding.getName(), "");
+            if (optimizedName.equals(buildingName)) {
+                building = iBuilding;
+                break;
+            }
+        }
+        cachedBuilding = building;
+        if (changeListener != null)
+            changeListener.onAuthenticationChange(userAuthentication, null, building);
+        return building;
+    }
+
     private void fetchLoginCSRF(LoginCSRFInterface loginCSRFInterface) {
         webClient.getClientCookieJar().clear();
-        webClient.getRequest(true, true, webClient.generateURL("MyResearch/UserLogin?layout=lightbox"), new WebClient.WebClientListener() {
+        webClient.getRequest(true, true, webClient.generateHttpUrl("MyResearch/UserLogin?layout=lightbox"), new WebClient.WebClientListener() {
             @Override
             public void onFailed(@NotNull Call call, @NotNull IOException e) {
                 loginCSRFInterface.onFailed(call, e);
@@ -1528,10 +2489,13 @@ public class FinnaClient {
         this.cachedBuilding = cachedBuilding;
     }
 
-    private void fetchHashKey(String id, HashKeyInterface hashKeyInterface) {
+    /**
+     * @param operation operation to run again if the session has expired
+     */
+    private void fetchHashKey(PreCheckInterface operation, String id, HashKeyInterface hashKeyInterface) {
         FormBody body = new FormBody.Builder()
                 .add("tab", "holdings").build();
-        webClient.postRequest(true, true, webClient.generateURL("Record/" + id + "/AjaxTab"), body, new WebClient.WebClientListener() {
+        webClient.postRequest(true, true, webClient.generateHttpUrl("Record/" + id + "/AjaxTab"), body, hopSessionListener(operation, new WebClient.WebClientListener() {
             @Override
             public void onFailed(@NotNull Call call, @NotNull IOException e) {
                 hashKeyInterface.onError(e);
@@ -1553,7 +2517,7 @@ public class FinnaClient {
                     hashKeyInterface.onError(new KirkesClientException("Unable to find CSRF token"));
                 }
             }
-        });
+        }));
     }
 
     private boolean isJSONValid(String test) {
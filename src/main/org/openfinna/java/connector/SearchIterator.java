@@ -0,0 +1,146 @@
+package org.openfinna.java.connector;
+
+import org.openfinna.java.connector.classes.ResourceInfo;
+import org.openfinna.java.connector.classes.models.resource.RecordField;
+import org.openfinna.java.connector.exceptions.KirkesClientException;
+import org.openfinna.java.connector.http.CallScope;
+import org.openfinna.java.connector.interfaces.SearchInterface;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Iterates over all results of a search, page by page. While the caller goes through one page, up to
+ * maxInFlight following pages are fetched at the same time. Only the current page and the pages being prefetched are
+ * kept in memory, and nothing more is fetched when the caller stops iterating. Close the iterator to cancel the
+ * prefetched requests when stopping early.
+ * <p>
+ * Not thread safe, use from one thread at a time. {@link #hasNext()} blocks until the next page has arrived.
+ */
+public final class SearchIterator implements Iterator<ResourceInfo>, AutoCloseable {
+
+    private final FinnaClient finnaClient;
+    private final String query;
+    private final int limit;
+    private final Set<RecordField> fields;
+    private final int maxInFlight;
+    private final ArrayDeque<Page> inFlight = new ArrayDeque<>();
+
+    private Iterator<ResourceInfo> current = Collections.emptyIterator();
+    private int nextPage = 1;
+    // Unknown until the first page has arrived
+    private int lastPage = 1;
+    private boolean closed = false;
+
+    SearchIterator(FinnaClient finnaClient, String query, int limit, Set<RecordField> fields, int maxInFlight) {
+        if (limit < 1 || maxInFlight < 1)
+            throw new IllegalArgumentException("limit and maxInFlight must be at least 1");
+        this.finnaClient = finnaClient;
+        this.query = query;
+        this.limit = limit;
+        this.fields = fields;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (closed)
+                return false;
+            if (inFlight.isEmpty())
+                fill();
+            Page page = inFlight.poll();
+            if (page == null) {
+                close();
+                return false;
+            }
+            List<ResourceInfo> resourceInfos = await(page);
+            // The first page tells how many pages there are
+            if (page.number == 1)
+                lastPage = Math.max(1, (page.totalCount + limit - 1) / limit);
+            if (resourceInfos.isEmpty()) {
+                // Past the end, for example if results went away while iterating
+                close();
+                return false;
+            }
+            current = resourceInfos.iterator();
+            fill();
+        }
+        return true;
+    }
+
+    @Override
+    public ResourceInfo next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        return current.next();
+    }
+
+    /**
+     * Stop iterating and cancel the requests of prefetched pages
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Page page : inFlight) {
+            page.scope.cancel();
+        }
+        inFlight.clear();
+    }
+
+    private void fill() {
+        while (inFlight.size() < maxInFlight && nextPage <= lastPage) {
+            Page page = new Page(nextPage++);
+            inFlight.add(page);
+            CallScope.run(page.scope, () -> finnaClient.search(query, page.number, limit, fields, page));
+        }
+    }
+
+    private List<ResourceInfo> await(Page page) {
+        try {
+            return page.result.get();
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new KirkesClientException("Interrupted while waiting for search results");
+        } catch (ExecutionException e) {
+            close();
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw new UncheckedIOException((IOException) cause);
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new KirkesClientException(String.valueOf(cause));
+        }
+    }
+
+    private static final class Page implements SearchInterface {
+        final int number;
+        final CompletableFuture<List<ResourceInfo>> result = new CompletableFuture<>();
+        final CallScope scope = new CallScope(result::completeExceptionally);
+        volatile int totalCount;
+
+        Page(int number) {
+            this.number = number;
+        }
+
+        @Override
+        public void onSearchResults(int totalCount, List<ResourceInfo> resourceInfoList) {
+            this.totalCount = totalCount;
+            result.complete(resourceInfoList);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            result.completeExceptionally(e);
+        }
+    }
+}
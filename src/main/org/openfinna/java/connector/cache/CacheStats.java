@@ -0,0 +1,65 @@
+package org.openfinna.java.connector.cache;
+
+/**
+ * Counters of a cache at one point in time
+ */
+public class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long entryCount;
+    private final long weight;
+
+    public CacheStats(long hitCount, long missCount, long evictionCount, long entryCount, long weight) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.entryCount = entryCount;
+        this.weight = weight;
+    }
+
+    /**
+     * @return lookups answered from the cache, including cached not found results
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return lookups that loaded the entry or waited for a load already running
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return entries removed to stay within the maximum weight
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                ", entryCount=" + entryCount +
+                ", weight=" + weight +
+                '}';
+    }
+}
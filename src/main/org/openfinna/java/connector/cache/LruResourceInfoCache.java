@@ -0,0 +1,290 @@
+package org.openfinna.java.connector.cache;
+
+import org.openfinna.java.connector.classes.ResourceInfo;
+import org.openfinna.java.connector.classes.models.resource.Author;
+import org.openfinna.java.connector.classes.models.resource.Format;
+import org.openfinna.java.connector.classes.models.resource.RecordField;
+import org.openfinna.java.connector.exceptions.FinnaNotFoundException;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-memory {@link ResourceInfoCache} bounded by the total weight of its entries, least recently used entries are
+ * evicted first. Records expire a fixed time after they were loaded, not found results after a shorter time. Failed
+ * loads other than not found are not cached. Thread safe
+ */
+public class LruResourceInfoCache implements ResourceInfoCache {
+
+    private final long maximumWeight;
+    private final long expireAfterNanos;
+    private final long expireNotFoundAfterNanos;
+    private final Weigher weigher;
+    private final LongSupplier ticker;
+
+    // Access ordered, eldest first. Guarded by this, as are the fields below
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Key, CompletableFuture<ResourceInfo>> loading = new HashMap<>();
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    private LruResourceInfoCache(Builder builder) {
+        this.maximumWeight = builder.maximumWeight;
+        this.expireAfterNanos = builder.expireAfterNanos;
+        this.expireNotFoundAfterNanos = builder.expireNotFoundAfterNanos;
+        this.weigher = builder.weigher;
+        this.ticker = builder.ticker;
+    }
+
+    @Override
+    public CompletableFuture<ResourceInfo> get(String id, Set<RecordField> fields, Supplier<CompletableFuture<ResourceInfo>> loader) {
+        Key key = new Key(id, fields);
+        CompletableFuture<ResourceInfo> load;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt - ticker.getAsLong() > 0) {
+                    hitCount++;
+                    if (entry.resourceInfo != null)
+                        return CompletableFuture.completedFuture(entry.resourceInfo);
+                    return failed(new FinnaNotFoundException("Resource not found with id " + id));
+                }
+                entries.remove(key);
+                weight -= entry.weight;
+            }
+            missCount++;
+            CompletableFuture<ResourceInfo> running = loading.get(key);
+            if (running != null)
+                return running;
+            load = new CompletableFuture<>();
+            loading.put(key, load);
+        }
+        CompletableFuture<ResourceInfo> source;
+        try {
+            source = loader.get();
+        } catch (RuntimeException e) {
+            source = failed(e);
+        }
+        source.whenComplete((resourceInfo, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            Entry entry = null;
+            if (cause == null && expireAfterNanos > 0)
+                entry = new Entry(resourceInfo, weigher.weigh(resourceInfo), ticker.getAsLong() + expireAfterNanos);
+            else if (cause instanceof FinnaNotFoundException && expireNotFoundAfterNanos > 0)
+                entry = new Entry(null, 64 + 2 * id.length(), ticker.getAsLong() + expireNotFoundAfterNanos);
+            synchronized (this) {
+                loading.remove(key);
+                if (entry != null)
+                    put(key, entry);
+            }
+            if (cause == null)
+                load.complete(resourceInfo);
+            else
+                load.completeExceptionally(cause);
+        });
+        return load;
+    }
+
+    private void put(Key key, Entry entry) {
+        if (entry.weight > maximumWeight)
+            return;
+        Entry old = entries.put(key, entry);
+        if (old != null)
+            weight -= old.weight;
+        weight += entry.weight;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (weight > maximumWeight) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(String id) {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+            if (entry.getKey().id.equals(id)) {
+                weight -= entry.getValue().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    @Override
+    public synchronized CacheStats stats() {
+        return new CacheStats(hitCount, missCount, evictionCount, entries.size(), weight);
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    /**
+     * Rough number of bytes a record takes in memory, counting its strings and lists
+     *
+     * @param resourceInfo record
+     * @return estimated size in bytes
+     */
+    public static int estimateSize(ResourceInfo resourceInfo) {
+        int size = 128;
+        size += sizeOf(resourceInfo.getId()) + sizeOf(resourceInfo.getTitle()) + sizeOf(resourceInfo.getShortTitle())
+                + sizeOf(resourceInfo.getSubTitle()) + sizeOf(resourceInfo.getIsbn())
+                + sizeOf(resourceInfo.getPhysicalDescription()) + sizeOf(resourceInfo.getEdition())
+                + sizeOf(resourceInfo.getManufacturer()) + sizeOf(resourceInfo.getPublicationPlace())
+                + sizeOf(resourceInfo.getImageLink());
+        size += sizeOf(resourceInfo.getTopics()) + sizeOf(resourceInfo.getGeneralNotes())
+                + sizeOf(resourceInfo.getLanguages()) + sizeOf(resourceInfo.getOriginalLanguages())
+                + sizeOf(resourceInfo.getPublishers()) + sizeOf(resourceInfo.getYkl()) + sizeOf(resourceInfo.getAwards());
+        if (resourceInfo.getAuthors() != null) {
+            for (Author author : resourceInfo.getAuthors()) {
+                size += 32 + sizeOf(author.getName()) + sizeOf(author.getType()) + sizeOf(author.getRole());
+            }
+        }
+        if (resourceInfo.getFormats() != null) {
+            for (Format format : resourceInfo.getFormats()) {
+                size += 32 + sizeOf(format.getId()) + sizeOf(format.getTranslated());
+            }
+        }
+        // A parsed JSON object takes several times the size of its text
+        if (resourceInfo.getRawData() != null)
+            size += 8 * resourceInfo.getRawData().toString().length();
+        return size;
+    }
+
+    private static int sizeOf(String string) {
+        return string == null ? 0 : 40 + 2 * string.length();
+    }
+
+    private static int sizeOf(List<String> strings) {
+        if (strings == null)
+            return 0;
+        int size = 32;
+        for (String string : strings) {
+            size += 8 + sizeOf(string);
+        }
+        return size;
+    }
+
+    public interface Weigher {
+        /**
+         * @param resourceInfo record
+         * @return weight of the record, the unit is up to the cache configuration
+         */
+        int weigh(ResourceInfo resourceInfo);
+    }
+
+    private static final class Key {
+        private final String id;
+        private final Set<RecordField> fields;
+        private final int hash;
+
+        Key(String id, Set<RecordField> fields) {
+            this.id = id;
+            this.fields = fields.isEmpty() ? EnumSet.noneOf(RecordField.class) : EnumSet.copyOf(fields);
+            this.hash = 31 * id.hashCode() + this.fields.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return id.equals(key.id) && fields.equals(key.fields);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        // null when there is no record with the id
+        private final ResourceInfo resourceInfo;
+        private final int weight;
+        private final long expiresAt;
+
+        Entry(ResourceInfo resourceInfo, int weight, long expiresAt) {
+            this.resourceInfo = resourceInfo;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static class Builder {
+        private long maximumWeight = 16 * 1024 * 1024;
+        private long expireAfterNanos = TimeUnit.MINUTES.toNanos(10);
+        private long expireNotFoundAfterNanos = TimeUnit.MINUTES.toNanos(1);
+        private Weigher weigher = LruResourceInfoCache::estimateSize;
+        private LongSupplier ticker = System::nanoTime;
+
+        /**
+         * @param maximumWeight Total weight of the entries, bytes with the default weigher. Defaults to 16 MiB
+         * @return builder
+         */
+        public Builder maximumWeight(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * @param duration How long a record is kept after it was loaded, defaults to 10 minutes. 0 disables caching
+         * @param unit     unit of duration
+         * @return builder
+         */
+        public Builder expireAfter(long duration, TimeUnit unit) {
+            this.expireAfterNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param duration How long a not found result is kept, defaults to 1 minute. 0 disables negative caching
+         * @param unit     unit of duration
+         * @return builder
+         */
+        public Builder expireNotFoundAfter(long duration, TimeUnit unit) {
+            this.expireNotFoundAfterNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param weigher Weight of a record, defaults to {@link #estimateSize(ResourceInfo)}
+         * @return builder
+         */
+        public Builder weigher(Weigher weigher) {
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * @param ticker Source of nanosecond time for expiration, defaults to System.nanoTime
+         * @return builder
+         */
+        public Builder ticker(LongSupplier ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        public LruResourceInfoCache build() {
+            return new LruResourceInfoCache(this);
+        }
+    }
+}
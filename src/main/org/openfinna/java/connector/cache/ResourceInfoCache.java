@@ -0,0 +1,38 @@
+package org.openfinna.java.connector.cache;
+
+import org.openfinna.java.connector.classes.ResourceInfo;
+import org.openfinna.java.connector.classes.models.resource.RecordField;
+import org.openfinna.java.connector.exceptions.FinnaNotFoundException;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Cache of record lookups in front of the record API, see {@link LruResourceInfoCache}. Entries are keyed by id and
+ * the requested fields, as the same record fetched with different fields is a different ResourceInfo
+ */
+public interface ResourceInfoCache {
+
+    /**
+     * Get a cached record or load it. Callers asking for an entry that is being loaded wait for that load instead of
+     * starting their own. A load failing with {@link FinnaNotFoundException} is cached too
+     *
+     * @param id     ID of resource
+     * @param fields Requested fields
+     * @param loader Loads the record when it is not cached, fails with FinnaNotFoundException if there is none
+     * @return record, or failed with FinnaNotFoundException or the error of the load
+     */
+    CompletableFuture<ResourceInfo> get(String id, Set<RecordField> fields, Supplier<CompletableFuture<ResourceInfo>> loader);
+
+    /**
+     * Remove the entries of a record, for all field sets
+     *
+     * @param id ID of resource
+     */
+    void invalidate(String id);
+
+    void invalidateAll();
+
+    CacheStats stats();
+}
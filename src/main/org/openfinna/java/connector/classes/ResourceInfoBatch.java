@@ -0,0 +1,40 @@
+package org.openfinna.java.connector.classes;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Result of a batch record lookup
+ */
+public class ResourceInfoBatch implements Serializable {
+    private Map<String, ResourceInfo> resourceInfos;
+    private Set<String> missingIds;
+
+    public ResourceInfoBatch(Map<String, ResourceInfo> resourceInfos, Set<String> missingIds) {
+        this.resourceInfos = resourceInfos;
+        this.missingIds = missingIds;
+    }
+
+    /**
+     * @return found records keyed by id, in the order the ids were requested
+     */
+    public Map<String, ResourceInfo> getResourceInfos() {
+        return resourceInfos;
+    }
+
+    public void setResourceInfos(Map<String, ResourceInfo> resourceInfos) {
+        this.resourceInfos = resourceInfos;
+    }
+
+    /**
+     * @return requested ids Finna did not return a record for
+     */
+    public Set<String> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(Set<String> missingIds) {
+        this.missingIds = missingIds;
+    }
+}
@@ -0,0 +1,36 @@
+package org.openfinna.java.connector.classes;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of search results
+ */
+public class SearchResult implements Serializable {
+    private int totalCount;
+    private List<ResourceInfo> resourceInfos;
+
+    public SearchResult(int totalCount, List<ResourceInfo> resourceInfos) {
+        this.totalCount = totalCount;
+        this.resourceInfos = resourceInfos;
+    }
+
+    /**
+     * @return count of all results, not only this page
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(int totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    public List<ResourceInfo> getResourceInfos() {
+        return resourceInfos;
+    }
+
+    public void setResourceInfos(List<ResourceInfo> resourceInfos) {
+        this.resourceInfos = resourceInfos;
+    }
+}
@@ -0,0 +1,74 @@
+package org.openfinna.java.connector.classes.models;
+
+import org.openfinna.java.connector.classes.models.fines.Fines;
+import org.openfinna.java.connector.classes.models.holds.Hold;
+import org.openfinna.java.connector.classes.models.loans.Loan;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loans, holds, fines and account details of the user fetched at once. A part that could not be fetched is null
+ * and its error is in {@link #getErrors()}
+ */
+public class AccountSnapshot implements Serializable {
+
+    public enum Part {
+        LOANS, HOLDS, FINES, ACCOUNT_DETAILS
+    }
+
+    private List<Loan> loans;
+    private List<Hold> holds;
+    private Fines fines;
+    private User user;
+    private final Map<Part, Exception> errors = new ConcurrentHashMap<>();
+
+    public List<Loan> getLoans() {
+        return loans;
+    }
+
+    public void setLoans(List<Loan> loans) {
+        this.loans = loans;
+    }
+
+    public List<Hold> getHolds() {
+        return holds;
+    }
+
+    public void setHolds(List<Hold> holds) {
+        this.holds = holds;
+    }
+
+    public Fines getFines() {
+        return fines;
+    }
+
+    public void setFines(Fines fines) {
+        this.fines = fines;
+    }
+
+    /**
+     * @return account details, building is only included if it was already cached in the client
+     */
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public Map<Part, Exception> getErrors() {
+        return errors;
+    }
+
+    public void addError(Part part, Exception e) {
+        errors.put(part, e);
+    }
+
+    public boolean isComplete() {
+        return errors.isEmpty();
+    }
+}
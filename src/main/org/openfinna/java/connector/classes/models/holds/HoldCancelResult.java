@@ -0,0 +1,45 @@
+package org.openfinna.java.connector.classes.models.holds;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of cancelling a single hold in a bulk cancellation
+ */
+public class HoldCancelResult implements Serializable {
+    private Hold hold;
+    private boolean cancelled;
+    private String message;
+
+    public HoldCancelResult(Hold hold, boolean cancelled, String message) {
+        this.hold = hold;
+        this.cancelled = cancelled;
+        this.message = message;
+    }
+
+    public Hold getHold() {
+        return hold;
+    }
+
+    public void setHold(Hold hold) {
+        this.hold = hold;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * @return failure reason when the hold was not cancelled
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,46 @@
+package org.openfinna.java.connector.classes.models.holds;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Pickup locations available for a hold, or for the account when fetching the default location
+ */
+public class PickupLocations implements Serializable {
+    private List<PickupLocation> locations;
+    private HoldingDetails holdingDetails;
+    private PickupLocation defaultLocation;
+
+    public PickupLocations(List<PickupLocation> locations, HoldingDetails holdingDetails, PickupLocation defaultLocation) {
+        this.locations = locations;
+        this.holdingDetails = holdingDetails;
+        this.defaultLocation = defaultLocation;
+    }
+
+    public List<PickupLocation> getLocations() {
+        return locations;
+    }
+
+    public void setLocations(List<PickupLocation> locations) {
+        this.locations = locations;
+    }
+
+    /**
+     * @return holding details of the resource, null for the default pickup location of the account
+     */
+    public HoldingDetails getHoldingDetails() {
+        return holdingDetails;
+    }
+
+    public void setHoldingDetails(HoldingDetails holdingDetails) {
+        this.holdingDetails = holdingDetails;
+    }
+
+    public PickupLocation getDefaultLocation() {
+        return defaultLocation;
+    }
+
+    public void setDefaultLocation(PickupLocation defaultLocation) {
+        this.defaultLocation = defaultLocation;
+    }
+}
@@ -0,0 +1,56 @@
+package org.openfinna.java.connector.classes.models.loans;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Outcome of renewing a single loan in a bulk renewal
+ */
+public class RenewResult implements Serializable {
+    private Loan loan;
+    private boolean renewed;
+    private String message;
+
+    public RenewResult(Loan loan, boolean renewed, String message) {
+        this.loan = loan;
+        this.renewed = renewed;
+        this.message = message;
+    }
+
+    /**
+     * @return the loan as shown on the page after renewing, or the requested loan if it was not on the page
+     */
+    public Loan getLoan() {
+        return loan;
+    }
+
+    public void setLoan(Loan loan) {
+        this.loan = loan;
+    }
+
+    public boolean isRenewed() {
+        return renewed;
+    }
+
+    public void setRenewed(boolean renewed) {
+        this.renewed = renewed;
+    }
+
+    /**
+     * @return status message on success, failure reason otherwise
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    /**
+     * @return new due date of a renewed loan
+     */
+    public Date getDueDate() {
+        return loan != null ? loan.getDueDate() : null;
+    }
+}
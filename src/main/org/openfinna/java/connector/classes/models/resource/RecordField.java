@@ -0,0 +1,55 @@
+package org.openfinna.java.connector.classes.models.resource;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Fields of a record to request from the REST API. Fields that are not requested are left empty in ResourceInfo
+ */
+public enum RecordField {
+    ID("id"),
+    TITLE("title"),
+    SUB_TITLE("subTitle"),
+    SHORT_TITLE("shortTitle"),
+    ISBN("cleanIsbn"),
+    EDITION("edition"),
+    MANUFACTURER("manufacturer"),
+    YEAR("year"),
+    PHYSICAL_DESCRIPTION("physicalDescription"),
+    PLACES_OF_PUBLICATION("placesOfPublication"),
+    SUBJECTS("subjects"),
+    GENERAL_NOTES("generalNotes"),
+    LANGUAGES("languages"),
+    ORIGINAL_LANGUAGES("originalLanguages"),
+    PUBLISHERS("publishers"),
+    AWARDS("awards"),
+    CLASSIFICATIONS("classifications"),
+    AUTHORS("authors"),
+    FORMATS("formats"),
+    RAW_DATA("rawData");
+
+    private static final Set<RecordField> DEFAULTS = Collections.unmodifiableSet(EnumSet.complementOf(EnumSet.of(RAW_DATA)));
+    private static final Set<RecordField> DEFAULTS_WITH_RAW_DATA = Collections.unmodifiableSet(EnumSet.allOf(RecordField.class));
+
+    private final String key;
+
+    RecordField(String key) {
+        this.key = key;
+    }
+
+    /**
+     * @return name of the field in the API
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @param rawData Whether to include raw data or not
+     * @return every field ResourceInfo has, the fields requested before field selection existed
+     */
+    public static Set<RecordField> defaults(boolean rawData) {
+        return rawData ? DEFAULTS_WITH_RAW_DATA : DEFAULTS;
+    }
+}
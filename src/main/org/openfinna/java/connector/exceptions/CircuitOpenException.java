@@ -0,0 +1,22 @@
+package org.openfinna.java.connector.exceptions;
+
+import org.openfinna.java.connector.http.EndpointClass;
+
+import java.io.IOException;
+
+/**
+ * Request not sent because recent requests to its endpoints failed or were too slow, see
+ * {@link org.openfinna.java.connector.http.CircuitBreaker}
+ */
+public class CircuitOpenException extends IOException {
+    private final EndpointClass endpointClass;
+
+    public CircuitOpenException(EndpointClass endpointClass) {
+        super("Circuit open for " + endpointClass);
+        this.endpointClass = endpointClass;
+    }
+
+    public EndpointClass getEndpointClass() {
+        return endpointClass;
+    }
+}
@@ -0,0 +1,12 @@
+package org.openfinna.java.connector.exceptions;
+
+import java.io.InterruptedIOException;
+
+/**
+ * The deadline of the operation passed before it completed, see {@link org.openfinna.java.connector.http.CallScope}
+ */
+public class DeadlineExceededException extends InterruptedIOException {
+    public DeadlineExceededException() {
+        super("Deadline exceeded");
+    }
+}
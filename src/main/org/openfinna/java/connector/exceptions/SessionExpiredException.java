@@ -0,0 +1,10 @@
+package org.openfinna.java.connector.exceptions;
+
+/**
+ * The page was the login form instead of the requested one, the session has expired
+ */
+public class SessionExpiredException extends KirkesClientException {
+    public SessionExpiredException() {
+        super("Session has expired");
+    }
+}
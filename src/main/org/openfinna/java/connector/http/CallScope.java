@@ -0,0 +1,168 @@
+package org.openfinna.java.connector.http;
+
+import okhttp3.Call;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Calls made on behalf of one logical operation (for example getLoans with its precheck and re-login).
+ * While a scope is current, every call WebClient makes is registered to it, and WebClient makes the scope current
+ * again on the thread delivering the response, so the scope follows the operation through its callback chain.
+ * Cancelling the scope cancels the calls in flight and every call the operation makes after that.
+ * <p>
+ * A scope may have a deadline. Each call then gets the time left of the operation as its OkHttp call timeout (or the
+ * client's own timeout, if shorter), so the budget is shared by all the hops of the operation instead of each hop
+ * getting the full timeout. When the deadline passes, the scope is cancelled and its calls fail with
+ * {@link org.openfinna.java.connector.exceptions.DeadlineExceededException}. {@link #close()} the scope when the
+ * operation completes, so its deadline timer does not keep it until the deadline
+ */
+public final class CallScope {
+
+    private static final ThreadLocal<CallScope> CURRENT = new ThreadLocal<>();
+
+    private final Set<Call> calls = ConcurrentHashMap.newKeySet();
+    private final Consumer<RuntimeException> uncaughtHandler;
+    private final long deadline;
+    private final boolean hasDeadline;
+    // Scheduled expiry, null without a deadline
+    private final ScheduledFuture<?> expiry;
+    private final List<Runnable> expiryListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled = false;
+    private volatile boolean expired = false;
+
+    public CallScope() {
+        this(null);
+    }
+
+    /**
+     * @param uncaughtHandler receives runtime exceptions thrown by callbacks of the operation, which would otherwise
+     *                        end up in the OkHttp dispatcher thread and leave the caller without a result
+     */
+    public CallScope(Consumer<RuntimeException> uncaughtHandler) {
+        this.uncaughtHandler = uncaughtHandler;
+        this.deadline = 0;
+        this.hasDeadline = false;
+        this.expiry = null;
+    }
+
+    /**
+     * @param uncaughtHandler receives runtime exceptions thrown by callbacks of the operation, may be null
+     * @param timeout         time the whole operation may take, counted from now
+     * @param unit            unit of timeout
+     */
+    public CallScope(Consumer<RuntimeException> uncaughtHandler, long timeout, TimeUnit unit) {
+        this.uncaughtHandler = uncaughtHandler;
+        this.deadline = System.nanoTime() + unit.toNanos(timeout);
+        this.hasDeadline = true;
+        this.expiry = SharedScheduler.INSTANCE.schedule(this::expire, Math.max(0, timeout), unit);
+    }
+
+    /**
+     * @return scope of the operation running on this thread, null if none
+     */
+    public static CallScope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Run with the scope as the current one
+     *
+     * @param scope    scope, null runs detached from any operation
+     * @param runnable code to run
+     */
+    public static void run(CallScope scope, Runnable runnable) {
+        CallScope previous = CURRENT.get();
+        CURRENT.set(scope);
+        try {
+            runnable.run();
+        } catch (RuntimeException e) {
+            if (scope == null || scope.uncaughtHandler == null)
+                throw e;
+            scope.uncaughtHandler.accept(e);
+        } finally {
+            if (previous != null)
+                CURRENT.set(previous);
+            else
+                CURRENT.remove();
+        }
+    }
+
+    /**
+     * Cancel the calls of this operation, including the ones it makes later
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Call call : calls) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * The operation has completed: stop the deadline timer and drop the expiry listeners. Calls are not cancelled
+     */
+    public void close() {
+        if (expiry != null)
+            expiry.cancel(false);
+        expiryListeners.clear();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    /**
+     * @return whether the deadline has passed
+     */
+    public boolean isExpired() {
+        return expired || (hasDeadline && deadline - System.nanoTime() <= 0);
+    }
+
+    /**
+     * @return nanoseconds left until the deadline, Long.MAX_VALUE without one
+     */
+    public long remainingNanos() {
+        return hasDeadline ? Math.max(0, deadline - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Run a task when the deadline passes, for example to fail the operation while it waits for something other than
+     * its own calls. Runs on the scheduler thread, or at once if the deadline has already passed
+     *
+     * @param listener task
+     */
+    public void addExpiryListener(Runnable listener) {
+        expiryListeners.add(listener);
+        if (expired && expiryListeners.remove(listener))
+            listener.run();
+    }
+
+    private void expire() {
+        expired = true;
+        cancel();
+        for (Runnable listener : expiryListeners) {
+            if (expiryListeners.remove(listener))
+                listener.run();
+        }
+    }
+
+    void register(Call call) {
+        calls.add(call);
+        // Checked after adding, so a concurrent cancel() either sees the call or is seen here
+        if (cancelled)
+            call.cancel();
+    }
+
+    void unregister(Call call) {
+        calls.remove(call);
+    }
+}
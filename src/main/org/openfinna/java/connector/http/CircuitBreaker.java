@@ -0,0 +1,253 @@
+package org.openfinna.java.connector.http;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker per {@link EndpointClass}, shared by the WebClients given the same instance with
+ * {@link WebClient.Builder#circuitBreaker(CircuitBreaker)}. The outcomes of the latest calls of each class are kept in
+ * a window. Once enough of them failed (I/O error or 5xx response) or were slow, the circuit opens and requests fail at
+ * once with {@link org.openfinna.java.connector.exceptions.CircuitOpenException} instead of waiting for the timeout.
+ * After the open duration one probe request is let through: its success closes the circuit, its failure opens it
+ * again. Thread safe
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public interface StateListener {
+        /**
+         * Called on the thread that completed the call causing the change, keep it short
+         *
+         * @param endpointClass class of endpoints
+         * @param from          previous state
+         * @param to            new state
+         */
+        void onStateChange(EndpointClass endpointClass, State from, State to);
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final Map<EndpointClass, Breaker> breakers = new EnumMap<>(EndpointClass.class);
+    private final List<StateListener> listeners = new CopyOnWriteArrayList<>();
+
+    private CircuitBreaker(Builder builder) {
+        this.windowSize = builder.windowSize;
+        this.minimumCalls = builder.minimumCalls;
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.slowCallNanos = builder.slowCallNanos;
+        this.openNanos = builder.openNanos;
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            breakers.put(endpointClass, new Breaker(endpointClass));
+        }
+    }
+
+    public void addStateListener(StateListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeStateListener(StateListener listener) {
+        listeners.remove(listener);
+    }
+
+    public State getState(EndpointClass endpointClass) {
+        return breakers.get(endpointClass).state();
+    }
+
+    /**
+     * @return whether a request may be sent. In half-open state only the probe may, and its outcome must be recorded
+     */
+    boolean tryAcquire(EndpointClass endpointClass) {
+        return breakers.get(endpointClass).tryAcquire();
+    }
+
+    /**
+     * @param failed        I/O error or 5xx response
+     * @param durationNanos time from sending the request to the response, 0 when unknown
+     */
+    void onResult(EndpointClass endpointClass, boolean failed, long durationNanos) {
+        breakers.get(endpointClass).onResult(failed, durationNanos >= slowCallNanos);
+    }
+
+    /**
+     * The call was cancelled, its outcome says nothing about the upstream
+     */
+    void onCancelled(EndpointClass endpointClass) {
+        breakers.get(endpointClass).onCancelled();
+    }
+
+    private void notifyListeners(EndpointClass endpointClass, State from, State to) {
+        for (StateListener listener : listeners) {
+            listener.onStateChange(endpointClass, from, to);
+        }
+    }
+
+    private final class Breaker {
+        private final EndpointClass endpointClass;
+        // Guarded by this
+        private State state = State.CLOSED;
+        private long openedAt;
+        private boolean probing;
+        private final boolean[] failures = new boolean[windowSize];
+        private final boolean[] slowCalls = new boolean[windowSize];
+        private int next;
+        private int calls;
+        private int failureCount;
+        private int slowCount;
+
+        Breaker(EndpointClass endpointClass) {
+            this.endpointClass = endpointClass;
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        boolean tryAcquire() {
+            boolean permitted;
+            boolean halfOpened = false;
+            synchronized (this) {
+                if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                    state = State.HALF_OPEN;
+                    probing = false;
+                    halfOpened = true;
+                }
+                if (state == State.HALF_OPEN) {
+                    permitted = !probing;
+                    probing = true;
+                } else {
+                    permitted = state == State.CLOSED;
+                }
+            }
+            if (halfOpened)
+                notifyListeners(endpointClass, State.OPEN, State.HALF_OPEN);
+            return permitted;
+        }
+
+        void onResult(boolean failed, boolean slow) {
+            State from;
+            State to;
+            synchronized (this) {
+                from = state;
+                if (state == State.HALF_OPEN) {
+                    probing = false;
+                    if (failed || slow)
+                        open();
+                    else
+                        close();
+                } else if (state == State.CLOSED) {
+                    record(failed, slow);
+                    if (calls >= minimumCalls && (failureCount >= failureRateThreshold * calls || slowCount >= slowCallRateThreshold * calls))
+                        open();
+                }
+                // Calls started before the circuit opened do not change an open circuit
+                to = state;
+            }
+            if (from != to)
+                notifyListeners(endpointClass, from, to);
+        }
+
+        synchronized void onCancelled() {
+            if (state == State.HALF_OPEN)
+                probing = false;
+        }
+
+        private void record(boolean failed, boolean slow) {
+            if (calls == windowSize) {
+                if (failures[next])
+                    failureCount--;
+                if (slowCalls[next])
+                    slowCount--;
+            } else {
+                calls++;
+            }
+            failures[next] = failed;
+            slowCalls[next] = slow;
+            if (failed)
+                failureCount++;
+            if (slow)
+                slowCount++;
+            next = (next + 1) % windowSize;
+        }
+
+        private void open() {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+
+        private void close() {
+            state = State.CLOSED;
+            calls = 0;
+            next = 0;
+            failureCount = 0;
+            slowCount = 0;
+        }
+    }
+
+    public static class Builder {
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 0.5;
+        private double slowCallRateThreshold = 0.5;
+        private long slowCallNanos = TimeUnit.SECONDS.toNanos(5);
+        private long openNanos = TimeUnit.SECONDS.toNanos(30);
+
+        /**
+         * @param windowSize   Latest calls the rates are counted from, defaults to 20
+         * @param minimumCalls Calls needed in the window before the circuit can open, defaults to 10
+         * @return builder
+         */
+        public Builder window(int windowSize, int minimumCalls) {
+            if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize)
+                throw new IllegalArgumentException("minimumCalls must be between 1 and windowSize");
+            this.windowSize = windowSize;
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * @param failureRateThreshold Share of failed calls that opens the circuit, defaults to 0.5
+         * @return builder
+         */
+        public Builder failureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * @param slowCallRateThreshold Share of slow calls that opens the circuit, defaults to 0.5
+         * @param duration              A call taking at least this long is slow, defaults to 5 seconds
+         * @param unit                  unit of duration
+         * @return builder
+         */
+        public Builder slowCallThreshold(double slowCallRateThreshold, long duration, TimeUnit unit) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            this.slowCallNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param duration How long the circuit stays open before a probe, defaults to 30 seconds
+         * @param unit     unit of duration
+         * @return builder
+         */
+        public Builder openDuration(long duration, TimeUnit unit) {
+            this.openNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            return new CircuitBreaker(this);
+        }
+    }
+}
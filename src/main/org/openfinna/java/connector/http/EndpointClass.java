@@ -0,0 +1,19 @@
+package org.openfinna.java.connector.http;
+
+/**
+ * Groups of upstream endpoints that tend to fail together
+ */
+public enum EndpointClass {
+    /**
+     * Pages of the portal, such as MyResearch and the login form, served by the ILS backend
+     */
+    SESSION_PAGES,
+    /**
+     * AJAX/JSON methods of the portal
+     */
+    AJAX_JSON,
+    /**
+     * REST API at the API base URL
+     */
+    REST_API
+}
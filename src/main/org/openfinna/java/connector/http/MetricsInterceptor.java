@@ -0,0 +1,134 @@
+package org.openfinna.java.connector.http;
+
+import okhttp3.*;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openfinna.java.connector.metrics.MetricsRecorder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Times the requests WebClient tagged with {@link #timed(Request)}. Added to the clients only when metrics are
+ * enabled. A successful request is recorded when its body is closed, so the bytes the caller actually read are known
+ */
+final class MetricsInterceptor implements Interceptor {
+
+    private final MetricsRecorder metricsRecorder;
+
+    MetricsInterceptor(MetricsRecorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder;
+    }
+
+    /**
+     * @param request request about to be queued
+     * @return the request tagged with its endpoint and the current time
+     */
+    static Request timed(Request request) {
+        return request.newBuilder().tag(Timing.class, new Timing(endpoint(request), System.nanoTime())).build();
+    }
+
+    /**
+     * Record ids are left out of the path, AJAX/JSON methods are told apart by the method parameter
+     */
+    static String endpoint(Request request) {
+        HttpUrl url = request.url();
+        StringBuilder endpoint = new StringBuilder(64).append(request.method()).append(' ').append(url.host());
+        List<String> segments = url.encodedPathSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            boolean id = i > 0 && (segments.get(i - 1).equals("Record") || segments.get(i - 1).equals("editCard"));
+            endpoint.append('/').append(id ? "{id}" : segments.get(i));
+        }
+        String method = url.queryParameter("method");
+        if (method != null)
+            endpoint.append("?method=").append(method);
+        return endpoint.toString();
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        Request request = chain.request();
+        Timing timing = request.tag(Timing.class);
+        if (timing == null)
+            return chain.proceed(request);
+        long sentAt = System.nanoTime();
+        long queueWait = sentAt - timing.createdAt;
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            metricsRecorder.recordRequest(timing.endpoint, queueWait, System.nanoTime() - sentAt, 0, MetricsRecorder.Outcome.of(e));
+            throw e;
+        }
+        long latency = System.nanoTime() - sentAt;
+        MetricsRecorder.Outcome outcome = MetricsRecorder.Outcome.of(response.code());
+        ResponseBody body = response.body();
+        // Error bodies are often left unread and unclosed, so those are recorded at once with their declared length
+        if (body == null || !response.isSuccessful()) {
+            metricsRecorder.recordRequest(timing.endpoint, queueWait, latency, body != null ? Math.max(0, body.contentLength()) : 0, outcome);
+            return response;
+        }
+        return response.newBuilder().body(new CountingBody(body, timing.endpoint, queueWait, latency, outcome)).build();
+    }
+
+    static final class Timing {
+        private final String endpoint;
+        private final long createdAt;
+
+        Timing(String endpoint, long createdAt) {
+            this.endpoint = endpoint;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private final class CountingBody extends ResponseBody {
+        private final ResponseBody body;
+        private final BufferedSource source;
+        private long bytes;
+        private boolean recorded;
+
+        CountingBody(ResponseBody body, String endpoint, long queueWait, long latency, MetricsRecorder.Outcome outcome) {
+            this.body = body;
+            this.source = Okio.buffer(new ForwardingSource(body.source()) {
+                @Override
+                public long read(@NotNull Buffer sink, long byteCount) throws IOException {
+                    long read = super.read(sink, byteCount);
+                    if (read > 0)
+                        bytes += read;
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (!recorded) {
+                        recorded = true;
+                        metricsRecorder.recordRequest(endpoint, queueWait, latency, bytes, outcome);
+                    }
+                    super.close();
+                }
+            });
+        }
+
+        @Nullable
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return body.contentLength();
+        }
+
+        @NotNull
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package org.openfinna.java.connector.http;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Token bucket per upstream host, shared by the WebClients given the same instance with
+ * {@link WebClient.Builder#rateLimiter(RateLimiter)}. Requests over the budget are queued instead of failed, and the
+ * queue is served round robin between clients, so one account sending a burst does not hold back the others.
+ * <p>
+ * The rate adapts to the server: a 429 or 503 response halves it and a Retry-After header pauses the host, every
+ * other response adds a small step until the configured rate is reached again. Thread safe
+ */
+public class RateLimiter {
+
+    private final Map<String, Limit> limits;
+    private final Limit defaultLimit;
+    private final double minRate;
+    private final double increment;
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private RateLimiter(Builder builder) {
+        this.limits = new HashMap<>(builder.limits);
+        this.defaultLimit = builder.defaultLimit;
+        this.minRate = builder.minRate;
+        this.increment = builder.increment;
+    }
+
+    /**
+     * Run a task once the host has a permit. Runs on the calling thread when a permit is available at once, otherwise
+     * on the limiter's thread
+     *
+     * @param host  host of the request
+     * @param owner the client sending the request, queued requests are taken from each owner in turn
+     * @param task  task sending the request
+     */
+    public void acquire(String host, Object owner, Runnable task) {
+        bucket(host).acquire(owner, task);
+    }
+
+    /**
+     * Wait for a permit of the host
+     *
+     * @param host  host of the request
+     * @param owner the client sending the request
+     * @throws InterruptedIOException if the thread was interrupted while waiting
+     */
+    public void acquire(String host, Object owner) throws InterruptedIOException {
+        CountDownLatch permit = new CountDownLatch(1);
+        acquire(host, owner, permit::countDown);
+        try {
+            permit.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a request permit");
+        }
+    }
+
+    /**
+     * Adapt the rate of a host to a response
+     *
+     * @param host       host of the request
+     * @param code       response code
+     * @param retryAfter Retry-After header of the response, may be null
+     */
+    public void onResponse(String host, int code, String retryAfter) {
+        bucket(host).onResponse(code, retryAfterNanos(retryAfter));
+    }
+
+    /**
+     * @param host host
+     * @return current permits per second of the host
+     */
+    public double getRate(String host) {
+        return bucket(host).rate();
+    }
+
+    /**
+     * @param host host
+     * @return requests waiting for a permit of the host
+     */
+    public int getQueueDepth(String host) {
+        return bucket(host).queueDepth();
+    }
+
+    /**
+     * @param host host
+     * @return 429 and 503 responses seen from the host
+     */
+    public long getThrottledCount(String host) {
+        return bucket(host).throttledCount();
+    }
+
+    /**
+     * @return hosts requests have been sent to
+     */
+    public Set<String> getHosts() {
+        return Collections.unmodifiableSet(buckets.keySet());
+    }
+
+    private Bucket bucket(String host) {
+        return buckets.computeIfAbsent(host, key -> new Bucket(limits.getOrDefault(key, defaultLimit)));
+    }
+
+    static long retryAfterNanos(String retryAfter) {
+        if (retryAfter == null || retryAfter.isEmpty())
+            return 0;
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            Duration wait = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+            return Math.max(0, wait.toNanos());
+        } catch (DateTimeParseException ignored) {
+            return 0;
+        }
+    }
+
+    private final class Bucket {
+        private final Limit limit;
+        // Guarded by this
+        private double rate;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+        private long pausedUntil = refilledAt;
+        private final LinkedHashMap<Object, ArrayDeque<Runnable>> queues = new LinkedHashMap<>();
+        private int queued;
+        private boolean drainScheduled;
+        private long throttledCount;
+
+        Bucket(Limit limit) {
+            this.limit = limit;
+            this.rate = limit.rate;
+            this.tokens = limit.burst;
+        }
+
+        void acquire(Object owner, Runnable task) {
+            synchronized (this) {
+                long now = System.nanoTime();
+                refill(now);
+                if (queued > 0 || now - pausedUntil < 0 || tokens < 1) {
+                    queues.computeIfAbsent(owner, key -> new ArrayDeque<>()).add(task);
+                    queued++;
+                    scheduleDrain(now);
+                    return;
+                }
+                tokens--;
+            }
+            task.run();
+        }
+
+        private void drain() {
+            List<Runnable> ready = new ArrayList<>();
+            synchronized (this) {
+                drainScheduled = false;
+                long now = System.nanoTime();
+                refill(now);
+                while (queued > 0 && now - pausedUntil >= 0 && tokens >= 1) {
+                    tokens--;
+                    ready.add(next());
+                }
+                if (queued > 0)
+                    scheduleDrain(now);
+            }
+            for (Runnable task : ready) {
+                try {
+                    task.run();
+                } catch (RuntimeException ignored) {
+                    // Failures belong to the request, the other queued requests are still sent
+                }
+            }
+        }
+
+        // Head of the first owner's queue, the owner then goes to the back of the line
+        private Runnable next() {
+            Iterator<Map.Entry<Object, ArrayDeque<Runnable>>> owners = queues.entrySet().iterator();
+            Map.Entry<Object, ArrayDeque<Runnable>> first = owners.next();
+            Runnable task = first.getValue().poll();
+            owners.remove();
+            if (!first.getValue().isEmpty())
+                queues.put(first.getKey(), first.getValue());
+            queued--;
+            return task;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(limit.burst, tokens + rate * (now - refilledAt) / 1e9);
+            refilledAt = now;
+        }
+
+        private void scheduleDrain(long now) {
+            if (drainScheduled)
+                return;
+            drainScheduled = true;
+            long delay = Math.max(pausedUntil - now, (long) Math.ceil((1 - tokens) / rate * 1e9));
+            SharedScheduler.INSTANCE.schedule(this::drain, Math.max(0, delay), TimeUnit.NANOSECONDS);
+        }
+
+        synchronized void onResponse(int code, long retryAfterNanos) {
+            if (code == 429 || code == 503) {
+                throttledCount++;
+                rate = Math.max(minRate, rate / 2);
+                tokens = Math.min(tokens, 0);
+                if (retryAfterNanos > 0)
+                    pausedUntil = Math.max(pausedUntil, System.nanoTime() + retryAfterNanos);
+            } else {
+                rate = Math.min(limit.rate, rate + increment);
+            }
+        }
+
+        synchronized double rate() {
+            return rate;
+        }
+
+        synchronized int queueDepth() {
+            return queued;
+        }
+
+        synchronized long throttledCount() {
+            return throttledCount;
+        }
+    }
+
+    private static final class Limit {
+        private final double rate;
+        private final int burst;
+
+        Limit(double rate, int burst) {
+            this.rate = rate;
+            this.burst = burst;
+        }
+    }
+
+    public static class Builder {
+        private final Map<String, Limit> limits = new HashMap<>();
+        private Limit defaultLimit = new Limit(10, 20);
+        private double minRate = 0.5;
+        private double increment = 0.1;
+
+        /**
+         * @param permitsPerSecond Requests per second to any host without its own limit, defaults to 10
+         * @param burst            Requests sent at once after an idle period, defaults to 20
+         * @return builder
+         */
+        public Builder defaultLimit(double permitsPerSecond, int burst) {
+            this.defaultLimit = new Limit(permitsPerSecond, burst);
+            return this;
+        }
+
+        /**
+         * @param host             Host name, for example api.finna.fi
+         * @param permitsPerSecond Requests per second to the host
+         * @param burst            Requests sent at once after an idle period
+         * @return builder
+         */
+        public Builder hostLimit(String host, double permitsPerSecond, int burst) {
+            limits.put(host, new Limit(permitsPerSecond, burst));
+            return this;
+        }
+
+        /**
+         * @param minRate Lowest requests per second the rate is cut to, defaults to 0.5
+         * @return builder
+         */
+        public Builder minRate(double minRate) {
+            this.minRate = minRate;
+            return this;
+        }
+
+        /**
+         * @param increment Permits per second added after each response that was not throttled, defaults to 0.1
+         * @return builder
+         */
+        public Builder increment(double increment) {
+            this.increment = increment;
+            return this;
+        }
+
+        public RateLimiter build() {
+            return new RateLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.openfinna.java.connector.http;
+
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * When WebClient sends a request again after an I/O error, for example a keep-alive connection the server had
+ * already closed. Only GET requests are retried: POSTs place holds, renew loans and cancel holds, and replaying one
+ * could do it twice. The wait before each retry is a random time up to an exponentially growing ceiling (full
+ * jitter), and no retry is started past the deadline counted from the first attempt. Thread safe
+ */
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final long deadlineNanos;
+    private final Map<String, LongAdder> retryCounts = new ConcurrentHashMap<>();
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffNanos = builder.initialBackoffNanos;
+        this.maxBackoffNanos = builder.maxBackoffNanos;
+        this.deadlineNanos = builder.deadlineNanos;
+    }
+
+    /**
+     * @return policy that never retries
+     */
+    public static RetryPolicy none() {
+        return new Builder().maxAttempts(1).build();
+    }
+
+    /**
+     * @param request   request that failed
+     * @param call      the failed call
+     * @param attempt   attempts made so far, starting from 1
+     * @param startedAt System.nanoTime of the first attempt
+     * @return nanoseconds to wait before the next attempt, or -1 not to retry
+     */
+    long backoffNanos(Request request, Call call, int attempt, long startedAt) {
+        if (!"GET".equals(request.method()) || attempt >= maxAttempts || call.isCanceled() || Thread.currentThread().isInterrupted())
+            return -1;
+        long ceiling = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 20));
+        long backoff = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (System.nanoTime() + backoff - startedAt > deadlineNanos)
+            return -1;
+        return backoff;
+    }
+
+    void recordRetry(HttpUrl url) {
+        retryCounts.computeIfAbsent(endpoint(url), key -> new LongAdder()).increment();
+    }
+
+    /**
+     * AJAX/JSON serves many endpoints, they are told apart by the method parameter
+     */
+    static String endpoint(HttpUrl url) {
+        String method = url.queryParameter("method");
+        return method != null ? url.host() + url.encodedPath() + "?method=" + method : url.host() + url.encodedPath();
+    }
+
+    /**
+     * @return retries made per endpoint, keyed by host, path and the method parameter of AJAX requests
+     */
+    public Map<String, Long> getRetryCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> count : retryCounts.entrySet()) {
+            counts.put(count.getKey(), count.getValue().sum());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public static class Builder {
+        private int maxAttempts = 3;
+        private long initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        private long maxBackoffNanos = TimeUnit.SECONDS.toNanos(2);
+        private long deadlineNanos = TimeUnit.SECONDS.toNanos(10);
+
+        /**
+         * @param maxAttempts Attempts including the first one, defaults to 3. 1 disables retries
+         * @return builder
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1)
+                throw new IllegalArgumentException("maxAttempts must be at least 1");
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param initial Backoff ceiling of the first retry, doubled for each retry after it. Defaults to 100 ms
+         * @param max     Highest backoff ceiling, defaults to 2 s
+         * @param unit    unit of the durations
+         * @return builder
+         */
+        public Builder backoff(long initial, long max, TimeUnit unit) {
+            this.initialBackoffNanos = unit.toNanos(initial);
+            this.maxBackoffNanos = unit.toNanos(max);
+            return this;
+        }
+
+        /**
+         * @param duration No retry is started later than this after the first attempt, defaults to 10 s
+         * @param unit     unit of duration
+         * @return builder
+         */
+        public Builder deadline(long duration, TimeUnit unit) {
+            this.deadlineNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
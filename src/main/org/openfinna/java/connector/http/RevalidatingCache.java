@@ -0,0 +1,288 @@
+package org.openfinna.java.connector.http;
+
+import okhttp3.Headers;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.openfinna.java.connector.exceptions.KirkesClientException;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps models parsed from responses together with the ETag and Last-Modified validators of the response. Within
+ * the max age the cached model is returned without a request. After that a conditional request is sent, and a 304
+ * response returns the cached model without reading or parsing anything. With {@link #startRefresh(long, TimeUnit)}
+ * entries in use are revalidated in the background, so callers do not wait for slow pages. Concurrent callers of
+ * one key share a single request. Least recently used entries are dropped past {@link #setMaximumSize(int)}. Thread
+ * safe
+ */
+public class RevalidatingCache {
+
+    // Access ordered, eldest first. Guarded by this, as is loading
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Listeners waiting for the request in flight of a key
+    private final Map<String, List<Listener<Object>>> loading = new HashMap<>();
+    private final LongSupplier ticker;
+    private volatile long maxAgeNanos = TimeUnit.HOURS.toNanos(1);
+    private volatile int maximumSize = 256;
+    private ScheduledFuture<?> refreshTask;
+
+    public RevalidatingCache() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param ticker Source of nanosecond time for the max age
+     */
+    public RevalidatingCache(LongSupplier ticker) {
+        this.ticker = ticker;
+    }
+
+    /**
+     * @param duration How long a model is returned without asking the server, defaults to 1 hour. 0 revalidates
+     *                 on every call
+     * @param unit     unit of duration
+     */
+    public void setMaxAge(long duration, TimeUnit unit) {
+        this.maxAgeNanos = unit.toNanos(duration);
+    }
+
+    /**
+     * @param maximumSize How many models are kept, the least recently used one is dropped first. Defaults to 256
+     */
+    public void setMaximumSize(int maximumSize) {
+        this.maximumSize = maximumSize;
+        synchronized (this) {
+            trim();
+        }
+    }
+
+    /**
+     * Revalidate the entries that were read since the previous refresh every interval, on a shared daemon thread.
+     * The schedule only holds the cache weakly and ends once the cache is unreachable
+     *
+     * @param interval interval
+     * @param unit     unit of interval
+     */
+    public synchronized void startRefresh(long interval, TimeUnit unit) {
+        stopRefresh();
+        refreshTask = SharedScheduler.INSTANCE.scheduleWithFixedDelay(new RefreshTask(this), interval, interval, unit);
+    }
+
+    public synchronized void stopRefresh() {
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+            refreshTask = null;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Get a cached model or fetch it
+     *
+     * @param key      Key of the model, usually the URL
+     * @param fetcher  Sends the request with the given conditional headers, also used by the background refresh
+     * @param parser   Parses a 200 response
+     * @param listener callback, the same model instance is passed to every caller until it changes. Joins the request
+     *                 already in flight for the key, if any
+     * @param <T>      type of the model
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void get(String key, Fetcher fetcher, BodyParser<T> parser, Listener<T> listener) {
+        Entry entry;
+        boolean fresh = false;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null) {
+                entry.used = true;
+                fresh = ticker.getAsLong() - entry.validatedAt < maxAgeNanos;
+            }
+            if (!fresh && !join(key, (Listener<Object>) listener))
+                return;
+        }
+        if (fresh)
+            listener.onResult((T) entry.value);
+        else
+            fetch(key, entry, fetcher, parser);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void refresh() {
+        Map<String, Entry> used = new LinkedHashMap<>();
+        synchronized (this) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                Entry value = entry.getValue();
+                // Skips the entries a caller is already fetching
+                if (!value.used || loading.containsKey(entry.getKey()))
+                    continue;
+                join(entry.getKey(), REFRESHED);
+                value.used = false;
+                used.put(entry.getKey(), value);
+            }
+        }
+        for (Map.Entry<String, Entry> entry : used.entrySet()) {
+            Entry value = entry.getValue();
+            try {
+                fetch(entry.getKey(), value, value.fetcher, (BodyParser<Object>) value.parser);
+            } catch (RuntimeException e) {
+                // An exception would cancel the schedule
+                finish(entry.getKey(), null, e);
+            }
+        }
+    }
+
+    /**
+     * Add a listener to the request of a key, guarded by this
+     *
+     * @return whether the caller has to send the request, false when one is already in flight
+     */
+    private boolean join(String key, Listener<Object> listener) {
+        List<Listener<Object>> waiting = loading.get(key);
+        if (waiting != null) {
+            waiting.add(listener);
+            return false;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(listener);
+        loading.put(key, waiting);
+        return true;
+    }
+
+    private void finish(String key, Object value, Exception error) {
+        List<Listener<Object>> waiting;
+        synchronized (this) {
+            waiting = loading.remove(key);
+        }
+        if (waiting == null)
+            return;
+        for (Listener<Object> listener : waiting) {
+            if (error != null)
+                listener.onError(error);
+            else
+                listener.onResult(value);
+        }
+    }
+
+    private void trim() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maximumSize) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private void fetch(String key, Entry entry, Fetcher fetcher, BodyParser<?> parser) {
+        Headers.Builder conditions = new Headers.Builder();
+        if (entry != null && entry.eTag != null)
+            conditions.add("If-None-Match", entry.eTag);
+        if (entry != null && entry.lastModified != null)
+            conditions.add("If-Modified-Since", entry.lastModified);
+        fetcher.fetch(conditions.build(), new Listener<Response>() {
+            @Override
+            public void onResult(Response response) {
+                Object value;
+                try (Response fetched = response) {
+                    if (fetched.code() == 304 && entry != null) {
+                        entry.validatedAt = ticker.getAsLong();
+                        value = entry.value;
+                    } else if (fetched.code() == 200) {
+                        value = parser.parse(Objects.requireNonNull(fetched.body()));
+                        Entry parsed = new Entry(fetcher, parser, value, fetched.header("ETag"), fetched.header("Last-Modified"), ticker.getAsLong());
+                        synchronized (RevalidatingCache.this) {
+                            entries.put(key, parsed);
+                            trim();
+                        }
+                    } else {
+                        throw new KirkesClientException("Response code " + fetched.code());
+                    }
+                } catch (Exception e) {
+                    finish(key, null, e);
+                    return;
+                }
+                finish(key, value, null);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                finish(key, null, e);
+            }
+        });
+    }
+
+    /**
+     * Sends the request of an entry
+     */
+    public interface Fetcher {
+        /**
+         * @param conditions If-None-Match and If-Modified-Since headers to add, empty on the first request
+         * @param listener   called with the response, which the cache closes
+         */
+        void fetch(Headers conditions, Listener<Response> listener);
+    }
+
+    public interface BodyParser<T> {
+        T parse(ResponseBody body) throws Exception;
+    }
+
+    public interface Listener<T> {
+        void onResult(T result);
+
+        void onError(Exception e);
+    }
+
+    private static final Listener<Object> REFRESHED = new Listener<Object>() {
+        @Override
+        public void onResult(Object result) {
+        }
+
+        @Override
+        public void onError(Exception e) {
+            // The entry stays as it was, callers revalidate it themselves once it is too old
+        }
+    };
+
+    /**
+     * Does not keep an abandoned cache and its models reachable from the shared scheduler
+     */
+    private static final class RefreshTask implements Runnable {
+        private final WeakReference<RevalidatingCache> cache;
+
+        RefreshTask(RevalidatingCache cache) {
+            this.cache = new WeakReference<>(cache);
+        }
+
+        @Override
+        public void run() {
+            RevalidatingCache refreshed = cache.get();
+            if (refreshed == null)
+                // Ends the schedule
+                throw new CancellationException("Cache is no longer used");
+            refreshed.refresh();
+        }
+    }
+
+    private static final class Entry {
+        private final Fetcher fetcher;
+        private final BodyParser<?> parser;
+        private final Object value;
+        private final String eTag;
+        private final String lastModified;
+        private volatile long validatedAt;
+        // Read since the previous background refresh
+        private volatile boolean used;
+
+        Entry(Fetcher fetcher, BodyParser<?> parser, Object value, String eTag, String lastModified, long validatedAt) {
+            this.fetcher = fetcher;
+            this.parser = parser;
+            this.value = value;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.validatedAt = validatedAt;
+        }
+    }
+}
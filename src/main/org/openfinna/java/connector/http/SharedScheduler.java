@@ -0,0 +1,27 @@
+package org.openfinna.java.connector.http;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * One daemon thread for the delayed work of the http package: rate limiter queues, background refresh, retry
+ * backoff and deadlines. Tasks only start requests, so they do not hold the thread for long. Cancelled tasks are
+ * removed at once, a deadline of an operation that already finished does not keep the operation in the queue
+ */
+final class SharedScheduler {
+
+    static final ScheduledExecutorService INSTANCE = create();
+
+    private SharedScheduler() {
+    }
+
+    private static ScheduledExecutorService create() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "finna-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
@@ -3,82 +3,162 @@ package org.openfinna.java.connector.http;
 import okhttp3.*;
 import okhttp3.logging.HttpLoggingInterceptor;
 import org.jetbrains.annotations.NotNull;
+import org.openfinna.java.connector.exceptions.CircuitOpenException;
+import org.openfinna.java.connector.exceptions.DeadlineExceededException;
+import org.openfinna.java.connector.metrics.MetricsRecorder;
 import org.openfinna.java.connector.utils.WebClientCookieJar;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.util.concurrent.TimeUnit;
 
 public class WebClient {
 
-    private final WebClientCookieJar clientCookieJar = new WebClientCookieJar();
-    private String defaultLanguage = "en-gb";
-    public static String kirkesBaseURL = "https://finna.fi";
-    public static String finnaBaseUrl = "https://api.finna.fi";
+    public static final String DEFAULT_BASE_URL = "https://finna.fi";
+    public static final String DEFAULT_API_BASE_URL = "https://api.finna.fi";
+
+    private final WebClientCookieJar clientCookieJar;
+    private final String defaultLanguage;
+    private final String kirkesBaseURL;
+    private final String finnaBaseUrl;
+    // Parsed once per instance, requests only resolve paths against these
+    private final String domainName;
+    private final String kirkesOrigin;
+    private final HttpUrl kirkesHttpUrl;
+    private final HttpUrl finnaHttpUrl;
+    private final Headers defaultHeaders;
+    private final RateLimiter rateLimiter;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final MetricsRecorder metricsRecorder;
     private OkHttpClient client, nonSessionClient, clientNoRed, getNonSessionClientNoRed;
     private final HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor().setLevel(HttpLoggingInterceptor.Level.BODY);
 
     public WebClient() {
-        initWebClient(clientCookieJar, null);
+        this(new Builder());
     }
 
-    public WebClientCookieJar getClientCookieJar() {
-        return clientCookieJar;
+    /**
+     * Create a WebClient on top of an existing OkHttp client. All request variants are derived from it
+     * with {@link OkHttpClient#newBuilder()}, so they share its connection pool, dispatcher and thread pool
+     *
+     * @param baseClient base client to derive from
+     */
+    public WebClient(OkHttpClient baseClient) {
+        this(new Builder().httpClient(baseClient));
+    }
+
+    public WebClient(OkHttpClient baseClient, Cache cache, String language) {
+        this(new Builder().httpClient(baseClient).cache(cache).language(language));
     }
 
     public WebClient(String language) {
-        this.defaultLanguage = language;
-        initWebClient(clientCookieJar, null);
+        this(new Builder().language(language));
     }
 
     public WebClient(Cookie cookie) {
-        clientCookieJar.addCookie(cookie);
-        initWebClient(clientCookieJar, null);
+        this(new Builder().cookie(cookie));
     }
 
     public WebClient(Cookie cookie, String language) {
-        this.defaultLanguage = language;
-        clientCookieJar.addCookie(cookie);
-        initWebClient(clientCookieJar, null);
+        this(new Builder().cookie(cookie).language(language));
     }
 
     public WebClient(Cookie cookie, Cache cache) {
-        clientCookieJar.addCookie(cookie);
-        initWebClient(clientCookieJar, cache);
+        this(new Builder().cookie(cookie).cache(cache));
     }
 
     public WebClient(Cookie cookie, Cache cache, String language) {
-        this.defaultLanguage = language;
-        clientCookieJar.addCookie(cookie);
-        initWebClient(clientCookieJar, cache);
+        this(new Builder().cookie(cookie).cache(cache).language(language));
     }
 
     public WebClient(Cache cache) {
-        initWebClient(clientCookieJar, cache);
+        this(new Builder().cache(cache));
     }
 
 
     public WebClient(Cache cache, String language) {
-        this.defaultLanguage = language;
-        initWebClient(clientCookieJar, cache);
+        this(new Builder().cache(cache).language(language));
+    }
+
+    private WebClient(Builder builder) {
+        this.kirkesBaseURL = builder.baseUrl;
+        this.finnaBaseUrl = builder.apiBaseUrl;
+        this.defaultLanguage = builder.language;
+        HttpUrl kirkesUrl = HttpUrl.get(kirkesBaseURL);
+        this.domainName = getDomainName(kirkesUrl);
+        this.kirkesOrigin = getOrigin(kirkesUrl);
+        this.kirkesHttpUrl = HttpUrl.get(kirkesOrigin);
+        this.finnaHttpUrl = HttpUrl.get(getOrigin(HttpUrl.get(finnaBaseUrl)));
+        this.defaultHeaders = new Headers.Builder()
+                .add("Referer", kirkesOrigin + "/")
+                .add("Origin", kirkesOrigin + "/")
+                .add("User-Agent", "Mozilla/5.0")
+                .build();
+        this.rateLimiter = builder.rateLimiter;
+        this.retryPolicy = builder.retryPolicy != null ? builder.retryPolicy : new RetryPolicy.Builder().build();
+        this.circuitBreaker = builder.circuitBreaker;
+        this.metricsRecorder = builder.metricsRecorder;
+        this.clientCookieJar = new WebClientCookieJar(kirkesHttpUrl);
+        if (builder.cookie != null)
+            clientCookieJar.addCookie(builder.cookie);
+        initWebClient(clientCookieJar, builder.cache, withTimeouts(builder));
+    }
+
+    private static OkHttpClient withTimeouts(Builder builder) {
+        if (builder.connectTimeoutMillis < 0 && builder.readTimeoutMillis < 0 && builder.callTimeoutMillis < 0)
+            return builder.httpClient;
+        OkHttpClient.Builder httpClient = (builder.httpClient != null ? builder.httpClient : getSharedHttpClient()).newBuilder();
+        if (builder.connectTimeoutMillis >= 0)
+            httpClient.connectTimeout(builder.connectTimeoutMillis, TimeUnit.MILLISECONDS);
+        if (builder.readTimeoutMillis >= 0)
+            httpClient.readTimeout(builder.readTimeoutMillis, TimeUnit.MILLISECONDS);
+        if (builder.callTimeoutMillis >= 0)
+            httpClient.callTimeout(builder.callTimeoutMillis, TimeUnit.MILLISECONDS);
+        return httpClient.build();
+    }
+
+    public WebClientCookieJar getClientCookieJar() {
+        return clientCookieJar;
     }
 
-    private static String getDomainName(String url) throws URISyntaxException {
-        URI uri = new URI(url);
-        String domain = uri.getHost();
+    private static String getDomainName(HttpUrl url) {
+        String domain = url.host();
         return domain.startsWith("www.") ? domain.substring(4) : domain;
     }
 
+    private static String getOrigin(HttpUrl url) {
+        String origin = url.scheme() + "://" + getDomainName(url);
+        if (url.port() != HttpUrl.defaultPort(url.scheme()))
+            origin += ":" + url.port();
+        return origin;
+    }
+
     public String getDomainName() {
-        try {
-            return getDomainName(kirkesBaseURL);
-        } catch (URISyntaxException e) {
-            e.printStackTrace();
-            return kirkesBaseURL;
-        }
+        return domainName;
+    }
+
+    /**
+     * Base URL of the Finna portal this client talks to, for example https://finna.fi
+     *
+     * @return base URL
+     */
+    public String getKirkesBaseURL() {
+        return kirkesBaseURL;
+    }
+
+    public String getFinnaBaseUrl() {
+        return finnaBaseUrl;
+    }
+
+    /**
+     * Scheme and domain of the portal without a trailing slash, used to absolutize links found from pages
+     *
+     * @return origin, for example https://finna.fi
+     */
+    public String getBaseOrigin() {
+        return kirkesOrigin;
     }
 
     private Proxy getDebugProxy() {
@@ -87,53 +167,98 @@ public class WebClient {
                 new InetSocketAddress("127.0.0.1", port));
     }
 
-    private static String getProtocol(String url) throws URISyntaxException {
-        URI uri = new URI(url);
-        return uri.getScheme();
-    }
-
     public static String optimizeURL(String url) {
-        try {
-            return getProtocol(url) + "://" + getDomainName(url);
-        } catch (Exception e) {
-            e.printStackTrace();
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null)
             return url;
-        }
+        return getOrigin(httpUrl);
     }
 
     public String generateURL(String path) {
-        try {
-            return getProtocol(kirkesBaseURL) + "://" + getDomainName(kirkesBaseURL) + "/" + path;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return kirkesBaseURL + "/" + path;
-        }
+        return generateHttpUrl(path).toString();
     }
 
     public String generateApiURL(String path) {
-        try {
-            return getProtocol(finnaBaseUrl) + "://" + getDomainName(finnaBaseUrl) + "/" + path;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return finnaBaseUrl + "/" + path;
+        return generateApiHttpUrl(path).toString();
+    }
+
+    /**
+     * Resolve a path (with optional query and fragment) against the portal base URL
+     *
+     * @param path Path relative to the portal root, for example MyResearch/CheckedOut
+     * @return resolved URL
+     */
+    public HttpUrl generateHttpUrl(String path) {
+        return resolve(kirkesHttpUrl, path);
+    }
+
+    /**
+     * Resolve a path (with optional query and fragment) against the REST API base URL
+     *
+     * @param path Path relative to the API root, for example api/v1/search
+     * @return resolved URL
+     */
+    public HttpUrl generateApiHttpUrl(String path) {
+        return resolve(finnaHttpUrl, path);
+    }
+
+    private static HttpUrl resolve(HttpUrl base, String path) {
+        HttpUrl.Builder builder = base.newBuilder();
+        int fragmentIndex = path.indexOf('#');
+        if (fragmentIndex != -1) {
+            builder.encodedFragment(path.substring(fragmentIndex + 1));
+            path = path.substring(0, fragmentIndex);
+        }
+        int queryIndex = path.indexOf('?');
+        if (queryIndex != -1) {
+            builder.encodedQuery(path.substring(queryIndex + 1));
+            path = path.substring(0, queryIndex);
         }
+        return builder.addEncodedPathSegments(path).build();
     }
 
-    public void setKirkesBaseURL(String kirkesBaseURL) {
-        WebClient.kirkesBaseURL = kirkesBaseURL;
+    Request newRequest(HttpUrl url, RequestBody requestBody, CacheControl cacheControl) {
+        Request.Builder request = new Request.Builder()
+                .url(url)
+                .headers(defaultHeaders);
+        if (requestBody != null)
+            request.post(requestBody);
+        if (cacheControl != null)
+            request.cacheControl(cacheControl);
+        return request.build();
     }
 
-    private void appendDefaultHeaders(Request.Builder builder) {
-        builder.addHeader("Referer", optimizeURL(kirkesBaseURL) + "/");
-        builder.addHeader("Origin", optimizeURL(kirkesBaseURL) + "/");
-        builder.addHeader("User-Agent", "Mozilla/5.0");
+    /**
+     * Process-wide base client. WebClients created without their own base client derive their variants from
+     * this one, so they all reuse the same connections, dispatcher and threads
+     *
+     * @return shared OkHttpClient
+     */
+    public static OkHttpClient getSharedHttpClient() {
+        return SharedTransport.CLIENT;
     }
 
-    private void initWebClient(CookieJar cookieJar, Cache cache) {
+    private static final class SharedTransport {
+        private static final OkHttpClient CLIENT = createSharedHttpClient();
+
+        private static OkHttpClient createSharedHttpClient() {
+            // One dispatcher is shared by every user of the process, so allow more than OkHttp's default 5 calls per host
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(128);
+            dispatcher.setMaxRequestsPerHost(32);
+            return new OkHttpClient.Builder()
+                    .callTimeout(10, TimeUnit.SECONDS)
+                    .dispatcher(dispatcher)
+                    .connectionPool(new ConnectionPool(32, 5, TimeUnit.MINUTES))
+                    .build();
+        }
+    }
+
+    private void initWebClient(CookieJar cookieJar, Cache cache, OkHttpClient baseClient) {
         // Adding language cookie
 
         try {
-            clientCookieJar.addCookie(new Cookie.Builder().domain(getDomainName(kirkesBaseURL)).expiresAt(-1).httpOnly().secure().path("/").name("language").value(defaultLanguage).build());
+            clientCookieJar.addCookie(new Cookie.Builder().domain(domainName).expiresAt(-1).httpOnly().secure().path("/").name("language").value(defaultLanguage).build());
 
            /* final TrustManager[] trustAllCerts = new TrustManager[] {
                     new X509TrustManager() {
@@ -165,48 +290,27 @@ public class WebClient {
                 }
             };*/
 
-            client = new OkHttpClient.Builder()
-                    .callTimeout(10, TimeUnit.SECONDS)
-                    .cache(cache)
-                    .cookieJar(cookieJar)
-                    /*  .proxy(getDebugProxy())
-                      .sslSocketFactory(sslSocketFactory, (X509TrustManager)trustAllCerts[0])
-                      .hostnameVerifier(hostnameVerifier)*/
-
-                    //.addInterceptor(loggingInterceptor)
-                    .build();
-            nonSessionClient = new OkHttpClient.Builder()
-                    .callTimeout(10, TimeUnit.SECONDS)
-                    .cache(cache)
-                    /* .proxy(getDebugProxy())
-                     .sslSocketFactory(sslSocketFactory, (X509TrustManager)trustAllCerts[0])
-                     .hostnameVerifier(hostnameVerifier)*/
+            // All variants are derived from one base, so they share its connection pool and dispatcher
+            OkHttpClient base = (baseClient != null) ? baseClient : getSharedHttpClient();
+            if (cache != null)
+                base = base.newBuilder().cache(cache).build();
+            // Without a recorder the requests are neither tagged nor intercepted
+            if (metricsRecorder.isEnabled())
+                base = base.newBuilder().addInterceptor(new MetricsInterceptor(metricsRecorder)).build();
 
-                    //.addInterceptor(loggingInterceptor)
+            client = base.newBuilder()
+                    .cookieJar(cookieJar)
                     .build();
+            nonSessionClient = base;
 
-            clientNoRed = new OkHttpClient.Builder()
-                    .callTimeout(10, TimeUnit.SECONDS)
-                    .cache(cache)
+            clientNoRed = base.newBuilder()
                     .followSslRedirects(false)
                     .followRedirects(false)
                     .cookieJar(cookieJar)
-                    /* .proxy(getDebugProxy())
-                     .sslSocketFactory(sslSocketFactory, (X509TrustManager)trustAllCerts[0])
-                     .hostnameVerifier(hostnameVerifier)*/
-
-                    //.addInterceptor(loggingInterceptor)
                     .build();
-            getNonSessionClientNoRed = new OkHttpClient.Builder()
-                    .callTimeout(10, TimeUnit.SECONDS)
+            getNonSessionClientNoRed = base.newBuilder()
                     .followSslRedirects(false)
                     .followRedirects(false)
-                    .cache(cache)
-                    /*.proxy(getDebugProxy())
-                    .sslSocketFactory(sslSocketFactory, (X509TrustManager)trustAllCerts[0])
-                    .hostnameVerifier(hostnameVerifier)*/
-
-                    //.addInterceptor(loggingInterceptor)
                     .build();
         } catch (Exception e) {
             e.printStackTrace();
@@ -223,12 +327,11 @@ public class WebClient {
      * @param webClientListener Interface
      */
     public void getRequest(boolean session, boolean redirect, String url, WebClientListener webClientListener) {
-        Request.Builder request = new Request.Builder()
-                .url(url)
-                .cacheControl(new CacheControl.Builder().noCache().build())
-                .get();
-        appendDefaultHeaders(request);
-        getSuitableClientAndRequest(session, redirect, webClientListener, request.build());
+        getRequest(session, redirect, HttpUrl.get(url), webClientListener);
+    }
+
+    public void getRequest(boolean session, boolean redirect, HttpUrl url, WebClientListener webClientListener) {
+        getSuitableClientAndRequest(session, redirect, webClientListener, newRequest(url, null, CacheControl.FORCE_NETWORK));
     }
 
     /*
@@ -244,12 +347,11 @@ public class WebClient {
      * @param webClientListener Interface
      */
     public void postRequest(boolean session, boolean redirect, String url, RequestBody requestBody, WebClientListener webClientListener) {
-        Request.Builder request = new Request.Builder()
-                .url(url)
-                .method("POST", requestBody)
-                .cacheControl(new CacheControl.Builder().noCache().build());
-        appendDefaultHeaders(request);
-        getSuitableClientAndRequest(session, redirect, webClientListener, request.build());
+        postRequest(session, redirect, HttpUrl.get(url), requestBody, webClientListener);
+    }
+
+    public void postRequest(boolean session, boolean redirect, HttpUrl url, RequestBody requestBody, WebClientListener webClientListener) {
+        getSuitableClientAndRequest(session, redirect, webClientListener, newRequest(url, requestBody, CacheControl.FORCE_NETWORK));
     }
 
     /**
@@ -260,27 +362,375 @@ public class WebClient {
      * @param webClientListener Interface
      */
     public void getRequestWithCache(boolean session, boolean redirect, String url, WebClientListener webClientListener) {
-        Request.Builder request = new Request.Builder()
-                .url(url)
-                //.cacheControl(new CacheControl.Builder().noCache().build())
-                .get();
-        appendDefaultHeaders(request);
+        getRequestWithCache(session, redirect, HttpUrl.get(url), webClientListener);
+    }
+
+    public void getRequestWithCache(boolean session, boolean redirect, HttpUrl url, WebClientListener webClientListener) {
+        getSuitableClientAndRequest(session, redirect, webClientListener, newRequest(url, null, null));
+    }
+
+    /**
+     * GET Request with caching and extra headers, such as the conditional headers of {@link RevalidatingCache}
+     *
+     * @param session           Is session (cookie jar) used or not
+     * @param url               URL
+     * @param headers           Headers added to the request
+     * @param webClientListener Interface
+     */
+    public void getRequestWithCache(boolean session, boolean redirect, HttpUrl url, Headers headers, WebClientListener webClientListener) {
+        Request.Builder request = newRequest(url, null, null).newBuilder();
+        for (int i = 0; i < headers.size(); i++) {
+            request.header(headers.name(i), headers.value(i));
+        }
         getSuitableClientAndRequest(session, redirect, webClientListener, request.build());
     }
 
+    /**
+     * Blocking GET request without caching, executed on the calling thread. Caller must close the response
+     *
+     * @param session  Is session (cookie jar) used or not
+     * @param redirect Are redirects followed or not
+     * @param url      URL
+     * @return response
+     * @throws IOException if the request could not be executed
+     */
+    public Response executeGetRequest(boolean session, boolean redirect, HttpUrl url) throws IOException {
+        return execute(session, redirect, newRequest(url, null, CacheControl.FORCE_NETWORK));
+    }
+
+    /**
+     * Blocking POST request without caching, executed on the calling thread. Caller must close the response
+     *
+     * @param session     Is session (cookie jar) used or not
+     * @param redirect    Are redirects followed or not
+     * @param url         URL
+     * @param requestBody Request Body of POST Request
+     * @return response
+     * @throws IOException if the request could not be executed
+     */
+    public Response executePostRequest(boolean session, boolean redirect, HttpUrl url, RequestBody requestBody) throws IOException {
+        return execute(session, redirect, newRequest(url, requestBody, CacheControl.FORCE_NETWORK));
+    }
+
+    private Response execute(boolean session, boolean redirect, Request request) throws IOException {
+        CallScope scope = CallScope.current();
+        OkHttpClient suitableClient = getSuitableClient(session, redirect);
+        EndpointClass endpointClass = getEndpointClass(request.url());
+        long startedAt = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            // Outside the try, an open circuit is not retried
+            if (circuitBreaker != null && !circuitBreaker.tryAcquire(endpointClass))
+                throw new CircuitOpenException(endpointClass);
+            Call call = suitableClient.newCall(metricsRecorder.isEnabled() ? MetricsInterceptor.timed(request) : request);
+            if (scope != null)
+                scope.register(call);
+            try {
+                if (rateLimiter != null)
+                    rateLimiter.acquire(request.url().host(), this);
+                if (!applyDeadline(call, scope))
+                    throw new DeadlineExceededException();
+                Response response = call.execute();
+                onResponse(request, endpointClass, response);
+                return response;
+            } catch (IOException e) {
+                onFailure(endpointClass, call, scope);
+                long backoff = backoffNanos(request, call, attempt, startedAt, scope);
+                if (backoff < 0)
+                    throw deadlineExceeded(e, scope);
+                retryPolicy.recordRetry(request.url());
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            } finally {
+                if (scope != null)
+                    scope.unregister(call);
+            }
+        }
+    }
+
+    private OkHttpClient getSuitableClient(boolean session, boolean redirect) {
+        return (session) ? (redirect ? client : clientNoRed) : (redirect ? nonSessionClient : getNonSessionClientNoRed);
+    }
+
     private void getSuitableClientAndRequest(boolean session, boolean redirect, WebClientListener webClientListener, Request request) {
-        OkHttpClient httpClient = (session) ? (redirect ? client : clientNoRed) : (redirect ? nonSessionClient : getNonSessionClientNoRed);
-        httpClient.newCall(request).enqueue(new Callback() {
+        // The operation's scope is carried over to the callback thread, so follow-up requests belong to it too
+        enqueue(getSuitableClient(session, redirect), request, webClientListener, CallScope.current(), 1, System.nanoTime());
+    }
+
+    private void enqueue(OkHttpClient suitableClient, Request request, WebClientListener webClientListener, CallScope scope, int attempt, long startedAt) {
+        Call newCall = suitableClient.newCall(metricsRecorder.isEnabled() ? MetricsInterceptor.timed(request) : request);
+        EndpointClass endpointClass = getEndpointClass(request.url());
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire(endpointClass)) {
+            CallScope.run(scope, () -> webClientListener.onFailed(newCall, new CircuitOpenException(endpointClass)));
+            return;
+        }
+        if (scope != null)
+            scope.register(newCall);
+        Callback callback = new Callback() {
             @Override
             public void onFailure(@NotNull Call call, @NotNull IOException e) {
-                webClientListener.onFailed(call, e);
+                if (scope != null)
+                    scope.unregister(call);
+                WebClient.this.onFailure(endpointClass, call, scope);
+                long backoff = backoffNanos(request, call, attempt, startedAt, scope);
+                if (backoff >= 0) {
+                    retryPolicy.recordRetry(request.url());
+                    SharedScheduler.INSTANCE.schedule(() -> enqueue(suitableClient, request, webClientListener, scope, attempt + 1, startedAt), backoff, TimeUnit.NANOSECONDS);
+                    return;
+                }
+                IOException failure = deadlineExceeded(e, scope);
+                CallScope.run(scope, () -> webClientListener.onFailed(call, failure));
             }
 
             @Override
             public void onResponse(@NotNull Call call, @NotNull Response response) {
-                webClientListener.onResponse(response);
+                if (scope != null)
+                    scope.unregister(call);
+                WebClient.this.onResponse(request, endpointClass, response);
+                CallScope.run(scope, () -> webClientListener.onResponse(response));
             }
-        });
+        };
+        Runnable send = () -> {
+            // Time spent in the limiter's queue counts against the deadline too
+            if (applyDeadline(newCall, scope))
+                newCall.enqueue(callback);
+            else
+                callback.onFailure(newCall, new DeadlineExceededException());
+        };
+        // Over the budget the call waits in the limiter's queue instead of OkHttp's
+        if (rateLimiter != null)
+            rateLimiter.acquire(request.url().host(), this, send);
+        else
+            send.run();
+    }
+
+    /**
+     * Shorten the timeout of the call to the time left of its operation
+     *
+     * @return false if the deadline has already passed
+     */
+    private static boolean applyDeadline(Call call, CallScope scope) {
+        if (scope == null || !scope.hasDeadline())
+            return true;
+        long remaining = scope.remainingNanos();
+        if (remaining <= 0)
+            return false;
+        long timeout = call.timeout().timeoutNanos();
+        if (timeout == 0 || remaining < timeout)
+            call.timeout().timeout(remaining, TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    private long backoffNanos(Request request, Call call, int attempt, long startedAt, CallScope scope) {
+        long backoff = retryPolicy.backoffNanos(request, call, attempt, startedAt);
+        if (scope != null && backoff >= scope.remainingNanos())
+            return -1;
+        return backoff;
+    }
+
+    private static IOException deadlineExceeded(IOException e, CallScope scope) {
+        if (scope == null || !scope.isExpired() || e instanceof DeadlineExceededException)
+            return e;
+        IOException deadlineExceeded = new DeadlineExceededException();
+        deadlineExceeded.initCause(e);
+        return deadlineExceeded;
+    }
+
+    private void onResponse(Request request, EndpointClass endpointClass, Response response) {
+        if (rateLimiter != null)
+            rateLimiter.onResponse(request.url().host(), response.code(), response.header("Retry-After"));
+        if (circuitBreaker != null) {
+            long duration = TimeUnit.MILLISECONDS.toNanos(response.receivedResponseAtMillis() - response.sentRequestAtMillis());
+            circuitBreaker.onResult(endpointClass, response.code() >= 500, duration);
+        }
+    }
+
+    private void onFailure(EndpointClass endpointClass, Call call, CallScope scope) {
+        if (circuitBreaker == null)
+            return;
+        // A short deadline of the caller says nothing about the upstream either
+        if (call.isCanceled() || (scope != null && scope.isExpired()))
+            circuitBreaker.onCancelled(endpointClass);
+        else
+            circuitBreaker.onResult(endpointClass, true, 0);
+    }
+
+    /**
+     * AJAX/JSON is a path of the portal, the REST API may share its host in which case it is told apart by its path
+     *
+     * @param url request URL
+     * @return class of the endpoint the URL belongs to
+     */
+    public EndpointClass getEndpointClass(HttpUrl url) {
+        String path = url.encodedPath();
+        if (path.startsWith("/AJAX/JSON"))
+            return EndpointClass.AJAX_JSON;
+        if (path.startsWith("/api/") || (url.host().equals(finnaHttpUrl.host()) && !url.host().equals(kirkesHttpUrl.host())))
+            return EndpointClass.REST_API;
+        return EndpointClass.SESSION_PAGES;
+    }
+
+    /**
+     * @return circuit breaker of the client, null if none was set
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return metrics recorder of the client, {@link MetricsRecorder#NONE} if none was set
+     */
+    public MetricsRecorder getMetricsRecorder() {
+        return metricsRecorder;
+    }
+
+    /**
+     * @return retry policy of the client, for its retry counts
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Builder for WebClient. Base URLs are fixed for the lifetime of the client, so one process can serve
+     * users of different Finna based portals at the same time
+     */
+    public static class Builder {
+        private String baseUrl = DEFAULT_BASE_URL;
+        private String apiBaseUrl = DEFAULT_API_BASE_URL;
+        private String language = "en-gb";
+        private Cookie cookie;
+        private Cache cache;
+        private OkHttpClient httpClient;
+        private RateLimiter rateLimiter;
+        private RetryPolicy retryPolicy;
+        private CircuitBreaker circuitBreaker;
+        private MetricsRecorder metricsRecorder = MetricsRecorder.NONE;
+        private long connectTimeoutMillis = -1;
+        private long readTimeoutMillis = -1;
+        private long callTimeoutMillis = -1;
+
+        /**
+         * @param baseUrl Base URL of the Finna portal, for example https://finna.fi
+         * @return builder
+         */
+        public Builder baseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        /**
+         * @param apiBaseUrl Base URL of the Finna REST API, for example https://api.finna.fi
+         * @return builder
+         */
+        public Builder apiBaseUrl(String apiBaseUrl) {
+            this.apiBaseUrl = apiBaseUrl;
+            return this;
+        }
+
+        public Builder language(String language) {
+            this.language = language;
+            return this;
+        }
+
+        public Builder cookie(Cookie cookie) {
+            this.cookie = cookie;
+            return this;
+        }
+
+        public Builder cache(Cache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * @param httpClient Base OkHttp client to derive request variants from, defaults to {@link #getSharedHttpClient()}
+         * @return builder
+         */
+        public Builder httpClient(OkHttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        /**
+         * @param rateLimiter Limiter of requests per host, share one instance between the clients of a process.
+         *                    Defaults to no limit
+         * @return builder
+         */
+        public Builder rateLimiter(RateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        /**
+         * @param retryPolicy Retries of GET requests after I/O errors, defaults to 3 attempts within 10 seconds.
+         *                    {@link RetryPolicy#none()} disables them
+         * @return builder
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * @param circuitBreaker Fails requests at once while their endpoints are failing, share one instance between
+         *                       the clients of a process. Defaults to none
+         * @return builder
+         */
+        public Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        /**
+         * @param timeout Timeout of opening a connection, defaults to the base client's (10 seconds for the shared one)
+         * @param unit    unit of timeout
+         * @return builder
+         */
+        public Builder connectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * @param timeout Longest wait for the next bytes of a response, defaults to the base client's (10 seconds for
+         *                the shared one)
+         * @param unit    unit of timeout
+         * @return builder
+         */
+        public Builder readTimeout(long timeout, TimeUnit unit) {
+            this.readTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * @param timeout Time one request may take from start to the end of the response, 0 for none. Defaults to the
+         *                base client's (10 seconds for the shared one). The deadline of a {@link CallScope} shortens it
+         * @param unit    unit of timeout
+         * @return builder
+         */
+        public Builder callTimeout(long timeout, TimeUnit unit) {
+            this.callTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * @param metricsRecorder Receives request, parse and operation timings, for example an
+         *                        {@link org.openfinna.java.connector.metrics.HdrMetricsRecorder}. Defaults to
+         *                        {@link MetricsRecorder#NONE}
+         * @return builder
+         */
+        public Builder metricsRecorder(MetricsRecorder metricsRecorder) {
+            this.metricsRecorder = metricsRecorder != null ? metricsRecorder : MetricsRecorder.NONE;
+            return this;
+        }
+
+        public WebClient build() {
+            return new WebClient(this);
+        }
     }
 
     /**
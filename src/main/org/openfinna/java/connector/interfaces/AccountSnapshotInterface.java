@@ -0,0 +1,17 @@
+package org.openfinna.java.connector.interfaces;
+
+import org.openfinna.java.connector.classes.models.AccountSnapshot;
+
+public interface AccountSnapshotInterface {
+    /**
+     * @param snapshot snapshot, check {@link AccountSnapshot#getErrors()} for parts that failed
+     */
+    void onAccountSnapshot(AccountSnapshot snapshot);
+
+    /**
+     * Session could not be validated, so no part was fetched
+     *
+     * @param e error
+     */
+    void onError(Exception e);
+}
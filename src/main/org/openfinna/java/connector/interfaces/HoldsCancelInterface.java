@@ -0,0 +1,15 @@
+package org.openfinna.java.connector.interfaces;
+
+import org.openfinna.java.connector.classes.models.holds.Hold;
+import org.openfinna.java.connector.classes.models.holds.HoldCancelResult;
+
+import java.util.Map;
+
+public interface HoldsCancelInterface {
+    /**
+     * @param results cancel results keyed by the given holds, in the order they were given
+     */
+    void onCancelHolds(Map<Hold, HoldCancelResult> results);
+
+    void onError(Exception e);
+}
@@ -0,0 +1,15 @@
+package org.openfinna.java.connector.interfaces;
+
+import org.openfinna.java.connector.classes.models.loans.Loan;
+import org.openfinna.java.connector.classes.models.loans.RenewResult;
+
+import java.util.Map;
+
+public interface LoansRenewInterface {
+    /**
+     * @param results renew results keyed by the given loans, in the order they were given
+     */
+    void onLoansRenew(Map<Loan, RenewResult> results);
+
+    void onError(Exception e);
+}
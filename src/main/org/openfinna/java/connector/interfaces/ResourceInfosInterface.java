@@ -0,0 +1,9 @@
+package org.openfinna.java.connector.interfaces;
+
+import org.openfinna.java.connector.classes.ResourceInfoBatch;
+
+public interface ResourceInfosInterface {
+    void onResourceInfos(ResourceInfoBatch batch);
+
+    void onError(Exception e);
+}
@@ -0,0 +1,162 @@
+package org.openfinna.java.connector.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the recorded values in memory as HdrHistograms, read them with {@link #snapshot()}. Values are recorded into
+ * HdrHistogram Recorders, which is wait-free and does not allocate once an endpoint, parser or operation has been
+ * seen; a snapshot moves them into the running totals. Values over the highest trackable value are recorded as that
+ * value. Thread safe
+ */
+public class HdrMetricsRecorder implements MetricsRecorder {
+
+    private static final long HIGHEST_BYTES = 1L << 30;
+    private static final MetricsRecorder.Outcome[] OUTCOMES = MetricsRecorder.Outcome.values();
+
+    private final long highestNanos;
+    private final int significantDigits;
+    private final ConcurrentHashMap<String, RequestSeries> requests = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Distribution> parseTimes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, OperationSeries> operations = new ConcurrentHashMap<>();
+
+    /**
+     * Track times up to 5 minutes with 3 significant digits
+     */
+    public HdrMetricsRecorder() {
+        this(5, TimeUnit.MINUTES, 3);
+    }
+
+    /**
+     * @param highestTrackable  longest time tracked exactly
+     * @param unit              unit of highestTrackable
+     * @param significantDigits precision of the values, between 0 and 5
+     */
+    public HdrMetricsRecorder(long highestTrackable, TimeUnit unit, int significantDigits) {
+        this.highestNanos = unit.toNanos(highestTrackable);
+        this.significantDigits = significantDigits;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void recordRequest(String endpoint, long queueWaitNanos, long latencyNanos, long responseBytes, Outcome outcome) {
+        RequestSeries series = requests.get(endpoint);
+        if (series == null)
+            series = requests.computeIfAbsent(endpoint, key -> new RequestSeries());
+        series.queueWait.record(queueWaitNanos);
+        series.latency.record(latencyNanos);
+        series.responseBytes.record(responseBytes);
+        series.outcomes[outcome.ordinal()].increment();
+    }
+
+    @Override
+    public void recordParse(String parser, long nanos) {
+        Distribution distribution = parseTimes.get(parser);
+        if (distribution == null)
+            distribution = parseTimes.computeIfAbsent(parser, key -> new Distribution(highestNanos));
+        distribution.record(nanos);
+    }
+
+    @Override
+    public void recordOperation(String operation, long nanos, Outcome outcome) {
+        OperationSeries series = operations.get(operation);
+        if (series == null)
+            series = operations.computeIfAbsent(operation, key -> new OperationSeries());
+        series.duration.record(nanos);
+        series.outcomes[outcome.ordinal()].increment();
+    }
+
+    /**
+     * @return copy of everything recorded since creation or the last {@link #reset()}
+     */
+    public MetricsSnapshot snapshot() {
+        Map<String, MetricsSnapshot.RequestMetrics> requestMetrics = new TreeMap<>();
+        for (Map.Entry<String, RequestSeries> entry : requests.entrySet()) {
+            RequestSeries series = entry.getValue();
+            requestMetrics.put(entry.getKey(), new MetricsSnapshot.RequestMetrics(series.queueWait.snapshot(), series.latency.snapshot(), series.responseBytes.snapshot(), counts(series.outcomes)));
+        }
+        Map<String, HistogramSnapshot> parseMetrics = new TreeMap<>();
+        for (Map.Entry<String, Distribution> entry : parseTimes.entrySet()) {
+            parseMetrics.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        Map<String, MetricsSnapshot.OperationMetrics> operationMetrics = new TreeMap<>();
+        for (Map.Entry<String, OperationSeries> entry : operations.entrySet()) {
+            operationMetrics.put(entry.getKey(), new MetricsSnapshot.OperationMetrics(entry.getValue().duration.snapshot(), counts(entry.getValue().outcomes)));
+        }
+        return new MetricsSnapshot(requestMetrics, parseMetrics, operationMetrics);
+    }
+
+    /**
+     * Forget everything recorded so far
+     */
+    public void reset() {
+        requests.clear();
+        parseTimes.clear();
+        operations.clear();
+    }
+
+    private static EnumMap<MetricsRecorder.Outcome, Long> counts(LongAdder[] adders) {
+        EnumMap<MetricsRecorder.Outcome, Long> counts = new EnumMap<>(MetricsRecorder.Outcome.class);
+        for (MetricsRecorder.Outcome outcome : OUTCOMES) {
+            long count = adders[outcome.ordinal()].sum();
+            if (count > 0)
+                counts.put(outcome, count);
+        }
+        return counts;
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[OUTCOMES.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private final class Distribution {
+        private final long highest;
+        private final Recorder recorder;
+        // Guarded by this
+        private final Histogram total;
+        private Histogram interval;
+
+        Distribution(long highest) {
+            this.highest = highest;
+            this.recorder = new Recorder(highest, significantDigits);
+            this.total = new Histogram(highest, significantDigits);
+        }
+
+        void record(long value) {
+            recorder.recordValue(Math.max(0, Math.min(value, highest)));
+        }
+
+        synchronized HistogramSnapshot snapshot() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            return new HistogramSnapshot(total.copy());
+        }
+    }
+
+    private final class RequestSeries {
+        private final Distribution queueWait = new Distribution(highestNanos);
+        private final Distribution latency = new Distribution(highestNanos);
+        private final Distribution responseBytes = new Distribution(HIGHEST_BYTES);
+        private final LongAdder[] outcomes = newAdders();
+    }
+
+    private final class OperationSeries {
+        private final Distribution duration = new Distribution(highestNanos);
+        private final LongAdder[] outcomes = newAdders();
+    }
+}
@@ -0,0 +1,49 @@
+package org.openfinna.java.connector.metrics;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Distribution of recorded values at one point in time. Values are nanoseconds or bytes, as recorded
+ */
+public class HistogramSnapshot {
+    private final Histogram histogram;
+
+    HistogramSnapshot(Histogram histogram) {
+        this.histogram = histogram;
+    }
+
+    public long getCount() {
+        return histogram.getTotalCount();
+    }
+
+    public long getMin() {
+        return getCount() == 0 ? 0 : histogram.getMinValue();
+    }
+
+    public long getMax() {
+        return histogram.getMaxValue();
+    }
+
+    public double getMean() {
+        return histogram.getMean();
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100, for example 99.9
+     * @return highest value of the lowest percentile of the values
+     */
+    public long getValueAtPercentile(double percentile) {
+        return histogram.getValueAtPercentile(percentile);
+    }
+
+    @Override
+    public String toString() {
+        return "HistogramSnapshot{" +
+                "count=" + getCount() +
+                ", min=" + getMin() +
+                ", p50=" + getValueAtPercentile(50) +
+                ", p99=" + getValueAtPercentile(99) +
+                ", max=" + getMax() +
+                '}';
+    }
+}
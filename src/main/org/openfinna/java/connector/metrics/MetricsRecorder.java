@@ -0,0 +1,118 @@
+package org.openfinna.java.connector.metrics;
+
+import org.openfinna.java.connector.exceptions.CircuitOpenException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Receives timings of the client: every HTTP request, the parsing of responses and whole operations. Set one with
+ * {@link org.openfinna.java.connector.http.WebClient.Builder#metricsRecorder(MetricsRecorder)}, the FinnaClient and
+ * async client using that WebClient report to it too. Methods are called on the OkHttp and caller threads, so
+ * implementations must be thread safe and fast.
+ * <p>
+ * Nothing is measured while {@link #isEnabled()} is false, so {@link #NONE} costs neither time nor allocations
+ */
+public interface MetricsRecorder {
+
+    MetricsRecorder NONE = new MetricsRecorder() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void recordRequest(String endpoint, long queueWaitNanos, long latencyNanos, long responseBytes, Outcome outcome) {
+        }
+
+        @Override
+        public void recordParse(String parser, long nanos) {
+        }
+
+        @Override
+        public void recordOperation(String operation, long nanos, Outcome outcome) {
+        }
+    };
+
+    enum Outcome {
+        SUCCESS,
+        /**
+         * 4xx response
+         */
+        CLIENT_ERROR,
+        /**
+         * 5xx response
+         */
+        SERVER_ERROR,
+        /**
+         * Timeout or deadline exceeded
+         */
+        TIMEOUT,
+        /**
+         * Cancelled by the caller, or not sent because the circuit was open
+         */
+        CANCELLED,
+        /**
+         * Any other I/O error
+         */
+        IO_ERROR,
+        /**
+         * Operation failed for another reason, such as invalid credentials or a page that could not be parsed
+         */
+        FAILURE;
+
+        public static Outcome of(int code) {
+            if (code >= 500)
+                return SERVER_ERROR;
+            return code >= 400 ? CLIENT_ERROR : SUCCESS;
+        }
+
+        public static Outcome of(Throwable e) {
+            if (e == null)
+                return SUCCESS;
+            if (e instanceof InterruptedIOException)
+                return TIMEOUT;
+            if (e instanceof CircuitOpenException || e instanceof CancellationException || "Canceled".equals(e.getMessage()))
+                return CANCELLED;
+            return e instanceof IOException ? IO_ERROR : FAILURE;
+        }
+    }
+
+    /**
+     * @return false if nothing should be measured
+     */
+    boolean isEnabled();
+
+    /**
+     * One HTTP request, each retry is recorded separately
+     *
+     * @param endpoint       method, host and path of the request, with record ids replaced by {id} and the method
+     *                       parameter of AJAX requests appended
+     * @param queueWaitNanos time from the request being made to it being sent, spent in the rate limiter's and
+     *                       OkHttp's queues
+     * @param latencyNanos   time from sending the request to the response headers, or to the failure
+     * @param responseBytes  bytes of the response body read by the client after decompression, 0 if it failed
+     * @param outcome        outcome of the request
+     */
+    void recordRequest(String endpoint, long queueWaitNanos, long latencyNanos, long responseBytes, Outcome outcome);
+
+    /**
+     * Parsing of one response. The streaming parsers read the body while parsing, so their time includes the download
+     *
+     * @param parser name of the parsing method, for example KirkesHTMLParser.parseLoans
+     * @param nanos  time spent
+     */
+    void recordParse(String parser, long nanos);
+
+    /**
+     * One operation of the public API, from the call to its result. Recorded by {@link
+     * org.openfinna.java.connector.FinnaAsyncClient} and {@link org.openfinna.java.connector.FinnaBlockingClient},
+     * the callback methods of {@link org.openfinna.java.connector.FinnaClient} only record requests and parsing
+     *
+     * @param operation name of the operation, for example getLoans
+     * @param nanos     time spent
+     * @param outcome   outcome of the operation
+     */
+    void recordOperation(String operation, long nanos, Outcome outcome);
+}
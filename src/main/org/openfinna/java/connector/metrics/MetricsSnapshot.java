@@ -0,0 +1,119 @@
+package org.openfinna.java.connector.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Everything an {@link HdrMetricsRecorder} has recorded, keyed by endpoint, parser and operation name
+ */
+public class MetricsSnapshot {
+    private final Map<String, RequestMetrics> requests;
+    private final Map<String, HistogramSnapshot> parseTimes;
+    private final Map<String, OperationMetrics> operations;
+
+    MetricsSnapshot(Map<String, RequestMetrics> requests, Map<String, HistogramSnapshot> parseTimes, Map<String, OperationMetrics> operations) {
+        this.requests = Collections.unmodifiableMap(requests);
+        this.parseTimes = Collections.unmodifiableMap(parseTimes);
+        this.operations = Collections.unmodifiableMap(operations);
+    }
+
+    public Map<String, RequestMetrics> getRequests() {
+        return requests;
+    }
+
+    public Map<String, HistogramSnapshot> getParseTimes() {
+        return parseTimes;
+    }
+
+    public Map<String, OperationMetrics> getOperations() {
+        return operations;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsSnapshot{" +
+                "requests=" + requests +
+                ", parseTimes=" + parseTimes +
+                ", operations=" + operations +
+                '}';
+    }
+
+    /**
+     * Requests to one endpoint
+     */
+    public static class RequestMetrics {
+        private final HistogramSnapshot queueWait;
+        private final HistogramSnapshot latency;
+        private final HistogramSnapshot responseBytes;
+        private final Map<MetricsRecorder.Outcome, Long> outcomes;
+
+        RequestMetrics(HistogramSnapshot queueWait, HistogramSnapshot latency, HistogramSnapshot responseBytes, EnumMap<MetricsRecorder.Outcome, Long> outcomes) {
+            this.queueWait = queueWait;
+            this.latency = latency;
+            this.responseBytes = responseBytes;
+            this.outcomes = Collections.unmodifiableMap(outcomes);
+        }
+
+        public HistogramSnapshot getQueueWait() {
+            return queueWait;
+        }
+
+        public HistogramSnapshot getLatency() {
+            return latency;
+        }
+
+        public HistogramSnapshot getResponseBytes() {
+            return responseBytes;
+        }
+
+        /**
+         * @return requests per outcome, outcomes not seen are left out
+         */
+        public Map<MetricsRecorder.Outcome, Long> getOutcomes() {
+            return outcomes;
+        }
+
+        @Override
+        public String toString() {
+            return "RequestMetrics{" +
+                    "queueWait=" + queueWait +
+                    ", latency=" + latency +
+                    ", responseBytes=" + responseBytes +
+                    ", outcomes=" + outcomes +
+                    '}';
+        }
+    }
+
+    /**
+     * Calls of one operation
+     */
+    public static class OperationMetrics {
+        private final HistogramSnapshot duration;
+        private final Map<MetricsRecorder.Outcome, Long> outcomes;
+
+        OperationMetrics(HistogramSnapshot duration, EnumMap<MetricsRecorder.Outcome, Long> outcomes) {
+            this.duration = duration;
+            this.outcomes = Collections.unmodifiableMap(outcomes);
+        }
+
+        public HistogramSnapshot getDuration() {
+            return duration;
+        }
+
+        /**
+         * @return calls per outcome, outcomes not seen are left out
+         */
+        public Map<MetricsRecorder.Outcome, Long> getOutcomes() {
+            return outcomes;
+        }
+
+        @Override
+        public String toString() {
+            return "OperationMetrics{" +
+                    "duration=" + duration +
+                    ", outcomes=" + outcomes +
+                    '}';
+        }
+    }
+}
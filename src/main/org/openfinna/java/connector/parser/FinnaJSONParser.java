@@ -1,7 +1,5 @@
 package org.openfinna.java.connector.parser;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.openfinna.java.connector.classes.ResourceInfo;
@@ -11,20 +9,27 @@ import org.openfinna.java.connector.classes.models.libraries.schedule.Schedule;
 import org.openfinna.java.connector.classes.models.libraries.schedule.SelfServicePeriod;
 import org.openfinna.java.connector.classes.models.resource.Author;
 import org.openfinna.java.connector.classes.models.resource.Format;
+import org.openfinna.java.connector.utils.DateUtils;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.*;
 
 public class FinnaJSONParser {
 
     private static final String IMG_TEMPLATE = "https://www.finna.fi/Cover/Show?recordid=%s&isbn=%s";
-    private static final SimpleDateFormat scheduleDateFormat = new SimpleDateFormat("dd.MM.yyyy", Locale.getDefault());
 
+    /**
+     * Parse a record of the REST API. Sections missing from the record, for example because they were not requested,
+     * are left as shared empty lists
+     *
+     * @param jsonObject record
+     * @return resource info
+     */
     public static ResourceInfo parseResourceInfo(JSONObject jsonObject) {
         // Init params
-        List<Author> authors = new ArrayList<>();
-        List<Format> formats = new ArrayList<>();
+        List<Author> authors = Collections.emptyList();
+        List<Format> formats = Collections.emptyList();
         JSONObject rawData = jsonObject.optJSONObject("rawData");
 
         String id = jsonObject.optString("id", null);
@@ -40,9 +45,10 @@ public class FinnaJSONParser {
         String physicalDescription = (pdArray != null && pdArray.length() > 0) ? pdArray.optString(0, null) : null;
         String publicationPlace = (ppArray != null && ppArray.length() > 0) ? ppArray.optString(0, null) : null;
         String imageLink = String.format(IMG_TEMPLATE, id, isbn);
-        List<String> topics = new ArrayList<>();
+        List<String> topics = Collections.emptyList();
         if (jsonObject.has("subjects")) {
-            List<List<String>> rawTopics = new Gson().fromJson(jsonObject.optJSONArray("subjects").toString(), TypeToken.getParameterized(List.class, TypeToken.getParameterized(List.class, String.class).getType()).getType());
+            topics = new ArrayList<>();
+            List<List<String>> rawTopics = ParserContext.getDefault().getGson().fromJson(jsonObject.optJSONArray("subjects").toString(), ParserContext.STRING_LISTS);
             for (List<String> topic : rawTopics) {
                 topics.addAll(topic);
             }
@@ -58,6 +64,7 @@ public class FinnaJSONParser {
         // Parse authors and formats
         JSONObject authorsTypeObject = jsonObject.optJSONObject("authors");
         if (authorsTypeObject != null) {
+            authors = new ArrayList<>();
             Iterator<String> typeIterator = authorsTypeObject.keys();
             while (typeIterator.hasNext()) {
                 String type = typeIterator.next();
@@ -66,12 +73,12 @@ public class FinnaJSONParser {
                     Iterator<String> authorsIterator = authorsObject.keys();
                     while (authorsIterator.hasNext()) {
                         String author = authorsIterator.next();
-                        List<String> roles = new ArrayList<>();
+                        List<String> roles = Collections.emptyList();
                         JSONObject authorObject = authorsObject.optJSONObject(author);
                         if (authorObject.has("role")) {
                             List<String> tempRoles = parseJSONStringArray("role", authorObject);
                             if (tempRoles.size() > 0 && !tempRoles.get(0).equals("-")) {
-                                roles.addAll(tempRoles);
+                                roles = tempRoles;
                             }
                         }
                         authors.add(new Author(author, roles, type));
@@ -80,7 +87,9 @@ public class FinnaJSONParser {
             }
         }
         JSONArray formatsJSONArray = jsonObject.optJSONArray("formats");
-        for (int i = 0; i < formatsJSONArray.length(); i++) {
+        if (formatsJSONArray != null && formatsJSONArray.length() > 0)
+            formats = new ArrayList<>();
+        for (int i = 0; formatsJSONArray != null && i < formatsJSONArray.length(); i++) {
             JSONObject formatObject = formatsJSONArray.optJSONObject(i);
             if (formatObject != null) {
                 String formatId = formatObject.optString("value");
@@ -105,11 +114,11 @@ public class FinnaJSONParser {
         List<String> services = parseJSONStringArray("services", libraryJSON);
         List<String> scheduleNotices = parseJSONStringArray("scheduleDescriptions", libraryJSON);
         if (libraryJSON.has("links")) {
-            List<Link> parsedLinks = new Gson().fromJson(libraryJSON.getJSONArray("links").toString(), TypeToken.getParameterized(List.class, Link.class).getType());
+            List<Link> parsedLinks = ParserContext.getDefault().getGson().fromJson(libraryJSON.getJSONArray("links").toString(), ParserContext.LINKS);
             links.addAll(parsedLinks);
         }
         if (libraryJSON.has("pictures")) {
-            List<Image> parsedImages = new Gson().fromJson(libraryJSON.getJSONArray("pictures").toString(), TypeToken.getParameterized(List.class, Image.class).getType());
+            List<Image> parsedImages = ParserContext.getDefault().getGson().fromJson(libraryJSON.getJSONArray("pictures").toString(), ParserContext.IMAGES);
             images.addAll(parsedImages);
         }
         LibraryType type = LibraryType.MUNICIPAL;
@@ -138,59 +147,70 @@ public class FinnaJSONParser {
         List<Day> days = new ArrayList<>();
         for (int i = 0; i < scheduleJSON.length(); i++) {
             JSONObject day = scheduleJSON.optJSONObject(i);
-            Date date = scheduleDateFormat.parse(day.optString("date", "01.01.") + Calendar.getInstance().get(Calendar.YEAR));
-            boolean closed = day.optBoolean("closed", false);
-            Schedule schedule = null;
-            List<SelfServicePeriod> selfServicePeriods = new ArrayList<>();
-            JSONArray openTimes = day.optJSONArray("times");
-            if (!closed) {
-                JSONObject times = openTimes.optJSONObject(0);
-                int opensHour = times.optInt("opens");
-                int closesHour = times.optInt("closes");
-                boolean selfService = times.optBoolean("selfservice");
-                if (openTimes.length() > 1) {
-                    List<Integer> closingDates = new ArrayList<>();
-                    Date selfServiceStart = null;
-                    Date selfServiceEnd = null;
-                    for (int i2 = 0; i2 < openTimes.length(); i2++) {
-                        JSONObject time = openTimes.optJSONObject(i2);
-                        int opens = time.optInt("opens");
-                        int closesSf = time.optInt("closes");
-                        closingDates.add(closesSf);
-                        boolean selfservice = time.optBoolean("selfservice");
-                        if (selfServiceStart != null && selfServiceEnd != null) {
-                            selfServicePeriods.add(new SelfServicePeriod(selfServiceStart, selfServiceEnd));
-                            selfServiceStart = null;
-                            selfServiceEnd = null;
-                        }
-                        if (selfservice) {
-                            selfServiceStart = convertToDate(date, opens);
-                        } else {
-                            selfServiceEnd = convertToDate(date, opens);
-                        }
-                    }
+            List<OpenTime> openTimes = new ArrayList<>();
+            JSONArray times = day.optJSONArray("times");
+            for (int i2 = 0; times != null && i2 < times.length(); i2++) {
+                JSONObject time = times.optJSONObject(i2);
+                openTimes.add(new OpenTime(time.optInt("opens"), time.optInt("closes"), time.optBoolean("selfservice")));
+            }
+            days.add(buildDay(day.optString("date", "01.01."), day.optBoolean("closed", false), openTimes));
+        }
+        return days;
+    }
+
+    /**
+     * One entry of the times array of a schedule day
+     */
+    static final class OpenTime {
+        final int opens;
+        final int closes;
+        final boolean selfService;
+
+        OpenTime(int opens, int closes, boolean selfService) {
+            this.opens = opens;
+            this.closes = closes;
+            this.selfService = selfService;
+        }
+    }
+
+    static Day buildDay(String dateText, boolean closed, List<OpenTime> openTimes) throws ParseException {
+        LocalDate day = DateUtils.parseDayMonth(dateText, DateUtils.currentYear());
+        Schedule schedule = null;
+        List<SelfServicePeriod> selfServicePeriods = new ArrayList<>();
+        if (!closed && !openTimes.isEmpty()) {
+            OpenTime times = openTimes.get(0);
+            int opensHour = times.opens;
+            int closesHour = times.closes;
+            boolean selfService = times.selfService;
+            if (openTimes.size() > 1) {
+                List<Integer> closingDates = new ArrayList<>();
+                Date selfServiceStart = null;
+                Date selfServiceEnd = null;
+                for (OpenTime time : openTimes) {
+                    closingDates.add(time.closes);
                     if (selfServiceStart != null && selfServiceEnd != null) {
                         selfServicePeriods.add(new SelfServicePeriod(selfServiceStart, selfServiceEnd));
+                        selfServiceStart = null;
+                        selfServiceEnd = null;
                     }
-                    if (!closingDates.isEmpty()) {
-                        closingDates.sort((o1, o2) -> o2 - o1);
-                        closesHour = closingDates.get(0);
+                    if (time.selfService) {
+                        selfServiceStart = DateUtils.toDate(day, time.opens);
+                    } else {
+                        selfServiceEnd = DateUtils.toDate(day, time.opens);
                     }
                 }
-
-                schedule = new Schedule(convertToDate(date, opensHour), convertToDate(date, closesHour), selfService);
+                if (selfServiceStart != null && selfServiceEnd != null) {
+                    selfServicePeriods.add(new SelfServicePeriod(selfServiceStart, selfServiceEnd));
+                }
+                if (!closingDates.isEmpty()) {
+                    closingDates.sort((o1, o2) -> o2 - o1);
+                    closesHour = closingDates.get(0);
+                }
             }
-            days.add(new Day(date, closed, schedule, selfServicePeriods));
-        }
-        return days;
-    }
 
-    private static Date convertToDate(Date day, int hour) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(day);
-        calendar.set(Calendar.HOUR, hour);
-        calendar.set(Calendar.MINUTE, 0);
-        return calendar.getTime();
+            schedule = new Schedule(DateUtils.toDate(day, opensHour), DateUtils.toDate(day, closesHour), selfService);
+        }
+        return new Day(DateUtils.toDate(day), closed, schedule, selfServicePeriods);
     }
 
     public static List<Library> parseLibraries(JSONArray librariesJSON) throws ParseException {
@@ -210,12 +230,12 @@ public class FinnaJSONParser {
     }
 
     private static List<String> parseJSONStringArray(String key, JSONObject jsonObject) {
-        List<String> array = new ArrayList<>();
-        if (jsonObject != null && jsonObject.has(key)) {
-            JSONArray jsonArray = jsonObject.optJSONArray(key);
-            for (int i = 0; i < jsonArray.length(); i++) {
-                array.add(jsonArray.optString(i, ""));
-            }
+        JSONArray jsonArray = jsonObject != null ? jsonObject.optJSONArray(key) : null;
+        if (jsonArray == null || jsonArray.length() == 0)
+            return Collections.emptyList();
+        List<String> array = new ArrayList<>(jsonArray.length());
+        for (int i = 0; i < jsonArray.length(); i++) {
+            array.add(jsonArray.optString(i, ""));
         }
         return array;
     }
@@ -0,0 +1,688 @@
+package org.openfinna.java.connector.parser;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openfinna.java.connector.classes.ResourceInfo;
+import org.openfinna.java.connector.classes.SearchResult;
+import org.openfinna.java.connector.classes.models.libraries.*;
+import org.openfinna.java.connector.classes.models.libraries.schedule.Day;
+import org.openfinna.java.connector.classes.models.resource.Author;
+import org.openfinna.java.connector.classes.models.resource.Format;
+import org.openfinna.java.connector.exceptions.KirkesClientException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.ParseException;
+import java.util.*;
+
+/**
+ * Parses API responses in one pass straight from the response body, without reading it to a String or building a
+ * JSONObject tree first. Results are the same as with {@link FinnaJSONParser}
+ */
+public class FinnaJSONStreamParser {
+
+    private static final String IMG_TEMPLATE = "https://www.finna.fi/Cover/Show?recordid=%s&isbn=%s";
+    private static final TypeAdapter<Link> linkAdapter = ParserContext.getDefault().getLinkAdapter();
+    private static final TypeAdapter<Image> imageAdapter = ParserContext.getDefault().getImageAdapter();
+
+    /**
+     * Parse a response of the record or search API
+     *
+     * @param reader response body
+     * @return records and the total count of results
+     * @throws IOException on network error
+     */
+    public static SearchResult parseRecords(Reader reader) throws IOException {
+        try (JsonReader jsonReader = new JsonReader(reader)) {
+            int resultCount = 0;
+            List<ResourceInfo> resourceInfos = Collections.emptyList();
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                switch (jsonReader.nextName()) {
+                    case "resultCount":
+                        resultCount = readInt(jsonReader, 0);
+                        break;
+                    case "records":
+                        resourceInfos = new ArrayList<>();
+                        jsonReader.beginArray();
+                        while (jsonReader.hasNext()) {
+                            resourceInfos.add(readResourceInfo(jsonReader));
+                        }
+                        jsonReader.endArray();
+                        break;
+                    default:
+                        jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+            if (resultCount == 0)
+                resourceInfos = Collections.emptyList();
+            return new SearchResult(resultCount, resourceInfos);
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new KirkesClientException("Unable to parse JSON: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parse a getOrganisationInfo consortium response
+     *
+     * @param reader response body
+     * @return libraries of the building
+     * @throws IOException    on network error
+     * @throws ParseException if a date of a schedule could not be parsed
+     */
+    public static List<Library> parseLibraries(Reader reader) throws IOException, ParseException {
+        try (JsonReader jsonReader = new JsonReader(reader)) {
+            List<Library> libraries = null;
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if (jsonReader.nextName().equals("data")) {
+                    if (jsonReader.peek() != JsonToken.BEGIN_OBJECT)
+                        throw new KirkesClientException("Invalid building!");
+                    jsonReader.beginObject();
+                    while (jsonReader.hasNext()) {
+                        if (jsonReader.nextName().equals("list") && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                            libraries = new ArrayList<>();
+                            jsonReader.beginArray();
+                            while (jsonReader.hasNext()) {
+                                libraries.add(readLibrary(jsonReader));
+                            }
+                            jsonReader.endArray();
+                        } else
+                            jsonReader.skipValue();
+                    }
+                    jsonReader.endObject();
+                } else
+                    jsonReader.skipValue();
+            }
+            jsonReader.endObject();
+            if (libraries == null)
+                throw new KirkesClientException("Invalid building!");
+            return libraries;
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new KirkesClientException("Unable to parse JSON: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parse a getOrganisationInfo details response
+     *
+     * @param reader response body
+     * @return library
+     * @throws IOException    on network error
+     * @throws ParseException if a date of a schedule could not be parsed
+     */
+    public static Library parseLibrary(Reader reader) throws IOException, ParseException {
+        try (JsonReader jsonReader = new JsonReader(reader)) {
+            Library library = null;
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if (jsonReader.nextName().equals("data") && jsonReader.peek() == JsonToken.BEGIN_OBJECT)
+                    library = readLibrary(jsonReader);
+                else
+                    jsonReader.skipValue();
+            }
+            jsonReader.endObject();
+            if (library == null)
+                throw new KirkesClientException("Library not found");
+            return library;
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new KirkesClientException("Unable to parse JSON: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read one record, see {@link FinnaJSONParser#parseResourceInfo(JSONObject)}
+     */
+    public static ResourceInfo readResourceInfo(JsonReader reader) throws IOException {
+        String id = null, title = null, subTitle = null, shortTitle = null, isbn = null, edition = null, manufacturer = null;
+        String physicalDescription = null, publicationPlace = null;
+        int publicationYear = 1970;
+        List<String> topics = Collections.emptyList(), generalNotes = Collections.emptyList(), languages = Collections.emptyList(),
+                originalLanguages = Collections.emptyList(), publishers = Collections.emptyList(), awards = Collections.emptyList(),
+                ykl = Collections.emptyList();
+        List<Author> authors = Collections.emptyList();
+        List<Format> formats = Collections.emptyList();
+        JSONObject rawData = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = readString(reader, null);
+                    break;
+                case "title":
+                    title = readString(reader, null);
+                    break;
+                case "subTitle":
+                    subTitle = readString(reader, null);
+                    break;
+                case "shortTitle":
+                    shortTitle = readString(reader, null);
+                    break;
+                case "cleanIsbn":
+                    isbn = readString(reader, null);
+                    break;
+                case "edition":
+                    edition = readString(reader, null);
+                    break;
+                case "manufacturer":
+                    manufacturer = readString(reader, null);
+                    break;
+                case "year":
+                    publicationYear = readInt(reader, 1970);
+                    break;
+                case "physicalDescription":
+                    physicalDescription = readFirstString(reader);
+                    break;
+                case "placesOfPublication":
+                    publicationPlace = readFirstString(reader);
+                    break;
+                case "subjects":
+                    topics = readSubjects(reader);
+                    break;
+                case "generalNotes":
+                    generalNotes = readStringArray(reader);
+                    break;
+                case "languages":
+                    languages = readStringArray(reader);
+                    break;
+                case "originalLanguages":
+                    originalLanguages = readStringArray(reader);
+                    break;
+                case "publishers":
+                    publishers = readStringArray(reader);
+                    break;
+                case "awards":
+                    awards = readStringArray(reader);
+                    break;
+                case "classifications":
+                    ykl = readClassifications(reader);
+                    break;
+                case "authors":
+                    authors = readAuthors(reader);
+                    break;
+                case "formats":
+                    formats = readFormats(reader);
+                    break;
+                case "rawData":
+                    Object value = readValue(reader);
+                    rawData = value instanceof JSONObject ? (JSONObject) value : null;
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        String imageLink = String.format(IMG_TEMPLATE, id, isbn);
+        return new ResourceInfo(id, title, shortTitle, subTitle, topics, publicationYear, isbn, authors, formats, generalNotes, languages, originalLanguages, physicalDescription, edition, manufacturer, publishers, publicationPlace, ykl, awards, imageLink, rawData);
+    }
+
+    /**
+     * Read one library, see {@link FinnaJSONParser#parseLibrary(JSONObject)}
+     */
+    public static Library readLibrary(JsonReader reader) throws IOException, ParseException {
+        String id = "", name = "", shortName = "", slug = "", slogan = "", email = "", homepage = "", mapUrl = "", routeUrl = "";
+        String street = "", zipcode = "", city = "";
+        boolean currentlyOpen = false, hasAddress = false;
+        LibraryLocation.Coordinates coordinates = null;
+        LibraryType type = LibraryType.MUNICIPAL;
+        List<Link> links = new ArrayList<>();
+        List<Image> images = new ArrayList<>();
+        List<String> services = Collections.emptyList(), scheduleNotices = Collections.emptyList();
+        List<Day> librarySchedule = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = readString(reader, "");
+                    break;
+                case "name":
+                    name = readString(reader, "");
+                    break;
+                case "shortName":
+                    shortName = readString(reader, "");
+                    break;
+                case "slug":
+                    slug = readString(reader, "");
+                    break;
+                case "slogan":
+                    slogan = readString(reader, "");
+                    break;
+                case "openNow":
+                    currentlyOpen = readBoolean(reader, false);
+                    break;
+                case "services":
+                    services = readStringArray(reader);
+                    break;
+                case "scheduleDescriptions":
+                    scheduleNotices = readStringArray(reader);
+                    break;
+                case "links":
+                    readArray(reader, linkAdapter, links);
+                    break;
+                case "pictures":
+                    readArray(reader, imageAdapter, images);
+                    break;
+                case "type":
+                    if ("mobile".equals(readString(reader, "")))
+                        type = LibraryType.MOBILE;
+                    break;
+                case "email":
+                    email = readString(reader, "");
+                    break;
+                case "homepage":
+                    homepage = readString(reader, "");
+                    break;
+                case "mapUrl":
+                    mapUrl = readString(reader, "");
+                    break;
+                case "routeUrl":
+                    routeUrl = readString(reader, "");
+                    break;
+                case "address":
+                    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        reader.skipValue();
+                        break;
+                    }
+                    hasAddress = true;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "street":
+                                street = readString(reader, "");
+                                break;
+                            case "zipcode":
+                                zipcode = readString(reader, "");
+                                break;
+                            case "city":
+                                city = readString(reader, "");
+                                break;
+                            case "coordinates":
+                                coordinates = readCoordinates(reader);
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                case "openTimes":
+                    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        reader.skipValue();
+                        break;
+                    }
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("schedules") && reader.peek() == JsonToken.BEGIN_ARRAY)
+                            librarySchedule.addAll(readSchedule(reader));
+                        else
+                            reader.skipValue();
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        LibraryLocation libraryLocation = hasAddress ? new LibraryLocation(street, zipcode, city, mapUrl, routeUrl, coordinates) : null;
+        return new Library(id, name, shortName, slug, type, email, homepage, libraryLocation, images, links, services, scheduleNotices, slogan, librarySchedule, currentlyOpen);
+    }
+
+    /**
+     * Read the schedules array of a library, see {@link FinnaJSONParser#parseLibrarySchedule(JSONArray)}
+     */
+    public static List<Day> readSchedule(JsonReader reader) throws IOException, ParseException {
+        List<Day> days = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String date = "01.01.";
+            boolean closed = false;
+            List<FinnaJSONParser.OpenTime> openTimes = new ArrayList<>(2);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "date":
+                        date = readString(reader, "01.01.");
+                        break;
+                    case "closed":
+                        closed = readBoolean(reader, false);
+                        break;
+                    case "times":
+                        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                            reader.skipValue();
+                            break;
+                        }
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            openTimes.add(readOpenTime(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            days.add(FinnaJSONParser.buildDay(date, closed, openTimes));
+        }
+        reader.endArray();
+        return days;
+    }
+
+    private static FinnaJSONParser.OpenTime readOpenTime(JsonReader reader) throws IOException {
+        int opens = 0, closes = 0;
+        boolean selfService = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "opens":
+                    opens = readInt(reader, 0);
+                    break;
+                case "closes":
+                    closes = readInt(reader, 0);
+                    break;
+                case "selfservice":
+                    selfService = readBoolean(reader, false);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new FinnaJSONParser.OpenTime(opens, closes, selfService);
+    }
+
+    private static LibraryLocation.Coordinates readCoordinates(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        double lat = Double.NaN, lon = Double.NaN;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "lat":
+                    lat = readDouble(reader);
+                    break;
+                case "lon":
+                    lon = readDouble(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new LibraryLocation.Coordinates(lat, lon);
+    }
+
+    private static List<Author> readAuthors(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return Collections.emptyList();
+        }
+        List<Author> authors = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String type = reader.nextName();
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String author = reader.nextName();
+                List<String> roles = Collections.emptyList();
+                if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("role")) {
+                            List<String> tempRoles = readStringArray(reader);
+                            if (tempRoles.size() > 0 && !tempRoles.get(0).equals("-"))
+                                roles = tempRoles;
+                        } else
+                            reader.skipValue();
+                    }
+                    reader.endObject();
+                } else
+                    reader.skipValue();
+                authors.add(new Author(author, roles, type));
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        return authors;
+    }
+
+    private static List<Format> readFormats(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return Collections.emptyList();
+        }
+        List<Format> formats = Collections.emptyList();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            String formatId = "", formatType = "";
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "value":
+                        formatId = readString(reader, "");
+                        break;
+                    case "translated":
+                        formatType = readString(reader, "");
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (formats.isEmpty())
+                formats = new ArrayList<>();
+            boolean duplicate = false;
+            for (Format format : formats) {
+                if (format.getTranslated().equals(formatType)) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate)
+                formats.add(new Format(formatId, formatType));
+        }
+        reader.endArray();
+        return formats;
+    }
+
+    /**
+     * Subjects are arrays of strings, flattened to one list
+     */
+    private static List<String> readSubjects(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return Collections.emptyList();
+        }
+        List<String> topics = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String topic = readString(reader, null);
+                    if (topic != null)
+                        topics.add(topic);
+                }
+                reader.endArray();
+            } else
+                reader.skipValue();
+        }
+        reader.endArray();
+        return topics;
+    }
+
+    private static List<String> readClassifications(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return Collections.emptyList();
+        }
+        List<String> ykl = Collections.emptyList();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("ykl"))
+                ykl = readStringArray(reader);
+            else
+                reader.skipValue();
+        }
+        reader.endObject();
+        return ykl;
+    }
+
+    private static List<String> readStringArray(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return Collections.emptyList();
+        }
+        List<String> array = Collections.emptyList();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (array.isEmpty())
+                array = new ArrayList<>();
+            array.add(readString(reader, ""));
+        }
+        reader.endArray();
+        return array;
+    }
+
+    private static String readFirstString(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        String first = null;
+        boolean firstRead = false;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (!firstRead) {
+                first = readString(reader, null);
+                firstRead = true;
+            } else
+                reader.skipValue();
+        }
+        reader.endArray();
+        return first;
+    }
+
+    private static <T> void readArray(JsonReader reader, TypeAdapter<T> adapter, List<T> target) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            target.add(adapter.read(reader));
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Like JSONObject.optString, objects and arrays are skipped
+     */
+    private static String readString(JsonReader reader, String defaultValue) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            case NULL:
+                reader.nextNull();
+                return defaultValue;
+            default:
+                reader.skipValue();
+                return defaultValue;
+        }
+    }
+
+    /**
+     * Like JSONObject.optInt, numeric strings are accepted
+     */
+    private static int readInt(JsonReader reader, int defaultValue) throws IOException {
+        String value = readString(reader, null);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            try {
+                return (int) Double.parseDouble(value);
+            } catch (NumberFormatException e2) {
+                return defaultValue;
+            }
+        }
+    }
+
+    private static double readDouble(JsonReader reader) throws IOException {
+        String value = readString(reader, null);
+        if (value == null)
+            return Double.NaN;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Like JSONObject.optBoolean, "true" and "false" strings are accepted
+     */
+    private static boolean readBoolean(JsonReader reader, boolean defaultValue) throws IOException {
+        String value = readString(reader, null);
+        if ("true".equalsIgnoreCase(value))
+            return true;
+        if ("false".equalsIgnoreCase(value))
+            return false;
+        return defaultValue;
+    }
+
+    /**
+     * Build org.json values for raw data, which ResourceInfo exposes as a JSONObject
+     */
+    private static Object readValue(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                JSONObject object = new JSONObject();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    object.put(reader.nextName(), readValue(reader));
+                }
+                reader.endObject();
+                return object;
+            case BEGIN_ARRAY:
+                JSONArray array = new JSONArray();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    array.put(readValue(reader));
+                }
+                reader.endArray();
+                return array;
+            case NUMBER:
+                return JSONObject.stringToValue(reader.nextString());
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NULL:
+                reader.nextNull();
+                return JSONObject.NULL;
+            default:
+                return reader.nextString();
+        }
+    }
+}
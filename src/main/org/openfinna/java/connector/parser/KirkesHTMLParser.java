@@ -13,17 +13,18 @@ import org.openfinna.java.connector.classes.models.fines.Fine;
 import org.openfinna.java.connector.classes.models.fines.Fines;
 import org.openfinna.java.connector.classes.models.holds.*;
 import org.openfinna.java.connector.classes.models.loans.Loan;
+import org.openfinna.java.connector.classes.models.loans.RenewResult;
 import org.openfinna.java.connector.classes.models.user.KirkesPreferences;
 import org.openfinna.java.connector.classes.models.user.LibraryPreferences;
 import org.openfinna.java.connector.exceptions.KirkesClientException;
+import org.openfinna.java.connector.exceptions.SessionExpiredException;
 import org.openfinna.java.connector.http.WebClient;
+import org.openfinna.java.connector.utils.DateUtils;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Locale;
+import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -47,7 +48,6 @@ public class KirkesHTMLParser {
     private static final Pattern hashKeyPattern = Pattern.compile(hashKeyRegex);
     private static final Pattern cardIdPattern = Pattern.compile(cardIdRegex);
     private static final Pattern pricePattern = Pattern.compile(priceRegex);
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy", Locale.getDefault());
 
     public static String parseCSRF(String html) {
         Document document = Jsoup.parse(html);
@@ -153,29 +153,24 @@ public class KirkesHTMLParser {
     }
 
     public static String checkRenewResult(String html, Loan loan) throws KirkesClientException {
-        Document document = Jsoup.parse(html);
-        Element table = document.getElementsByClass("myresearch-table").first();
-        if (table != null) {
-            Elements loansHtml = table.getElementsByClass("myresearch-row");
-            for (Element loanHtml : loansHtml) {
-                String recordId = loanHtml.attributes().get("id").replace("record", "");
+        MyResearchPage page = MyResearchPage.parse(html);
+        if (page.hasTable) {
+            for (MyResearchPage.Row row : page.rows) {
+                String recordId = row.id.replace("record", "");
                 if (recordId.equals(loan.getId())) {
                     // Alert banner element
-                    Element resultElement = loanHtml.getElementsByClass("alert").first();
-                    // If not null, proceed parsing
-                    if (resultElement != null) {
-                        if (resultElement.hasClass("alert-success")) {
+                    if (row.alert != null) {
+                        if (row.alertSuccess) {
                             // Success
-                            return resultElement.wholeText();
+                            return row.alert;
                         } else {
                             // Failure
-                            throw new KirkesClientException(resultElement.wholeText());
+                            throw new KirkesClientException(row.alert);
                         }
                     } else {
                         // Proceed to parse another error banner if possible
-                        Element headerMsg = document.getElementsByClass("flash-message alert").first();
-                        if (headerMsg != null)
-                            throw new KirkesClientException(headerMsg.wholeText());
+                        if (page.flashMessage != null)
+                            throw new KirkesClientException(page.flashMessage);
                     }
                 }
             }
@@ -185,6 +180,52 @@ public class KirkesHTMLParser {
         throw new KirkesClientException("Something unexpected happened");
     }
 
+    /**
+     * Parse the result of renewing many loans at once from the MyResearch/CheckedOut page
+     *
+     * @param html       HTML Code
+     * @param loans      Loans that were renewed
+     * @param baseOrigin Origin of the portal the page came from, used to absolutize cover images
+     * @return renew result of every loan, in the order the loans were given
+     */
+    public static Map<Loan, RenewResult> parseRenewResults(String html, Collection<Loan> loans, String baseOrigin) throws KirkesClientException {
+        MyResearchPage page = MyResearchPage.parse(html);
+        if (!page.hasTable)
+            throw new KirkesClientException("Something unexpected happened");
+        Map<String, MyResearchPage.Row> rows = new HashMap<>();
+        for (MyResearchPage.Row row : page.rows) {
+            rows.put(row.id.replace("record", ""), row);
+        }
+        String fallbackMessage = page.flashMessage != null ? page.flashMessage : "Renew failed";
+
+        Map<Loan, RenewResult> results = new LinkedHashMap<>();
+        for (Loan loan : loans) {
+            if (loan.getRenewId() == null) {
+                results.put(loan, notRenewable(loan));
+                continue;
+            }
+            MyResearchPage.Row row = rows.get(loan.getId());
+            if (row == null) {
+                results.put(loan, new RenewResult(loan, false, fallbackMessage));
+                continue;
+            }
+            // Alert banner element
+            if (row.alert != null) {
+                results.put(loan, new RenewResult(parseLoan(row, baseOrigin), row.alertSuccess, row.alert));
+            } else {
+                results.put(loan, new RenewResult(parseLoan(row, baseOrigin), false, fallbackMessage));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Result of a loan without a renew id, which is not sent to Finna
+     */
+    public static RenewResult notRenewable(Loan loan) {
+        return new RenewResult(loan, false, "Loan can not be renewed");
+    }
+
     public static String extractHashKey(String html) {
         Document document = Jsoup.parse(html);
         Element hashKeyLink = document.getElementsByClass("placehold btn btn-primary hidden-print").first();
@@ -254,6 +295,45 @@ public class KirkesHTMLParser {
         return document.getElementsByClass("flash-message alert alert-success").size() > 0;
     }
 
+    /**
+     * Reconcile a bulk hold cancellation against the MyResearch/Holds page returned for it. Holds whose action id is
+     * no longer on the page were cancelled
+     *
+     * @param html  HTML Code
+     * @param holds Holds that were cancelled
+     * @return cancel result of every hold, in the order the holds were given
+     */
+    public static Map<Hold, HoldCancelResult> parseCancelResults(String html, Collection<Hold> holds) throws KirkesClientException {
+        MyResearchPage page = MyResearchPage.parse(html);
+        // Without the holds table and without a success banner the page tells nothing about the holds
+        if (!page.hasTable && !page.flashSuccess)
+            throw new KirkesClientException("Unable to cancel holds");
+        Set<String> remaining = new HashSet<>(page.cancelIds);
+        String failureMessage = page.flashError != null ? page.flashError : "Hold was not cancelled";
+
+        Map<Hold, HoldCancelResult> results = new LinkedHashMap<>();
+        for (Hold hold : holds) {
+            if (!canCancel(hold)) {
+                results.put(hold, notCancellable(hold));
+                continue;
+            }
+            boolean cancelled = !remaining.contains(hold.getActionId());
+            results.put(hold, new HoldCancelResult(hold, cancelled, cancelled ? null : failureMessage));
+        }
+        return results;
+    }
+
+    /**
+     * @return whether the hold has an action id and may be cancelled, the others are not sent to Finna
+     */
+    public static boolean canCancel(Hold hold) {
+        return hold.getActionId() != null && hold.isCancellable();
+    }
+
+    public static HoldCancelResult notCancellable(Hold hold) {
+        return new HoldCancelResult(hold, false, "Hold can not be cancelled");
+    }
+
     public static Fines extractFines(String html) {
         Document document = Jsoup.parse(html);
         Fines fines = new Fines();
@@ -305,7 +385,7 @@ public class KirkesHTMLParser {
                         if (dateRegex.find()) {
                             String dateTxt = dateRegex.group(1);
                             try {
-                                Date date = dateFormat.parse(dateTxt);
+                                Date date = DateUtils.toDate(DateUtils.parseDate(dateTxt));
                                 fine.setRegistrationDate(date);
                             } catch (ParseException e) {
                                 e.printStackTrace();
@@ -378,180 +458,226 @@ public class KirkesHTMLParser {
         return null;
     }
 
+    /**
+     * Parse loans from MyResearch/CheckedOut page of {@link WebClient#DEFAULT_BASE_URL}
+     *
+     * @param html HTML Code
+     * @return list of loans
+     * @deprecated cover image URLs are only right for the default portal, use {@link #parseLoans(String, String)}
+     */
+    @Deprecated
     public static List<Loan> parseLoans(String html) {
+        return parseLoans(html, WebClient.optimizeURL(WebClient.DEFAULT_BASE_URL));
+    }
+
+    /**
+     * Parse loans from MyResearch/CheckedOut page
+     *
+     * @param html       HTML Code
+     * @param baseOrigin Origin of the portal the page came from, used to absolutize cover images
+     * @return list of loans
+     */
+    public static List<Loan> parseLoans(String html, String baseOrigin) {
         List<Loan> loans = new ArrayList<>();
-        Document document = Jsoup.parse(html);
+        MyResearchPage page = MyResearchPage.parse(html);
+        for (MyResearchPage.Row row : page.rows) {
+            loans.add(parseLoan(row, baseOrigin));
+        }
+        return loans;
+    }
 
-        Element table = document.getElementsByClass("myresearch-table").first();
-        if (table != null) {
-            Elements loansHtml = table.getElementsByClass("myresearch-row");
-            for (Element loanHtml : loansHtml) {
-                String recordId = loanHtml.attributes().get("id").replace("record", "");
-                String title = null, type = null, author = null, image = null, renewId = null;
-                int renewsUsed = 0, renewsTotal = 0;
-                Date dueDate = null;
-
-                // Init necessary elements
-                Element inputOne = loanHtml.getElementsByAttributeValue("name", "renewAllIDS[]").first();
-                Element inputTwo = loanHtml.getElementsByAttributeValue("name", "selectAllIDS[]").first();
-                Element titleElem = loanHtml.getElementsByClass("record-title").first();
-                Element metadataElem = loanHtml.getElementsByClass("record-core-metadata").first();
-                Element typeElem = loanHtml.getElementsByClass("label-info").first();
-                Element imageElem = loanHtml.getElementsByClass("recordcover").first();
-                Elements textElements = loanHtml.getElementsByTag("strong");
-
-                if (titleElem != null)
-                    title = titleElem.text();
-
-                if (typeElem != null)
-                    type = typeElem.text();
-
-                if (imageElem != null)
-                    image = WebClient.optimizeURL(WebClient.kirkesBaseURL) + StringEscapeUtils.unescapeJava(imageElem.attributes().get("src"));
-
-                if (metadataElem != null) {
-                    Element authorUrl = metadataElem.getElementsByTag("a").first();
-                    if (authorUrl != null)
-                        author = authorUrl.text();
-                }
+    /**
+     * Parse loans from MyResearch/CheckedOut page while it is read, without building a document of the whole page
+     *
+     * @param reader     HTML Code
+     * @param baseOrigin Origin of the portal the page came from, used to absolutize cover images
+     * @return list of loans, same as {@link #parseLoans(String, String)}
+     * @throws SessionExpiredException if the page was the login form
+     */
+    public static List<Loan> parseLoans(Reader reader, String baseOrigin) throws IOException {
+        List<Loan> loans = new ArrayList<>();
+        if (MyResearchPage.parse(reader, row -> loans.add(parseLoan(row, baseOrigin))).loginForm)
+            throw new SessionExpiredException();
+        return loans;
+    }
 
-                if (inputOne != null)
-                    if (inputOne.hasAttr("value")) {
-                        renewId = inputOne.attr("value");
-                    } else if (inputTwo != null)
-                        if (inputTwo.hasAttr("value"))
-                            renewId = inputTwo.attr("value");
-
-                for (Element text : textElements) {
-                    Matcher renewCountMatcher = renewCountPattern.matcher(text.text().replace(" ", ""));
-                    Matcher dueDateMatcher = dueDatePattern.matcher(text.text());
-                    if (renewCountMatcher.find()) {
-                        String[] renewCountNumbers = renewCountMatcher.group(1).replace(renewCountDelimiter, ",").split(",");
-                        renewsUsed = Integer.parseInt(renewCountNumbers[0]);
-                        renewsTotal = Integer.parseInt(renewCountNumbers[1]);
-                    } else if (dueDateMatcher.find()) {
-                        String date = dueDateMatcher.group(0);
-                        try {
-                            dueDate = new SimpleDateFormat("dd.MM.yyyy", Locale.getDefault()).parse(date);
-                        } catch (ParseException e) {
-                            e.printStackTrace();
-                        }
-                    }
+    private static Loan parseLoan(MyResearchPage.Row row, String baseOrigin) {
+        String recordId = row.id.replace("record", "");
+        String image = null, renewId = null;
+        int renewsUsed = 0, renewsTotal = 0;
+        Date dueDate = null;
+
+        if (row.image != null)
+            image = baseOrigin + StringEscapeUtils.unescapeJava(row.image);
+
+        if (row.renewAll != null)
+            if (row.renewAll.value != null) {
+                renewId = row.renewAll.value;
+            } else if (row.selectAll != null)
+                if (row.selectAll.value != null)
+                    renewId = row.selectAll.value;
+
+        for (String text : row.strongTexts) {
+            Matcher renewCountMatcher = renewCountPattern.matcher(text.replace(" ", ""));
+            Matcher dueDateMatcher = dueDatePattern.matcher(text);
+            if (renewCountMatcher.find()) {
+                String[] renewCountNumbers = renewCountMatcher.group(1).replace(renewCountDelimiter, ",").split(",");
+                renewsUsed = Integer.parseInt(renewCountNumbers[0]);
+                renewsTotal = Integer.parseInt(renewCountNumbers[1]);
+            } else if (dueDateMatcher.find()) {
+                String date = dueDateMatcher.group(0);
+                try {
+                    dueDate = DateUtils.toDate(DateUtils.parseDate(date));
+                } catch (ParseException e) {
+                    e.printStackTrace();
                 }
-                loans.add(new Loan(recordId, renewId, new Resource(recordId, title, author, type, image), renewsTotal, renewsUsed, dueDate));
             }
         }
-        return loans;
+        return new Loan(recordId, renewId, new Resource(recordId, row.title, row.author, row.type, image), renewsTotal, renewsUsed, dueDate);
     }
 
+    /**
+     * Parse holds from MyResearch/Holds page of {@link WebClient#DEFAULT_BASE_URL}
+     *
+     * @param html HTML Code
+     * @return list of holds
+     * @deprecated cover image URLs are only right for the default portal, use {@link #parseHolds(String, String)}
+     */
+    @Deprecated
     public static List<Hold> parseHolds(String html) throws ParseException {
+        return parseHolds(html, WebClient.optimizeURL(WebClient.DEFAULT_BASE_URL));
+    }
+
+    /**
+     * Parse holds from MyResearch/Holds page
+     *
+     * @param html       HTML Code
+     * @param baseOrigin Origin of the portal the page came from, used to absolutize cover images
+     * @return list of holds
+     */
+    public static List<Hold> parseHolds(String html, String baseOrigin) throws ParseException {
         List<Hold> holds = new ArrayList<>();
-        Document document = Jsoup.parse(html);
+        MyResearchPage page = MyResearchPage.parse(html);
+        for (MyResearchPage.Row row : page.rows) {
+            holds.add(parseHold(row, baseOrigin));
+        }
+        return holds;
+    }
 
-        Element table = document.getElementsByClass("myresearch-table").first();
-        if (table != null) {
-            Elements loansHtml = table.getElementsByClass("myresearch-row");
-            for (Element loanHtml : loansHtml) {
-                String recordId = null;
-                int queue = 0;
-                HoldStatus status = HoldStatus.WAITING;
-                // Init all elements
-                Element inputOne = loanHtml.getElementsByAttributeValue("name", "cancelSelectedIDS[]").first();
-                Element inputTwo = loanHtml.getElementsByAttributeValue("name", "cancelAllIDS[]").first();
-                Element titleElement = loanHtml.getElementsByClass("record-title").first();
-                Element plElem = loanHtml.getElementsByClass("pickupLocationSelected").first();
-                Element plRoot = loanHtml.getElementsByClass("pickup-location-container").first();
-                Element metadataElem = loanHtml.getElementsByClass("record-core-metadata").first();
-                Element transmitElem = loanHtml.getElementsByClass("text-success").first();
-                Element availElem = loanHtml.getElementsByClass("alert alert-success").first();
-                Element statusBox = loanHtml.getElementsByClass("holds-status-information").first();
-                Element queueElem = statusBox.getElementsByTag("p").first();
-                Element typeElem = loanHtml.getElementsByClass("label-info").first();
-                Element imageElem = loanHtml.getElementsByClass("recordcover").first();
-
-                if (queueElem != null) {
-                    String[] queueSplit = queueElem.text().split(":");
-                    if (queueSplit.length > 0) {
-                        String content = queueSplit[1].trim();
-                        if (content.contains("/")) {
-                            String[] slashSplit = content.split("/");
-                            if (slashSplit.length > 0)
-                                content = slashSplit[0].trim();
-                        }
-                        try {
-                            queue = Integer.parseInt(content);
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        }
-                    }
+    /**
+     * Parse holds from MyResearch/Holds page while it is read, without building a document of the whole page
+     *
+     * @param reader     HTML Code
+     * @param baseOrigin Origin of the portal the page came from, used to absolutize cover images
+     * @return list of holds, same as {@link #parseHolds(String, String)}
+     * @throws SessionExpiredException if the page was the login form
+     */
+    public static List<Hold> parseHolds(Reader reader, String baseOrigin) throws IOException, ParseException {
+        List<Hold> holds = new ArrayList<>();
+        MyResearchPage page;
+        try {
+            page = MyResearchPage.parse(reader, row -> {
+                try {
+                    holds.add(parseHold(row, baseOrigin));
+                } catch (ParseException e) {
+                    throw new RowParseException(e);
                 }
+            });
+        } catch (RowParseException e) {
+            throw e.getCause();
+        }
+        if (page.loginForm)
+            throw new SessionExpiredException();
+        return holds;
+    }
 
-                Date expirationDate = null, holdDate = null;
-                Matcher dateMatcher = expirationDatePattern.matcher(statusBox.text());
-                List<String> values = new ArrayList<>();
-                while (dateMatcher.find()) {
-                    values.add(dateMatcher.group());
+    private static Hold parseHold(MyResearchPage.Row row, String baseOrigin) throws ParseException {
+        String recordId = null;
+        int queue = 0;
+        HoldStatus status = HoldStatus.WAITING;
+
+        if (row.queue != null) {
+            String[] queueSplit = row.queue.split(":");
+            if (queueSplit.length > 0) {
+                String content = queueSplit[1].trim();
+                if (content.contains("/")) {
+                    String[] slashSplit = content.split("/");
+                    if (slashSplit.length > 0)
+                        content = slashSplit[0].trim();
                 }
-                if (values.size() > 1) {
-                    holdDate = dateFormat.parse(values.get(0));
-                    expirationDate = dateFormat.parse(values.get(1));
+                try {
+                    queue = Integer.parseInt(content);
+                } catch (Exception e) {
+                    e.printStackTrace();
                 }
+            }
+        }
 
-                String type = null, title = null, author = null, image = null, currentPickupLocation = null, actionId = null;
-                boolean cancelPossible = false;
-                int reservationNumber = -1;
+        Date expirationDate = null, holdDate = null;
+        if (row.status != null) {
+            Matcher dateMatcher = expirationDatePattern.matcher(row.status);
+            List<String> values = new ArrayList<>();
+            while (dateMatcher.find()) {
+                values.add(dateMatcher.group());
+            }
+            if (values.size() > 1) {
+                holdDate = DateUtils.toDate(DateUtils.parseDate(values.get(0)));
+                expirationDate = DateUtils.toDate(DateUtils.parseDate(values.get(1)));
+            }
+        }
 
-                if (metadataElem != null) {
-                    Element authorUrl = metadataElem.getElementsByTag("a").first();
-                    if (authorUrl != null) {
-                        author = authorUrl.text();
-                    }
-                }
+        String image = null, currentPickupLocation = null, actionId = null;
+        boolean cancelPossible = false;
+        int reservationNumber = -1;
 
-                if (plElem != null) {
-                    currentPickupLocation = plElem.text();
-                } else if (plRoot != null) {
-                    String[] lParts = plRoot.text().split(":");
-                    if (lParts.length > 1) {
-                        currentPickupLocation = lParts[1].replace("  ", "").replace("\n", "");
-                    }
-                }
-                if (titleElement != null) {
-                    title = titleElement.text();
-                    recordId = titleElement.attr("href").replace("/Record/", "");
-                }
-                if (typeElem != null) {
-                    type = typeElem.text();
-                }
-                if (imageElem != null) {
-                    image = WebClient.optimizeURL(WebClient.kirkesBaseURL) + imageElem.attr("src");
-                }
+        if (row.pickupLocation != null) {
+            currentPickupLocation = row.pickupLocation;
+        } else if (row.pickupLocationContainer != null) {
+            String[] lParts = row.pickupLocationContainer.split(":");
+            if (lParts.length > 1) {
+                currentPickupLocation = lParts[1].replace("  ", "").replace("\n", "");
+            }
+        }
+        if (row.title != null) {
+            recordId = row.titleHref.replace("/Record/", "");
+        }
+        if (row.image != null) {
+            image = baseOrigin + row.image;
+        }
 
-                if (inputOne != null) {
-                    cancelPossible = !inputOne.hasAttr("disabled");
-                    if (inputOne.hasAttr("value"))
-                        actionId = inputOne.attr("value");
-                } else if (inputTwo != null) {
-                    cancelPossible = !inputTwo.hasAttr("disabled");
-                    if (inputTwo.hasAttr("value"))
-                        actionId = inputTwo.attr("value");
-                }
+        MyResearchPage.Input input = row.cancelSelected != null ? row.cancelSelected : row.cancelAll;
+        if (input != null) {
+            cancelPossible = !input.disabled;
+            if (input.value != null)
+                actionId = input.value;
+        }
 
-                if (transmitElem != null && !cancelPossible)
-                    status = HoldStatus.IN_TRANSIT;
-                else if (availElem != null && !cancelPossible) {
-                    status = HoldStatus.AVAILABLE;
-                    Matcher orderNoMatcher = orderNoPattern.matcher(availElem.text());
-                    StringBuilder numString = new StringBuilder();
-                    while (orderNoMatcher.find())
-                        numString.append(orderNoMatcher.group());
-                    if (numString.length() > 0)
-                        reservationNumber = Integer.parseInt(numString.toString());
-                }
+        if (row.transit && !cancelPossible)
+            status = HoldStatus.IN_TRANSIT;
+        else if (row.available != null && !cancelPossible) {
+            status = HoldStatus.AVAILABLE;
+            Matcher orderNoMatcher = orderNoPattern.matcher(row.available);
+            StringBuilder numString = new StringBuilder();
+            while (orderNoMatcher.find())
+                numString.append(orderNoMatcher.group());
+            if (numString.length() > 0)
+                reservationNumber = Integer.parseInt(numString.toString());
+        }
 
-                holds.add(new Hold(recordId, actionId, status, cancelPossible, new HoldPickupData(currentPickupLocation, reservationNumber), queue, expirationDate, holdDate, new Resource(recordId, title, author, type, image)));
-            }
+        return new Hold(recordId, actionId, status, cancelPossible, new HoldPickupData(currentPickupLocation, reservationNumber), queue, expirationDate, holdDate, new Resource(recordId, row.title, row.author, row.type, image));
+    }
+
+    /**
+     * Carries a ParseException out of a row callback
+     */
+    private static final class RowParseException extends RuntimeException {
+        RowParseException(ParseException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ParseException getCause() {
+            return (ParseException) super.getCause();
         }
-        return holds;
     }
 }
@@ -0,0 +1,258 @@
+package org.openfinna.java.connector.parser;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * What the loan, hold and renew parsers need from a MyResearch page, collected in one traversal of the document.
+ * Looking each element up with getElementsByClass scans the whole row again, about ten times per row. The lookups
+ * keep the semantics of jsoup: the first match in document order wins and a row can match itself
+ */
+final class MyResearchPage {
+
+    /**
+     * Whether the page has a myresearch-table
+     */
+    boolean hasTable;
+    /**
+     * Rows of the first myresearch-table, empty when the rows were streamed to a consumer
+     */
+    final List<Row> rows = new ArrayList<>();
+    /**
+     * Values of the hold cancel inputs anywhere in the table
+     */
+    final List<String> cancelIds = new ArrayList<>();
+    String flashMessage;
+    String flashError;
+    boolean flashSuccess;
+    /**
+     * Whether the page has the login form, which is served instead of the page when the session has expired
+     */
+    boolean loginForm;
+
+    static MyResearchPage parse(String html) {
+        MyResearchPage page = new MyResearchPage();
+        NodeTraversor.traverse(page.new Collector(page.rows::add), Jsoup.parse(html));
+        return page;
+    }
+
+    /**
+     * Read a page without building a document of it, see {@link MyResearchStreamParser}
+     *
+     * @param reader Page
+     * @param rows   Called with each row as soon as the row has been read
+     */
+    static MyResearchPage parse(Reader reader, Consumer<Row> rows) throws IOException {
+        MyResearchPage page = new MyResearchPage();
+        new MyResearchStreamParser(reader, page.new Collector(rows)).parse();
+        return page;
+    }
+
+    static final class Input {
+        final String value;
+        final boolean disabled;
+
+        Input(Element element) {
+            value = element.hasAttr("value") ? element.attr("value") : null;
+            disabled = element.hasAttr("disabled");
+        }
+    }
+
+    /**
+     * One myresearch-row. Texts are null when the element was not found
+     */
+    static final class Row {
+        String id;
+        String title;
+        String titleHref;
+        String type;
+        String image;
+        String author;
+        final List<String> strongTexts = new ArrayList<>(2);
+        String alert;
+        boolean alertSuccess;
+        String available;
+        boolean transit;
+        String pickupLocation;
+        String pickupLocationContainer;
+        String status;
+        String queue;
+        Input renewAll;
+        Input selectAll;
+        Input cancelSelected;
+        Input cancelAll;
+    }
+
+    /**
+     * Same as {@link Element#hasClass(String)} on the already read class attribute, which the traversal checks many
+     * times per element. A name with spaces only matches the whole attribute
+     */
+    static boolean hasClass(String classes, String name) {
+        int length = classes.length();
+        int wanted = name.length();
+        if (length == 0 || length < wanted)
+            return false;
+        if (length == wanted)
+            return name.equalsIgnoreCase(classes);
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || Character.isWhitespace(classes.charAt(i))) {
+                if (start >= 0 && i - start == wanted && classes.regionMatches(true, start, name, 0, wanted))
+                    return true;
+                start = -1;
+            } else if (start < 0) {
+                start = i;
+            }
+        }
+        return false;
+    }
+
+    final class Collector implements NodeVisitor {
+        private final Consumer<Row> rowConsumer;
+        private Element table;
+        private boolean tableDone;
+        private Element rowElement;
+        private Row row;
+        // First metadata and status elements of the row, set while the traversal is inside them
+        private boolean metadataSeen;
+        private Element metadata;
+        private boolean statusSeen;
+        private Element statusBox;
+
+        Collector(Consumer<Row> rowConsumer) {
+            this.rowConsumer = rowConsumer;
+        }
+
+        /**
+         * @return whether the traversal is inside the myresearch-table the rows are read from
+         */
+        boolean inTable() {
+            return table != null && !tableDone;
+        }
+
+        @Override
+        public void head(Node node, int depth) {
+            if (!(node instanceof Element))
+                return;
+            Element element = (Element) node;
+            String classes = element.attributes().getIgnoreCase("class");
+            if (classes.regionMatches(true, 0, "flash-message", 0, 13)) {
+                if (flashMessage == null && hasClass(classes, "flash-message alert"))
+                    flashMessage = element.wholeText();
+                if (flashError == null && hasClass(classes, "flash-message alert alert-danger"))
+                    flashError = element.wholeText();
+                if (hasClass(classes, "flash-message alert alert-success"))
+                    flashSuccess = true;
+            }
+            if (!loginForm && "processLogin".equals(element.attributes().getIgnoreCase("name")))
+                loginForm = true;
+            if (table == null) {
+                if (!hasClass(classes, "myresearch-table"))
+                    return;
+                table = element;
+                hasTable = true;
+            }
+            if (tableDone)
+                return;
+            if ("input".equals(element.tagName()) && isCancelInput(element))
+                cancelIds.add(element.attr("value"));
+            if (row == null) {
+                if (!hasClass(classes, "myresearch-row"))
+                    return;
+                rowElement = element;
+                row = new Row();
+                row.id = element.attributes().get("id");
+            }
+            visitRowElement(element, classes);
+        }
+
+        @Override
+        public void tail(Node node, int depth) {
+            if (node == metadata)
+                metadata = null;
+            if (node == statusBox)
+                statusBox = null;
+            if (node == rowElement) {
+                rowConsumer.accept(row);
+                rowElement = null;
+                row = null;
+                metadataSeen = false;
+                statusSeen = false;
+            } else if (node == table) {
+                tableDone = true;
+            }
+        }
+
+        private void visitRowElement(Element element, String classes) {
+            if (metadata != null && row.author == null && "a".equals(element.tagName()) && element != metadata)
+                row.author = element.text();
+            if (statusBox != null && row.queue == null && "p".equals(element.tagName()))
+                row.queue = element.text();
+            if ("strong".equals(element.tagName()))
+                row.strongTexts.add(element.text());
+            if (element.hasAttr("name")) {
+                String name = element.attr("name").trim();
+                if (row.renewAll == null && name.equalsIgnoreCase("renewAllIDS[]"))
+                    row.renewAll = new Input(element);
+                else if (row.selectAll == null && name.equalsIgnoreCase("selectAllIDS[]"))
+                    row.selectAll = new Input(element);
+                else if (row.cancelSelected == null && name.equalsIgnoreCase("cancelSelectedIDS[]"))
+                    row.cancelSelected = new Input(element);
+                else if (row.cancelAll == null && name.equalsIgnoreCase("cancelAllIDS[]"))
+                    row.cancelAll = new Input(element);
+            }
+            if (classes.isEmpty())
+                return;
+            if (row.title == null && hasClass(classes, "record-title")) {
+                row.title = element.text();
+                row.titleHref = element.attr("href");
+            }
+            if (!metadataSeen && hasClass(classes, "record-core-metadata")) {
+                metadataSeen = true;
+                metadata = element;
+                // The metadata element itself counts when it is a link
+                if ("a".equals(element.tagName()))
+                    row.author = element.text();
+            }
+            if (row.type == null && hasClass(classes, "label-info"))
+                row.type = element.text();
+            if (row.image == null && hasClass(classes, "recordcover"))
+                row.image = element.attr("src");
+            if (row.alert == null && hasClass(classes, "alert")) {
+                row.alert = element.wholeText();
+                row.alertSuccess = hasClass(classes, "alert-success");
+            }
+            if (row.available == null && hasClass(classes, "alert alert-success"))
+                row.available = element.text();
+            if (hasClass(classes, "text-success"))
+                row.transit = true;
+            if (row.pickupLocation == null && hasClass(classes, "pickupLocationSelected"))
+                row.pickupLocation = element.text();
+            if (row.pickupLocationContainer == null && hasClass(classes, "pickup-location-container"))
+                row.pickupLocationContainer = element.text();
+            if (!statusSeen && hasClass(classes, "holds-status-information")) {
+                statusSeen = true;
+                statusBox = element;
+                row.status = element.text();
+                if ("p".equals(element.tagName()))
+                    row.queue = element.text();
+            }
+        }
+
+        private boolean isCancelInput(Element element) {
+            if (!element.hasAttr("name"))
+                return false;
+            String name = element.attr("name").trim();
+            return name.equalsIgnoreCase("cancelSelectedIDS[]") || name.equalsIgnoreCase("cancelAllIDS[]");
+        }
+    }
+}
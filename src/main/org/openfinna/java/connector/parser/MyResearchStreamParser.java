@@ -0,0 +1,469 @@
+package org.openfinna.java.connector.parser;
+
+import org.jsoup.nodes.Attributes;
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Entities;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.Tag;
+import org.jsoup.select.NodeTraversor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+/**
+ * Reads a MyResearch page token by token from a Reader without building a document of the whole page. Only the
+ * elements the loan and hold parsers look into are kept: each myresearch-row of the table and each flash message is
+ * built as a small jsoup tree, handed to the collector when it ends and then dropped. Every other element is passed to
+ * the collector without children and forgotten once it closes, so navigation, scripts and footers cost nothing but
+ * the time to read them.
+ * <p>
+ * Tree building follows the parts of the HTML rules MyResearch pages rely on: void elements, raw text in scripts and
+ * styles, implied end tags of p, li, dd, dt, option, tr, td and th, and end tags without a matching open element in
+ * scope are ignored. It is not a complete HTML parser; results are checked against the jsoup DOM parser in the tests
+ */
+final class MyResearchStreamParser {
+
+    private static final Set<String> SPECIAL = new HashSet<>(Arrays.asList("address", "applet", "area", "article",
+            "aside", "base", "basefont", "bgsound", "blockquote", "body", "br", "button", "caption", "center", "col",
+            "colgroup", "dd", "details", "dir", "div", "dl", "dt", "embed", "fieldset", "figcaption", "figure", "footer",
+            "form", "frame", "frameset", "h1", "h2", "h3", "h4", "h5", "h6", "head", "header", "hgroup", "hr", "html",
+            "iframe", "img", "input", "li", "link", "listing", "main", "marquee", "menu", "meta", "nav", "noembed",
+            "noframes", "noscript", "object", "ol", "p", "param", "plaintext", "pre", "script", "section", "select",
+            "style", "summary", "table", "tbody", "td", "template", "textarea", "tfoot", "th", "thead", "title", "tr",
+            "ul", "wbr", "xmp"));
+    private static final Set<String> SCOPE = new HashSet<>(Arrays.asList("applet", "caption", "html", "marquee",
+            "object", "table", "td", "template", "th"));
+    private static final Set<String> BUTTON_SCOPE = new HashSet<>(Arrays.asList("applet", "button", "caption", "html",
+            "marquee", "object", "table", "td", "template", "th"));
+    private static final Set<String> CLOSES_P = new HashSet<>(Arrays.asList("address", "article", "aside",
+            "blockquote", "center", "dd", "details", "dialog", "dir", "div", "dl", "dt", "fieldset", "figcaption",
+            "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hgroup", "hr", "li", "listing",
+            "main", "menu", "nav", "ol", "p", "plaintext", "pre", "section", "summary", "table", "ul", "xmp"));
+    private static final Set<String> HEADINGS = new HashSet<>(Arrays.asList("h1", "h2", "h3", "h4", "h5", "h6"));
+    private static final Set<String> LIST_ITEM = Collections.singleton("li");
+    private static final Set<String> DEFINITION_ITEMS = new HashSet<>(Arrays.asList("dd", "dt"));
+    private static final Set<String> CELLS = new HashSet<>(Arrays.asList("td", "th"));
+    private static final Set<String> CELL_STOPS = new HashSet<>(Arrays.asList("html", "table", "tr", "template"));
+    private static final Set<String> ROW = Collections.singleton("tr");
+    private static final Set<String> SECTIONS = new HashSet<>(Arrays.asList("tbody", "tfoot", "thead"));
+    private static final Set<String> ROW_STOPS = new HashSet<>(Arrays.asList("html", "table", "tbody", "tfoot", "thead", "template"));
+    private static final Set<String> SECTION_STOPS = new HashSet<>(Arrays.asList("html", "table", "template"));
+    private static final Set<String> LINK = Collections.singleton("a");
+
+    private final Reader reader;
+    private final MyResearchPage.Collector collector;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private final StringBuilder token = new StringBuilder();
+    private final StringBuilder value = new StringBuilder();
+    // Text of the element being built, only collected inside a kept subtree
+    private final StringBuilder text = new StringBuilder();
+    private final ArrayList<Element> stack = new ArrayList<>();
+    private final Map<String, Tag> tags = new HashMap<>();
+    // Root of the subtree being built, null when elements are not kept
+    private Element captured;
+
+    MyResearchStreamParser(Reader reader, MyResearchPage.Collector collector) {
+        this.reader = reader;
+        this.collector = collector;
+    }
+
+    void parse() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c != '<') {
+                if (captured != null)
+                    text.append((char) c);
+                continue;
+            }
+            int next = peek();
+            if (isLetter(next)) {
+                startTag();
+            } else if (next == '/') {
+                read();
+                if (isLetter(peek()))
+                    endTag();
+                else
+                    skipTo('>');
+            } else if (next == '!') {
+                read();
+                skipDeclaration();
+            } else if (next == '?') {
+                skipTo('>');
+            } else if (captured != null) {
+                text.append('<');
+            }
+        }
+        flushText();
+        while (!stack.isEmpty())
+            pop();
+    }
+
+    private void startTag() throws IOException {
+        flushText();
+        String name = readName();
+        Attributes attributes = null;
+        boolean selfClosing = false;
+        int c;
+        while ((c = read()) != -1 && c != '>') {
+            if (c == '/') {
+                if (peek() == '>') {
+                    read();
+                    selfClosing = true;
+                    break;
+                }
+            } else if (!isWhitespace(c)) {
+                if (attributes == null)
+                    attributes = new Attributes();
+                if (readAttribute(c, attributes))
+                    break;
+            }
+        }
+        if (attributes == null)
+            attributes = new Attributes();
+        Tag tag = tags.computeIfAbsent(name, Tag::valueOf);
+        closeImplied(name);
+        open(new Element(tag, null, attributes));
+        if (tag.isEmpty() || selfClosing && !tag.isKnownTag()) {
+            pop();
+        } else if (name.equals("script") || name.equals("style")) {
+            readRawText(name, true);
+        } else if (name.equals("textarea") || name.equals("title")) {
+            readRawText(name, false);
+        }
+    }
+
+    private void endTag() throws IOException {
+        flushText();
+        String name = readName();
+        skipTo('>');
+        if (name.equals("br")) {
+            open(new Element(tags.computeIfAbsent(name, Tag::valueOf), null, new Attributes()));
+            pop();
+            return;
+        }
+        // Closed at the end of the page
+        if (name.equals("body") || name.equals("html"))
+            return;
+        boolean special = SPECIAL.contains(name);
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            String open = stack.get(i).normalName();
+            if (open.equals(name)) {
+                popTo(i);
+                return;
+            }
+            if (special ? SCOPE.contains(open) : SPECIAL.contains(open))
+                return;
+        }
+    }
+
+    private void closeImplied(String name) {
+        switch (name) {
+            case "li":
+                closeListItem(LIST_ITEM);
+                break;
+            case "dd":
+            case "dt":
+                closeListItem(DEFINITION_ITEMS);
+                break;
+            case "option":
+                if (currentIs("option"))
+                    pop();
+                break;
+            case "optgroup":
+                if (currentIs("option"))
+                    pop();
+                if (currentIs("optgroup"))
+                    pop();
+                break;
+            case "td":
+            case "th":
+                popThrough(CELLS, CELL_STOPS);
+                break;
+            case "tr":
+                popThrough(ROW, ROW_STOPS);
+                break;
+            case "tbody":
+            case "tfoot":
+            case "thead":
+                popThrough(SECTIONS, SECTION_STOPS);
+                break;
+            case "a":
+                popThrough(LINK, SCOPE);
+                break;
+        }
+        if (CLOSES_P.contains(name))
+            popThrough(Collections.singleton("p"), BUTTON_SCOPE);
+        if (HEADINGS.contains(name) && !stack.isEmpty() && HEADINGS.contains(stack.get(stack.size() - 1).normalName()))
+            pop();
+    }
+
+    private void closeListItem(Set<String> names) {
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            String open = stack.get(i).normalName();
+            if (names.contains(open)) {
+                popTo(i);
+                return;
+            }
+            if (SPECIAL.contains(open) && !open.equals("address") && !open.equals("div") && !open.equals("p"))
+                return;
+        }
+    }
+
+    private void popThrough(Set<String> names, Set<String> stops) {
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            String open = stack.get(i).normalName();
+            if (names.contains(open)) {
+                popTo(i);
+                return;
+            }
+            if (stops.contains(open))
+                return;
+        }
+    }
+
+    private boolean currentIs(String name) {
+        return !stack.isEmpty() && stack.get(stack.size() - 1).normalName().equals(name);
+    }
+
+    private void open(Element element) {
+        if (captured != null) {
+            stack.get(stack.size() - 1).appendChild(element);
+        } else {
+            String classes = element.attributes().getIgnoreCase("class");
+            if (classes.regionMatches(true, 0, "flash-message", 0, 13)
+                    || collector.inTable() && MyResearchPage.hasClass(classes, "myresearch-row"))
+                captured = element;
+            else
+                collector.head(element, stack.size());
+        }
+        stack.add(element);
+    }
+
+    private void popTo(int size) {
+        while (stack.size() > size)
+            pop();
+    }
+
+    private void pop() {
+        flushText();
+        Element element = stack.remove(stack.size() - 1);
+        if (element == captured) {
+            captured = null;
+            NodeTraversor.traverse(collector, element);
+        } else if (captured == null) {
+            collector.tail(element, stack.size());
+        }
+    }
+
+    private void flushText() {
+        if (text.length() == 0)
+            return;
+        String content = text.toString();
+        text.setLength(0);
+        stack.get(stack.size() - 1).appendChild(new TextNode(unescape(content, false)));
+    }
+
+    /**
+     * Read the content of a script, style, textarea or title up to its end tag and close the element
+     */
+    private void readRawText(String name, boolean data) throws IOException {
+        boolean keep = captured != null;
+        int matched = 0;
+        int c;
+        while ((c = read()) != -1) {
+            if (matched == name.length() + 2) {
+                if (isWhitespace(c) || c == '/' || c == '>') {
+                    if (keep)
+                        text.setLength(text.length() - matched);
+                    if (c != '>')
+                        skipTo('>');
+                    break;
+                }
+                matched = 0;
+            }
+            if (keep)
+                text.append((char) c);
+            int lower = c >= 'A' && c <= 'Z' ? c + 32 : c;
+            if (matched == 0 ? lower == '<' : lower == (matched == 1 ? '/' : name.charAt(matched - 2)))
+                matched++;
+            else
+                matched = lower == '<' ? 1 : 0;
+        }
+        if (keep && data && text.length() > 0) {
+            stack.get(stack.size() - 1).appendChild(new DataNode(text.toString()));
+            text.setLength(0);
+        }
+        pop();
+    }
+
+    /**
+     * @return true if the tag ended while reading the attribute
+     */
+    private boolean readAttribute(int first, Attributes attributes) throws IOException {
+        token.setLength(0);
+        token.append(lowerCase(first));
+        int c;
+        while ((c = peek()) != -1 && !isWhitespace(c) && c != '/' && c != '>' && c != '=') {
+            read();
+            token.append(lowerCase(c));
+        }
+        while (isWhitespace(c)) {
+            read();
+            c = peek();
+        }
+        String name = token.toString();
+        if (c != '=') {
+            if (!attributes.hasKey(name))
+                attributes.put(name, "");
+            return false;
+        }
+        read();
+        while (isWhitespace(c = peek()))
+            read();
+        value.setLength(0);
+        boolean ended = false;
+        if (c == '"' || c == '\'') {
+            int quote = read();
+            while ((c = read()) != -1 && c != quote)
+                value.append((char) c);
+        } else {
+            while ((c = read()) != -1 && !isWhitespace(c)) {
+                if (c == '>') {
+                    ended = true;
+                    break;
+                }
+                value.append((char) c);
+            }
+        }
+        if (!attributes.hasKey(name)) {
+            String attributeValue = value.toString();
+            attributes.put(name, unescape(attributeValue, true));
+        }
+        return ended;
+    }
+
+    /**
+     * Decode character references. Plain named and numeric references are decoded here, anything unusual is left to
+     * jsoup, whose decoder allocates a 64 kB buffer for every call
+     */
+    private static String unescape(String text, boolean inAttribute) {
+        int amp = text.indexOf('&');
+        if (amp == -1)
+            return text;
+        StringBuilder decoded = new StringBuilder(text.length());
+        int last = 0;
+        while (amp != -1) {
+            int semicolon = text.indexOf(';', amp + 1);
+            String reference = semicolon != -1 ? reference(text, amp + 1, semicolon) : null;
+            if (reference == null)
+                return Parser.unescapeEntities(text, inAttribute);
+            decoded.append(text, last, amp).append(reference);
+            last = semicolon + 1;
+            amp = text.indexOf('&', last);
+        }
+        return decoded.append(text, last, text.length()).toString();
+    }
+
+    private static String reference(String text, int start, int end) {
+        if (start == end || end - start > 32)
+            return null;
+        if (text.charAt(start) == '#') {
+            boolean hex = start + 1 < end && (text.charAt(start + 1) == 'x' || text.charAt(start + 1) == 'X');
+            int digits = hex ? start + 2 : start + 1;
+            if (digits == end || end - digits > 6)
+                return null;
+            int codePoint = 0;
+            for (int i = digits; i < end; i++) {
+                int digit = Character.digit(text.charAt(i), hex ? 16 : 10);
+                if (digit == -1)
+                    return null;
+                codePoint = codePoint * (hex ? 16 : 10) + digit;
+            }
+            // Zero, C1 controls, surrogates and out of range values have special rules
+            if (codePoint == 0 || codePoint >= 0x80 && codePoint <= 0x9F || codePoint >= 0xD800 && codePoint <= 0xDFFF || codePoint > 0x10FFFF)
+                return null;
+            return new String(Character.toChars(codePoint));
+        }
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!(isLetter(c) || c >= '0' && c <= '9'))
+                return null;
+        }
+        String name = text.substring(start, end);
+        return Entities.isNamedEntity(name) ? Entities.getByName(name) : null;
+    }
+
+    private String readName() throws IOException {
+        token.setLength(0);
+        int c;
+        while ((c = peek()) != -1 && !isWhitespace(c) && c != '/' && c != '>') {
+            read();
+            token.append(lowerCase(c));
+        }
+        return token.toString();
+    }
+
+    /**
+     * Skip a comment or a doctype, called after "&lt;!"
+     */
+    private void skipDeclaration() throws IOException {
+        int c = read();
+        if (c == '-' && peek() == '-') {
+            read();
+            int dashes = 0;
+            while ((c = read()) != -1) {
+                if (c == '>' && dashes >= 2)
+                    return;
+                dashes = c == '-' ? dashes + 1 : 0;
+            }
+            return;
+        }
+        while (c != -1 && c != '>')
+            c = read();
+    }
+
+    private void skipTo(char end) throws IOException {
+        int c;
+        while ((c = read()) != -1 && c != end) {
+            // Skipped
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0)
+            return false;
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private static char lowerCase(int c) {
+        return (char) (c >= 'A' && c <= 'Z' ? c + 32 : c);
+    }
+
+    private static boolean isLetter(int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,214 @@
+package org.openfinna.java.connector.parser;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.openfinna.java.connector.classes.models.building.Building;
+import org.openfinna.java.connector.classes.models.holds.PickupLocation;
+import org.openfinna.java.connector.classes.models.libraries.Image;
+import org.openfinna.java.connector.classes.models.libraries.Link;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gson instance and type tokens shared by the parsers. Building a Gson is expensive and each instance has its own
+ * adapter cache, so one configured instance is reused. The models read most often have hand-written adapters instead
+ * of reflective ones. Thread safe
+ */
+public final class ParserContext {
+
+    public static final Type STRING_LISTS = TypeToken.getParameterized(List.class, TypeToken.getParameterized(List.class, String.class).getType()).getType();
+    public static final Type LINKS = TypeToken.getParameterized(List.class, Link.class).getType();
+    public static final Type IMAGES = TypeToken.getParameterized(List.class, Image.class).getType();
+    public static final Type BUILDINGS = TypeToken.getParameterized(List.class, Building.class).getType();
+    public static final Type PICKUP_LOCATIONS = TypeToken.getParameterized(List.class, PickupLocation.class).getType();
+
+    private static final ParserContext defaultContext = new ParserContext();
+
+    private final Gson gson;
+    private final TypeAdapter<Link> linkAdapter;
+    private final TypeAdapter<Image> imageAdapter;
+    private final TypeAdapter<List<List<String>>> stringListsAdapter;
+
+    private ParserContext() {
+        gson = new GsonBuilder()
+                .registerTypeAdapter(Link.class, new LinkAdapter().nullSafe())
+                .registerTypeAdapter(Image.class, new ImageAdapter().nullSafe())
+                .registerTypeAdapter(Building.class, new BuildingAdapter().nullSafe())
+                .registerTypeAdapter(STRING_LISTS, new StringListsAdapter().nullSafe())
+                .create();
+        linkAdapter = gson.getAdapter(Link.class);
+        imageAdapter = gson.getAdapter(Image.class);
+        stringListsAdapter = gson.getAdapter(new TypeToken<List<List<String>>>() {
+        });
+    }
+
+    public static ParserContext getDefault() {
+        return defaultContext;
+    }
+
+    public Gson getGson() {
+        return gson;
+    }
+
+    public TypeAdapter<Link> getLinkAdapter() {
+        return linkAdapter;
+    }
+
+    public TypeAdapter<Image> getImageAdapter() {
+        return imageAdapter;
+    }
+
+    public TypeAdapter<List<List<String>>> getStringListsAdapter() {
+        return stringListsAdapter;
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (reader.peek() == JsonToken.BEGIN_OBJECT || reader.peek() == JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    private static final class LinkAdapter extends TypeAdapter<Link> {
+        @Override
+        public void write(JsonWriter out, Link link) throws IOException {
+            out.beginObject().name("url").value(link.getUrl()).name("name").value(link.getName()).endObject();
+        }
+
+        @Override
+        public Link read(JsonReader in) throws IOException {
+            String url = null, name = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "url":
+                        url = nextString(in);
+                        break;
+                    case "name":
+                        name = nextString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Link(url, name);
+        }
+    }
+
+    private static final class ImageAdapter extends TypeAdapter<Image> {
+        @Override
+        public void write(JsonWriter out, Image image) throws IOException {
+            out.beginObject().name("url").value(image.getUrl()).name("size").value(image.getSize()).name("resolution").value(image.getResolution()).endObject();
+        }
+
+        @Override
+        public Image read(JsonReader in) throws IOException {
+            String url = null, resolution = null;
+            long size = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "url":
+                        url = nextString(in);
+                        break;
+                    case "size":
+                        String value = nextString(in);
+                        try {
+                            size = value != null ? Long.parseLong(value) : 0;
+                        } catch (NumberFormatException ignored) {
+                        }
+                        break;
+                    case "resolution":
+                        resolution = nextString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Image(url, size, resolution);
+        }
+    }
+
+    private static final class BuildingAdapter extends TypeAdapter<Building> {
+        @Override
+        public void write(JsonWriter out, Building building) throws IOException {
+            out.beginObject().name("value").value(building.getId()).name("displayText").value(building.getName()).endObject();
+        }
+
+        @Override
+        public Building read(JsonReader in) throws IOException {
+            String id = null, name = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "value":
+                        id = nextString(in);
+                        break;
+                    case "displayText":
+                        name = nextString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Building(id, name);
+        }
+    }
+
+    /**
+     * Subjects of a record, arrays of strings
+     */
+    private static final class StringListsAdapter extends TypeAdapter<List<List<String>>> {
+        @Override
+        public void write(JsonWriter out, List<List<String>> lists) throws IOException {
+            out.beginArray();
+            for (List<String> list : lists) {
+                out.beginArray();
+                for (String value : list) {
+                    out.value(value);
+                }
+                out.endArray();
+            }
+            out.endArray();
+        }
+
+        @Override
+        public List<List<String>> read(JsonReader in) throws IOException {
+            List<List<String>> lists = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                if (in.peek() != JsonToken.BEGIN_ARRAY) {
+                    in.skipValue();
+                    continue;
+                }
+                List<String> list = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    String value = nextString(in);
+                    if (value != null)
+                        list.add(value);
+                }
+                in.endArray();
+                lists.add(list);
+            }
+            in.endArray();
+            return lists;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.openfinna.java.connector.utils;
+
+import java.text.ParseException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Dates shown by Finna, for example "24.12.2020" or "10.03." in library schedules. Finna is a Finnish service, so
+ * dates are days in Europe/Helsinki and not in the time zone of the device. Everything here is immutable and safe to
+ * use from many threads. Models keep using {@link Date}, conversion happens only when a model is created
+ */
+public class DateUtils {
+
+    public static final ZoneId FINNA_ZONE = ZoneId.of("Europe/Helsinki");
+    public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.uuuu").withZone(FINNA_ZONE);
+
+    /**
+     * Parse a date like "24.12.2020" or "1.2.2020"
+     *
+     * @param text Date text
+     * @return the parsed day
+     * @throws ParseException if the text is not a valid date
+     */
+    public static LocalDate parseDate(CharSequence text) throws ParseException {
+        return parse(text, -1);
+    }
+
+    /**
+     * Parse a date without a year like "10.03.", or with one like {@link #parseDate(CharSequence)}
+     *
+     * @param text Date text
+     * @param year Year to use if the text has none
+     * @return the parsed day
+     * @throws ParseException if the text is not a valid date
+     */
+    public static LocalDate parseDayMonth(CharSequence text, int year) throws ParseException {
+        return parse(text, year);
+    }
+
+    /**
+     * @return the current year in Finland
+     */
+    public static int currentYear() {
+        return Year.now(FINNA_ZONE).getValue();
+    }
+
+    /**
+     * @param day Day in Finland
+     * @return start of the day
+     */
+    public static Date toDate(LocalDate day) {
+        return Date.from(day.atStartOfDay(FINNA_ZONE).toInstant());
+    }
+
+    /**
+     * @param day  Day in Finland
+     * @param hour Hour of the day, 24 is the midnight that ends the day
+     * @return the hour of the day in local time
+     */
+    public static Date toDate(LocalDate day, int hour) {
+        return Date.from(day.atStartOfDay().plusHours(hour).atZone(FINNA_ZONE).toInstant());
+    }
+
+    /**
+     * @param date Date
+     * @return the date as Finna forms expect it, like "24.12.2020"
+     */
+    public static String formatDate(Date date) {
+        return DATE_FORMAT.format(date.toInstant());
+    }
+
+    // Reads day.month.year digit by digit instead of going through DateTimeFormatter, which builds several objects per parse
+    private static LocalDate parse(CharSequence text, int defaultYear) throws ParseException {
+        int length = text.length();
+        int position = 0;
+        int[] fields = {0, 0, defaultYear};
+        for (int field = 0; field < 3; field++) {
+            int start = position;
+            int value = 0;
+            while (position < length && position - start < 9) {
+                char c = text.charAt(position);
+                if (c < '0' || c > '9')
+                    break;
+                value = value * 10 + (c - '0');
+                position++;
+            }
+            if (position == start) {
+                if (field == 2 && defaultYear >= 0 && position == length)
+                    break;
+                throw new ParseException("Unparseable date: \"" + text + "\"", position);
+            }
+            fields[field] = value;
+            if (field < 2) {
+                if (position >= length || text.charAt(position) != '.')
+                    throw new ParseException("Unparseable date: \"" + text + "\"", position);
+                position++;
+            }
+        }
+        if (position != length)
+            throw new ParseException("Unparseable date: \"" + text + "\"", position);
+        try {
+            return LocalDate.of(fields[2], fields[1], fields[0]);
+        } catch (DateTimeException e) {
+            throw new ParseException("Invalid date: \"" + text + "\"", 0);
+        }
+    }
+}
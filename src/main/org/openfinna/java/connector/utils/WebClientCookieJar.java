@@ -6,24 +6,46 @@ import okhttp3.HttpUrl;
 import org.openfinna.java.connector.http.WebClient;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class WebClientCookieJar implements CookieJar {
 
-    private final Set<Cookie> cookieStore = new LinkedHashSet<>();
+    // Keyed by name, domain and path, so a new cookie replaces the old one like in a browser. No locks are held
+    // while loading or saving, which keeps callers on virtual threads from pinning their carrier
+    private final Map<String, Cookie> cookieStore = new ConcurrentHashMap<>();
+    private final HttpUrl sessionUrl;
+
+    /**
+     * @deprecated the session is looked up from {@link WebClient#DEFAULT_BASE_URL} only, use
+     * {@link #WebClientCookieJar(HttpUrl)}
+     */
+    @Deprecated
+    public WebClientCookieJar() {
+        this(HttpUrl.get(WebClient.DEFAULT_BASE_URL));
+    }
+
+    /**
+     * @param sessionUrl URL of the portal whose PHPSESSID is returned by {@link #getSession()}
+     */
+    public WebClientCookieJar(HttpUrl sessionUrl) {
+        this.sessionUrl = sessionUrl;
+    }
 
     @Override
-    public synchronized void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
-        cookieStore.addAll(cookies);
+    public void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
+        for (Cookie cookie : cookies) {
+            addCookie(cookie);
+        }
     }
 
     @Override
-    public synchronized List<Cookie> loadForRequest(HttpUrl url) {
+    public List<Cookie> loadForRequest(HttpUrl url) {
         List<Cookie> matchingCookies = new ArrayList<>();
-        Iterator<Cookie> it = cookieStore.iterator();
-        while (it.hasNext()) {
-            Cookie cookie = it.next();
-            if (cookie.expiresAt() < System.currentTimeMillis()) {
-                it.remove();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Cookie> entry : cookieStore.entrySet()) {
+            Cookie cookie = entry.getValue();
+            if (cookie.expiresAt() < now) {
+                cookieStore.remove(entry.getKey(), cookie);
             } else if (cookie.matches(url)) {
                 matchingCookies.add(cookie);
             }
@@ -32,8 +54,8 @@ public class WebClientCookieJar implements CookieJar {
     }
 
     public String getSession() {
-        for (Cookie cookie : cookieStore) {
-            if (cookie.matches(HttpUrl.get(WebClient.kirkesBaseURL))) {
+        for (Cookie cookie : cookieStore.values()) {
+            if (cookie.matches(sessionUrl)) {
                 if (cookie.name().toLowerCase(Locale.ROOT).equals("phpsessid"))
                     return cookie.value();
             }
@@ -46,6 +68,6 @@ public class WebClientCookieJar implements CookieJar {
     }
 
     public void addCookie(Cookie cookie) {
-        cookieStore.add(cookie);
+        cookieStore.put(cookie.name() + "|" + cookie.domain() + "|" + cookie.path(), cookie);
     }
-}
\ No newline at end of file
+}
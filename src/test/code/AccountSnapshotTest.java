@@ -0,0 +1,76 @@
+package code;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openfinna.java.connector.FinnaAsyncClient;
+import org.openfinna.java.connector.FinnaClient;
+import org.openfinna.java.connector.classes.UserAuthentication;
+import org.openfinna.java.connector.classes.models.AccountSnapshot;
+import org.openfinna.java.connector.classes.models.UserType;
+import org.openfinna.java.connector.http.WebClient;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AccountSnapshotTest {
+
+    private final MockPortal portal = new MockPortal();
+    private MockWebServer server;
+    private FinnaClient finnaClient;
+    private FinnaAsyncClient asyncClient;
+
+    @Before
+    public void setUp() throws IOException {
+        portal.page("/MyResearch/Profile", new MockResponse().setBody("<html><body><span class=\"username login-text\">Test User</span></body></html>"));
+        // Fines page fails, the other parts must still be returned
+        portal.page("/MyResearch/Fines", new MockResponse().setResponseCode(500));
+        server = new MockWebServer();
+        server.setDispatcher(portal);
+        server.start();
+        finnaClient = new FinnaClient(new WebClient.Builder().baseUrl(server.url("/").toString()).build());
+        asyncClient = new FinnaAsyncClient(finnaClient);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void partialSnapshotWithOneValidation() throws Exception {
+        asyncClient.login(new UserAuthentication(new UserType("test", ""), "user", "pass"), false).get(10, TimeUnit.SECONDS);
+        // Validate before every operation, so the snapshot has to do it once
+        finnaClient.setSessionValidationTTL(0, TimeUnit.SECONDS);
+        int requestsBefore = server.getRequestCount();
+
+        AccountSnapshot snapshot = asyncClient.getAccountSnapshot().get(10, TimeUnit.SECONDS);
+        assertEquals(1, snapshot.getLoans().size());
+        assertEquals(0, snapshot.getHolds().size());
+        assertEquals("Test User", snapshot.getUser().getName());
+        assertNull(snapshot.getFines());
+        assertFalse(snapshot.isComplete());
+        assertTrue(snapshot.getErrors().containsKey(AccountSnapshot.Part.FINES));
+
+        assertEquals(1, portal.validations.get());
+        assertEquals(5, server.getRequestCount() - requestsBefore);
+    }
+
+    @Test
+    public void defaultBuildingOfTheCard() throws Exception {
+        portal.page("/MyResearch/Profile", new MockResponse().setBody("<html><body><span class=\"username login-text\">Test User</span>"
+                + "<div class=\"change-password-link\"><a href=\"/LibraryCards/newPassword?id=42\">Change password</a></div></body></html>"));
+        portal.page("/LibraryCards/editCard/42", new MockResponse().setBody("<html><body><select id=\"login_target\"><option value=\"test\" selected=\"selected\">Test Library</option></select></body></html>"));
+        portal.page("/Content/organisations", new MockResponse().setBody("<html><body><div class=\"organisations list-group\">"
+                + "<a data-link=\"0\" data-organisation=\"test\" data-organisation-name=\"Test Library\"></a></div></body></html>"));
+        asyncClient.login(new UserAuthentication(new UserType("test", ""), "user", "pass"), false).get(10, TimeUnit.SECONDS);
+
+        AccountSnapshot snapshot = asyncClient.getAccountSnapshot().get(10, TimeUnit.SECONDS);
+        assertFalse(snapshot.getErrors().containsKey(AccountSnapshot.Part.ACCOUNT_DETAILS));
+        assertEquals("Test Library", snapshot.getUser().getBuilding().getName());
+    }
+}
@@ -0,0 +1,121 @@
+package code;
+
+import okhttp3.Call;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openfinna.java.connector.exceptions.CircuitOpenException;
+import org.openfinna.java.connector.http.CircuitBreaker;
+import org.openfinna.java.connector.http.EndpointClass;
+import org.openfinna.java.connector.http.WebClient;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private MockWebServer server;
+    private CircuitBreaker circuitBreaker;
+    private WebClient webClient;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        circuitBreaker = new CircuitBreaker.Builder().window(4, 4).openDuration(200, TimeUnit.MILLISECONDS).build();
+        circuitBreaker.addStateListener((endpointClass, from, to) -> events.add(endpointClass + " " + from + ">" + to));
+        String url = server.url("/").toString();
+        webClient = new WebClient.Builder().baseUrl(url).apiBaseUrl(url).circuitBreaker(circuitBreaker).build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void classifiesEndpoints() {
+        assertEquals(EndpointClass.AJAX_JSON, webClient.getEndpointClass(webClient.generateHttpUrl("AJAX/JSON?method=getUserTransactions")));
+        assertEquals(EndpointClass.REST_API, webClient.getEndpointClass(webClient.generateApiHttpUrl("api/v1/record")));
+        assertEquals(EndpointClass.SESSION_PAGES, webClient.getEndpointClass(webClient.generateHttpUrl("MyResearch/CheckedOut")));
+    }
+
+    @Test
+    public void opensOnErrorsAndProbes() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setResponseCode(i % 2 == 0 ? 500 : 200));
+        }
+        for (int i = 0; i < 4; i++) {
+            webClient.executeGetRequest(false, true, server.url("/api/v1/record")).close();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(EndpointClass.REST_API));
+        // Other endpoint classes are not affected
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(EndpointClass.SESSION_PAGES));
+
+        try {
+            webClient.executeGetRequest(false, true, server.url("/api/v1/record")).close();
+            fail();
+        } catch (CircuitOpenException e) {
+            assertEquals(EndpointClass.REST_API, e.getEndpointClass());
+        }
+        try {
+            get("/api/v1/search");
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CircuitOpenException);
+        }
+        assertEquals(4, server.getRequestCount());
+
+        Thread.sleep(250);
+        server.enqueue(new MockResponse().setResponseCode(503));
+        assertEquals(503, get("/api/v1/record"));
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(EndpointClass.REST_API));
+
+        Thread.sleep(250);
+        server.enqueue(new MockResponse().setBody("ok"));
+        assertEquals(200, get("/api/v1/record"));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(EndpointClass.REST_API));
+        assertEquals("[REST_API CLOSED>OPEN, REST_API OPEN>HALF_OPEN, REST_API HALF_OPEN>OPEN, REST_API OPEN>HALF_OPEN, REST_API HALF_OPEN>CLOSED]", events.toString());
+    }
+
+    @Test
+    public void opensOnSlowCalls() throws Exception {
+        circuitBreaker = new CircuitBreaker.Builder().window(2, 2).slowCallThreshold(0.5, 100, TimeUnit.MILLISECONDS).build();
+        String url = server.url("/").toString();
+        webClient = new WebClient.Builder().baseUrl(url).apiBaseUrl(url).circuitBreaker(circuitBreaker).build();
+        server.enqueue(new MockResponse().setBody("ok"));
+        server.enqueue(new MockResponse().setBody("ok").setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        webClient.executeGetRequest(true, true, server.url("/MyResearch/Holds")).close();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(EndpointClass.SESSION_PAGES));
+        webClient.executeGetRequest(true, true, server.url("/MyResearch/Holds")).close();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(EndpointClass.SESSION_PAGES));
+    }
+
+    private int get(String path) throws Exception {
+        CompletableFuture<Integer> code = new CompletableFuture<>();
+        webClient.getRequest(false, true, server.url(path), new WebClient.WebClientListener() {
+            @Override
+            public void onFailed(@NotNull Call call, @NotNull IOException e) {
+                code.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(@NotNull Response response) {
+                response.close();
+                code.complete(response.code());
+            }
+        });
+        return code.get(10, TimeUnit.SECONDS);
+    }
+}
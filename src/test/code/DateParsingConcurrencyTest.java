@@ -0,0 +1,107 @@
+package code;
+
+import org.json.JSONArray;
+import org.junit.Test;
+import org.openfinna.java.connector.classes.models.holds.Hold;
+import org.openfinna.java.connector.classes.models.libraries.schedule.Day;
+import org.openfinna.java.connector.classes.models.loans.Loan;
+import org.openfinna.java.connector.parser.FinnaJSONParser;
+import org.openfinna.java.connector.parser.KirkesHTMLParser;
+import org.openfinna.java.connector.utils.DateUtils;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class DateParsingConcurrencyTest {
+
+    private static final ZoneId HELSINKI = ZoneId.of("Europe/Helsinki");
+    private static final int THREADS = 8;
+    private static final int PAGES = 2000;
+    private static final int ROWS = 10;
+
+    @Test
+    public void parsesDatesFromManyThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int page = 0; page < PAGES; page++) {
+                int number = page;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    checkPage(number);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void scheduleHoursAreLocalTime() throws Exception {
+        // Opening hours are wall clock time in Finland whatever the time zone of the device
+        List<Day> days = FinnaJSONParser.parseLibrarySchedule(new JSONArray("[{\"date\":\"28.03.\",\"closed\":false,\"times\":[{\"opens\":\"8\",\"closes\":\"20\",\"selfservice\":false}]}]"));
+        int year = DateUtils.currentYear();
+        Day day = days.get(0);
+        assertEquals(startOf(LocalDate.of(year, 3, 28)), day.getDate());
+        assertEquals(Date.from(LocalDate.of(year, 3, 28).atTime(8, 0).atZone(HELSINKI).toInstant()), day.getSchedule().getOpens());
+        assertEquals(Date.from(LocalDate.of(year, 3, 28).atTime(20, 0).atZone(HELSINKI).toInstant()), day.getSchedule().getCloses());
+    }
+
+    private static void checkPage(int page) throws Exception {
+        List<Loan> loans = KirkesHTMLParser.parseLoans(loansPage(page), "");
+        assertEquals(ROWS, loans.size());
+        for (int row = 0; row < ROWS; row++) {
+            assertEquals("page " + page + " loan " + row, startOf(day(page, row)), loans.get(row).getDueDate());
+        }
+        List<Hold> holds = KirkesHTMLParser.parseHolds(holdsPage(page), "");
+        assertEquals(ROWS, holds.size());
+        for (int row = 0; row < ROWS; row++) {
+            assertEquals("page " + page + " hold " + row, startOf(day(page, row)), holds.get(row).getHoldDate());
+            assertEquals("page " + page + " hold " + row, startOf(day(page, row).plusYears(1)), holds.get(row).getExpirationDate());
+        }
+    }
+
+    // Spread over years and months so that a date mixed up between threads is noticed
+    private static LocalDate day(int page, int row) {
+        return LocalDate.of(2000, 1, 1).plusDays(page * 37L + row * 3L);
+    }
+
+    private static Date startOf(LocalDate day) {
+        return Date.from(day.atStartOfDay(HELSINKI).toInstant());
+    }
+
+    private static String text(LocalDate day) {
+        return day.getDayOfMonth() + "." + day.getMonthValue() + "." + day.getYear();
+    }
+
+    private static String loansPage(int page) {
+        StringBuilder html = new StringBuilder("<html><body><table class=\"myresearch-table\">");
+        for (int row = 0; row < ROWS; row++) {
+            html.append("<tr class=\"myresearch-row\" id=\"recordtest.").append(row).append("\"><td><a class=\"record-title\">Title</a>")
+                    .append("<strong>Due ").append(text(day(page, row))).append("</strong></td></tr>");
+        }
+        return html.append("</table></body></html>").toString();
+    }
+
+    private static String holdsPage(int page) {
+        StringBuilder html = new StringBuilder("<html><body><table class=\"myresearch-table\">");
+        for (int row = 0; row < ROWS; row++) {
+            html.append("<tr class=\"myresearch-row\"><td><a class=\"record-title\" href=\"/Record/test.").append(row).append("\">Title</a>")
+                    .append("<div class=\"holds-status-information\">Created: ").append(text(day(page, row)))
+                    .append(" Expires: ").append(text(day(page, row).plusYears(1))).append("</div></td></tr>");
+        }
+        return html.append("</table></body></html>").toString();
+    }
+}
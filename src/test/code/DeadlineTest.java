@@ -0,0 +1,114 @@
+package code;
+
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openfinna.java.connector.FinnaAsyncClient;
+import org.openfinna.java.connector.FinnaClient;
+import org.openfinna.java.connector.classes.UserAuthentication;
+import org.openfinna.java.connector.classes.models.UserType;
+import org.openfinna.java.connector.exceptions.DeadlineExceededException;
+import org.openfinna.java.connector.http.CallScope;
+import org.openfinna.java.connector.http.RetryPolicy;
+import org.openfinna.java.connector.http.WebClient;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DeadlineTest {
+
+    private final MockPortal portal = new MockPortal();
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(portal);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void operationFailsAtDeadline() throws Exception {
+        FinnaAsyncClient asyncClient = new FinnaAsyncClient(new FinnaClient(new WebClient.Builder().baseUrl(server.url("/").toString()).build()));
+        asyncClient.login(new UserAuthentication(new UserType("test", ""), "user", "pass"), false).get(10, TimeUnit.SECONDS);
+        portal.page("/MyResearch/CheckedOut", new MockResponse().setBody(MockPortal.LOANS_PAGE).setHeadersDelay(2, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        try {
+            asyncClient.withTimeout(200, TimeUnit.MILLISECONDS).getLoans().get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof DeadlineExceededException);
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void closedScopeDoesNotExpire() throws Exception {
+        CallScope scope = new CallScope(null, 100, TimeUnit.MILLISECONDS);
+        List<String> expired = new ArrayList<>();
+        scope.addExpiryListener(() -> expired.add("expired"));
+        scope.close();
+
+        Thread.sleep(300);
+        assertTrue(expired.isEmpty());
+        assertFalse(scope.isCancelled());
+    }
+
+    @Test
+    public void hopsShareTheBudget() throws Exception {
+        MockWebServer slow = new MockWebServer();
+        for (int i = 0; i < 2; i++) {
+            slow.enqueue(new MockResponse().setBody("ok").setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        }
+        slow.start();
+        WebClient webClient = new WebClient.Builder().baseUrl(slow.url("/").toString()).retryPolicy(RetryPolicy.none()).build();
+        List<Object> results = new ArrayList<>();
+        // Either request fits the deadline alone, both together do not
+        CallScope.run(new CallScope(null, 800, TimeUnit.MILLISECONDS), () -> {
+            for (int i = 0; i < 2; i++) {
+                try (Response response = webClient.executeGetRequest(false, true, slow.url("/MyResearch/Holds"))) {
+                    results.add(response.code());
+                } catch (IOException e) {
+                    results.add(e);
+                }
+            }
+        });
+        slow.shutdown();
+        assertEquals(200, results.get(0));
+        assertTrue(String.valueOf(results.get(1)), results.get(1) instanceof DeadlineExceededException);
+    }
+
+    @Test
+    public void callTimeoutFromBuilder() throws Exception {
+        MockWebServer slow = new MockWebServer();
+        slow.enqueue(new MockResponse().setBody("ok").setHeadersDelay(1, TimeUnit.SECONDS));
+        slow.start();
+        WebClient webClient = new WebClient.Builder().baseUrl(slow.url("/").toString())
+                .callTimeout(100, TimeUnit.MILLISECONDS)
+                .retryPolicy(RetryPolicy.none())
+                .build();
+        try {
+            webClient.executeGetRequest(false, true, slow.url("/MyResearch/Holds")).close();
+            fail();
+        } catch (InterruptedIOException e) {
+            assertFalse(e instanceof DeadlineExceededException);
+        } finally {
+            slow.shutdown();
+        }
+    }
+}
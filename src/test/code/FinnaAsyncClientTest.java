@@ -0,0 +1,97 @@
+package code;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openfinna.java.connector.FinnaAsyncClient;
+import org.openfinna.java.connector.FinnaClient;
+import org.openfinna.java.connector.classes.ResourceInfo;
+import org.openfinna.java.connector.exceptions.KirkesClientException;
+import org.openfinna.java.connector.http.WebClient;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class FinnaAsyncClientTest {
+
+    private static final String RECORD = "{\"resultCount\":1,\"records\":[{\"id\":\"test.1\",\"title\":\"Title\",\"formats\":[]}],\"status\":\"OK\"}";
+
+    private MockWebServer server;
+    private OkHttpClient httpClient;
+    private ExecutorService completionExecutor;
+    private FinnaAsyncClient asyncClient;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if (path.startsWith("/api/v1/record?id=slow"))
+                    return new MockResponse().setBody(RECORD).setHeadersDelay(3, TimeUnit.SECONDS);
+                else if (path.startsWith("/api/v1/record?id=broken"))
+                    return new MockResponse().setBody("not json");
+                else if (path.startsWith("/api/v1/record"))
+                    return new MockResponse().setBody(RECORD);
+                else if (path.startsWith("/AJAX/JSON?method=getDescription"))
+                    return new MockResponse().setBody("{\"data\":{\"html\":\"<p>Description</p>\"}}");
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        server.start();
+        httpClient = new OkHttpClient();
+        String url = server.url("/").toString();
+        FinnaClient finnaClient = new FinnaClient(new WebClient.Builder().baseUrl(url).apiBaseUrl(url).httpClient(httpClient).build());
+        completionExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "completion"));
+        asyncClient = new FinnaAsyncClient(finnaClient, completionExecutor);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        completionExecutor.shutdownNow();
+        server.shutdown();
+    }
+
+    @Test
+    public void combine() throws Exception {
+        CompletableFuture<String> combined = asyncClient.resourceInfo("test.1")
+                .thenCombine(asyncClient.getResourceDescription("test.1"), (info, description) -> {
+                    assertEquals("completion", Thread.currentThread().getName());
+                    return info.getTitle() + ": " + description;
+                });
+        assertEquals("Title: Description", combined.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelPropagatesToCall() throws Exception {
+        CompletableFuture<ResourceInfo> future = asyncClient.resourceInfo("slow");
+        server.takeRequest(10, TimeUnit.SECONDS);
+        assertEquals(1, httpClient.dispatcher().runningCallsCount());
+
+        assertTrue(future.cancel(true));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (httpClient.dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, httpClient.dispatcher().runningCallsCount());
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void callbackExceptionFailsFuture() throws Exception {
+        try {
+            asyncClient.resourceInfo("broken").get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof KirkesClientException);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package code;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openfinna.java.connector.FinnaAsyncClient;
+import org.openfinna.java.connector.FinnaBlockingClient;
+import org.openfinna.java.connector.FinnaClient;
+import org.openfinna.java.connector.classes.UserAuthentication;
+import org.openfinna.java.connector.classes.models.UserType;
+import org.openfinna.java.connector.classes.models.holds.Hold;
+import org.openfinna.java.connector.classes.models.holds.HoldCancelResult;
+import org.openfinna.java.connector.classes.models.holds.PickupLocation;
+import org.openfinna.java.connector.classes.models.loans.Loan;
+import org.openfinna.java.connector.classes.models.loans.RenewResult;
+import org.openfinna.java.connector.exceptions.SessionValidationException;
+import org.openfinna.java.connector.http.WebClient;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class FinnaBlockingClientTest {
+
+    private final MockPortal portal = new MockPortal();
+    private MockWebServer server;
+    private FinnaBlockingClient blockingClient;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(portal);
+        server.start();
+        blockingClient = new FinnaBlockingClient(new FinnaClient(new WebClient.Builder().baseUrl(server.url("/").toString()).build()));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void reLoginOnceForParallelCallers() throws Exception {
+        blockingClient.login(new UserAuthentication(new UserType("test", ""), "user", "pass"), false);
+        assertEquals(1, blockingClient.getLoans().size());
+
+        portal.expireSessions();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> blockingClient.getLoans().size()));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(1, (int) result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, portal.loginPosts.get());
+    }
+
+    @Test
+    public void blockingAndCallbackCallersShareTheLogin() throws Exception {
+        blockingClient.login(new UserAuthentication(new UserType("test", ""), "user", "pass"), false);
+        FinnaAsyncClient asyncClient = new FinnaAsyncClient(blockingClient.getFinnaClient());
+
+        portal.expireSessions();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> blockingResults = new ArrayList<>();
+            List<CompletableFuture<List<Loan>>> asyncResults = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                blockingResults.add(executor.submit(() -> blockingClient.getLoans().size()));
+                asyncResults.add(asyncClient.getLoans());
+            }
+            for (Future<Integer> result : blockingResults) {
+                assertEquals(1, (int) result.get(10, TimeUnit.SECONDS));
+            }
+            for (CompletableFuture<List<Loan>> result : asyncResults) {
+                assertEquals(1, result.get(10, TimeUnit.SECONDS).size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, portal.loginPosts.get());
+    }
+
+    @Test
+    public void makeHold() throws Exception {
+        blockingClient.login(new UserAuthentication(new UserType("test", ""), "user", "pass"), false);
+        portal.page("/Record/test.1/AjaxTab", new MockResponse().setBody("<html><body><a class=\"placehold btn btn-primary hidden-print\" href=\"/Record/test.1/Hold?id=test.1&hashKey=abc#tabnav\">Hold</a></body></html>"));
+        portal.page("/Record/test.1/Hold", new MockResponse().setResponseCode(302).setHeader("Location", "/Record/test.1"));
+
+        blockingClient.makeHold("test.1", new PickupLocation("1", "Library"), null, null, null, null);
+
+        portal.page("/Record/test.1/Hold", new MockResponse().setResponseCode(302).setHeader("Location", "/MyResearch/UserLogin"));
+        try {
+            blockingClient.makeHold("test.1", new PickupLocation("1", "Library"), null, null, null, null);
+            fail();
+        } catch (SessionValidationException ignored) {
+        }
+    }
+
+    @Test
+    public void expiredSessionWithoutCredentials() throws Exception {
+        try {
+            blockingClient.getLoans();
+            fail();
+        } catch (SessionValidationException ignored) {
+        }
+    }
+
+    @Test
+    public void renewLoansInOnePost() throws Exception {
+        blockingClient.login(new UserAuthentication(new UserType("test", ""), "user", "pass"), false);
+        portal.page("/MyResearch/CheckedOut", new MockResponse().setBody("<html><body><table class=\"myresearch-table\">"
+                + "<tr class=\"myresearch-row\" id=\"recordtest.1\"><td><div class=\"alert alert-success\">Renewed</div><strong>Due 24.12.2026</strong></td></tr>"
+                + "<tr class=\"myresearch-row\" id=\"recordtest.2\"><td><div class=\"alert alert-danger\">Renewal limit reached</div></td></tr>"
+                + "</table></body></html>"));
+        int requestsBefore = server.getRequestCount();
+
+        Loan loan1 = new Loan("test.1", "r1"), loan2 = new Loan("test.2", "r2"), loan3 = new Loan("test.3", "r3");
+        Map<Loan, RenewResult> results = blockingClient.renewLoans(Arrays.asList(loan1, loan2, loan3));
+
+        assertEquals(Arrays.asList(loan1, loan2, loan3), new ArrayList<>(results.keySet()));
+        assertTrue(results.get(loan1).isRenewed());
+        assertEquals(Date.from(ZonedDateTime.of(2026, 12, 24, 0, 0, 0, 0, ZoneId.of("Europe/Helsinki")).toInstant()), results.get(loan1).getDueDate());
+        assertFalse(results.get(loan2).isRenewed());
+        assertEquals("Renewal limit reached", results.get(loan2).getMessage());
+        assertFalse(results.get(loan3).isRenewed());
+
+        int posts = 0;
+        for (int i = 0; i < server.getRequestCount(); i++) {
+            RecordedRequest request = server.takeRequest();
+            if (i >= requestsBefore && request.getPath().startsWith("/MyResearch/CheckedOut")) {
+                posts++;
+                String body = request.getBody().readUtf8();
+                assertTrue(body.contains("r1") && body.contains("r2") && body.contains("r3"));
+            }
+        }
+        assertEquals(1, posts);
+    }
+
+    @Test
+    public void loanWithoutRenewIdIsNotSent() throws Exception {
+        blockingClient.login(new UserAuthentication(new UserType("test", ""), "user", "pass"), false);
+        // Even a success banner on its row does not renew a loan that was not sent
+        portal.page("/MyResearch/CheckedOut", new MockResponse().setBody("<html><body><table class=\"myresearch-table\">"
+                + "<tr class=\"myresearch-row\" id=\"recordtest.1\"><td><div class=\"alert alert-success\">Renewed</div></td></tr>"
+                + "<tr class=\"myresearch-row\" id=\"recordtest.2\"><td><div class=\"alert alert-success\">Renewed</div></td></tr>"
+                + "</table></body></html>"));
+        int requestsBefore = server.getRequestCount();
+
+        Loan loan1 = new Loan("test.1", "r1"), loan2 = new Loan("test.2", null);
+        Map<Loan, RenewResult> results = blockingClient.renewLoans(Arrays.asList(loan1, loan2));
+
+        assertEquals(Arrays.asList(loan1, loan2), new ArrayList<>(results.keySet()));
+        assertTrue(results.get(loan1).isRenewed());
+        assertFalse(results.get(loan2).isRenewed());
+        for (int i = 0; i < server.getRequestCount(); i++) {
+            RecordedRequest request = server.takeRequest();
+            if (i >= requestsBefore && request.getPath().startsWith("/MyResearch/CheckedOut"))
+                assertEquals("selectAllIDS%5B%5D=r1&renewAllIDS%5B%5D=r1&renewSelectedIDS%5B%5D=r1", request.getBody().readUtf8().split("&renewSelected=")[0]);
+        }
+
+        // Nothing to renew, nothing is posted
+        requestsBefore = server.getRequestCount();
+        results = blockingClient.renewLoans(Collections.singletonList(loan2));
+        assertFalse(results.get(loan2).isRenewed());
+        assertEquals(requestsBefore, server.getRequestCount());
+    }
+
+    @Test
+    public void holdsThatCanNotBeCancelledAreNotSent() throws Exception {
+        blockingClient.login(new UserAuthentication(new UserType("test", ""), "user", "pass"), false);
+        // Success banner and an empty table, which would report every hold as cancelled
+        portal.page("/MyResearch/Holds", new MockResponse().setBody("<html><body><div class=\"flash-message alert alert-success\">1 hold cancelled</div>"
+                + "<table class=\"myresearch-table\"></table></body></html>"));
+        int requestsBefore = server.getRequestCount();
+
+        // A hold without a title has no id either
+        Hold hold1 = cancellable(new Hold("test.1", "h1")), hold2 = cancellable(new Hold(null, null)), hold3 = new Hold("test.3", "h3");
+        Map<Hold, HoldCancelResult> results = blockingClient.cancelHolds(Arrays.asList(hold1, hold2, hold3));
+
+        assertEquals(Arrays.asList(hold1, hold2, hold3), new ArrayList<>(results.keySet()));
+        assertTrue(results.get(hold1).isCancelled());
+        assertFalse(results.get(hold2).isCancelled());
+        assertFalse(results.get(hold3).isCancelled());
+        for (int i = 0; i < server.getRequestCount(); i++) {
+            RecordedRequest request = server.takeRequest();
+            if (i >= requestsBefore && request.getPath().startsWith("/MyResearch/Holds")) {
+                String body = request.getBody().readUtf8();
+                assertTrue(body.contains("h1") && !body.contains("h3"));
+            }
+        }
+
+        // Nothing to cancel, nothing is posted
+        requestsBefore = server.getRequestCount();
+        results = blockingClient.cancelHolds(Collections.singletonList(hold3));
+        assertFalse(results.get(hold3).isCancelled());
+        assertEquals(requestsBefore, server.getRequestCount());
+    }
+
+    @Test
+    public void cancelHoldsInOnePost() throws Exception {
+        blockingClient.login(new UserAuthentication(new UserType("test", ""), "user", "pass"), false);
+        // h2 could not be cancelled and is still listed
+        portal.page("/MyResearch/Holds", new MockResponse().setBody("<html><body><div class=\"flash-message alert alert-success\">1 hold cancelled</div>"
+                + "<table class=\"myresearch-table\"><tr class=\"myresearch-row\"><td><input name=\"cancelSelectedIDS[]\" value=\"h2\" disabled></td></tr></table></body></html>"));
+        int requestsBefore = server.getRequestCount();
+
+        Hold hold1 = cancellable(new Hold("test.1", "h1")), hold2 = cancellable(new Hold("test.2", "h2"));
+        Map<Hold, HoldCancelResult> results = blockingClient.cancelHolds(Arrays.asList(hold1, hold2));
+
+        assertTrue(results.get(hold1).isCancelled());
+        assertFalse(results.get(hold2).isCancelled());
+        int posts = 0;
+        for (int i = 0; i < server.getRequestCount(); i++) {
+            RecordedRequest request = server.takeRequest();
+            if (i >= requestsBefore && request.getPath().startsWith("/MyResearch/Holds")) {
+                posts++;
+                String body = request.getBody().readUtf8();
+                assertTrue(body.contains("h1") && body.contains("h2"));
+            }
+        }
+        assertEquals(1, posts);
+    }
+
+    private static Hold cancellable(Hold hold) {
+        hold.setCancellable(true);
+        return hold;
+    }
+}
@@ -0,0 +1,76 @@
+package code;
+
+import com.google.gson.Gson;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.openfinna.java.connector.classes.ResourceInfo;
+import org.openfinna.java.connector.classes.SearchResult;
+import org.openfinna.java.connector.classes.models.libraries.Library;
+import org.openfinna.java.connector.classes.models.resource.Author;
+import org.openfinna.java.connector.exceptions.KirkesClientException;
+import org.openfinna.java.connector.parser.FinnaJSONParser;
+import org.openfinna.java.connector.parser.FinnaJSONStreamParser;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * The streaming parser gives the same results as the JSONObject based one
+ */
+public class FinnaJSONStreamParserTest {
+
+    private final Gson gson = new Gson();
+    private final Comparator<Author> authorOrder = Comparator.comparing(Author::getType).thenComparing(Author::getName);
+
+    @Test
+    public void recordsMatchTreeParser() throws Exception {
+        String json = fixture("search_100_rawdata.json");
+        JSONObject object = new JSONObject(json);
+        List<ResourceInfo> expected = FinnaJSONParser.parseResourceInfos(object.optJSONArray("records"));
+
+        SearchResult result = FinnaJSONStreamParser.parseRecords(new StringReader(json));
+
+        assertEquals(object.optInt("resultCount"), result.getTotalCount());
+        assertEquals(expected.size(), result.getResourceInfos().size());
+        for (int i = 0; i < expected.size(); i++) {
+            ResourceInfo expectedInfo = expected.get(i), actualInfo = result.getResourceInfos().get(i);
+            assertTrue(expectedInfo.getRawData().similar(actualInfo.getRawData()));
+            expectedInfo.setRawData(null);
+            actualInfo.setRawData(null);
+            // JSONObject keys have no order, the streaming parser keeps the authors in document order
+            expectedInfo.getAuthors().sort(authorOrder);
+            actualInfo.getAuthors().sort(authorOrder);
+            assertEquals(gson.toJson(expectedInfo), gson.toJson(actualInfo));
+        }
+    }
+
+    @Test
+    public void librariesMatchTreeParser() throws Exception {
+        String json = fixture("libraries_consortium.json");
+        List<Library> expected = FinnaJSONParser.parseLibraries(new JSONObject(json).optJSONObject("data").optJSONArray("list"));
+
+        List<Library> libraries = FinnaJSONStreamParser.parseLibraries(new StringReader(json));
+
+        assertEquals(gson.toJson(expected), gson.toJson(libraries));
+    }
+
+    @Test(expected = KirkesClientException.class)
+    public void invalidBuilding() throws Exception {
+        FinnaJSONStreamParser.parseLibraries(new StringReader("{\"data\":false,\"status\":\"OK\"}"));
+    }
+
+    @Test(expected = KirkesClientException.class)
+    public void invalidJson() throws Exception {
+        FinnaJSONStreamParser.parseRecords(new StringReader("not json"));
+    }
+
+    private static String fixture(String name) throws Exception {
+        return new String(Files.readAllBytes(new File("src/test/resources/fixtures", name).toPath()), StandardCharsets.UTF_8);
+    }
+}
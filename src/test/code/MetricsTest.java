@@ -0,0 +1,103 @@
+package code;
+
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openfinna.java.connector.FinnaAsyncClient;
+import org.openfinna.java.connector.FinnaBlockingClient;
+import org.openfinna.java.connector.FinnaClient;
+import org.openfinna.java.connector.classes.UserAuthentication;
+import org.openfinna.java.connector.classes.models.UserType;
+import org.openfinna.java.connector.exceptions.KirkesClientException;
+import org.openfinna.java.connector.http.WebClient;
+import org.openfinna.java.connector.metrics.HdrMetricsRecorder;
+import org.openfinna.java.connector.metrics.MetricsRecorder;
+import org.openfinna.java.connector.metrics.MetricsSnapshot;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    private final MockPortal portal = new MockPortal();
+    private final HdrMetricsRecorder metricsRecorder = new HdrMetricsRecorder();
+    private MockWebServer server;
+    private WebClient webClient;
+    private FinnaAsyncClient asyncClient;
+    private String host;
+
+    @Before
+    public void setUp() throws IOException {
+        portal.page("/MyResearch/Fines", new MockResponse().setResponseCode(500));
+        server = new MockWebServer();
+        server.setDispatcher(portal);
+        server.start();
+        host = server.url("/").host();
+        webClient = new WebClient.Builder().baseUrl(server.url("/").toString()).metricsRecorder(metricsRecorder).build();
+        asyncClient = new FinnaAsyncClient(new FinnaClient(webClient));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void recordsRequestsParsingAndOperations() throws Exception {
+        asyncClient.login(new UserAuthentication(new UserType("test", ""), "user", "pass"), false).get(10, TimeUnit.SECONDS);
+        assertEquals(1, asyncClient.getLoans().get(10, TimeUnit.SECONDS).size());
+        try {
+            asyncClient.getFines().get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+        }
+
+        MetricsSnapshot snapshot = metricsRecorder.snapshot();
+        MetricsSnapshot.RequestMetrics loansPage = snapshot.getRequests().get("GET " + host + "/MyResearch/CheckedOut");
+        assertEquals(1, loansPage.getLatency().getCount());
+        assertEquals(MockPortal.LOANS_PAGE.getBytes(StandardCharsets.UTF_8).length, loansPage.getResponseBytes().getMax());
+        assertEquals(1L, (long) loansPage.getOutcomes().get(MetricsRecorder.Outcome.SUCCESS));
+        assertEquals(1L, (long) snapshot.getRequests().get("GET " + host + "/MyResearch/Fines").getOutcomes().get(MetricsRecorder.Outcome.SERVER_ERROR));
+
+        assertEquals(1, snapshot.getParseTimes().get("KirkesHTMLParser.parseLoans").getCount());
+        assertEquals(1L, (long) snapshot.getOperations().get("getLoans").getOutcomes().get(MetricsRecorder.Outcome.SUCCESS));
+        assertEquals(1L, (long) snapshot.getOperations().get("getFines").getOutcomes().get(MetricsRecorder.Outcome.FAILURE));
+        assertTrue(snapshot.getOperations().get("getLoans").getDuration().getMin() >= loansPage.getLatency().getMin());
+    }
+
+    @Test
+    public void blockingClientRecordsParsingAndOperations() throws Exception {
+        FinnaBlockingClient blockingClient = new FinnaBlockingClient(new FinnaClient(webClient));
+        blockingClient.login(new UserAuthentication(new UserType("test", ""), "user", "pass"), false);
+        assertEquals(1, blockingClient.getLoans().size());
+        try {
+            blockingClient.getFines();
+            fail();
+        } catch (KirkesClientException expected) {
+        }
+
+        MetricsSnapshot snapshot = metricsRecorder.snapshot();
+        assertEquals(1, snapshot.getParseTimes().get("KirkesHTMLParser.parseLoans").getCount());
+        assertEquals(1L, (long) snapshot.getOperations().get("login").getOutcomes().get(MetricsRecorder.Outcome.SUCCESS));
+        assertEquals(1L, (long) snapshot.getOperations().get("getLoans").getOutcomes().get(MetricsRecorder.Outcome.SUCCESS));
+        assertEquals(1L, (long) snapshot.getOperations().get("getFines").getOutcomes().get(MetricsRecorder.Outcome.FAILURE));
+    }
+
+    @Test
+    public void recordIdsAreLeftOutOfEndpoints() throws Exception {
+        try (Response response = webClient.executeGetRequest(false, true, webClient.generateHttpUrl("Record/helmet.123/Hold?id=helmet.123"))) {
+            response.body().string();
+        }
+        webClient.executeGetRequest(false, true, webClient.generateHttpUrl("AJAX/JSON?method=getUserTransactions")).close();
+        assertNotNull(metricsRecorder.snapshot().getRequests().get("GET " + host + "/Record/{id}/Hold"));
+        assertNotNull(metricsRecorder.snapshot().getRequests().get("GET " + host + "/AJAX/JSON?method=getUserTransactions"));
+        assertEquals(2, metricsRecorder.snapshot().getRequests().size());
+    }
+}
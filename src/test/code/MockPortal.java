@@ -0,0 +1,81 @@
+package code;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal Finna portal for MockWebServer: login with csrf, PHPSESSID sessions that can be expired and
+ * MyResearch pages that show the login form when the session is not valid
+ */
+public class MockPortal extends Dispatcher {
+
+    public static final String LOGIN_FORM = "<html><body><form><input name=\"csrf\" value=\"token\"><input type=\"submit\" name=\"processLogin\" value=\"Login\"></form></body></html>";
+    public static final String LOANS_PAGE = "<html><body><table class=\"myresearch-table\"><tr class=\"myresearch-row\" id=\"recordtest.1\"><td><a class=\"record-title\">Title</a></td></tr></table></body></html>";
+    public static final String HOLDS_PAGE = "<html><body><table class=\"myresearch-table\"></table></body></html>";
+    public static final String FINES_PAGE = "<html><body></body></html>";
+
+    public final AtomicInteger loginPosts = new AtomicInteger();
+    public final AtomicInteger validations = new AtomicInteger();
+    private final AtomicInteger sessionCounter = new AtomicInteger();
+    private final Set<String> validSessions = ConcurrentHashMap.newKeySet();
+    // Path prefix -> response for logged in users
+    private final Map<String, MockResponse> pages = new ConcurrentHashMap<>();
+
+    public MockPortal() {
+        page("/MyResearch/CheckedOut", new MockResponse().setBody(LOANS_PAGE));
+        page("/MyResearch/Holds", new MockResponse().setBody(HOLDS_PAGE));
+        page("/MyResearch/Fines", new MockResponse().setBody(FINES_PAGE));
+    }
+
+    public MockPortal page(String pathPrefix, MockResponse response) {
+        pages.put(pathPrefix, response);
+        return this;
+    }
+
+    public void expireSessions() {
+        validSessions.clear();
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+        String path = request.getPath();
+        boolean loggedIn = validSessions.contains(sessionOf(request));
+        if (path.startsWith("/MyResearch/UserLogin")) {
+            return new MockResponse().setBody(LOGIN_FORM).setBodyDelay(50, TimeUnit.MILLISECONDS);
+        } else if (path.startsWith("/MyResearch/Home") && request.getMethod().equals("POST")) {
+            loginPosts.incrementAndGet();
+            String session = "s" + sessionCounter.incrementAndGet();
+            validSessions.add(session);
+            return new MockResponse().setResponseCode(205).addHeader("Set-Cookie", "PHPSESSID=" + session + "; Path=/").setHeadersDelay(100, TimeUnit.MILLISECONDS);
+        } else if (path.startsWith("/AJAX/JSON?method=getUserTransactions")) {
+            validations.incrementAndGet();
+            return new MockResponse().setResponseCode(loggedIn ? 200 : 401).setBody("{}");
+        } else if (!loggedIn) {
+            return new MockResponse().setBody(LOGIN_FORM);
+        }
+        for (Map.Entry<String, MockResponse> page : pages.entrySet()) {
+            if (path.startsWith(page.getKey()))
+                return page.getValue();
+        }
+        return new MockResponse().setResponseCode(404);
+    }
+
+    private static String sessionOf(RecordedRequest request) {
+        String cookies = request.getHeader("Cookie");
+        if (cookies != null) {
+            for (String cookie : cookies.split(";")) {
+                String[] parts = cookie.trim().split("=", 2);
+                if (parts.length == 2 && parts[0].equals("PHPSESSID"))
+                    return parts[1];
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,72 @@
+package code;
+
+import com.google.gson.Gson;
+import org.junit.Test;
+import org.openfinna.java.connector.classes.models.holds.Hold;
+import org.openfinna.java.connector.classes.models.holds.HoldStatus;
+import org.openfinna.java.connector.classes.models.loans.Loan;
+import org.openfinna.java.connector.parser.KirkesHTMLParser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MyResearchStreamParsingTest {
+
+    private static final String ORIGIN = "https://finna.fi";
+    private final Gson gson = new Gson();
+
+    @Test
+    public void loansMatchDomParser() throws Exception {
+        String html = fixture("myresearch_loans.html");
+        List<Loan> expected = KirkesHTMLParser.parseLoans(html, ORIGIN);
+        assertEquals(40, expected.size());
+
+        assertEquals(gson.toJson(expected), gson.toJson(KirkesHTMLParser.parseLoans(new StringReader(html), ORIGIN)));
+        assertEquals(gson.toJson(expected), gson.toJson(KirkesHTMLParser.parseLoans(new TrickleReader(html), ORIGIN)));
+        assertEquals(gson.toJson(expected), gson.toJson(KirkesHTMLParser.parseLoans(
+                new InputStreamReader(new FileInputStream(new File("src/test/resources/fixtures", "myresearch_loans.html")), StandardCharsets.UTF_8), ORIGIN)));
+    }
+
+    @Test
+    public void holdsMatchDomParser() throws Exception {
+        String html = fixture("myresearch_holds.html");
+        List<Hold> expected = KirkesHTMLParser.parseHolds(html, ORIGIN);
+        assertEquals(40, expected.size());
+        assertTrue(expected.stream().anyMatch(hold -> hold.getHoldStatus() == HoldStatus.AVAILABLE));
+        assertTrue(expected.stream().anyMatch(hold -> hold.getHoldStatus() == HoldStatus.IN_TRANSIT));
+
+        assertEquals(gson.toJson(expected), gson.toJson(KirkesHTMLParser.parseHolds(new StringReader(html), ORIGIN)));
+        assertEquals(gson.toJson(expected), gson.toJson(KirkesHTMLParser.parseHolds(new TrickleReader(html), ORIGIN)));
+    }
+
+    @Test
+    public void portalPagesMatchDomParser() throws Exception {
+        assertEquals(gson.toJson(KirkesHTMLParser.parseLoans(MockPortal.LOANS_PAGE, ORIGIN)), gson.toJson(KirkesHTMLParser.parseLoans(new StringReader(MockPortal.LOANS_PAGE), ORIGIN)));
+        assertEquals(gson.toJson(KirkesHTMLParser.parseHolds(MockPortal.HOLDS_PAGE, ORIGIN)), gson.toJson(KirkesHTMLParser.parseHolds(new StringReader(MockPortal.HOLDS_PAGE), ORIGIN)));
+        assertTrue(KirkesHTMLParser.parseLoans(new StringReader("<html><body>No table</body></html>"), ORIGIN).isEmpty());
+    }
+
+    private static String fixture(String name) throws IOException {
+        return new String(Files.readAllBytes(new File("src/test/resources/fixtures", name).toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns a few characters at a time so that tokens are split between reads
+     */
+    private static final class TrickleReader extends StringReader {
+        private int count;
+
+        TrickleReader(String text) {
+            super(text);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return super.read(buffer, offset, Math.min(length, 1 + count++ % 3));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package code;
+
+import okhttp3.Call;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openfinna.java.connector.http.RateLimiter;
+import org.openfinna.java.connector.http.WebClient;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RateLimiterTest {
+
+    private final List<String> arrivals = new CopyOnWriteArrayList<>();
+    private final AtomicInteger throttle = new AtomicInteger();
+    private MockWebServer server;
+    private String host;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                arrivals.add(request.getRequestUrl().queryParameter("n"));
+                if (throttle.getAndDecrement() > 0)
+                    return new MockResponse().setResponseCode(429).setHeader("Retry-After", "1");
+                return new MockResponse().setBody("ok");
+            }
+        });
+        server.start();
+        host = server.url("/").host();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void queuedRequestsAreServedRoundRobin() throws Exception {
+        RateLimiter rateLimiter = new RateLimiter.Builder().defaultLimit(20, 1).build();
+        WebClient first = client(rateLimiter);
+        WebClient second = client(rateLimiter);
+        CountDownLatch done = new CountDownLatch(12);
+        for (int i = 0; i < 10; i++) {
+            get(first, "a" + i, done);
+        }
+        get(second, "b0", done);
+        get(second, "b1", done);
+        assertTrue(rateLimiter.getQueueDepth(host) > 0);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(12, arrivals.size());
+        // The second client does not wait behind the whole burst of the first one. Calls started close together may
+        // reach the server in either order, so allow some slack
+        assertTrue(arrivals.toString(), arrivals.indexOf("b1") < 8);
+        assertEquals(0, rateLimiter.getQueueDepth(host));
+    }
+
+    @Test
+    public void backsOffOnTooManyRequests() throws Exception {
+        RateLimiter rateLimiter = new RateLimiter.Builder().defaultLimit(20, 5).increment(1).build();
+        WebClient webClient = client(rateLimiter);
+        throttle.set(1);
+        try (Response response = webClient.executeGetRequest(false, true, server.url("/?n=0"))) {
+            assertEquals(429, response.code());
+        }
+        assertEquals(10, rateLimiter.getRate(host), 0.001);
+        assertEquals(1, rateLimiter.getThrottledCount(host));
+
+        long start = System.nanoTime();
+        try (Response response = webClient.executeGetRequest(false, true, server.url("/?n=1"))) {
+            assertEquals(200, response.code());
+        }
+        // Retry-After pauses the host
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900));
+        assertEquals(11, rateLimiter.getRate(host), 0.001);
+    }
+
+    private WebClient client(RateLimiter rateLimiter) {
+        return new WebClient.Builder().baseUrl(server.url("/").toString()).rateLimiter(rateLimiter).build();
+    }
+
+    private void get(WebClient webClient, String n, CountDownLatch done) {
+        webClient.getRequest(false, true, server.url("/?n=" + n), new WebClient.WebClientListener() {
+            @Override
+            public void onFailed(@NotNull Call call, @NotNull IOException e) {
+            }
+
+            @Override
+            public void onResponse(@NotNull Response response) {
+                response.close();
+                done.countDown();
+            }
+        });
+    }
+}
@@ -0,0 +1,105 @@
+package code;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openfinna.java.connector.FinnaAsyncClient;
+import org.openfinna.java.connector.FinnaClient;
+import org.openfinna.java.connector.classes.ResourceInfo;
+import org.openfinna.java.connector.classes.ResourceInfoBatch;
+import org.openfinna.java.connector.classes.models.resource.RecordField;
+import org.openfinna.java.connector.http.WebClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ResourceInfoBatchTest {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final List<List<String>> fieldRequests = new CopyOnWriteArrayList<>();
+    private MockWebServer server;
+    private FinnaAsyncClient asyncClient;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                int current = inFlight.incrementAndGet();
+                maxInFlight.accumulateAndGet(current, Math::max);
+                try {
+                    Thread.sleep(100);
+                    HttpUrl url = request.getRequestUrl();
+                    fieldRequests.add(url.queryParameterValues("field[]"));
+                    boolean formats = url.queryParameterValues("field[]").contains("formats");
+                    StringBuilder records = new StringBuilder();
+                    int count = 0;
+                    List<String> ids = new ArrayList<>(url.queryParameterValues("id[]"));
+                    if (url.queryParameter("id") != null)
+                        ids.add(url.queryParameter("id"));
+                    for (String id : ids) {
+                        if (id.startsWith("missing"))
+                            continue;
+                        if (count++ > 0)
+                            records.append(',');
+                        records.append("{\"id\":\"").append(id).append("\",\"title\":\"").append(id).append(formats ? "\",\"formats\":[]}" : "\"}");
+                    }
+                    return new MockResponse().setBody("{\"resultCount\":" + count + ",\"records\":[" + records + "],\"status\":\"OK\"}");
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+        server.start();
+        String url = server.url("/").toString();
+        asyncClient = new FinnaAsyncClient(new FinnaClient(new WebClient.Builder().baseUrl(url).apiBaseUrl(url).build()));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void chunkedConcurrentLookup() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 450; i++) {
+            ids.add((i % 50 == 0 ? "missing." : "test.") + i);
+        }
+        ids.add("test.1");
+        ResourceInfoBatch batch = asyncClient.resourceInfos(ids, false, 2).get(10, TimeUnit.SECONDS);
+
+        assertEquals(5, server.getRequestCount());
+        assertEquals(2, maxInFlight.get());
+        assertEquals(441, batch.getResourceInfos().size());
+        assertEquals(9, batch.getMissingIds().size());
+        assertTrue(batch.getMissingIds().contains("missing.0"));
+        assertEquals("test.1", batch.getResourceInfos().keySet().iterator().next());
+        assertEquals("test.2", batch.getResourceInfos().get("test.2").getTitle());
+    }
+
+    @Test
+    public void projectedFields() throws Exception {
+        ResourceInfo resourceInfo = asyncClient.resourceInfo("test.1", EnumSet.of(RecordField.TITLE)).get(10, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("id", "title"), fieldRequests.get(0));
+        assertEquals("test.1", resourceInfo.getTitle());
+        assertTrue(resourceInfo.getFormats().isEmpty());
+        assertTrue(resourceInfo.getTopics().isEmpty());
+    }
+}
@@ -0,0 +1,145 @@
+package code;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openfinna.java.connector.FinnaAsyncClient;
+import org.openfinna.java.connector.FinnaBlockingClient;
+import org.openfinna.java.connector.FinnaClient;
+import org.openfinna.java.connector.cache.CacheStats;
+import org.openfinna.java.connector.cache.LruResourceInfoCache;
+import org.openfinna.java.connector.classes.ResourceInfo;
+import org.openfinna.java.connector.classes.ResourceInfoBatch;
+import org.openfinna.java.connector.exceptions.FinnaNotFoundException;
+import org.openfinna.java.connector.http.WebClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ResourceInfoCacheTest {
+
+    private final List<List<String>> requestedIds = new CopyOnWriteArrayList<>();
+    private final AtomicLong time = new AtomicLong();
+    private MockWebServer server;
+    private FinnaClient finnaClient;
+    private FinnaAsyncClient asyncClient;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                Thread.sleep(100);
+                HttpUrl url = request.getRequestUrl();
+                List<String> ids = new ArrayList<>(url.queryParameterValues("id[]"));
+                if (url.queryParameter("id") != null)
+                    ids.add(url.queryParameter("id"));
+                requestedIds.add(ids);
+                StringBuilder records = new StringBuilder();
+                int count = 0;
+                for (String id : ids) {
+                    if (id.startsWith("missing"))
+                        continue;
+                    if (count++ > 0)
+                        records.append(',');
+                    records.append("{\"id\":\"").append(id).append("\",\"title\":\"").append(id).append("\"}");
+                }
+                return new MockResponse().setBody("{\"resultCount\":" + count + ",\"records\":[" + records + "],\"status\":\"OK\"}");
+            }
+        });
+        server.start();
+        String url = server.url("/").toString();
+        finnaClient = new FinnaClient(new WebClient.Builder().baseUrl(url).apiBaseUrl(url).build());
+        asyncClient = new FinnaAsyncClient(finnaClient);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void concurrentMissesShareOneRequest() throws Exception {
+        finnaClient.setResourceInfoCache(new LruResourceInfoCache.Builder().build());
+        List<CompletableFuture<ResourceInfo>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(asyncClient.resourceInfo("test.1"));
+        }
+        for (CompletableFuture<ResourceInfo> result : results) {
+            assertEquals("test.1", result.get(10, TimeUnit.SECONDS).getTitle());
+        }
+        assertEquals("test.1", asyncClient.resourceInfo("test.1").get(10, TimeUnit.SECONDS).getTitle());
+        // Another field selection is another entry
+        asyncClient.resourceInfo("test.1", true).get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, server.getRequestCount());
+        CacheStats stats = finnaClient.getResourceInfoCache().stats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(9, stats.getMissCount());
+        assertEquals(2, stats.getEntryCount());
+    }
+
+    @Test
+    public void notFoundIsCached() throws Exception {
+        finnaClient.setResourceInfoCache(new LruResourceInfoCache.Builder().build());
+        for (int i = 0; i < 2; i++) {
+            try {
+                asyncClient.resourceInfo("missing.1").get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof FinnaNotFoundException);
+            }
+        }
+        assertEquals(1, server.getRequestCount());
+
+        asyncClient.resourceInfo("test.1").get(10, TimeUnit.SECONDS);
+        ResourceInfoBatch batch = asyncClient.resourceInfos(Arrays.asList("missing.1", "test.1", "test.2", "missing.2")).get(10, TimeUnit.SECONDS);
+
+        // Only the ids the cache knows nothing about are fetched
+        assertEquals(Arrays.asList("test.2", "missing.2"), requestedIds.get(2));
+        assertEquals(Arrays.asList("test.1", "test.2"), new ArrayList<>(batch.getResourceInfos().keySet()));
+        assertEquals(Arrays.asList("missing.1", "missing.2"), new ArrayList<>(batch.getMissingIds()));
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedAndExpires() throws Exception {
+        finnaClient.setResourceInfoCache(new LruResourceInfoCache.Builder()
+                .maximumWeight(2)
+                .weigher(resourceInfo -> 1)
+                .expireAfter(10, TimeUnit.MINUTES)
+                .ticker(time::get)
+                .build());
+        FinnaBlockingClient blockingClient = new FinnaBlockingClient(finnaClient);
+        blockingClient.resourceInfo("test.1");
+        blockingClient.resourceInfo("test.2");
+        blockingClient.resourceInfo("test.1");
+        // test.2 is the least recently used one
+        blockingClient.resourceInfo("test.3");
+        assertEquals(1, finnaClient.getResourceInfoCache().stats().getEvictionCount());
+        assertEquals(3, server.getRequestCount());
+
+        blockingClient.resourceInfos(Arrays.asList("test.1", "test.2", "test.3"), false);
+        assertEquals(Collections.singletonList("test.2"), requestedIds.get(3));
+
+        time.addAndGet(TimeUnit.MINUTES.toNanos(11));
+        blockingClient.resourceInfo("test.2");
+        assertEquals(5, server.getRequestCount());
+    }
+}
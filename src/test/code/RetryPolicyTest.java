@@ -0,0 +1,101 @@
+package code;
+
+import okhttp3.Call;
+import okhttp3.FormBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openfinna.java.connector.http.RetryPolicy;
+import org.openfinna.java.connector.http.WebClient;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest {
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void retriesGetAfterDroppedConnection() throws Exception {
+        WebClient webClient = client(new RetryPolicy.Builder().backoff(10, 50, TimeUnit.MILLISECONDS).build());
+        // OkHttp itself retries a failed request on a pooled connection, so none is reused here
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(new MockResponse().setHeader("Connection", "close").setBody("ok"));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(new MockResponse().setHeader("Connection", "close").setBody("ok"));
+
+        CompletableFuture<Integer> code = new CompletableFuture<>();
+        webClient.getRequest(false, true, server.url("/AJAX/JSON?method=getOrganisationInfo"), new WebClient.WebClientListener() {
+            @Override
+            public void onFailed(@NotNull Call call, @NotNull IOException e) {
+                code.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(@NotNull Response response) {
+                response.close();
+                code.complete(response.code());
+            }
+        });
+        assertEquals(200, (int) code.get(10, TimeUnit.SECONDS));
+        try (Response response = webClient.executeGetRequest(false, true, server.url("/api/v1/record?id=1"))) {
+            assertEquals(200, response.code());
+        }
+
+        assertEquals(4, server.getRequestCount());
+        String host = server.url("/").host();
+        assertEquals(1L, (long) webClient.getRetryPolicy().getRetryCounts().get(host + "/AJAX/JSON?method=getOrganisationInfo"));
+        assertEquals(1L, (long) webClient.getRetryPolicy().getRetryCounts().get(host + "/api/v1/record"));
+    }
+
+    @Test
+    public void neverReplaysPost() throws Exception {
+        WebClient webClient = client(new RetryPolicy.Builder().backoff(10, 50, TimeUnit.MILLISECONDS).build());
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(new MockResponse().setBody("ok"));
+        try {
+            webClient.executePostRequest(true, false, server.url("/MyResearch/Holds"), new FormBody.Builder().add("cancelSelected", "1").build()).close();
+            fail();
+        } catch (IOException expected) {
+        }
+        assertEquals(1, server.getRequestCount());
+        assertTrue(webClient.getRetryPolicy().getRetryCounts().isEmpty());
+    }
+
+    @Test
+    public void stopsAtDeadline() throws Exception {
+        WebClient webClient = client(new RetryPolicy.Builder().maxAttempts(10).backoff(50, 50, TimeUnit.MILLISECONDS).deadline(0, TimeUnit.MILLISECONDS).build());
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(new MockResponse().setBody("ok"));
+        try {
+            webClient.executeGetRequest(false, true, server.url("/api/v1/search")).close();
+            fail();
+        } catch (IOException expected) {
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private WebClient client(RetryPolicy retryPolicy) {
+        String url = server.url("/").toString();
+        return new WebClient.Builder().baseUrl(url).apiBaseUrl(url).retryPolicy(retryPolicy).build();
+    }
+}
@@ -0,0 +1,169 @@
+package code;
+
+import okhttp3.*;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openfinna.java.connector.FinnaAsyncClient;
+import org.openfinna.java.connector.FinnaClient;
+import org.openfinna.java.connector.classes.models.building.Building;
+import org.openfinna.java.connector.classes.models.libraries.Library;
+import org.openfinna.java.connector.http.RevalidatingCache;
+import org.openfinna.java.connector.http.WebClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RevalidatingCacheTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    private final List<String> conditions = new CopyOnWriteArrayList<>();
+    private MockWebServer server;
+    private FinnaClient finnaClient;
+    private FinnaAsyncClient asyncClient;
+
+    @Before
+    public void setUp() throws IOException {
+        String json = new String(Files.readAllBytes(new File("src/test/resources/fixtures", "libraries_consortium.json").toPath()), StandardCharsets.UTF_8);
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String ifNoneMatch = request.getHeader("If-None-Match");
+                conditions.add(String.valueOf(ifNoneMatch));
+                if (ETAG.equals(ifNoneMatch))
+                    return new MockResponse().setResponseCode(304).setHeader("ETag", ETAG);
+                return new MockResponse().setHeader("ETag", ETAG).setBody(json);
+            }
+        });
+        server.start();
+        finnaClient = new FinnaClient(new WebClient.Builder().baseUrl(server.url("/").toString()).build());
+        finnaClient.setCachedBuilding(new Building("0/Helmet/", "Helmet"));
+        asyncClient = new FinnaAsyncClient(finnaClient);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        finnaClient.getOrganisationCache().stopRefresh();
+        server.shutdown();
+    }
+
+    @Test
+    public void cachedWithinMaxAge() throws Exception {
+        List<Library> libraries = asyncClient.getLibraries().get(10, TimeUnit.SECONDS);
+        assertFalse(libraries.isEmpty());
+        assertSame(libraries, asyncClient.getLibraries().get(10, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void notModifiedReturnsCachedModels() throws Exception {
+        finnaClient.getOrganisationCache().setMaxAge(0, TimeUnit.SECONDS);
+        List<Library> libraries = asyncClient.getLibraries().get(10, TimeUnit.SECONDS);
+        assertSame(libraries, asyncClient.getLibraries().get(10, TimeUnit.SECONDS));
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals("null", conditions.get(0));
+        assertEquals(ETAG, conditions.get(1));
+    }
+
+    @Test
+    public void refreshesInBackground() throws Exception {
+        List<Library> libraries = asyncClient.getLibraries().get(10, TimeUnit.SECONDS);
+        finnaClient.getOrganisationCache().startRefresh(50, TimeUnit.MILLISECONDS);
+        // Only entries read since the previous refresh are revalidated
+        assertSame(libraries, asyncClient.getLibraries().get(10, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (server.getRequestCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(ETAG, conditions.get(1));
+        assertSame(libraries, asyncClient.getLibraries().get(10, TimeUnit.SECONDS));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void concurrentCallersShareOneRequest() {
+        RevalidatingCache cache = new RevalidatingCache();
+        List<RevalidatingCache.Listener<Response>> pending = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            cache.get("key", (conditions, listener) -> pending.add(listener), ResponseBody::string, collect(results));
+        }
+        assertEquals(1, pending.size());
+        assertTrue(results.isEmpty());
+
+        pending.get(0).onResult(response("value"));
+        assertEquals(3, results.size());
+        assertSame(results.get(0), results.get(2));
+        // Loaded, the next caller does not fetch
+        cache.get("key", (conditions, listener) -> pending.add(listener), ResponseBody::string, collect(results));
+        assertEquals(1, pending.size());
+        assertEquals(4, results.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreDropped() {
+        RevalidatingCache cache = new RevalidatingCache();
+        cache.setMaximumSize(2);
+        AtomicInteger fetches = new AtomicInteger();
+        RevalidatingCache.Fetcher fetcher = (conditions, listener) -> {
+            fetches.incrementAndGet();
+            listener.onResult(response("value"));
+        };
+        List<String> results = new ArrayList<>();
+        cache.get("a", fetcher, ResponseBody::string, collect(results));
+        cache.get("b", fetcher, ResponseBody::string, collect(results));
+        cache.get("a", fetcher, ResponseBody::string, collect(results));
+        cache.get("c", fetcher, ResponseBody::string, collect(results));
+        assertEquals(3, fetches.get());
+
+        // b was the least recently used one
+        cache.get("a", fetcher, ResponseBody::string, collect(results));
+        assertEquals(3, fetches.get());
+        cache.get("b", fetcher, ResponseBody::string, collect(results));
+        assertEquals(4, fetches.get());
+        assertEquals(6, results.size());
+    }
+
+    private static RevalidatingCache.Listener<String> collect(List<String> results) {
+        return new RevalidatingCache.Listener<String>() {
+            @Override
+            public void onResult(String result) {
+                results.add(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e.toString());
+            }
+        };
+    }
+
+    private static Response response(String body) {
+        return new Response.Builder()
+                .request(new Request.Builder().url("http://localhost/").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(body, MediaType.get("text/plain")))
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package code;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openfinna.java.connector.FinnaBlockingClient;
+import org.openfinna.java.connector.FinnaClient;
+import org.openfinna.java.connector.SearchIterator;
+import org.openfinna.java.connector.classes.UserAuthentication;
+import org.openfinna.java.connector.classes.models.UserType;
+import org.openfinna.java.connector.classes.models.building.Building;
+import org.openfinna.java.connector.http.WebClient;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class SearchIteratorTest {
+
+    private static final int TOTAL = 1050;
+
+    private final MockPortal portal = new MockPortal();
+    private final AtomicInteger searches = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private MockWebServer server;
+    private FinnaClient finnaClient;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (!request.getPath().startsWith("/api/v1/search"))
+                    return portal.dispatch(request);
+                searches.incrementAndGet();
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(50);
+                    HttpUrl url = request.getRequestUrl();
+                    int page = Integer.parseInt(url.queryParameter("page"));
+                    int limit = Integer.parseInt(url.queryParameter("limit"));
+                    StringBuilder records = new StringBuilder();
+                    for (int i = (page - 1) * limit; i < Math.min(page * limit, TOTAL); i++) {
+                        if (records.length() > 0)
+                            records.append(',');
+                        records.append("{\"id\":\"test.").append(i).append("\",\"formats\":[]}");
+                    }
+                    return new MockResponse().setBody("{\"resultCount\":" + TOTAL + ",\"records\":[" + records + "],\"status\":\"OK\"}");
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+        server.start();
+        String url = server.url("/").toString();
+        finnaClient = new FinnaClient(new WebClient.Builder().baseUrl(url).apiBaseUrl(url).build());
+        new FinnaBlockingClient(finnaClient).login(new UserAuthentication(new UserType("test", ""), "user", "pass"), false);
+        finnaClient.setCachedBuilding(new Building("0/Test/", "Test"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void iteratesAllPagesInOrder() {
+        int count = 0;
+        try (SearchIterator iterator = finnaClient.searchIterator("test", 100, false, 3)) {
+            while (iterator.hasNext()) {
+                assertEquals("test." + count, iterator.next().getId());
+                count++;
+            }
+        }
+        assertEquals(TOTAL, count);
+        assertEquals(11, searches.get());
+        assertTrue(maxInFlight.get() > 1);
+        assertTrue(maxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void stopsFetchingWhenConsumerStops() throws Exception {
+        List<String> ids;
+        try (Stream<String> stream = finnaClient.searchStream("test", 100, false, 3).map(resourceInfo -> resourceInfo.getId())) {
+            ids = stream.limit(150).collect(Collectors.toList());
+        }
+        assertEquals(150, ids.size());
+        Thread.sleep(200);
+        // Pages 1 and 2 were consumed, at most 3 more were prefetched
+        assertTrue(searches.get() <= 5);
+    }
+}
@@ -0,0 +1,208 @@
+package code;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openfinna.java.connector.FinnaAsyncClient;
+import org.openfinna.java.connector.FinnaClient;
+import org.openfinna.java.connector.classes.UserAuthentication;
+import org.openfinna.java.connector.classes.models.User;
+import org.openfinna.java.connector.classes.models.UserType;
+import org.openfinna.java.connector.classes.models.fines.Fines;
+import org.openfinna.java.connector.classes.models.holds.Hold;
+import org.openfinna.java.connector.classes.models.holds.PickupLocation;
+import org.openfinna.java.connector.classes.models.loans.Loan;
+import org.openfinna.java.connector.exceptions.SessionValidationException;
+import org.openfinna.java.connector.http.WebClient;
+import org.openfinna.java.connector.interfaces.FinesInterface;
+import org.openfinna.java.connector.interfaces.HoldsInterface;
+import org.openfinna.java.connector.interfaces.LoansInterface;
+import org.openfinna.java.connector.interfaces.LoginInterface;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Fires loans, holds and fines requests in parallel after the session has expired on the server
+ * and checks that the client logs in again exactly once
+ */
+public class SessionSingleFlightTest {
+
+    private static final int PARALLEL = 8;
+
+    private final MockPortal portal = new MockPortal();
+    private MockWebServer server;
+    private FinnaClient finnaClient;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(portal);
+        server.start();
+        finnaClient = new FinnaClient(new WebClient.Builder().baseUrl(server.url("/").toString()).build());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void singleLoginForParallelCalls() throws Exception {
+        login();
+        assertEquals(1, portal.loginPosts.get());
+
+        // Session expires on the server side
+        portal.expireSessions();
+
+        Queue<Exception> errors = new ConcurrentLinkedQueue<>();
+        AtomicInteger loans = new AtomicInteger();
+        CountDownLatch countDownLatch = new CountDownLatch(PARALLEL * 3);
+        for (int i = 0; i < PARALLEL; i++) {
+            finnaClient.getLoans(new LoansInterface() {
+                @Override
+                public void onGetLoans(List<Loan> loanList) {
+                    loans.addAndGet(loanList.size());
+                    countDownLatch.countDown();
+                }
+
+                @Override
+                public void onLoanRenew(Loan loan, String status) {
+
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    errors.add(e);
+                    countDownLatch.countDown();
+                }
+            });
+            finnaClient.getHolds(new HoldsInterface() {
+                @Override
+                public void onGetHolds(List<Hold> holds) {
+                    countDownLatch.countDown();
+                }
+
+                @Override
+                public void onChangePickupLocation(Hold hold) {
+
+                }
+
+                @Override
+                public void onMakeHold() {
+
+                }
+
+                @Override
+                public void onCancelHold() {
+
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    errors.add(e);
+                    countDownLatch.countDown();
+                }
+            });
+            finnaClient.getFines(new FinesInterface() {
+                @Override
+                public void onFines(Fines fines) {
+                    countDownLatch.countDown();
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    errors.add(e);
+                    countDownLatch.countDown();
+                }
+            });
+        }
+        assertTrue(countDownLatch.await(30, TimeUnit.SECONDS));
+        assertTrue("Errors: " + errors, errors.isEmpty());
+        assertEquals(PARALLEL, loans.get());
+        assertEquals(2, portal.loginPosts.get());
+    }
+
+    @Test
+    public void makeHoldLogsInAgainAfterExpiry() throws Exception {
+        portal.page("/Record/test.1/AjaxTab", new MockResponse().setBody("<html><body><a class=\"placehold btn btn-primary hidden-print\" href=\"/Record/test.1/Hold?id=test.1&hashKey=abc#tabnav\">Hold</a></body></html>"));
+        portal.page("/Record/test.1/Hold", new MockResponse().setResponseCode(302).setHeader("Location", "/Record/test.1"));
+        login();
+        portal.expireSessions();
+
+        new FinnaAsyncClient(finnaClient).makeHold("test.1", new PickupLocation("1", "Library"), null, null, null, null).get(10, TimeUnit.SECONDS);
+        assertEquals(2, portal.loginPosts.get());
+    }
+
+    @Test
+    public void holdRedirectedToLoginIsNotPlaced() throws Exception {
+        portal.page("/Record/test.1/AjaxTab", new MockResponse().setBody("<html><body><a class=\"placehold btn btn-primary hidden-print\" href=\"/Record/test.1/Hold?id=test.1&hashKey=abc#tabnav\">Hold</a></body></html>"));
+        portal.page("/Record/test.1/Hold", new MockResponse().setResponseCode(302).setHeader("Location", "/MyResearch/UserLogin"));
+        login();
+        try {
+            new FinnaAsyncClient(finnaClient).makeHold("test.1", new PickupLocation("1", "Library"), null, null, null, null).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+        }
+    }
+
+    @Test
+    public void streamedPagesLogInAgainAfterExpiry() throws Exception {
+        finnaClient.setStreamingHtml(true);
+        login();
+        portal.expireSessions();
+
+        FinnaAsyncClient asyncClient = new FinnaAsyncClient(finnaClient);
+        assertEquals(1, asyncClient.getLoans().get(10, TimeUnit.SECONDS).size());
+        assertEquals(0, asyncClient.getHolds().get(10, TimeUnit.SECONDS).size());
+        assertEquals(2, portal.loginPosts.get());
+    }
+
+    @Test
+    public void streamedLoginFormAfterReLoginFails() throws Exception {
+        portal.page("/MyResearch/CheckedOut", new MockResponse().setBody(MockPortal.LOGIN_FORM));
+        finnaClient.setStreamingHtml(true);
+        login();
+        try {
+            new FinnaAsyncClient(finnaClient).getLoans().get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof SessionValidationException);
+        }
+        // Revalidated once after the first login form, the server still accepts the session
+        assertEquals(1, portal.validations.get());
+    }
+
+    private void login() throws InterruptedException {
+        CountDownLatch countDownLatch = new CountDownLatch(1);
+        AtomicReference<Exception> error = new AtomicReference<>();
+        finnaClient.login(new UserAuthentication(new UserType("test", ""), "user", "pass"), false, new LoginInterface() {
+            @Override
+            public void onError(Exception e) {
+                error.set(e);
+                countDownLatch.countDown();
+            }
+
+            @Override
+            public void onLogin(UserAuthentication userAuthentication, User user) {
+                countDownLatch.countDown();
+            }
+        });
+        assertTrue("Login timed out", countDownLatch.await(10, TimeUnit.SECONDS));
+        assertNull(String.valueOf(error.get()), error.get());
+    }
+}
@@ -0,0 +1,140 @@
+package code;
+
+import okhttp3.*;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openfinna.java.connector.http.WebClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the old "four independent OkHttpClients per WebClient" setup with the shared transport
+ * under concurrent load. Every new connection opened to the mock server corresponds to one handshake
+ */
+public class WebClientTransportTest {
+
+    private static final int CLIENTS = 50;
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void sharedTransport() throws Exception {
+        LoadResult legacy = runLegacyLoad();
+        LoadResult shared = runSharedLoad();
+        assertTrue("connections: " + shared.connections + " shared, " + legacy.connections + " legacy", shared.connections < legacy.connections);
+        assertTrue("dispatcher threads: " + shared.threads + " shared, " + legacy.threads + " legacy", shared.threads < legacy.threads);
+    }
+
+    /**
+     * Same construction as WebClient used before: four clients, each with its own pool and dispatcher
+     */
+    private LoadResult runLegacyLoad() throws Exception {
+        List<OkHttpClient> clients = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(new OkHttpClient.Builder().callTimeout(10, TimeUnit.SECONDS).build());
+            clients.add(new OkHttpClient.Builder().callTimeout(10, TimeUnit.SECONDS).build());
+            clients.add(new OkHttpClient.Builder().callTimeout(10, TimeUnit.SECONDS).followRedirects(false).followSslRedirects(false).build());
+            clients.add(new OkHttpClient.Builder().callTimeout(10, TimeUnit.SECONDS).followRedirects(false).followSslRedirects(false).build());
+        }
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch countDownLatch = new CountDownLatch(clients.size());
+        for (OkHttpClient client : clients) {
+            server.enqueue(new MockResponse().setBody("ok"));
+            client.newCall(new Request.Builder().url(server.url("/legacy")).build()).enqueue(new Callback() {
+                @Override
+                public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                    countDownLatch.countDown();
+                }
+
+                @Override
+                public void onResponse(@NotNull Call call, @NotNull Response response) {
+                    threads.add(Thread.currentThread());
+                    response.close();
+                    countDownLatch.countDown();
+                }
+            });
+        }
+        assertTrue(countDownLatch.await(30, TimeUnit.SECONDS));
+        return new LoadResult(countConnections(clients.size()), threads.size());
+    }
+
+    private LoadResult runSharedLoad() throws Exception {
+        List<WebClient> webClients = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            webClients.add(new WebClient());
+        }
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch countDownLatch = new CountDownLatch(webClients.size() * 4);
+        WebClient.WebClientListener listener = new WebClient.WebClientListener() {
+            @Override
+            public void onFailed(@NotNull Call call, @NotNull IOException e) {
+                countDownLatch.countDown();
+            }
+
+            @Override
+            public void onResponse(@NotNull Response response) {
+                threads.add(Thread.currentThread());
+                response.close();
+                countDownLatch.countDown();
+            }
+        };
+        String url = server.url("/shared").toString();
+        for (WebClient webClient : webClients) {
+            for (int i = 0; i < 4; i++) {
+                server.enqueue(new MockResponse().setBody("ok"));
+            }
+            webClient.getRequest(true, true, url, listener);
+            webClient.getRequest(false, true, url, listener);
+            webClient.getRequest(true, false, url, listener);
+            webClient.getRequest(false, false, url, listener);
+        }
+        assertTrue(countDownLatch.await(30, TimeUnit.SECONDS));
+        return new LoadResult(countConnections(webClients.size() * 4), threads.size());
+    }
+
+    private int countConnections(int requests) throws InterruptedException {
+        int connections = 0;
+        for (int i = 0; i < requests; i++) {
+            RecordedRequest request = server.takeRequest(10, TimeUnit.SECONDS);
+            assertTrue(request != null);
+            // Sequence number is the index of the request on its connection
+            if (request.getSequenceNumber() == 0)
+                connections++;
+        }
+        return connections;
+    }
+
+    private static class LoadResult {
+        private final int connections;
+        private final int threads;
+
+        private LoadResult(int connections, int threads) {
+            this.connections = connections;
+            this.threads = threads;
+        }
+    }
+}